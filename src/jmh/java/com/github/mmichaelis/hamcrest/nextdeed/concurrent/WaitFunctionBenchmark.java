@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Predicates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures the overhead of {@link WaitFunction#apply(Object)} for a predicate which is
+ * fulfilled immediately, i. e. the cost of one single poll including session setup.
+ * </p>
+ *
+ * @since SINCE
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WaitFunctionBenchmark {
+
+  private final Object item = new Object();
+  private Function<Object, Object> waitFunction;
+  private Function<Object, Object> waitFunctionWithListener;
+
+  @Setup
+  public void setUp() {
+    waitFunction = WaitFunction.waitFor(Functions.identity())
+        .toFulfill(Predicates.alwaysTrue())
+        .get();
+    waitFunctionWithListener = WaitFunction.waitFor(Functions.identity())
+        .toFulfill(Predicates.alwaysTrue())
+        .withListener(new ProbeListenerAdapter() {
+        })
+        .get();
+  }
+
+  @Benchmark
+  public Object applyImmediatelyFulfilled() {
+    return waitFunction.apply(item);
+  }
+
+  @Benchmark
+  public Object applyImmediatelyFulfilledWithListener() {
+    return waitFunctionWithListener.apply(item);
+  }
+
+  @Benchmark
+  public Function<Object, Object> build() {
+    return WaitFunction.waitFor(Functions.identity())
+        .toFulfill(Predicates.alwaysTrue())
+        .get();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.function;
+
+import com.google.common.base.Function;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.Matchers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures {@link ApplyingMatcher#matches(Object)} which remembers the last value in a
+ * {@code ThreadLocal} &mdash; single-threaded and with contention on the shared matcher.
+ * </p>
+ *
+ * @since SINCE
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApplyingMatcherBenchmark {
+
+  private final String item = "item";
+  private final Matcher<String> matcher = ApplyingMatcher.applying(
+      new Function<String, Integer>() {
+        @Override
+        public Integer apply(String input) {
+          return input.length();
+        }
+      },
+      Matchers.equalTo(4));
+
+  @Benchmark
+  public boolean matches() {
+    return matcher.matches(item);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public boolean matchesShared() {
+    return matcher.matches(item);
+  }
+}
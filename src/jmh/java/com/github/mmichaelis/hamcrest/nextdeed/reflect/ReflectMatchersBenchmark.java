@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.reflect;
+
+import org.hamcrest.Matcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures the throughput of the reflection based matchers: modifier matchers based on
+ * {@link ModifierMatcherBase}, {@link ClassDeclaresConstructor} and
+ * {@link InstantiableViaDefaultConstructor}, each for matching and mismatching items.
+ * </p>
+ *
+ * @since SINCE
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReflectMatchersBenchmark {
+
+  private final Matcher<Class<?>> classModifierIs =
+      ClassModifierMatcher.classModifierIs(Modifier.PUBLIC);
+  private final Matcher<Method> memberModifierContains =
+      MemberModifierMatcher.memberModifierContains(Modifier.STATIC);
+  private final Matcher<Class<?>> declaresDefaultConstructor =
+      ClassDeclaresConstructor.declaresConstructor();
+  private final Matcher<Class<?>> instantiable =
+      InstantiableViaDefaultConstructor.isInstantiableViaDefaultConstructor();
+  private Method staticMethod;
+
+  @Setup
+  public void setUp() throws NoSuchMethodException {
+    staticMethod = Collections.class.getMethod("emptyList");
+  }
+
+  @Benchmark
+  public boolean classModifierMatches() {
+    return classModifierIs.matches(ArrayList.class);
+  }
+
+  @Benchmark
+  public boolean classModifierMismatches() {
+    return classModifierIs.matches(Math.class);
+  }
+
+  @Benchmark
+  public boolean memberModifierMatches() {
+    return memberModifierContains.matches(staticMethod);
+  }
+
+  @Benchmark
+  public boolean declaresConstructorMatches() {
+    return declaresDefaultConstructor.matches(ArrayList.class);
+  }
+
+  @Benchmark
+  public boolean declaresConstructorMismatches() {
+    return declaresDefaultConstructor.matches(Integer.class);
+  }
+
+  @Benchmark
+  public boolean instantiableMatches() {
+    return instantiable.matches(ArrayList.class);
+  }
+
+  @Benchmark
+  public boolean instantiableMismatches() {
+    return instantiable.matches(Integer.class);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Matcher requiring all of the given matchers to match. In contrast to
+ * {@link org.hamcrest.Matchers#allOf(Iterable)} the mismatch description lists all matchers
+ * which did not match &mdash; not only the first one.
+ * </p>
+ *
+ * @param <R> type of values to match
+ * @see ProbeAssert#assertAll(com.google.common.base.Function, Iterable)
+ * @since SINCE
+ */
+final class AllOfMatcher<R> extends BaseMatcher<R> {
+
+  @NotNull
+  private final ImmutableList<Matcher<? super R>> matchers;
+
+  /**
+   * Constructor.
+   *
+   * @param matchers matchers which all need to match; at least one
+   * @throws IllegalArgumentException if no matchers are given
+   * @since SINCE
+   */
+  AllOfMatcher(@NotNull Iterable<? extends Matcher<? super R>> matchers) {
+    this.matchers = ImmutableList.copyOf(requireNonNull(matchers, "matchers must not be null."));
+    Preconditions.checkArgument(!this.matchers.isEmpty(), "At least one matcher required.");
+  }
+
+  @Override
+  public boolean matches(Object item) {
+    for (Matcher<? super R> matcher : matchers) {
+      if (!matcher.matches(item)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void describeTo(Description description) {
+    description.appendList("all of:\n  - ", "\n  - ", "", matchers);
+  }
+
+  @Override
+  public void describeMismatch(Object item, Description description) {
+    List<Matcher<? super R>> failed = new ArrayList<>();
+    for (Matcher<? super R> matcher : matchers) {
+      if (!matcher.matches(item)) {
+        failed.add(matcher);
+      }
+    }
+    description.appendText(String.valueOf(failed.size()))
+        .appendText(" of ")
+        .appendText(String.valueOf(matchers.size()))
+        .appendText(" failed:");
+    for (Matcher<? super R> matcher : failed) {
+      description.appendText("\n  - ")
+          .appendDescriptionOf(matcher)
+          .appendText(": ");
+      matcher.describeMismatch(item, description);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("matchers", matchers)
+        .toString();
+  }
+}
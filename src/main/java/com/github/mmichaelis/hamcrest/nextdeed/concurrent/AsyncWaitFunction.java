@@ -0,0 +1,319 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Asynchronous variant of {@link WaitFunction}. Instead of sleeping in the calling thread
+ * between two polls each evaluation is scheduled on an executor. Thus no thread is blocked
+ * while waiting for the next poll.
+ * </p>
+ * <p>
+ * Deadline, grace period and deceleration are the same as for the wrapped wait function.
+ * On timeout the timeout function of the wait function will be called and its result
+ * completes the future. If the timeout function throws an exception (which is the default
+ * behavior) the future will fail with this exception.
+ * </p>
+ * <p>
+ * If the wait function has a {@link ProbeTrigger}, firing it re-schedules a pending
+ * evaluation for immediate execution.
+ * </p>
+ * <p>
+ * Cancelling the returned future removes a pending evaluation from the executor. If the
+ * executor interrupts a running evaluation (for example on shutdown) the timeout function
+ * receives a {@linkplain WaitTimeoutEvent#isCancelled() cancelled} event.
+ * </p>
+ *
+ * @param <T> input the function will receive
+ * @param <R> output the returned future will provide
+ * @since SINCE
+ */
+final class AsyncWaitFunction<T, R> implements Function<T, ListenableFuture<R>> {
+
+  /**
+   * Wait function providing the configuration and timing.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final WaitFunction<T, R> waitFunction;
+  /**
+   * Executor to schedule the evaluations on.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final ScheduledExecutorService executor;
+
+  AsyncWaitFunction(@NotNull WaitFunction<T, R> waitFunction,
+                    @NotNull ScheduledExecutorService executor) {
+    this.waitFunction = requireNonNull(waitFunction, "waitFunction must not be null.");
+    this.executor = requireNonNull(executor, "executor must not be null.");
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Schedules the first evaluation for immediate execution and returns. The wait is
+   * bound to the {@link WaitBudget#current() current budget} of the calling thread.
+   * </p>
+   *
+   * @since SINCE
+   */
+  @Override
+  public ListenableFuture<R> apply(T item) {
+    return apply(item, WaitBudget.current());
+  }
+
+  /**
+   * Schedule the first evaluation of a wait within the given budget.
+   *
+   * @param item   item to apply the delegate function to
+   * @param budget budget to clamp the timeout to; {@code null} for none
+   * @return future providing the result
+   * @since SINCE
+   */
+  @NotNull
+  ListenableFuture<R> apply(T item, @Nullable WaitBudget budget) {
+    return start(item, budget).future;
+  }
+
+  /**
+   * Run a wait within the given budget and block until it is done. If the calling thread
+   * gets interrupted, the wait gets cancelled by its next poll, so that the timeout function
+   * receives the full details of the wait. The interrupt status is preserved.
+   *
+   * @param item   item to apply the delegate function to
+   * @param budget budget to clamp the timeout to; {@code null} for none
+   * @return result
+   * @since SINCE
+   */
+  R applyAndAwait(T item, @Nullable WaitBudget budget) {
+    Poll poll = start(item, budget);
+    try {
+      return poll.future.get();
+    } catch (InterruptedException e) {
+      poll.requestCancel();
+      try {
+        return Uninterruptibles.getUninterruptibly(poll.future);
+      } catch (ExecutionException e1) {
+        throw Throwables.propagate(e1.getCause());
+      } finally {
+        Thread.currentThread().interrupt();
+      }
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  @NotNull
+  private Poll start(T item, @Nullable WaitBudget budget) {
+    SettableFuture<R> future = SettableFuture.create();
+    final Poll poll = new Poll(future, item, budget);
+    final ProbeTrigger trigger = waitFunction.getTrigger();
+    if (trigger != null) {
+      trigger.addListener(poll.wakeUp);
+    }
+    future.addListener(new Runnable() {
+      @Override
+      public void run() {
+        if (trigger != null) {
+          trigger.removeListener(poll.wakeUp);
+        }
+        poll.cancelPending();
+      }
+    }, MoreExecutors.directExecutor());
+    executor.execute(poll);
+    return poll;
+  }
+
+  @NotNull
+  WaitFunction<T, R> getWaitFunction() {
+    return waitFunction;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("executor", executor)
+        .add("waitFunction", waitFunction)
+        .toString();
+  }
+
+  /**
+   * One evaluation of the delegate function, which re-schedules itself until the
+   * predicate is fulfilled or the wait timed out.
+   *
+   * @since SINCE
+   */
+  private final class Poll implements Runnable {
+
+    @NotNull
+    private final SettableFuture<R> future;
+    private final T item;
+    @Nullable
+    private final WaitBudget budget;
+    /**
+     * Wakes up a pending poll when the trigger fires or cancellation got requested.
+     * Cancelling the scheduled poll only succeeds if it did not start yet, so that it is
+     * executed at most once. Together with polls not touching the session once they
+     * published the next poll, this ensures that the session is never accessed concurrently.
+     *
+     * @since SINCE
+     */
+    private final Runnable wakeUp = new Runnable() {
+      @Override
+      public void run() {
+        ScheduledFuture<?> pending = next;
+        if (pending != null && pending.cancel(false)) {
+          try {
+            executor.execute(Poll.this);
+          } catch (RejectedExecutionException e) {
+            // No poll left to complete the future.
+            future.setException(e);
+          }
+        }
+      }
+    };
+    private WaitSession<T, R> session;
+    /**
+     * Next scheduled poll.
+     *
+     * @since SINCE
+     */
+    @Nullable
+    private volatile ScheduledFuture<?> next;
+    /**
+     * Signals the next poll to cancel the session instead of evaluating.
+     *
+     * @since SINCE
+     */
+    private volatile boolean cancelRequested;
+
+    private Poll(@NotNull SettableFuture<R> future, T item, @Nullable WaitBudget budget) {
+      this.future = future;
+      this.item = item;
+      this.budget = budget;
+    }
+
+    @Override
+    public void run() {
+      if (future.isDone()) {
+        // Cancelled meanwhile.
+        return;
+      }
+      try {
+        if (session == null) {
+          session = new WaitSession<>(waitFunction, item, budget);
+        }
+        if (cancelRequested) {
+          future.set(session.cancel());
+        } else if (session.evaluate()) {
+          future.set(session.getLastResult());
+        } else if (session.isTimedOut()) {
+          future.set(session.timeout());
+        } else {
+          long sleepTimeNanos = session.nextSleepTimeNanos();
+          if (!waitFunction.isOnSystemClock()) {
+            // Let the clock advance time; the executor only knows real time.
+            waitFunction.sleepNanos(sleepTimeNanos);
+            sleepTimeNanos = 0L;
+          }
+          long triggerGeneration = session.getTriggerGeneration();
+          next = executor.schedule(this, sleepTimeNanos, TimeUnit.NANOSECONDS);
+          // From now on the next poll may run at any time: Do not touch the session anymore.
+          ProbeTrigger trigger = waitFunction.getTrigger();
+          if (future.isDone()) {
+            // Cancelled before this poll was pending again.
+            cancelPending();
+          } else if (cancelRequested
+                     || trigger != null && trigger.generation() != triggerGeneration) {
+            // Requested or fired before this poll was pending again.
+            wakeUp.run();
+          }
+        }
+      } catch (InterruptedException e) {
+        // Preserve interrupt status for the executor, which is most likely shutting down.
+        Thread.currentThread().interrupt();
+        cancelSession();
+      } catch (Throwable e) {
+        future.setException(e);
+      }
+    }
+
+    private void cancelSession() {
+      try {
+        future.set(session.cancel());
+      } catch (Throwable e) {
+        future.setException(e);
+      }
+    }
+
+    /**
+     * Let the next poll cancel the session, which might be the poll currently running
+     * if it did not publish its successor yet.
+     *
+     * @since SINCE
+     */
+    private void requestCancel() {
+      cancelRequested = true;
+      wakeUp.run();
+    }
+
+    /**
+     * Remove the next scheduled poll from the executor, if any.
+     *
+     * @since SINCE
+     */
+    private void cancelPending() {
+      ScheduledFuture<?> pending = next;
+      if (pending != null) {
+        pending.cancel(false);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("hash", Integer.toHexString(System.identityHashCode(this)))
+          .add("future", future)
+          .add("item", item)
+          .add("session", session)
+          .toString();
+    }
+  }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Circuit breaker shared by all waits probing the same backend. If the backend is down,
+ * pending waits fail fast instead of polling a dead target until their own timeouts.
+ * Circuit breakers are shared by name, so that waits only need to agree on the name and
+ * the configuration.
+ * </p>
+ * <p>
+ * After the given number of consecutive failed evaluations the circuit breaker opens:
+ * All attached waits fail at their next poll with a {@link CircuitBreakerOpenException}
+ * caused by the last failure. After the cool-off period the circuit breaker half-opens
+ * and lets one evaluation through. If it succeeds the circuit breaker closes again,
+ * otherwise it opens for another cool-off period.
+ * </p>
+ * <p>
+ * An evaluation fails if the delegate function throws an exception (even if the exception
+ * is ignored by the wait) or if it exceeds the evaluation timeout. A result not fulfilling
+ * the predicate is no failure, as the backend responded.
+ * </p>
+ * <dl>
+ * <dt><strong>Example:</strong></dt>
+ * <dd>
+ * <pre>{@code
+ * Probe.<Database, Integer>probing(database)
+ *      .withCircuitBreaker(CircuitBreaker.named("database", 5, 30L, TimeUnit.SECONDS))
+ *      .assertThat(new Function<Database,Integer>(){...}, equalTo(42));
+ * }</pre>
+ * </dd>
+ * </dl>
+ *
+ * @see WaitBuilder#withCircuitBreaker(CircuitBreaker)
+ * @since SINCE
+ */
+public final class CircuitBreaker {
+
+  /**
+   * Shared circuit breakers by name.
+   *
+   * @since SINCE
+   */
+  private static final ConcurrentMap<String, CircuitBreaker> CIRCUIT_BREAKERS =
+      new ConcurrentHashMap<>();
+
+  @NotNull
+  private final String name;
+  @NotNull
+  private final WaitClock clock;
+  private final int failureThreshold;
+  private final long coolOffNanos;
+  @NotNull
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  /**
+   * When the circuit breaker opened, or when the trial evaluation started if half-open.
+   *
+   * @since SINCE
+   */
+  private long sinceNanos;
+  @Nullable
+  private Throwable lastFailure;
+
+  @VisibleForTesting
+  CircuitBreaker(@NotNull String name,
+                 @NotNull WaitClock clock,
+                 int failureThreshold,
+                 long coolOff,
+                 @NotNull TimeUnit timeUnit) {
+    this.name = requireNonNull(name, "name must not be null.");
+    this.clock = requireNonNull(clock, "clock must not be null.");
+    Preconditions.checkArgument(failureThreshold > 0, "Threshold must be greater than 0.");
+    Preconditions.checkArgument(coolOff >= 0, "Cool-off must not be negative.");
+    this.failureThreshold = failureThreshold;
+    coolOffNanos = requireNonNull(timeUnit, "timeUnit must not be null.").toNanos(coolOff);
+  }
+
+  /**
+   * Get the circuit breaker shared by all waits using the given name. If the circuit
+   * breaker exists already, it must have been created with the same configuration, as
+   * reconfiguring would silently affect all attached waits.
+   *
+   * @param name             name of the circuit breaker, typically the name of the backend
+   * @param failureThreshold number of consecutive failures to open at; must be greater
+   *                         than 0
+   * @param coolOff          time to stay open before letting one evaluation through; must
+   *                         not be negative
+   * @param timeUnit         time unit of cool-off period
+   * @return shared circuit breaker
+   * @throws IllegalArgumentException if the circuit breaker exists with another
+   *                                  configuration
+   * @since SINCE
+   */
+  @NotNull
+  public static CircuitBreaker named(@NotNull String name,
+                                     int failureThreshold,
+                                     long coolOff,
+                                     @NotNull TimeUnit timeUnit) {
+    requireNonNull(name, "name must not be null.");
+    CircuitBreaker created =
+        new CircuitBreaker(name, WaitClocks.system(), failureThreshold, coolOff, timeUnit);
+    CircuitBreaker circuitBreaker = CIRCUIT_BREAKERS.putIfAbsent(name, created);
+    if (circuitBreaker == null) {
+      return created;
+    }
+    Preconditions.checkArgument(circuitBreaker.failureThreshold == created.failureThreshold
+                                && circuitBreaker.coolOffNanos == created.coolOffNanos,
+                                "Circuit breaker '%s' exists with threshold %s and cool-off "
+                                + "of %s ns.",
+                                name,
+                                circuitBreaker.failureThreshold,
+                                circuitBreaker.coolOffNanos);
+    return circuitBreaker;
+  }
+
+  /**
+   * Name of the circuit breaker.
+   *
+   * @return name
+   * @since SINCE
+   */
+  @NotNull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Current state of the circuit breaker. An open circuit breaker whose cool-off period
+   * elapsed is still reported as open until the next evaluation is let through.
+   *
+   * @return state
+   * @since SINCE
+   */
+  @NotNull
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * Close the circuit breaker, for example after restarting the backend.
+   *
+   * @since SINCE
+   */
+  public synchronized void reset() {
+    state = State.CLOSED;
+    consecutiveFailures = 0;
+    lastFailure = null;
+  }
+
+  /**
+   * Ask for permission to evaluate. Half-opens the circuit breaker if the cool-off period
+   * elapsed, granting the trial evaluation to the caller. A trial which does not report
+   * back within another cool-off period is given to the next caller.
+   *
+   * @return {@code true} if the evaluation may proceed
+   * @since SINCE
+   */
+  synchronized boolean tryAcquire() {
+    if (state == State.CLOSED) {
+      return true;
+    }
+    long nowNanos = clock.nanoTime();
+    if (nowNanos - sinceNanos < coolOffNanos) {
+      return false;
+    }
+    state = State.HALF_OPEN;
+    sinceNanos = nowNanos;
+    return true;
+  }
+
+  /**
+   * Report a successful evaluation, which closes the circuit breaker.
+   *
+   * @since SINCE
+   */
+  synchronized void onSuccess() {
+    reset();
+  }
+
+  /**
+   * Report a failed evaluation.
+   *
+   * @param failure cause of the failure; {@code null} if the evaluation timed out
+   * @since SINCE
+   */
+  synchronized void onFailure(@Nullable Throwable failure) {
+    consecutiveFailures++;
+    lastFailure = failure;
+    if (state == State.HALF_OPEN
+        || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+      state = State.OPEN;
+      sinceNanos = clock.nanoTime();
+    }
+  }
+
+  /**
+   * Create the exception to fail fast with.
+   *
+   * @return exception describing the open circuit breaker
+   * @since SINCE
+   */
+  @NotNull
+  synchronized CircuitBreakerOpenException openException() {
+    String message = String.format("Circuit breaker '%s' is %s after %d consecutive failures.",
+                                   name,
+                                   state.toString().toLowerCase(Locale.ROOT)
+                                       .replace('_', '-'),
+                                   consecutiveFailures);
+    return (lastFailure == null)
+           ? new CircuitBreakerOpenException(message)
+           : new CircuitBreakerOpenException(message, lastFailure);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("clock", clock)
+        .add("consecutiveFailures", consecutiveFailures)
+        .add("coolOffNanos", coolOffNanos)
+        .add("failureThreshold", failureThreshold)
+        .add("lastFailure", lastFailure)
+        .add("name", name)
+        .add("sinceNanos", sinceNanos)
+        .add("state", state)
+        .toString();
+  }
+
+  /**
+   * States of a circuit breaker.
+   *
+   * @since SINCE
+   */
+  public enum State {
+    /**
+     * Evaluations proceed.
+     */
+    CLOSED,
+    /**
+     * Waits fail fast.
+     */
+    OPEN,
+    /**
+     * One trial evaluation is in progress; other waits fail fast.
+     */
+    HALF_OPEN
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+/**
+ * Exception thrown when a wait fails fast because its {@link CircuitBreaker} is open. The
+ * cause, if any, is the last failure which kept the circuit breaker open.
+ *
+ * @since SINCE
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+  private static final long serialVersionUID = -3419553416733546018L;
+
+  public CircuitBreakerOpenException(String message) {
+    super(message);
+  }
+
+  public CircuitBreakerOpenException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Single-flight evaluation of delegate functions shared by concurrent waits: If an
+ * evaluation of an equal function on an equal item is in flight, a wait joins it instead of
+ * evaluating on its own. If such an evaluation completed no longer than the maximum age
+ * ago, its result is reused. Each wait still applies its own predicate and deadline to the
+ * shared result.
+ * </p>
+ * <p>
+ * Evaluations are shared across all waits with coalescing enabled. Functions and items are
+ * compared by {@code equals()}, so typically waits share one function instance. Each
+ * evaluation remembers the maximum age and the clock of the wait which started it. It is
+ * evicted as soon as a wait looks up an equal evaluation which exceeded that age. A wait
+ * with a shorter maximum age than the completed evaluation evaluates on its own without
+ * replacing it.
+ * </p>
+ * <p>
+ * Evaluations which are never looked up again are evicted by a sweep, which runs whenever
+ * the number of evaluations doubled since the last sweep. Thus results and items of
+ * finished waits are released, while the sweep costs constant time per evaluation on
+ * average.
+ * </p>
+ *
+ * @since SINCE
+ */
+final class Coalescing {
+
+  /**
+   * Evaluations in flight or recently completed, by function and item.
+   *
+   * @since SINCE
+   */
+  private static final ConcurrentMap<Key, Flight> FLIGHTS = new ConcurrentHashMap<>();
+  private static final int MINIMUM_SWEEP_THRESHOLD = 16;
+  /**
+   * Number of evaluations beyond which the next leading evaluation sweeps stale ones.
+   *
+   * @since SINCE
+   */
+  private static final AtomicInteger SWEEP_THRESHOLD =
+      new AtomicInteger(MINIMUM_SWEEP_THRESHOLD);
+
+  private final long maxAgeNanos;
+
+  /**
+   * Constructor.
+   *
+   * @param maxAgeNanos maximum age of completed evaluations to reuse; 0 to only join
+   *                    evaluations in flight
+   * @since SINCE
+   */
+  Coalescing(long maxAgeNanos) {
+    Preconditions.checkArgument(maxAgeNanos >= 0L, "Maximum age must not be negative.");
+    this.maxAgeNanos = maxAgeNanos;
+  }
+
+  /**
+   * Apply the function to the given item or join an equal evaluation.
+   *
+   * @param function     function to apply
+   * @param item         item to apply the function to
+   * @param clock        clock of the wait, to determine the age of evaluations
+   * @param timeoutNanos maximum time to wait for a joined evaluation
+   * @param <T>          input of the function
+   * @param <R>          output of the function
+   * @return result of the own or the joined evaluation
+   * @throws InterruptedException if interrupted while waiting for a joined evaluation
+   * @throws TimeoutException     if the joined evaluation did not complete in time
+   * @since SINCE
+   */
+  <T, R> R apply(@NotNull Function<T, R> function,
+                 T item,
+                 @NotNull WaitClock clock,
+                 long timeoutNanos) throws InterruptedException, TimeoutException {
+    Key key = new Key(requireNonNull(function, "function must not be null."), item);
+    requireNonNull(clock, "clock must not be null.");
+    while (true) {
+      Flight existing = FLIGHTS.get(key);
+      if (existing != null) {
+        long ageNanos = existing.ageNanos();
+        if (ageNanos <= Math.min(maxAgeNanos, existing.maxAgeNanos)) {
+          return existing.<R>await(timeoutNanos);
+        }
+        if (ageNanos <= existing.maxAgeNanos) {
+          // Too old for this wait only: Evaluate alone, keeping the shared result for others.
+          return function.apply(item);
+        }
+        if (FLIGHTS.remove(key, existing)) {
+          // Stale for any wait: Do not retain results and items of finished waits.
+          existing = null;
+        }
+      }
+      Flight flight = new Flight(clock, maxAgeNanos);
+      boolean leading = (existing == null)
+                        ? FLIGHTS.putIfAbsent(key, flight) == null
+                        : FLIGHTS.replace(key, existing, flight);
+      if (leading) {
+        sweepIfGrown();
+        return lead(key, flight, function, item);
+      }
+      // Another wait started an evaluation in the meantime: Try to join it.
+    }
+  }
+
+  /**
+   * Function applying the given function coalesced, meant for evaluations on other
+   * threads. These are interrupted when abandoned, thus a joined evaluation is awaited
+   * without timeout. Interruption while waiting for a joined evaluation is signalled by
+   * {@link WaitCancelledException}.
+   *
+   * @param function function to apply
+   * @param clock    clock of the wait, to determine the age of evaluations
+   * @param <T>      input of the function
+   * @param <R>      output of the function
+   * @return coalescing function
+   * @since SINCE
+   */
+  @NotNull
+  <T, R> Function<T, R> asFunction(@NotNull final Function<T, R> function,
+                                   @NotNull final WaitClock clock) {
+    requireNonNull(function, "function must not be null.");
+    requireNonNull(clock, "clock must not be null.");
+    return new Function<T, R>() {
+      @Override
+      public R apply(T input) {
+        try {
+          return Coalescing.this.apply(function, input, clock, Long.MAX_VALUE);
+        } catch (TimeoutException e) {
+          throw new IllegalStateException("Unexpected timeout without time limit.", e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new WaitCancelledException("Interrupted while waiting for shared evaluation.");
+        }
+      }
+
+      @Override
+      public String toString() {
+        return String.valueOf(function);
+      }
+    };
+  }
+
+  private <T, R> R lead(@NotNull Key key,
+                        @NotNull Flight flight,
+                        @NotNull Function<T, R> function,
+                        T item) {
+    R result;
+    try {
+      result = function.apply(item);
+    } catch (RuntimeException | Error e) {
+      // Failures are not shared beyond waits which already joined.
+      FLIGHTS.remove(key, flight);
+      flight.fail(e);
+      throw e;
+    }
+    flight.complete(result);
+    if (maxAgeNanos == 0L) {
+      FLIGHTS.remove(key, flight);
+    }
+    return result;
+  }
+
+  /**
+   * Evict stale evaluations once the number of evaluations doubled since the last sweep.
+   *
+   * @since SINCE
+   */
+  private static void sweepIfGrown() {
+    int threshold = SWEEP_THRESHOLD.get();
+    if (FLIGHTS.size() <= threshold
+        || !SWEEP_THRESHOLD.compareAndSet(threshold, Integer.MAX_VALUE)) {
+      return;
+    }
+    for (Map.Entry<Key, Flight> entry : FLIGHTS.entrySet()) {
+      if (entry.getValue().isStale()) {
+        FLIGHTS.remove(entry.getKey(), entry.getValue());
+      }
+    }
+    SWEEP_THRESHOLD.set(Math.max(MINIMUM_SWEEP_THRESHOLD, 2 * FLIGHTS.size()));
+  }
+
+  /**
+   * Signals if an evaluation of the given function on the given item is retained.
+   *
+   * @param function function
+   * @param item     item
+   * @return {@code true} if in flight or completed and not evicted yet
+   * @since SINCE
+   */
+  @VisibleForTesting
+  static boolean isRetained(@NotNull Object function, @Nullable Object item) {
+    return FLIGHTS.containsKey(new Key(function, item));
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("maxAgeNanos", maxAgeNanos)
+        .toString();
+  }
+
+  /**
+   * Function and item identifying equal evaluations.
+   *
+   * @since SINCE
+   */
+  private static final class Key {
+    @NotNull
+    private final Object function;
+    @Nullable
+    private final Object item;
+
+    private Key(@NotNull Object function, @Nullable Object item) {
+      this.function = function;
+      this.item = item;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return function.equals(other.function) && Objects.equal(item, other.item);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(function, item);
+    }
+  }
+
+  /**
+   * One evaluation, either in flight or completed.
+   *
+   * @since SINCE
+   */
+  private static final class Flight {
+    private final SettableFuture<Object> result = SettableFuture.create();
+    /**
+     * Clock of the wait which started the evaluation.
+     *
+     * @since SINCE
+     */
+    @NotNull
+    private final WaitClock clock;
+    /**
+     * Maximum age of the wait which started the evaluation.
+     *
+     * @since SINCE
+     */
+    private final long maxAgeNanos;
+    /**
+     * When the evaluation completed; only valid once the result is set.
+     *
+     * @since SINCE
+     */
+    private volatile long completedNanos;
+
+    private Flight(@NotNull WaitClock clock, long maxAgeNanos) {
+      this.clock = clock;
+      this.maxAgeNanos = maxAgeNanos;
+    }
+
+    /**
+     * Signals if the evaluation completed longer than its maximum age ago.
+     *
+     * @return {@code true} if no wait may reuse it anymore
+     * @since SINCE
+     */
+    private boolean isStale() {
+      return ageNanos() > maxAgeNanos;
+    }
+
+    /**
+     * Time since the evaluation completed.
+     *
+     * @return age; 0 if still in flight
+     * @since SINCE
+     */
+    private long ageNanos() {
+      if (!result.isDone()) {
+        return 0L;
+      }
+      return clock.nanoTime() - completedNanos;
+    }
+
+    private void complete(@Nullable Object value) {
+      completedNanos = clock.nanoTime();
+      result.set(value);
+    }
+
+    private void fail(@NotNull Throwable throwable) {
+      completedNanos = clock.nanoTime();
+      result.setException(throwable);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R await(long timeoutNanos) throws InterruptedException, TimeoutException {
+      try {
+        return (R) result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * <p>
+ * Decides how a wait handles exceptions thrown while evaluating the delegate function or
+ * the predicate: Exceptions of the ignored types count as failed poll and the wait
+ * continues, backing off by the given factor for each consecutive exception. Any other
+ * exception ends the wait immediately.
+ * </p>
+ *
+ * @see WaitBuilder#ignoringExceptions(Class)
+ * @since SINCE
+ */
+final class ExceptionPolicy {
+
+  @NotNull
+  private final ImmutableList<Class<? extends Throwable>> ignoredTypes;
+  private final double backoffFactor;
+
+  /**
+   * Constructor.
+   *
+   * @param ignoredTypes  types of exceptions to ignore, including their subtypes
+   * @param backoffFactor factor to multiply the delay between two polls by for each
+   *                      consecutive exception; must be greater than or equal to 1
+   * @since SINCE
+   */
+  ExceptionPolicy(@NotNull Collection<Class<? extends Throwable>> ignoredTypes,
+                  double backoffFactor) {
+    Preconditions.checkArgument(backoffFactor >= 1d,
+                                "Factor must be greater than or equal to 1.");
+    this.ignoredTypes =
+        ImmutableList.copyOf(requireNonNull(ignoredTypes, "ignoredTypes must not be null."));
+    this.backoffFactor = backoffFactor;
+  }
+
+  /**
+   * Signals if the wait should continue after the given exception.
+   *
+   * @param exception exception thrown while evaluating
+   * @return {@code true} to retry; {@code false} to fail immediately
+   * @since SINCE
+   */
+  boolean isIgnored(@NotNull Throwable exception) {
+    for (Class<? extends Throwable> ignoredType : ignoredTypes) {
+      if (ignoredType.isInstance(exception)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Prolong the delay until the next poll after consecutive exceptions.
+   *
+   * @param delayNanos            delay according to the polling strategy
+   * @param consecutiveExceptions number of exceptions in a row; greater than 0
+   * @return prolonged delay
+   * @since SINCE
+   */
+  long backoffNanos(long delayNanos, int consecutiveExceptions) {
+    // Casting saturates at Long.MAX_VALUE.
+    return (long) (delayNanos * Math.pow(backoffFactor, consecutiveExceptions));
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("backoffFactor", backoffFactor)
+        .add("ignoredTypes", ignoredTypes)
+        .toString();
+  }
+}
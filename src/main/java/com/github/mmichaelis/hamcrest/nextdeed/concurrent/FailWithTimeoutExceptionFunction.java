@@ -21,7 +21,8 @@ import com.google.common.base.Function;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * Default strategy for {@link WaitFunction} to fail with {@link WaitTimeoutException} on timeout.
+ * Default strategy for {@link WaitFunction} to fail with {@link WaitTimeoutException} on timeout
+ * and with {@link WaitCancelledException} on cancellation.
  *
  * @since 1.0.0
  */
@@ -34,7 +35,10 @@ final class FailWithTimeoutExceptionFunction<T, R>
       // In contrast to Java 8 Function Guava enforces functions to handle null values.
       throw new WaitTimeoutException();
     }
-    throw new WaitTimeoutException(input.describe());
+    if (input.isCancelled()) {
+      throw new WaitCancelledException(input.describe());
+    }
+    throw new WaitTimeoutException(input.describe(), input.getLastException());
   }
 
 }
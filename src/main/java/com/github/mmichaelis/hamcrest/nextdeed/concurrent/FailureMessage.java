@@ -27,6 +27,9 @@ import org.hamcrest.StringDescription;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Build the failure message just as Hamcrest does in {@code MatcherAssert}.
  *
@@ -56,6 +59,13 @@ final class FailureMessage<R> {
    */
   @NotNull
   private final Matcher<? super R> matcher;
+  /**
+   * Most recent polls, oldest first.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final List<? extends PollRecord<?>> history;
 
   /**
    * Build the failure message just as Hamcrest does in {@code MatcherAssert}.
@@ -68,9 +78,27 @@ final class FailureMessage<R> {
   FailureMessage(@Nullable R lastResult,
                  @Nullable String reason,
                  @NotNull Matcher<? super R> matcher) {
+    this(lastResult, reason, matcher, Collections.<PollRecord<?>>emptyList());
+  }
+
+  /**
+   * Build the failure message just as Hamcrest does in {@code MatcherAssert}, followed by
+   * the most recent polls.
+   *
+   * @param lastResult last result
+   * @param reason     reason given as e. g. assertion message
+   * @param matcher    matcher which did not match the last result
+   * @param history    most recent polls, oldest first
+   * @since SINCE
+   */
+  FailureMessage(@Nullable R lastResult,
+                 @Nullable String reason,
+                 @NotNull Matcher<? super R> matcher,
+                 @NotNull List<? extends PollRecord<?>> history) {
     this.lastResult = lastResult;
     this.reason = reason;
     this.matcher = requireNonNull(matcher, "matcher must not be null.");
+    this.history = requireNonNull(history, "history must not be null.");
   }
 
   /**
@@ -89,6 +117,7 @@ final class FailureMessage<R> {
         .appendDescriptionOf(matcher)
         .appendText("\n     but: ");
     matcher.describeMismatch(lastResult, description);
+    description.appendText(PollHistory.describe(history));
 
     return description.toString();
   }
@@ -97,6 +126,7 @@ final class FailureMessage<R> {
   public String toString() {
     return MoreObjects.toStringHelper(this)
         .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("history", history)
         .add("lastResult", lastResult)
         .add("matcher", matcher)
         .add("reason", reason)
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Emits Java Flight Recorder events for waits: One event per wait
+ * ({@value #WAIT_EVENT_NAME}) and, if enabled in the recording settings, one event per
+ * evaluation ({@value #EVALUATION_EVENT_NAME}). As this library is compiled for Java 7,
+ * the event types are defined at runtime via {@code jdk.jfr.EventFactory}. If the JVM
+ * does not provide it, no events are emitted.
+ * </p>
+ * <p>
+ * As long as no recording has the event types enabled, the overhead are two checks per
+ * wait; no event object is created. Whether evaluations are recorded is decided once per
+ * wait, as checking it reflectively on each evaluation would allocate.
+ * </p>
+ *
+ * @since SINCE
+ */
+final class FlightRecorderEvents {
+
+  /**
+   * Name of the event emitted for each wait.
+   *
+   * @since SINCE
+   */
+  static final String WAIT_EVENT_NAME = "com.github.mmichaelis.hamcrest.nextdeed.Wait";
+  /**
+   * Name of the event emitted for each evaluation; disabled by default.
+   *
+   * @since SINCE
+   */
+  static final String EVALUATION_EVENT_NAME =
+      "com.github.mmichaelis.hamcrest.nextdeed.Evaluation";
+  /**
+   * Outcome of a wait whose predicate got fulfilled.
+   *
+   * @since SINCE
+   */
+  static final String SATISFIED = "satisfied";
+  /**
+   * Outcome of a wait which timed out.
+   *
+   * @since SINCE
+   */
+  static final String TIMED_OUT = "timed out";
+  /**
+   * Outcome of a wait which got cancelled.
+   *
+   * @since SINCE
+   */
+  static final String CANCELLED = "cancelled";
+  /**
+   * Outcome of a wait whose delegate function failed.
+   *
+   * @since SINCE
+   */
+  static final String FAILED = "failed";
+
+  private static final String CATEGORY = "Hamcrest Next Deed";
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private FlightRecorderEvents() {
+    // Utility class
+  }
+
+  /**
+   * Signals if events are supported by the current JVM.
+   *
+   * @return {@code true} if supported; {@code false} if not
+   * @since SINCE
+   */
+  static boolean isSupported() {
+    return Holder.WAIT != null && Holder.EVALUATION != null;
+  }
+
+  /**
+   * Begin the event for a wait.
+   *
+   * @return event; {@code null} if events are not supported or not enabled
+   * @since SINCE
+   */
+  @Nullable
+  static Object beginWait() {
+    return begin(Holder.WAIT);
+  }
+
+  /**
+   * End and commit the event of a wait.
+   *
+   * @param event        event as returned by {@link #beginWait()}; {@code null} to ignore
+   * @param waitFunction the wait function which waited
+   * @param item         the item the delegate function was applied to
+   * @param timeoutNanos effective timeout of the wait, i. e. the configured timeout
+   *                     clamped to the remaining budget
+   * @param outcome      how the wait ended
+   * @param polls        number of evaluations
+   * @since SINCE
+   */
+  static void commitWait(@Nullable Object event,
+                         @NotNull WaitFunction<?, ?> waitFunction,
+                         @Nullable Object item,
+                         long timeoutNanos,
+                         @NotNull String outcome,
+                         int polls) {
+    if (event == null) {
+      return;
+    }
+    Definition definition = Holder.WAIT;
+    assert definition != null : "Event without definition.";
+    definition.commit(event,
+                      String.valueOf(item),
+                      String.valueOf(waitFunction.getDelegateFunction()),
+                      timeoutNanos,
+                      outcome,
+                      polls);
+  }
+
+  /**
+   * Signals if evaluation events are enabled by any recording.
+   *
+   * @return {@code true} if enabled; {@code false} if not or if events are not supported
+   * @since SINCE
+   */
+  static boolean isEvaluationEnabled() {
+    Definition definition = Holder.EVALUATION;
+    return definition != null && definition.isEnabled();
+  }
+
+  /**
+   * Begin the event for an evaluation.
+   *
+   * @return event; {@code null} if events are not supported or not enabled
+   * @since SINCE
+   */
+  @Nullable
+  static Object beginEvaluation() {
+    return begin(Holder.EVALUATION);
+  }
+
+  /**
+   * End and commit the event of an evaluation.
+   *
+   * @param event        event as returned by {@link #beginEvaluation()}; {@code null} to
+   *                     ignore
+   * @param waitFunction the wait function which evaluated
+   * @param poll         number of the evaluation, starting at 1
+   * @param matched      if the result fulfilled the predicate
+   * @since SINCE
+   */
+  static void commitEvaluation(@Nullable Object event,
+                               @NotNull WaitFunction<?, ?> waitFunction,
+                               int poll,
+                               boolean matched) {
+    if (event == null) {
+      return;
+    }
+    Definition definition = Holder.EVALUATION;
+    assert definition != null : "Event without definition.";
+    definition.commit(event,
+                      String.valueOf(waitFunction.getDelegateFunction()),
+                      poll,
+                      matched);
+  }
+
+  @Nullable
+  private static Object begin(@Nullable Definition definition) {
+    if (definition == null || !definition.isEnabled()) {
+      return null;
+    }
+    return definition.begin();
+  }
+
+  /**
+   * Reflectively define the wait event type.
+   *
+   * @return definition; {@code null} if not supported
+   * @since SINCE
+   */
+  @Nullable
+  private static Definition defineWait() {
+    try {
+      Jfr jfr = new Jfr();
+      return jfr.define(
+          Arrays.asList(jfr.annotation("Name", WAIT_EVENT_NAME),
+                        jfr.annotation("Label", "Wait"),
+                        jfr.annotation("Description",
+                                       "Waiting for a probe to fulfill a predicate."),
+                        jfr.annotation("Category", new String[]{CATEGORY})),
+          Arrays.asList(jfr.field(String.class, "target", "Target",
+                                  "Item the delegate function is applied to."),
+                        jfr.field(String.class, "delegate", "Delegate",
+                                  "Description of the delegate function."),
+                        jfr.field(long.class, "timeout", "Timeout",
+                                  "Timeout clamped to the remaining wait budget, if any.",
+                                  jfr.annotation("Timespan", "NANOSECONDS")),
+                        jfr.field(String.class, "outcome", "Outcome",
+                                  "Either satisfied, timed out, cancelled or failed."),
+                        jfr.field(int.class, "polls", "Polls", "Number of evaluations.")));
+    } catch (ReflectiveOperationException | RuntimeException ignored) {
+      // Not supported: Java Flight Recorder not available.
+      return null;
+    }
+  }
+
+  /**
+   * Reflectively define the evaluation event type.
+   *
+   * @return definition; {@code null} if not supported
+   * @since SINCE
+   */
+  @Nullable
+  private static Definition defineEvaluation() {
+    try {
+      Jfr jfr = new Jfr();
+      return jfr.define(
+          Arrays.asList(jfr.annotation("Name", EVALUATION_EVENT_NAME),
+                        jfr.annotation("Label", "Wait Evaluation"),
+                        jfr.annotation("Description",
+                                       "Single evaluation of a probe while waiting."),
+                        jfr.annotation("Category", new String[]{CATEGORY}),
+                        jfr.annotation("Enabled", false)),
+          Arrays.asList(jfr.field(String.class, "delegate", "Delegate",
+                                  "Description of the delegate function."),
+                        jfr.field(int.class, "poll", "Poll",
+                                  "Number of the evaluation, starting at 1."),
+                        jfr.field(boolean.class, "matched", "Matched",
+                                  "If the result fulfilled the predicate.")));
+    } catch (ReflectiveOperationException | RuntimeException ignored) {
+      // Not supported: Java Flight Recorder not available.
+      return null;
+    }
+  }
+
+  /**
+   * Reflective access to the {@code jdk.jfr} API.
+   *
+   * @since SINCE
+   */
+  private static final class Jfr {
+    private final Constructor<?> annotationElement;
+    private final Constructor<?> valueDescriptor;
+    private final Method create;
+
+    private Jfr() throws ReflectiveOperationException {
+      Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+      annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+      valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor")
+          .getConstructor(Class.class, String.class, List.class);
+      create = Class.forName("jdk.jfr.EventFactory")
+          .getMethod("create", List.class, List.class);
+    }
+
+    @NotNull
+    private Object annotation(@NotNull String simpleName, @NotNull Object value)
+        throws ReflectiveOperationException {
+      return annotationElement.newInstance(Class.forName("jdk.jfr." + simpleName), value);
+    }
+
+    @NotNull
+    private Object field(@NotNull Class<?> type,
+                         @NotNull String name,
+                         @NotNull String label,
+                         @Nullable String description,
+                         @NotNull Object... annotations)
+        throws ReflectiveOperationException {
+      List<Object> fieldAnnotations = new ArrayList<>();
+      fieldAnnotations.add(annotation("Label", label));
+      if (description != null) {
+        fieldAnnotations.add(annotation("Description", description));
+      }
+      Collections.addAll(fieldAnnotations, annotations);
+      return valueDescriptor.newInstance(type, name, fieldAnnotations);
+    }
+
+    @NotNull
+    private Definition define(@NotNull List<Object> annotations, @NotNull List<Object> fields)
+        throws ReflectiveOperationException {
+      Object factory = create.invoke(null, annotations, fields);
+      Class<?> eventClass = Class.forName("jdk.jfr.Event");
+      return new Definition(factory,
+                            factory.getClass().getMethod("getEventType").invoke(factory),
+                            factory.getClass().getMethod("newEvent"),
+                            Class.forName("jdk.jfr.EventType").getMethod("isEnabled"),
+                            eventClass.getMethod("begin"),
+                            eventClass.getMethod("end"),
+                            eventClass.getMethod("shouldCommit"),
+                            eventClass.getMethod("commit"),
+                            eventClass.getMethod("set", int.class, Object.class));
+    }
+  }
+
+  /**
+   * Event type defined at runtime together with the methods to emit events.
+   *
+   * @since SINCE
+   */
+  private static final class Definition {
+    private final Object factory;
+    private final Object eventType;
+    private final Method newEvent;
+    private final Method isEnabled;
+    private final Method begin;
+    private final Method end;
+    private final Method shouldCommit;
+    private final Method commit;
+    private final Method set;
+
+    private Definition(@NotNull Object factory,
+                       @NotNull Object eventType,
+                       @NotNull Method newEvent,
+                       @NotNull Method isEnabled,
+                       @NotNull Method begin,
+                       @NotNull Method end,
+                       @NotNull Method shouldCommit,
+                       @NotNull Method commit,
+                       @NotNull Method set) {
+      this.factory = factory;
+      this.eventType = eventType;
+      this.newEvent = newEvent;
+      this.isEnabled = isEnabled;
+      this.begin = begin;
+      this.end = end;
+      this.shouldCommit = shouldCommit;
+      this.commit = commit;
+      this.set = set;
+    }
+
+    private boolean isEnabled() {
+      try {
+        return (Boolean) isEnabled.invoke(eventType, NO_ARGUMENTS);
+      } catch (IllegalAccessException | InvocationTargetException ignored) {
+        return false;
+      }
+    }
+
+    @Nullable
+    private Object begin() {
+      try {
+        Object event = newEvent.invoke(factory, NO_ARGUMENTS);
+        begin.invoke(event, NO_ARGUMENTS);
+        return event;
+      } catch (IllegalAccessException | InvocationTargetException ignored) {
+        return null;
+      }
+    }
+
+    private void commit(@NotNull Object event, @NotNull Object... values) {
+      try {
+        end.invoke(event, NO_ARGUMENTS);
+        if (!(Boolean) shouldCommit.invoke(event, NO_ARGUMENTS)) {
+          return;
+        }
+        for (int i = 0; i < values.length; i++) {
+          set.invoke(event, i, values[i]);
+        }
+        commit.invoke(event, NO_ARGUMENTS);
+      } catch (IllegalAccessException | InvocationTargetException ignored) {
+        // Recording is best effort and must not break the wait.
+      }
+    }
+  }
+
+  /**
+   * Lazily defined event types.
+   *
+   * @since SINCE
+   */
+  private static final class Holder {
+    @Nullable
+    private static final Definition WAIT = defineWait();
+    @Nullable
+    private static final Definition EVALUATION = defineEvaluation();
+  }
+}
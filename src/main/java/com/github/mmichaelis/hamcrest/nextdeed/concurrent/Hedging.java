@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * Hedged evaluation of a delegate function: If an evaluation did not return after the
+ * hedge delay, another evaluation of the same function is started in parallel. The first
+ * evaluation whose result satisfies the predicate provides the result, any other
+ * evaluation is cancelled. If an evaluation completes without satisfying the predicate or
+ * fails, no further evaluation is started and the evaluations still in flight are awaited
+ * for at most another hedge delay, so that slow evaluations do not use up the time of the
+ * wait. If none of them satisfies the predicate either, the last completed result is
+ * provided; if all of them failed, the first failure is propagated.
+ * </p>
+ * <p>
+ * Time is measured on the clock of the wait. As the executor only knows real time, a clock
+ * other than the system clock is advanced by the time spent waiting for evaluations.
+ * </p>
+ * <p>
+ * The number of evaluations in flight is limited per wait function &mdash; including
+ * evaluations of concurrent waits and evaluations which got cancelled but did not
+ * respond to interruption yet. Thus hedging never overloads the system under test by more
+ * than the given factor.
+ * </p>
+ *
+ * @since SINCE
+ */
+final class Hedging {
+
+  private final long hedgeDelayNanos;
+  private final int maxInFlight;
+  /**
+   * One permit per evaluation which might be in flight.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final Semaphore permits;
+
+  /**
+   * Constructor.
+   *
+   * @param hedgeDelayNanos delay after which to start another evaluation
+   * @param maxInFlight     maximum number of evaluations in flight
+   * @since SINCE
+   */
+  Hedging(long hedgeDelayNanos, int maxInFlight) {
+    Preconditions.checkArgument(hedgeDelayNanos > 0L, "Hedge delay must be greater than 0.");
+    Preconditions.checkArgument(maxInFlight > 0, "Maximum in flight must be greater than 0.");
+    this.hedgeDelayNanos = hedgeDelayNanos;
+    this.maxInFlight = maxInFlight;
+    permits = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Apply the function to the given item, hedging slow evaluations.
+   *
+   * @param function   function to apply
+   * @param predicate  predicate the result should satisfy
+   * @param item       item to apply the function to
+   * @param clock      clock of the wait
+   * @param limitNanos maximum time to wait for any evaluation to complete
+   * @param <T>        input of the function
+   * @param <R>        output of the function
+   * @return result of the first evaluation satisfying the predicate; if none does, result
+   * of the last completed evaluation
+   * @throws InterruptedException if interrupted while waiting
+   * @throws TimeoutException     if no evaluation completed within the given time
+   * @since SINCE
+   */
+  <T, R> R apply(@NotNull final Function<T, R> function,
+                 @NotNull Predicate<? super R> predicate,
+                 final T item,
+                 @NotNull WaitClock clock,
+                 long limitNanos)
+      throws InterruptedException, TimeoutException {
+    requireNonNull(function, "function must not be null.");
+    requireNonNull(predicate, "predicate must not be null.");
+    requireNonNull(clock, "clock must not be null.");
+    boolean onSystemClock = clock == WaitClocks.system();
+    long endNanos = clock.nanoTime() + limitNanos;
+    CompletionService<R> completionService =
+        new ExecutorCompletionService<>(VirtualThreads.sharedExecutor());
+    List<Evaluation<R>> evaluations = new ArrayList<>(maxInFlight);
+    int completedEvaluations = 0;
+    boolean hasResult = false;
+    R result = null;
+    Throwable failure = null;
+    try {
+      if (!permits.tryAcquire(limitNanos, TimeUnit.NANOSECONDS)) {
+        throw new TimeoutException("No evaluation slot available.");
+      }
+      evaluations.add(new Evaluation<>(completionService, function, item));
+      while (completedEvaluations < evaluations.size()) {
+        long remainingNanos = endNanos - clock.nanoTime();
+        if (remainingNanos <= 0L) {
+          break;
+        }
+        // Only hedge as long as no evaluation completed.
+        boolean mayHedge = completedEvaluations == 0 && evaluations.size() < maxInFlight;
+        long pollNanos = mayHedge ? Math.min(hedgeDelayNanos, remainingNanos) : remainingNanos;
+        Future<R> completed = completionService.poll(pollNanos, TimeUnit.NANOSECONDS);
+        if (completed == null && !onSystemClock) {
+          clock.sleepNanos(pollNanos);
+        }
+        if (completed != null) {
+          if (completedEvaluations == 0) {
+            // Give the evaluations still in flight at most another hedge delay.
+            long graceEndNanos = clock.nanoTime() + hedgeDelayNanos;
+            if (graceEndNanos - endNanos < 0L) {
+              endNanos = graceEndNanos;
+            }
+          }
+          completedEvaluations++;
+          try {
+            R value = completed.get();
+            if (predicate.apply(value)) {
+              return value;
+            }
+            result = value;
+            hasResult = true;
+          } catch (ExecutionException e) {
+            if (failure == null) {
+              failure = e.getCause();
+            }
+          }
+        } else if (mayHedge && permits.tryAcquire()) {
+          evaluations.add(new Evaluation<>(completionService, function, item));
+        }
+      }
+    } finally {
+      for (Evaluation<R> evaluation : evaluations) {
+        evaluation.abandon();
+      }
+    }
+    if (hasResult) {
+      return result;
+    }
+    if (failure != null) {
+      throw Throwables.propagate(failure);
+    }
+    throw new TimeoutException("No evaluation completed in time.");
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("availablePermits", permits.availablePermits())
+        .add("hedgeDelayNanos", hedgeDelayNanos)
+        .add("maxInFlight", maxInFlight)
+        .toString();
+  }
+
+  /**
+   * One evaluation holding a permit until it completed or got abandoned before start. The
+   * permit must be acquired before construction.
+   *
+   * @param <R> result of the evaluation
+   * @since SINCE
+   */
+  private final class Evaluation<R> implements Callable<R> {
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    @NotNull
+    private final Callable<R> delegate;
+    @NotNull
+    private final Future<R> future;
+
+    private <T> Evaluation(@NotNull CompletionService<R> completionService,
+                           @NotNull final Function<T, R> function,
+                           final T item) {
+      delegate = new Callable<R>() {
+        @Override
+        public R call() throws Exception {
+          return function.apply(item);
+        }
+      };
+      try {
+        future = completionService.submit(this);
+      } catch (RuntimeException e) {
+        // Not submitted, thus the evaluation never releases its permit.
+        permits.release();
+        throw e;
+      }
+    }
+
+    @Override
+    public R call() throws Exception {
+      if (!started.compareAndSet(false, true)) {
+        // Abandoned before start.
+        return null;
+      }
+      try {
+        return delegate.call();
+      } finally {
+        permits.release();
+      }
+    }
+
+    /**
+     * Cancel the evaluation. If it did not start yet, the permit is released right away.
+     * Otherwise the evaluation releases it as soon as it actually ends.
+     *
+     * @since SINCE
+     */
+    private void abandon() {
+      if (started.compareAndSet(false, true)) {
+        permits.release();
+      }
+      future.cancel(true);
+    }
+  }
+}
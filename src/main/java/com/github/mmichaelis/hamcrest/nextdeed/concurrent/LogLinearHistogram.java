@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Histogram with a fixed number of log-linear buckets: Each power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets. Thus any positive {@code long} can be recorded
+ * with a relative error below 12.5&nbsp;% using less than 500 buckets &mdash; without any
+ * allocation on recording.
+ * </p>
+ *
+ * @since SINCE
+ */
+final class LogLinearHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  /**
+   * Number of linear sub-buckets per power of two.
+   *
+   * @since SINCE
+   */
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_MASK = SUB_BUCKETS - 1;
+  /**
+   * Number of buckets required for all positive longs.
+   *
+   * @since SINCE
+   */
+  static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final StripedCounter count = new StripedCounter();
+  private final StripedCounter sum = new StripedCounter();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Record the given value. Negative values are recorded as 0.
+   *
+   * @param value value to record
+   * @since SINCE
+   */
+  void record(long value) {
+    long recorded = Math.max(0L, value);
+    buckets.incrementAndGet(bucketIndex(recorded));
+    count.increment();
+    sum.add(recorded);
+    long currentMax = max.get();
+    while (recorded > currentMax && !max.compareAndSet(currentMax, recorded)) {
+      currentMax = max.get();
+    }
+  }
+
+  /**
+   * Number of recorded values.
+   *
+   * @return count
+   * @since SINCE
+   */
+  long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Maximum recorded value.
+   *
+   * @return maximum; 0 if nothing recorded yet
+   * @since SINCE
+   */
+  long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Mean of the recorded values.
+   *
+   * @return mean; 0 if nothing recorded yet
+   * @since SINCE
+   */
+  double getMean() {
+    long currentCount = count.sum();
+    return currentCount == 0L ? 0.0 : (double) sum.sum() / currentCount;
+  }
+
+  /**
+   * Value below or equal to which the given fraction of values have been recorded. The
+   * value is the upper bound of the matching bucket, but never greater than the maximum.
+   *
+   * @param fraction fraction between 0 and 1, like 0.99 for the 99th percentile
+   * @return percentile value; 0 if nothing recorded yet
+   * @since SINCE
+   */
+  long getPercentile(double fraction) {
+    Preconditions.checkArgument(fraction >= 0.0 && fraction <= 1.0,
+                                "Fraction must be between 0 and 1.");
+    long[] snapshot = new long[BUCKETS];
+    long total = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0L) {
+      return 0L;
+    }
+    long rank = Math.max(1L, (long) Math.ceil(fraction * total));
+    long cumulated = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      cumulated += snapshot[i];
+      if (cumulated >= rank) {
+        return Math.min(upperBound(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Reset the histogram. Concurrent updates might get lost.
+   *
+   * @since SINCE
+   */
+  void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0L);
+    }
+    count.reset();
+    sum.reset();
+    max.set(0L);
+  }
+
+  /**
+   * Index of the bucket for the given non-negative value.
+   *
+   * @param value value
+   * @return bucket index
+   * @since SINCE
+   */
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & SUB_BUCKET_MASK;
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Smallest value recorded in the given bucket.
+   *
+   * @param index bucket index
+   * @return lower bound (inclusive)
+   * @since SINCE
+   */
+  static long lowerBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+  }
+
+  /**
+   * Greatest value recorded in the given bucket.
+   *
+   * @param index bucket index
+   * @return upper bound (inclusive)
+   * @since SINCE
+   */
+  static long upperBound(int index) {
+    return index + 1 >= BUCKETS ? Long.MAX_VALUE : lowerBound(index + 1) - 1L;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("count", count)
+        .add("max", max)
+        .toString();
+  }
+}
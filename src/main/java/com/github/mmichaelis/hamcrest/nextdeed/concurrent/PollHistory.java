@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Fixed-size ring buffer of the most recent polls of one wait. All arrays are allocated
+ * once when the wait starts, so that recording a poll does not allocate. Records are only
+ * created when the history is requested, i. e. on timeout.
+ * </p>
+ * <p>
+ * Just as {@link WaitSession} the history is not thread-safe.
+ * </p>
+ *
+ * @param <R> type of the results
+ * @since SINCE
+ */
+final class PollHistory<R> {
+
+  private final Object[] results;
+  private final long[] offsetNanos;
+  private final long[] durationNanos;
+  private final boolean[] matched;
+  private final int[] polls;
+  /**
+   * Total number of recorded polls; the next slot to write is this count modulo the
+   * capacity.
+   *
+   * @since SINCE
+   */
+  private long count;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity number of polls to keep; must be greater than 0
+   * @since SINCE
+   */
+  PollHistory(int capacity) {
+    results = new Object[capacity];
+    offsetNanos = new long[capacity];
+    durationNanos = new long[capacity];
+    matched = new boolean[capacity];
+    polls = new int[capacity];
+  }
+
+  /**
+   * Record one poll, overwriting the oldest one if the buffer is full.
+   *
+   * @param poll          number of the poll
+   * @param offsetNanos   start of the evaluation relative to the start of the wait
+   * @param durationNanos duration of the evaluation
+   * @param matched       if the result fulfilled the predicate
+   * @param result        result of the evaluation
+   * @since SINCE
+   */
+  void record(int poll, long offsetNanos, long durationNanos, boolean matched,
+              @Nullable R result) {
+    int slot = (int) (count % results.length);
+    results[slot] = result;
+    this.offsetNanos[slot] = offsetNanos;
+    this.durationNanos[slot] = durationNanos;
+    this.matched[slot] = matched;
+    polls[slot] = poll;
+    count++;
+  }
+
+  /**
+   * Copy the recorded polls.
+   *
+   * @return records, oldest first
+   * @since SINCE
+   */
+  @NotNull
+  List<PollRecord<R>> toList() {
+    long size = Math.min(count, results.length);
+    ImmutableList.Builder<PollRecord<R>> builder = ImmutableList.builder();
+    for (long i = count - size; i < count; i++) {
+      int slot = (int) (i % results.length);
+      @SuppressWarnings("unchecked")
+      R result = (R) results[slot];
+      builder.add(new PollRecord<>(polls[slot], offsetNanos[slot], durationNanos[slot],
+                                   matched[slot], result));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Describe the given polls, one per line, for use in failure messages.
+   *
+   * @param history polls to describe, oldest first
+   * @return description; empty if there are no polls
+   * @since SINCE
+   */
+  @NotNull
+  static String describe(@NotNull List<? extends PollRecord<?>> history) {
+    if (history.isEmpty()) {
+      return "";
+    }
+    StringBuilder description = new StringBuilder("\nRecent polls (oldest first):");
+    for (PollRecord<?> record : history) {
+      description.append(String.format(Locale.ROOT, "\n  #%d at %.3f ms (took %.3f ms%s): %s",
+                                       record.getPoll(),
+                                       toFractionalMillis(record.getOffset(TimeUnit.NANOSECONDS)),
+                                       toFractionalMillis(
+                                           record.getDuration(TimeUnit.NANOSECONDS)),
+                                       record.isMatched() ? ", matched" : "",
+                                       record.getResult()));
+    }
+    return description.toString();
+  }
+
+  private static double toFractionalMillis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("capacity", results.length)
+        .add("count", count)
+        .toString();
+  }
+}
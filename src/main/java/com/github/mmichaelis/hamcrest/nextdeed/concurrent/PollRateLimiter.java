@@ -0,0 +1,249 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Limits the total rate of evaluations of all waits polling the same backend, for example
+ * an embedded database probed by many parallel tests. Limiters are shared by backend name,
+ * so that waits only need to agree on the name and the rate.
+ * </p>
+ * <p>
+ * The limiter is a token bucket: It holds up to a given burst of tokens, which are refilled
+ * evenly at the given rate. Each evaluation takes a token, and a wait defers each poll,
+ * including its first one, until a token is free. Thus after a quiet period up to burst
+ * evaluations run at once, while in the long run the rate is never exceeded. A burst of 1,
+ * the default, spaces all evaluations evenly. Also a {@link ProbeTrigger} does not wake up
+ * a wait before its token is free. A wait never defers a poll beyond its deadline; if no
+ * token is free before then, it times out at its deadline without evaluating again.
+ * </p>
+ * <p>
+ * Tokens are reserved in the time of the {@link WaitClock} of the waits. Thus all waits
+ * sharing a limiter should use the same clock.
+ * </p>
+ * <dl>
+ * <dt><strong>Example:</strong></dt>
+ * <dd>
+ * <pre>{@code
+ * Probe.<Database, Integer>probing(database)
+ *      .rateLimitedBy(PollRateLimiter.forBackend("database", 50d, 10))
+ *      .assertThat(new Function<Database,Integer>(){...}, equalTo(42));
+ * }</pre>
+ * </dd>
+ * </dl>
+ *
+ * @see WaitBuilder#rateLimitedBy(PollRateLimiter)
+ * @since SINCE
+ */
+public final class PollRateLimiter {
+
+  /**
+   * Shared limiters by backend name.
+   *
+   * @since SINCE
+   */
+  private static final ConcurrentMap<String, PollRateLimiter> BACKENDS =
+      new ConcurrentHashMap<>();
+
+  @NotNull
+  private final String backend;
+  /**
+   * Time between two evaluations in nanoseconds.
+   *
+   * @since SINCE
+   */
+  private final long intervalNanos;
+  /**
+   * Maximum number of tokens the bucket holds.
+   *
+   * @since SINCE
+   */
+  private final int burst;
+  /**
+   * Signals if any token got reserved yet.
+   *
+   * @since SINCE
+   */
+  private boolean reserved;
+  /**
+   * Time at which the bucket is full again, unless more tokens get reserved. The next token
+   * is free as soon as all but one tokens are refilled.
+   *
+   * @since SINCE
+   */
+  private long fullNanos;
+
+  @VisibleForTesting
+  PollRateLimiter(@NotNull String backend, double evaluationsPerSecond) {
+    this(backend, evaluationsPerSecond, 1);
+  }
+
+  @VisibleForTesting
+  PollRateLimiter(@NotNull String backend, double evaluationsPerSecond, int burst) {
+    this.backend = requireNonNull(backend, "backend must not be null.");
+    Preconditions.checkArgument(evaluationsPerSecond > 0d, "Rate must be greater than 0.");
+    Preconditions.checkArgument(burst > 0, "Burst must be greater than 0.");
+    intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1L) / evaluationsPerSecond));
+    this.burst = burst;
+  }
+
+  /**
+   * Get the limiter shared by all waits polling the given backend, which spaces all
+   * evaluations evenly.
+   *
+   * @param backend              name of the backend
+   * @param evaluationsPerSecond maximum number of evaluations per second; must be greater
+   *                             than 0
+   * @return shared limiter
+   * @throws IllegalArgumentException if the limiter exists with another rate or burst
+   * @see #forBackend(String, double, int)
+   * @since SINCE
+   */
+  @NotNull
+  public static PollRateLimiter forBackend(@NotNull String backend,
+                                           double evaluationsPerSecond) {
+    return forBackend(backend, evaluationsPerSecond, 1);
+  }
+
+  /**
+   * Get the limiter shared by all waits polling the given backend. If the limiter exists
+   * already, it must have been created with the same rate and burst, as changing them would
+   * silently affect all waits sharing the limiter.
+   *
+   * @param backend              name of the backend
+   * @param evaluationsPerSecond maximum number of evaluations per second; must be greater
+   *                             than 0
+   * @param burst                maximum number of evaluations at once after a quiet period;
+   *                             must be greater than 0
+   * @return shared limiter
+   * @throws IllegalArgumentException if the limiter exists with another rate or burst
+   * @since SINCE
+   */
+  @NotNull
+  public static PollRateLimiter forBackend(@NotNull String backend,
+                                           double evaluationsPerSecond,
+                                           int burst) {
+    requireNonNull(backend, "backend must not be null.");
+    PollRateLimiter created = new PollRateLimiter(backend, evaluationsPerSecond, burst);
+    PollRateLimiter limiter = BACKENDS.putIfAbsent(backend, created);
+    if (limiter == null) {
+      return created;
+    }
+    Preconditions.checkArgument(limiter.intervalNanos == created.intervalNanos
+                                && limiter.burst == created.burst,
+                                "Rate limiter for '%s' exists with %s evaluations per second"
+                                + " and a burst of %s.",
+                                backend,
+                                limiter.getRate(),
+                                limiter.burst);
+    return limiter;
+  }
+
+  /**
+   * Name of the backend this limiter belongs to.
+   *
+   * @return backend name
+   * @since SINCE
+   */
+  @NotNull
+  public String getBackend() {
+    return backend;
+  }
+
+  /**
+   * Maximum number of evaluations per second.
+   *
+   * @return rate
+   * @since SINCE
+   */
+  public double getRate() {
+    return TimeUnit.SECONDS.toNanos(1L) / (double) intervalNanos;
+  }
+
+  /**
+   * Maximum number of evaluations at once after a quiet period.
+   *
+   * @return burst
+   * @since SINCE
+   */
+  public int getBurst() {
+    return burst;
+  }
+
+  /**
+   * Reserve the first token free after the given minimum delay, but only if it is free
+   * within the given maximum delay.
+   *
+   * @param nowNanos      current time of the clock of the wait
+   * @param minDelayNanos earliest time to take the token, relative to now
+   * @param maxDelayNanos latest time to take the token, relative to now
+   * @return delay until the reserved token is free, relative to now; negative if no token
+   * is free within the maximum delay
+   * @since SINCE
+   */
+  synchronized long reserveNanos(long nowNanos, long minDelayNanos, long maxDelayNanos) {
+    long earliestNanos = nowNanos + minDelayNanos;
+    if (!reserved) {
+      // Start with a full bucket.
+      fullNanos = earliestNanos;
+    }
+    long nextFreeNanos = fullNanos - (burst - 1L) * intervalNanos;
+    long startNanos = later(nextFreeNanos, earliestNanos);
+    long delayNanos = startNanos - nowNanos;
+    if (delayNanos > maxDelayNanos) {
+      return -1L;
+    }
+    reserved = true;
+    // A bucket refilled beyond its capacity stays full.
+    fullNanos = later(fullNanos, startNanos) + intervalNanos;
+    return delayNanos;
+  }
+
+  /**
+   * Compare times just as recommended for {@link System#nanoTime()}.
+   *
+   * @since SINCE
+   */
+  private static long later(long aNanos, long bNanos) {
+    return (aNanos - bNanos > 0L) ? aNanos : bNanos;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("backend", backend)
+        .add("burst", burst)
+        .add("fullNanos", fullNanos)
+        .add("intervalNanos", intervalNanos)
+        .add("reserved", reserved)
+        .toString();
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import com.google.common.base.MoreObjects;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of one poll of a wait, as reported by {@link WaitTimeoutEvent#getHistory()}.
+ *
+ * @param <R> type of the result
+ * @since SINCE
+ */
+public final class PollRecord<R> {
+
+  private final int poll;
+  private final long offsetNanos;
+  private final long durationNanos;
+  private final boolean matched;
+  @Nullable
+  private final R result;
+
+  /**
+   * Constructor.
+   *
+   * @param poll          number of the poll, starting with 1
+   * @param offsetNanos   start of the evaluation relative to the start of the wait
+   * @param durationNanos duration of the evaluation
+   * @param matched       if the result fulfilled the predicate
+   * @param result        result of the evaluation
+   * @since SINCE
+   */
+  PollRecord(int poll, long offsetNanos, long durationNanos, boolean matched,
+             @Nullable R result) {
+    this.poll = poll;
+    this.offsetNanos = offsetNanos;
+    this.durationNanos = durationNanos;
+    this.matched = matched;
+    this.result = result;
+  }
+
+  /**
+   * Number of the poll within the wait.
+   *
+   * @return poll number, starting with 1
+   * @since SINCE
+   */
+  public int getPoll() {
+    return poll;
+  }
+
+  /**
+   * Start of the evaluation relative to the start of the wait.
+   *
+   * @param timeUnit time unit to return the offset in
+   * @return offset
+   * @since SINCE
+   */
+  public long getOffset(TimeUnit timeUnit) {
+    return timeUnit.convert(offsetNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Duration of the evaluation of the delegate function.
+   *
+   * @param timeUnit time unit to return the duration in
+   * @return duration
+   * @since SINCE
+   */
+  public long getDuration(TimeUnit timeUnit) {
+    return timeUnit.convert(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Signals if the result fulfilled the predicate of the wait.
+   *
+   * @return {@code true} if matched
+   * @since SINCE
+   */
+  public boolean isMatched() {
+    return matched;
+  }
+
+  /**
+   * Result of the evaluation.
+   *
+   * @return result; might be {@code null} depending on the delegate function
+   * @since SINCE
+   */
+  @Nullable
+  public R getResult() {
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("durationNanos", durationNanos)
+        .add("matched", matched)
+        .add("offsetNanos", offsetNanos)
+        .add("poll", poll)
+        .add("result", result)
+        .toString();
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Scheduler to multiplex the polls of many concurrent waits onto a small, fixed number of
+ * threads. Pending evaluations are held in a queue ordered by their due time, so the number
+ * of threads stays constant no matter how many waits are pending.
+ * </p>
+ * <p>
+ * In addition to a standard {@link ScheduledThreadPoolExecutor} the scheduler reports
+ * the current queue depth and the lag, i. e. how late evaluations are executed compared
+ * to their due time. A growing lag signals that the pool is too small for the number of
+ * pending waits or that evaluations take too long.
+ * </p>
+ * <dl>
+ * <dt><strong>Example:</strong></dt>
+ * <dd>
+ * <pre>{@code
+ * Probe.<System, State>probing(systemUnderTest)
+ *      .pollingOn(PollingScheduler.shared())
+ *      .assertThat(new Function<System,State>(){...}, equalTo(RUNNING));
+ * }</pre>
+ * </dd>
+ * </dl>
+ *
+ * @since SINCE
+ */
+public final class PollingScheduler extends ScheduledThreadPoolExecutor {
+
+  /**
+   * Default number of threads for the shared scheduler.
+   *
+   * @since SINCE
+   */
+  private static final int DEFAULT_POOL_SIZE =
+      Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  /**
+   * Scheduler owning the current thread, if any.
+   *
+   * @since SINCE
+   */
+  private static final ThreadLocal<PollingScheduler> OWNER = new ThreadLocal<>();
+
+  /**
+   * Signals that this is the process-wide shared scheduler which must not be shut down.
+   *
+   * @since SINCE
+   */
+  private final boolean shared;
+  private final AtomicLong lastLagNanos = new AtomicLong();
+  private final AtomicLong maxLagNanos = new AtomicLong();
+
+  /**
+   * Create a scheduler with the given number of daemon threads.
+   *
+   * @param poolSize number of threads; must be greater than 0
+   * @since SINCE
+   */
+  public PollingScheduler(int poolSize) {
+    this(poolSize, false);
+  }
+
+  private PollingScheduler(int poolSize, boolean shared) {
+    super(poolSize,
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("nextdeed-polling-%d")
+              .build());
+    this.shared = shared;
+    setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Process-wide scheduler shared by all waits which opt in to it. The shared scheduler
+   * uses daemon threads and cannot be shut down.
+   *
+   * @return shared scheduler
+   * @since SINCE
+   */
+  @NotNull
+  public static PollingScheduler shared() {
+    return SharedHolder.INSTANCE;
+  }
+
+  /**
+   * Number of evaluations currently waiting to be executed.
+   *
+   * @return queue depth
+   * @since SINCE
+   */
+  public int getQueueDepth() {
+    return getQueue().size();
+  }
+
+  /**
+   * Lag of the most recently started evaluation, i. e. the time between its due time and
+   * its actual start.
+   *
+   * @param timeUnit time unit for the result
+   * @return lag in given time unit
+   * @since SINCE
+   */
+  public long getLastLag(@NotNull TimeUnit timeUnit) {
+    return timeUnit.convert(lastLagNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Maximum lag observed so far.
+   *
+   * @param timeUnit time unit for the result
+   * @return maximum lag in given time unit
+   * @see #getLastLag(TimeUnit)
+   * @since SINCE
+   */
+  public long getMaxLag(@NotNull TimeUnit timeUnit) {
+    return timeUnit.convert(maxLagNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Signals that the calling thread is one of the threads of this scheduler.
+   *
+   * @return {@code true} if called from a thread of this scheduler
+   * @since SINCE
+   */
+  boolean isOwnerOfCurrentThread() {
+    return OWNER.get() == this;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws UnsupportedOperationException for the shared scheduler
+   * @since SINCE
+   */
+  @Override
+  public void shutdown() {
+    checkNotShared();
+    super.shutdown();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws UnsupportedOperationException for the shared scheduler
+   * @since SINCE
+   */
+  @NotNull
+  @Override
+  public List<Runnable> shutdownNow() {
+    checkNotShared();
+    return super.shutdownNow();
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("lastLagNanos", lastLagNanos)
+        .add("maxLagNanos", maxLagNanos)
+        .add("poolSize", getCorePoolSize())
+        .add("queueDepth", getQueueDepth())
+        .add("shared", shared)
+        .toString();
+  }
+
+  @Override
+  protected void beforeExecute(Thread t, Runnable r) {
+    super.beforeExecute(t, r);
+    if (OWNER.get() != this) {
+      // Threads of a pool are never shared with other pools.
+      OWNER.set(this);
+    }
+    if (r instanceof Delayed) {
+      long lag = Math.max(0L, -((Delayed) r).getDelay(TimeUnit.NANOSECONDS));
+      lastLagNanos.set(lag);
+      long max = maxLagNanos.get();
+      while (lag > max && !maxLagNanos.compareAndSet(max, lag)) {
+        max = maxLagNanos.get();
+      }
+    }
+  }
+
+  private void checkNotShared() {
+    if (shared) {
+      throw new UnsupportedOperationException("The shared polling scheduler cannot be shut down.");
+    }
+  }
+
+  /**
+   * Lazily initialized holder for the shared scheduler.
+   *
+   * @since SINCE
+   */
+  private static final class SharedHolder {
+    private static final PollingScheduler INSTANCE = new PollingScheduler(DEFAULT_POOL_SIZE, true);
+  }
+}
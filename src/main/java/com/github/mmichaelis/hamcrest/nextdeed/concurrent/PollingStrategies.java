@@ -0,0 +1,370 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Preconditions;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Built-in {@link PollingStrategy polling strategies}.
+ * </p>
+ * <dl>
+ * <dt><strong>Example:</strong></dt>
+ * <dd>
+ * <pre>{@code
+ * Probe.<System, State>probing(systemUnderTest)
+ *      .pollingWith(PollingStrategies.exponential(2d, 10L, 1000L, TimeUnit.MILLISECONDS))
+ *      .assertThat(new Function<System,State>(){...}, equalTo(RUNNING));
+ * }</pre>
+ * </dd>
+ * </dl>
+ *
+ * @since SINCE
+ */
+public final class PollingStrategies {
+
+  /**
+   * Minimum amount by which the delay between two polls grows for decelerating polling.
+   *
+   * @since SINCE
+   */
+  private static final long MINIMUM_DELAY_INCREMENT_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+  private PollingStrategies() {
+    // Utility class
+  }
+
+  /**
+   * <p>
+   * Decelerate polling by the given factor, but increase the delay by at least one
+   * millisecond each time. This is the default strategy with a factor of 1.1.
+   * </p>
+   *
+   * @param decelerationFactor factor to decelerate; must be greater than or equal to 1
+   * @return strategy
+   * @see WaitBuilder#deceleratePollingBy(double)
+   * @since SINCE
+   */
+  @NotNull
+  public static PollingStrategy decelerating(double decelerationFactor) {
+    Preconditions
+        .checkArgument(decelerationFactor >= 1, "Factor must be greater than or equal to 1.");
+    return new DeceleratingStrategy(decelerationFactor);
+  }
+
+  /**
+   * Poll at a fixed interval.
+   *
+   * @param interval interval between two polls; must be greater than or equal to 0
+   * @param timeUnit time unit of interval
+   * @return strategy
+   * @since SINCE
+   */
+  @NotNull
+  public static PollingStrategy fixed(long interval, @NotNull TimeUnit timeUnit) {
+    return new FixedStrategy(toNanos(interval, timeUnit, "Interval"));
+  }
+
+  /**
+   * Increase the delay by a fixed amount each time.
+   *
+   * @param increment amount to add to the delay; must be greater than or equal to 0
+   * @param timeUnit  time unit of increment
+   * @return strategy
+   * @since SINCE
+   */
+  @NotNull
+  public static PollingStrategy linear(long increment, @NotNull TimeUnit timeUnit) {
+    return new LinearStrategy(toNanos(increment, timeUnit, "Increment"));
+  }
+
+  /**
+   * Multiply the delay by the given factor each time, starting with at least the given base
+   * delay and never exceeding the given cap.
+   *
+   * @param factor   factor to multiply the delay with; must be greater than or equal to 1
+   * @param base     minimum delay; must be greater than or equal to 0
+   * @param cap      maximum delay; must be greater than or equal to base
+   * @param timeUnit time unit of base and cap
+   * @return strategy
+   * @since SINCE
+   */
+  @NotNull
+  public static PollingStrategy exponential(double factor,
+                                            long base,
+                                            long cap,
+                                            @NotNull TimeUnit timeUnit) {
+    Preconditions.checkArgument(factor >= 1, "Factor must be greater than or equal to 1.");
+    Preconditions.checkArgument(cap >= base, "Cap must be greater than or equal to base.");
+    return new ExponentialStrategy(factor,
+                                   toNanos(base, timeUnit, "Base"),
+                                   toNanos(cap, timeUnit, "Cap"));
+  }
+
+  /**
+   * <p>
+   * Decorrelated jitter: Each delay is chosen randomly between the base delay and three times
+   * the previous delay, but never exceeds the given cap. Randomization prevents many
+   * concurrent waits from polling the same system in lockstep.
+   * </p>
+   *
+   * @param base     minimum delay; must be greater than 0
+   * @param cap      maximum delay; must be greater than or equal to base
+   * @param timeUnit time unit of base and cap
+   * @return strategy
+   * @since SINCE
+   */
+  @NotNull
+  public static PollingStrategy decorrelatedJitter(long base, long cap, @NotNull TimeUnit timeUnit) {
+    Preconditions.checkArgument(base > 0, "Base must be greater than 0.");
+    Preconditions.checkArgument(cap >= base, "Cap must be greater than or equal to base.");
+    return new DecorrelatedJitterStrategy(toNanos(base, timeUnit, "Base"),
+                                          toNanos(cap, timeUnit, "Cap"));
+  }
+
+  /**
+   * Grow the delay along the Fibonacci sequence: base, base, 2 &times; base, 3 &times; base,
+   * 5 &times; base, &hellip; never exceeding the given cap.
+   *
+   * @param base     base delay; must be greater than 0
+   * @param cap      maximum delay; must be greater than or equal to base
+   * @param timeUnit time unit of base and cap
+   * @return strategy
+   * @since SINCE
+   */
+  @NotNull
+  public static PollingStrategy fibonacci(long base, long cap, @NotNull TimeUnit timeUnit) {
+    Preconditions.checkArgument(base > 0, "Base must be greater than 0.");
+    Preconditions.checkArgument(cap >= base, "Cap must be greater than or equal to base.");
+    return new FibonacciStrategy(toNanos(base, timeUnit, "Base"),
+                                 toNanos(cap, timeUnit, "Cap"));
+  }
+
+  private static long toNanos(long amount, @NotNull TimeUnit timeUnit, @NotNull String name) {
+    Preconditions.checkArgument(amount >= 0, "%s must be positive.", name);
+    return requireNonNull(timeUnit, "timeUnit must not be null.").toNanos(amount);
+  }
+
+  /**
+   * Adds two positive values, returning {@link Long#MAX_VALUE} instead of overflowing.
+   *
+   * @since SINCE
+   */
+  private static long add(long a, long b) {
+    return a > Long.MAX_VALUE - b ? Long.MAX_VALUE : a + b;
+  }
+
+  private static String formatNanos(long nanos) {
+    return String.format(Locale.ROOT, "%d %s",
+                         nanos, TimeUnit.NANOSECONDS.toString().toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Strategy of {@link #decelerating(double)}.
+   *
+   * @since SINCE
+   */
+  private static final class DeceleratingStrategy implements PollingStrategy {
+    private final double decelerationFactor;
+
+    private DeceleratingStrategy(double decelerationFactor) {
+      this.decelerationFactor = decelerationFactor;
+    }
+
+    @Override
+    public long nextDelayNanos(int polls,
+                               long previousDelayNanos,
+                               long lastEvaluationNanos,
+                               long remainingNanos) {
+      // Make checks less and less frequently.
+      // Increase the wait period using the deceleration factor, but
+      // wait at least one millisecond longer next time.
+      return Math.max(add(previousDelayNanos, MINIMUM_DELAY_INCREMENT_NANOS),
+                      (long) (previousDelayNanos * decelerationFactor));
+    }
+
+    @Override
+    public String toString() {
+      return "PollingStrategies.decelerating(" + decelerationFactor + ")";
+    }
+  }
+
+  /**
+   * Strategy of {@link #fixed(long, TimeUnit)}.
+   *
+   * @since SINCE
+   */
+  private static final class FixedStrategy implements PollingStrategy {
+    private final long intervalNanos;
+
+    private FixedStrategy(long intervalNanos) {
+      this.intervalNanos = intervalNanos;
+    }
+
+    @Override
+    public long nextDelayNanos(int polls,
+                               long previousDelayNanos,
+                               long lastEvaluationNanos,
+                               long remainingNanos) {
+      return intervalNanos;
+    }
+
+    @Override
+    public String toString() {
+      return "PollingStrategies.fixed(" + formatNanos(intervalNanos) + ")";
+    }
+  }
+
+  /**
+   * Strategy of {@link #linear(long, TimeUnit)}.
+   *
+   * @since SINCE
+   */
+  private static final class LinearStrategy implements PollingStrategy {
+    private final long incrementNanos;
+
+    private LinearStrategy(long incrementNanos) {
+      this.incrementNanos = incrementNanos;
+    }
+
+    @Override
+    public long nextDelayNanos(int polls,
+                               long previousDelayNanos,
+                               long lastEvaluationNanos,
+                               long remainingNanos) {
+      return add(previousDelayNanos, incrementNanos);
+    }
+
+    @Override
+    public String toString() {
+      return "PollingStrategies.linear(" + formatNanos(incrementNanos) + ")";
+    }
+  }
+
+  /**
+   * Strategy of {@link #exponential(double, long, long, TimeUnit)}.
+   *
+   * @since SINCE
+   */
+  private static final class ExponentialStrategy implements PollingStrategy {
+    private final double factor;
+    private final long baseNanos;
+    private final long capNanos;
+
+    private ExponentialStrategy(double factor, long baseNanos, long capNanos) {
+      this.factor = factor;
+      this.baseNanos = baseNanos;
+      this.capNanos = capNanos;
+    }
+
+    @Override
+    public long nextDelayNanos(int polls,
+                               long previousDelayNanos,
+                               long lastEvaluationNanos,
+                               long remainingNanos) {
+      // Double arithmetic saturates at Long.MAX_VALUE on cast.
+      return Math.min(capNanos, Math.max(baseNanos, (long) (previousDelayNanos * factor)));
+    }
+
+    @Override
+    public String toString() {
+      return "PollingStrategies.exponential(" + factor + ", " + formatNanos(baseNanos) + ", "
+             + formatNanos(capNanos) + ")";
+    }
+  }
+
+  /**
+   * Strategy of {@link #decorrelatedJitter(long, long, TimeUnit)}.
+   *
+   * @since SINCE
+   */
+  private static final class DecorrelatedJitterStrategy implements PollingStrategy {
+    private final long baseNanos;
+    private final long capNanos;
+
+    private DecorrelatedJitterStrategy(long baseNanos, long capNanos) {
+      this.baseNanos = baseNanos;
+      this.capNanos = capNanos;
+    }
+
+    @Override
+    public long nextDelayNanos(int polls,
+                               long previousDelayNanos,
+                               long lastEvaluationNanos,
+                               long remainingNanos) {
+      long upperBound = previousDelayNanos > capNanos / 3L
+                        ? capNanos
+                        : Math.min(capNanos, Math.max(baseNanos, previousDelayNanos) * 3L);
+      if (upperBound <= baseNanos) {
+        return baseNanos;
+      }
+      return ThreadLocalRandom.current().nextLong(baseNanos, upperBound + 1L);
+    }
+
+    @Override
+    public String toString() {
+      return "PollingStrategies.decorrelatedJitter(" + formatNanos(baseNanos) + ", "
+             + formatNanos(capNanos) + ")";
+    }
+  }
+
+  /**
+   * Strategy of {@link #fibonacci(long, long, TimeUnit)}.
+   *
+   * @since SINCE
+   */
+  private static final class FibonacciStrategy implements PollingStrategy {
+    private final long baseNanos;
+    private final long capNanos;
+
+    private FibonacciStrategy(long baseNanos, long capNanos) {
+      this.baseNanos = baseNanos;
+      this.capNanos = capNanos;
+    }
+
+    @Override
+    public long nextDelayNanos(int polls,
+                               long previousDelayNanos,
+                               long lastEvaluationNanos,
+                               long remainingNanos) {
+      // Calculate Fibonacci number for the number of polls done, stopping at the cap, so
+      // that there is no need to remember the previous delays.
+      long previous = 0L;
+      long current = baseNanos;
+      for (int i = 1; i < polls && current < capNanos; i++) {
+        long next = add(previous, current);
+        previous = current;
+        current = next;
+      }
+      return Math.min(capNanos, current);
+    }
+
+    @Override
+    public String toString() {
+      return "PollingStrategies.fibonacci(" + formatNanos(baseNanos) + ", "
+             + formatNanos(capNanos) + ")";
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+/**
+ * <p>
+ * Strategy to determine the delay between two polls of a {@link WaitFunction}. The
+ * first poll is delayed by the initial delay as configured via
+ * {@link WaitBuilder#withInitialDelay(long, java.util.concurrent.TimeUnit)}. Any further
+ * delay is calculated by the strategy based on the previous delay.
+ * </p>
+ * <p>
+ * Independent from the strategy the time between two polls will never be shorter than the
+ * time the last evaluation took and will never exceed the deadline (plus grace period).
+ * </p>
+ * <p>
+ * Strategies are shared between waits which might run concurrently. Thus implementations
+ * must be thread-safe and should be stateless.
+ * </p>
+ *
+ * @see PollingStrategies
+ * @since SINCE
+ */
+public interface PollingStrategy {
+
+  /**
+   * Calculate the delay before the poll after the next poll.
+   *
+   * @param polls               number of evaluations so far; always greater than 0
+   * @param previousDelayNanos  the delay used before the upcoming poll in nanoseconds; never
+   *                            shorter than the last evaluation took
+   * @param lastEvaluationNanos how long the last evaluation took in nanoseconds
+   * @param remainingNanos      time remaining until the deadline in nanoseconds
+   * @return delay in nanoseconds; negative values will be treated as 0
+   * @since SINCE
+   */
+  long nextDelayNanos(int polls,
+                      long previousDelayNanos,
+                      long lastEvaluationNanos,
+                      long remainingNanos);
+}
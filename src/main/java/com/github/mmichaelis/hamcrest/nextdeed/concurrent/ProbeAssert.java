@@ -57,4 +57,79 @@ public interface ProbeAssert<T, R> {
                   @NotNull Function<T, R> actualFunction,
                   @NotNull Matcher<? super R> matcher);
 
+  /**
+   * <p>
+   * Assert that the result of the function applied to the probed object matches all of the
+   * given matchers. Each poll retrieves the result once and checks all matchers against it.
+   * The wait ends as soon as all matchers match at once.
+   * </p>
+   * <p>
+   * On failure the message lists all matchers which did not match the last result.
+   * </p>
+   *
+   * @param actualFunction function to get a value from the probed object
+   * @param matchers       matchers to apply to result of function; at least one
+   * @throws AssertionError           if not all matchers match in the given time; thus the
+   *                                  test will be marked as <strong>Failure</strong>
+   * @throws IllegalArgumentException if no matchers are given
+   * @since SINCE
+   */
+  void assertAll(@NotNull Function<T, R> actualFunction,
+                 @NotNull Iterable<? extends Matcher<? super R>> matchers);
+
+  /**
+   * Assert that the result of the function applied to the probed object matches all of the
+   * given matchers.
+   *
+   * @param reason         message on failure
+   * @param actualFunction function to get a value from the probed object
+   * @param matchers       matchers to apply to result of function; at least one
+   * @throws AssertionError           if not all matchers match in the given time; thus the
+   *                                  test will be marked as <strong>Failure</strong>
+   * @throws IllegalArgumentException if no matchers are given
+   * @see #assertAll(Function, Iterable)
+   * @since SINCE
+   */
+  void assertAll(@Nullable String reason,
+                 @NotNull Function<T, R> actualFunction,
+                 @NotNull Iterable<? extends Matcher<? super R>> matchers);
+
+  /**
+   * <p>
+   * Assert that the result of the function applied to the probed object matches all of the
+   * given matchers.
+   * </p>
+   * <p>
+   * As generic varargs cannot be declared safe on interfaces, callers get an unchecked
+   * warning. Prefer {@link #assertAll(Function, Iterable)}.
+   * </p>
+   *
+   * @param actualFunction function to get a value from the probed object
+   * @param matchers       matchers to apply to result of function; at least one
+   * @throws AssertionError           if not all matchers match in the given time; thus the
+   *                                  test will be marked as <strong>Failure</strong>
+   * @throws IllegalArgumentException if no matchers are given
+   * @see #assertAll(Function, Iterable)
+   * @since SINCE
+   */
+  void assertAll(@NotNull Function<T, R> actualFunction,
+                 @NotNull Matcher<? super R>... matchers);
+
+  /**
+   * Assert that the result of the function applied to the probed object matches all of the
+   * given matchers.
+   *
+   * @param reason         message on failure
+   * @param actualFunction function to get a value from the probed object
+   * @param matchers       matchers to apply to result of function; at least one
+   * @throws AssertionError           if not all matchers match in the given time; thus the
+   *                                  test will be marked as <strong>Failure</strong>
+   * @throws IllegalArgumentException if no matchers are given
+   * @see #assertAll(String, Function, Iterable)
+   * @since SINCE
+   */
+  void assertAll(@Nullable String reason,
+                 @NotNull Function<T, R> actualFunction,
+                 @NotNull Matcher<? super R>... matchers);
+
 }
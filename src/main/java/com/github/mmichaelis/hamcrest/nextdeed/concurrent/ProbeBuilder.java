@@ -20,6 +20,7 @@ import com.github.mmichaelis.hamcrest.nextdeed.glue.Consumer;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -64,10 +65,99 @@ public interface ProbeBuilder<T, R> extends WaitBuilder, ProbeAssert<T, R>, Prob
   @Override
   ProbeBuilder<T, R> deceleratePollingBy(double decelerationFactor);
 
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> pollingWith(@NotNull PollingStrategy pollingStrategy);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> spinThenPark(long spinTime, long parkTime, @NotNull TimeUnit timeUnit);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> triggeredBy(@NotNull ProbeTrigger trigger);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> withEvaluationTimeout(long evaluationTimeout, @NotNull TimeUnit timeUnit);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> hedgeAfter(long hedgeDelay, @NotNull TimeUnit timeUnit, int maxInFlight);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> coalesceEvaluations(long maxAge, @NotNull TimeUnit timeUnit);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> stableFor(long duration, @NotNull TimeUnit timeUnit);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> stableForPolls(int polls);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> withHistorySize(int polls);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> withClock(@NotNull WaitClock clock);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> rateLimitedBy(@NotNull PollRateLimiter rateLimiter);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> withMaxEvaluations(int maxEvaluations);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> ignoringExceptions(@NotNull Class<? extends Throwable> exceptionType);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> backingOffOnExceptionsBy(double backoffFactor);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> withCircuitBreaker(@NotNull CircuitBreaker circuitBreaker);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> withListener(@NotNull ProbeListener listener);
+
+  @NotNull
+  @Override
+  ProbeBuilder<T, R> pollingOn(@NotNull ScheduledExecutorService scheduler);
+
   @NotNull
   @Override
   ProbeBuilder<T, R> and();
 
+  /**
+   * <p>
+   * Run the polling loop of each check on a thread of its own &mdash; a virtual thread on
+   * Java 21 and above &mdash; and join it. The calling thread still blocks until the check
+   * is done, and failures are raised in the calling thread just as without this option.
+   * The {@link WaitBudget#current() current budget} of the calling thread applies, and
+   * interrupting the calling thread cancels the check.
+   * </p>
+   * <p>
+   * To fan out many probes at once without a platform thread each, run them as tasks of
+   * {@link VirtualThreads#newExecutor()}, or use
+   * {@link WaitFunctionBuilder#getOnVirtualThreads()} which does not block at all.
+   * </p>
+   *
+   * @return self-reference
+   * @see VirtualThreads
+   * @since SINCE
+   */
+  @NotNull
+  ProbeBuilder<T, R> onVirtualThread();
+
   /**
    * <p>
    * On timeout specify a consumer which will be called upon timeout. The consumer is just called
@@ -88,4 +178,31 @@ public interface ProbeBuilder<T, R> extends WaitBuilder, ProbeAssert<T, R>, Prob
   @NotNull
   ProbeBuilder<T, R> onTimeout(@NotNull Consumer<WaitTimeoutEvent<T, R>> eventConsumer);
 
+  /**
+   * <p>
+   * Freeze the current configuration into an immutable probe specification. In contrast to
+   * the builder the specification is thread-safe: It may be shared by any number of threads
+   * asserting, assuming or requiring at once. Later changes to this builder do not affect
+   * the specification.
+   * </p>
+   * <dl>
+   * <dt><strong>Example:</strong></dt>
+   * <dd>
+   * <pre>{@code
+   * ProbeSpec<SUT, State> probe = Probe.<SUT, State>probing(sut)
+   *     .withinMs(5000L)
+   *     .onTimeout(dumpState)
+   *     .compile();
+   * // from any thread
+   * probe.assertThat(getState(), equalTo(State.RUNNING));
+   * }</pre>
+   * </dd>
+   * </dl>
+   *
+   * @return immutable probe specification
+   * @since SINCE
+   */
+  @NotNull
+  ProbeSpec<T, R> compile();
+
 }
@@ -16,7 +16,6 @@
 
 package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
 
-import static com.github.mmichaelis.hamcrest.nextdeed.glue.HamcrestGlue.asPredicate;
 import static java.util.Objects.requireNonNull;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -31,7 +30,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -62,21 +63,30 @@ final class ProbeBuilderImpl<T, R> implements ProbeBuilder<T, R> {
    */
   @NotNull
   private final Collection<Consumer<WaitTimeoutEvent<T, R>>> onTimeoutConsumers = new ArrayList<>();
+  private Function<Function<T, R>, Function<T, R>> waitFunctionPreProcessor =
+      Functions.identity();
   /**
-   * Function to retrieve the actual value from the system under test.
+   * Spec compiled from the current configuration; {@code null} if not compiled yet or if
+   * the configuration changed since.
    *
-   * @since 1.0.0
+   * @since SINCE
    */
-  private Function<T, R> actualFunction;
-  private Function<Function<T, R>, Function<T, R>> waitFunctionPreProcessor =
-      Functions.identity();
+  @Nullable
+  private ProbeSpec<T, R> compiled;
+  /**
+   * Signals to run each check on a virtual thread.
+   *
+   * @since SINCE
+   */
+  private boolean onVirtualThread;
 
   ProbeBuilderImpl(@NotNull T target) {
     this.target = requireNonNull(target, "target must not be null.");
+    // Placeholder only: Each check binds its own actual function.
     waitFunctionBuilder = WaitFunction.waitFor(new Function<T, R>() {
       @Override
       public R apply(@Nullable T input) {
-        return getActualFunction().apply(input);
+        throw new IllegalStateException("Actual function not bound.");
       }
     });
   }
@@ -84,21 +94,21 @@ final class ProbeBuilderImpl<T, R> implements ProbeBuilder<T, R> {
   @NotNull
   @Override
   public ProbeBuilder<T, R> withinMs(long timeoutMs) {
-    waitFunctionBuilder.withinMs(timeoutMs);
+    configure().withinMs(timeoutMs);
     return this;
   }
 
   @NotNull
   @Override
   public ProbeBuilder<T, R> within(long timeout, @NotNull TimeUnit timeUnit) {
-    waitFunctionBuilder.within(timeout, timeUnit);
+    configure().within(timeout, timeUnit);
     return this;
   }
 
   @NotNull
   @Override
   public ProbeBuilder<T, R> withFinalGracePeriodMs(long gracePeriodMs) {
-    waitFunctionBuilder.withFinalGracePeriodMs(gracePeriodMs);
+    configure().withFinalGracePeriodMs(gracePeriodMs);
     return this;
   }
 
@@ -106,35 +116,168 @@ final class ProbeBuilderImpl<T, R> implements ProbeBuilder<T, R> {
   @Override
   public ProbeBuilder<T, R> withFinalGracePeriod(long gracePeriod,
                                                  @NotNull TimeUnit timeUnit) {
-    waitFunctionBuilder.withFinalGracePeriod(gracePeriod, timeUnit);
+    configure().withFinalGracePeriod(gracePeriod, timeUnit);
     return this;
   }
 
   @NotNull
   @Override
   public ProbeBuilder<T, R> withInitialDelayMs(long initialDelayMs) {
-    waitFunctionBuilder.withInitialDelayMs(initialDelayMs);
+    configure().withInitialDelayMs(initialDelayMs);
     return this;
   }
 
   @NotNull
   @Override
   public ProbeBuilder<T, R> withInitialDelay(long initialDelay, @NotNull TimeUnit timeUnit) {
-    waitFunctionBuilder.withInitialDelay(initialDelay, timeUnit);
+    configure().withInitialDelay(initialDelay, timeUnit);
     return this;
   }
 
   @NotNull
   @Override
   public ProbeBuilder<T, R> deceleratePollingBy(double decelerationFactor) {
-    waitFunctionBuilder.deceleratePollingBy(decelerationFactor);
+    configure().deceleratePollingBy(decelerationFactor);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> pollingWith(@NotNull PollingStrategy pollingStrategy) {
+    configure().pollingWith(pollingStrategy);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> spinThenPark(long spinTime,
+                                         long parkTime,
+                                         @NotNull TimeUnit timeUnit) {
+    configure().spinThenPark(spinTime, parkTime, timeUnit);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> triggeredBy(@NotNull ProbeTrigger trigger) {
+    configure().triggeredBy(trigger);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> withEvaluationTimeout(long evaluationTimeout,
+                                                  @NotNull TimeUnit timeUnit) {
+    configure().withEvaluationTimeout(evaluationTimeout, timeUnit);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> hedgeAfter(long hedgeDelay,
+                                       @NotNull TimeUnit timeUnit,
+                                       int maxInFlight) {
+    configure().hedgeAfter(hedgeDelay, timeUnit, maxInFlight);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> coalesceEvaluations(long maxAge, @NotNull TimeUnit timeUnit) {
+    configure().coalesceEvaluations(maxAge, timeUnit);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> stableFor(long duration, @NotNull TimeUnit timeUnit) {
+    configure().stableFor(duration, timeUnit);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> stableForPolls(int polls) {
+    configure().stableForPolls(polls);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> withHistorySize(int polls) {
+    configure().withHistorySize(polls);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> withClock(@NotNull WaitClock clock) {
+    configure().withClock(clock);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> rateLimitedBy(@NotNull PollRateLimiter rateLimiter) {
+    configure().rateLimitedBy(rateLimiter);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> withMaxEvaluations(int maxEvaluations) {
+    configure().withMaxEvaluations(maxEvaluations);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> ignoringExceptions(
+      @NotNull Class<? extends Throwable> exceptionType) {
+    configure().ignoringExceptions(exceptionType);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> backingOffOnExceptionsBy(double backoffFactor) {
+    configure().backingOffOnExceptionsBy(backoffFactor);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> withCircuitBreaker(@NotNull CircuitBreaker circuitBreaker) {
+    configure().withCircuitBreaker(circuitBreaker);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> withListener(@NotNull ProbeListener listener) {
+    configure().withListener(listener);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> pollingOn(@NotNull ScheduledExecutorService scheduler) {
+    configure().pollingOn(scheduler);
     return this;
   }
 
   @NotNull
   @Override
   public ProbeBuilder<T, R> and() {
-    waitFunctionBuilder.and();
+    configure().and();
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public ProbeBuilder<T, R> onVirtualThread() {
+    onVirtualThread = true;
+    compiled = null;
     return this;
   }
 
@@ -144,62 +287,114 @@ final class ProbeBuilderImpl<T, R> implements ProbeBuilder<T, R> {
       @NotNull Consumer<WaitTimeoutEvent<T, R>> waitTimeoutEventConsumer
   ) {
     onTimeoutConsumers.add(waitTimeoutEventConsumer);
+    compiled = null;
     return this;
   }
 
   @Override
   public void assertThat(@NotNull Function<T, R> actualFunction,
                          @NotNull Matcher<? super R> matcher) {
-    assertThat(null, actualFunction, matcher);
+    compile().assertThat(actualFunction, matcher);
   }
 
   @Override
   public void assertThat(@Nullable String reason,
                          @NotNull Function<T, R> actualFunction,
                          @NotNull Matcher<? super R> matcher) {
-    checkThat(
-        actualFunction,
-        matcher,
-        new ThrowAssertionError<T, R>(reason, matcher));
+    compile().assertThat(reason, actualFunction, matcher);
+  }
+
+  @Override
+  public void assertAll(@NotNull Function<T, R> actualFunction,
+                        @NotNull Iterable<? extends Matcher<? super R>> matchers) {
+    compile().assertAll(actualFunction, matchers);
+  }
+
+  @Override
+  public void assertAll(@Nullable String reason,
+                        @NotNull Function<T, R> actualFunction,
+                        @NotNull Iterable<? extends Matcher<? super R>> matchers) {
+    compile().assertAll(reason, actualFunction, matchers);
+  }
+
+  @SafeVarargs
+  @Override
+  public final void assertAll(@NotNull Function<T, R> actualFunction,
+                              @NotNull Matcher<? super R>... matchers) {
+    compile().assertAll(actualFunction, Arrays.asList(matchers));
+  }
+
+  @SafeVarargs
+  @Override
+  public final void assertAll(@Nullable String reason,
+                              @NotNull Function<T, R> actualFunction,
+                              @NotNull Matcher<? super R>... matchers) {
+    compile().assertAll(reason, actualFunction, Arrays.asList(matchers));
   }
 
   @Override
   public void assumeThat(@NotNull Function<T, R> actualFunction,
                          @NotNull Matcher<? super R> matcher) {
-    assumeThat(null, actualFunction, matcher);
+    compile().assumeThat(actualFunction, matcher);
   }
 
   @Override
   public void assumeThat(@Nullable String reason,
                          @NotNull Function<T, R> actualFunction,
                          @NotNull Matcher<? super R> matcher) {
-    checkThat(
-        actualFunction,
-        matcher,
-        new ThrowAssumptionViolatedException<T, R>(reason, matcher));
+    compile().assumeThat(reason, actualFunction, matcher);
   }
 
   @Override
   public void requireThat(@NotNull Function<T, R> actualFunction,
                           @NotNull Matcher<? super R> matcher) {
-    requireThat(null, actualFunction, matcher);
+    compile().requireThat(actualFunction, matcher);
   }
 
   @Override
   public void requireThat(@Nullable String reason,
                           @NotNull Function<T, R> actualFunction,
                           @NotNull Matcher<? super R> matcher) {
-    checkThat(
-        actualFunction,
-        matcher,
-        new ThrowWaitTimeoutException<T, R>(reason, matcher));
+    compile().requireThat(reason, actualFunction, matcher);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The spec is compiled once and reused by all checks until the configuration changes.
+   * </p>
+   */
+  @NotNull
+  @Override
+  public ProbeSpec<T, R> compile() {
+    if (compiled == null) {
+      compiled = new ProbeSpecImpl<>(target,
+                                     (WaitFunction<T, R>) waitFunctionBuilder.get(),
+                                     onTimeoutConsumers,
+                                     waitFunctionPreProcessor,
+                                     onVirtualThread);
+    }
+    return compiled;
+  }
+
+  /**
+   * Access the wait function builder to change the configuration, which invalidates the
+   * compiled spec.
+   *
+   * @return wait function builder
+   * @since SINCE
+   */
+  @NotNull
+  private WaitFunctionBuilder<T, R> configure() {
+    compiled = null;
+    return waitFunctionBuilder;
   }
 
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
         .add("hash", Integer.toHexString(System.identityHashCode(this)))
-        .add("actualFunction", actualFunction)
+        .add("onVirtualThread", onVirtualThread)
         .add("target", target)
         .add("waitFunctionBuilder", waitFunctionBuilder)
         .toString();
@@ -225,39 +420,7 @@ final class ProbeBuilderImpl<T, R> implements ProbeBuilder<T, R> {
   ProbeBuilder<T, R> preProcessWaitFunction(
       @NotNull Function<Function<T, R>, Function<T, R>> waitFunctionPreProcessor) {
     this.waitFunctionPreProcessor = waitFunctionPreProcessor;
+    compiled = null;
     return this;
   }
-
-  /**
-   * Validate and get the actual function (function to retrieve the actual value).
-   *
-   * @return function
-   */
-  @NotNull
-  private Function<T, R> getActualFunction() {
-    assert actualFunction != null : "actualFunction must be set.";
-    return actualFunction;
-  }
-
-  private void checkThat(@NotNull Function<T, R> actualFunction,
-                         @NotNull Matcher<? super R> matcher,
-                         @NotNull final Function<WaitTimeoutEvent<T, R>, R> timeoutFunction) {
-    this.actualFunction = actualFunction;
-    Function<T, R> waitFunction = waitFunctionBuilder
-        .toFulfill(asPredicate(matcher))
-        .onTimeout(new Function<WaitTimeoutEvent<T, R>, R>() {
-          @Override
-          public R apply(@Nullable WaitTimeoutEvent<T, R> input) {
-            for (Consumer<WaitTimeoutEvent<T, R>> onTimeoutConsumer : onTimeoutConsumers) {
-              onTimeoutConsumer.accept(input);
-            }
-            return timeoutFunction.apply(input);
-          }
-        })
-        .get();
-    Function<T, R> preProcessedWaitFunction = waitFunctionPreProcessor.apply(waitFunction);
-    assert preProcessedWaitFunction
-           != null : "Wait function should not have been preprocessed to null.";
-    preProcessedWaitFunction.apply(target);
-  }
 }
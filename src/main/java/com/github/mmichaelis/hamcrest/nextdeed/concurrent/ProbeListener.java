@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>
+ * Listener to instrument waits on poll level, for example to collect metrics on how many
+ * polls a wait took or how long evaluations ran. Listeners might be registered per
+ * builder via {@link WaitBuilder#withListener(ProbeListener)} or globally via
+ * {@link ProbeListeners#register(ProbeListener)}.
+ * </p>
+ * <p>
+ * Listeners are called from the polling thread (or the scheduler thread for asynchronous
+ * waits), possibly for many concurrent waits. Thus implementations must be thread-safe,
+ * should return quickly and must not throw exceptions. Extend
+ * {@link ProbeListenerAdapter} to implement only some of the callbacks.
+ * </p>
+ *
+ * @since SINCE
+ */
+public interface ProbeListener {
+
+  /**
+   * A wait started; called before the first evaluation.
+   *
+   * @param source wait function which started waiting
+   * @since SINCE
+   */
+  void onStart(@NotNull WaitFunction<?, ?> source);
+
+  /**
+   * An evaluation of the delegate function finished.
+   *
+   * @param source        wait function which evaluated
+   * @param durationNanos how long the evaluation took in nanoseconds
+   * @param matched       {@code true} if the result fulfilled the predicate
+   * @since SINCE
+   */
+  void onEvaluation(@NotNull WaitFunction<?, ?> source, long durationNanos, boolean matched);
+
+  /**
+   * The wait is about to sleep until the next evaluation.
+   *
+   * @param source wait function which sleeps
+   * @param nanos  time to sleep in nanoseconds; 0 for busy-spinning
+   * @since SINCE
+   */
+  void onSleep(@NotNull WaitFunction<?, ?> source, long nanos);
+
+  /**
+   * The wait succeeded as the result fulfilled the predicate.
+   *
+   * @param source        wait function which succeeded
+   * @param consumedNanos time from start until the end of the successful evaluation in
+   *                      nanoseconds
+   * @since SINCE
+   */
+  void onSatisfied(@NotNull WaitFunction<?, ?> source, long consumedNanos);
+
+  /**
+   * The wait failed, as evaluating threw an exception which is not ignored or as the
+   * {@linkplain CircuitBreaker circuit breaker} is open. The failure is propagated to the
+   * caller of the wait right after this callback.
+   *
+   * @param source  wait function which failed
+   * @param failure the failure to propagate
+   * @since SINCE
+   */
+  void onFailure(@NotNull WaitFunction<?, ?> source, @NotNull Throwable failure);
+
+  /**
+   * The wait timed out or got {@linkplain WaitTimeoutEvent#isCancelled() cancelled}.
+   * Called before the timeout function of the wait.
+   *
+   * @param event event describing the timeout
+   * @since SINCE
+   */
+  void onTimeout(@NotNull WaitTimeoutEvent<?, ?> event);
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listener ignoring all callbacks. Extend it to implement only the callbacks you are
+ * interested in.
+ *
+ * @since SINCE
+ */
+public abstract class ProbeListenerAdapter implements ProbeListener {
+
+  @Override
+  public void onStart(@NotNull WaitFunction<?, ?> source) {
+  }
+
+  @Override
+  public void onEvaluation(@NotNull WaitFunction<?, ?> source,
+                           long durationNanos,
+                           boolean matched) {
+  }
+
+  @Override
+  public void onSleep(@NotNull WaitFunction<?, ?> source, long nanos) {
+  }
+
+  @Override
+  public void onSatisfied(@NotNull WaitFunction<?, ?> source, long consumedNanos) {
+  }
+
+  @Override
+  public void onFailure(@NotNull WaitFunction<?, ?> source, @NotNull Throwable failure) {
+  }
+
+  @Override
+  public void onTimeout(@NotNull WaitTimeoutEvent<?, ?> event) {
+  }
+}
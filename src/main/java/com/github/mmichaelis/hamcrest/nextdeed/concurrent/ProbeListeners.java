@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.MoreObjects;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <p>
+ * Access to {@link ProbeListener}s: The no-op listener, combining listeners and the
+ * registry of global listeners which get informed about all waits.
+ * </p>
+ * <p>
+ * As long as no listener is registered, waits use the no-op listener. Its calls are
+ * monomorphic and empty, so that the JIT compiler removes them from the polling loop.
+ * </p>
+ *
+ * @since SINCE
+ */
+public final class ProbeListeners {
+
+  /**
+   * Lock for modifying the global listeners.
+   *
+   * @since SINCE
+   */
+  private static final Object LOCK = new Object();
+  private static final List<ProbeListener> GLOBAL_LISTENERS = new ArrayList<>();
+  /**
+   * All global listeners combined; replaced on each modification, so that reading
+   * requires no locking.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private static volatile ProbeListener global = NoOpListener.INSTANCE;
+
+  private ProbeListeners() {
+    // Utility class
+  }
+
+  /**
+   * Listener which ignores all callbacks.
+   *
+   * @return no-op listener
+   * @since SINCE
+   */
+  @NotNull
+  public static ProbeListener noOp() {
+    return NoOpListener.INSTANCE;
+  }
+
+  /**
+   * Register a listener to be informed about all waits started from now on.
+   *
+   * @param listener listener to register
+   * @since SINCE
+   */
+  public static void register(@NotNull ProbeListener listener) {
+    requireNonNull(listener, "listener must not be null.");
+    synchronized (LOCK) {
+      GLOBAL_LISTENERS.add(listener);
+      global = combine(GLOBAL_LISTENERS);
+    }
+  }
+
+  /**
+   * Unregister a global listener. Waits which are already running might still inform the
+   * listener.
+   *
+   * @param listener listener to unregister
+   * @since SINCE
+   */
+  public static void unregister(@NotNull ProbeListener listener) {
+    synchronized (LOCK) {
+      GLOBAL_LISTENERS.remove(listener);
+      global = combine(GLOBAL_LISTENERS);
+    }
+  }
+
+  /**
+   * Combine the given listener with the global listeners.
+   *
+   * @param listener listener to combine
+   * @return combined listener
+   * @since SINCE
+   */
+  @NotNull
+  static ProbeListener withGlobal(@NotNull ProbeListener listener) {
+    ProbeListener currentGlobal = global;
+    if (currentGlobal == NoOpListener.INSTANCE) {
+      return listener;
+    }
+    if (listener == NoOpListener.INSTANCE) {
+      return currentGlobal;
+    }
+    return combine(Arrays.asList(listener, currentGlobal));
+  }
+
+  /**
+   * Combine the given listeners into one.
+   *
+   * @param listeners listeners to combine
+   * @return combined listener; the no-op listener if there are none
+   * @since SINCE
+   */
+  @NotNull
+  static ProbeListener combine(@NotNull Collection<ProbeListener> listeners) {
+    switch (listeners.size()) {
+      case 0:
+        return NoOpListener.INSTANCE;
+      case 1:
+        return listeners.iterator().next();
+      default:
+        return new CompositeListener(listeners.toArray(new ProbeListener[listeners.size()]));
+    }
+  }
+
+  /**
+   * @since SINCE
+   */
+  private static final class NoOpListener implements ProbeListener {
+    private static final ProbeListener INSTANCE = new NoOpListener();
+
+    @Override
+    public void onStart(@NotNull WaitFunction<?, ?> source) {
+    }
+
+    @Override
+    public void onEvaluation(@NotNull WaitFunction<?, ?> source,
+                             long durationNanos,
+                             boolean matched) {
+    }
+
+    @Override
+    public void onSleep(@NotNull WaitFunction<?, ?> source, long nanos) {
+    }
+
+    @Override
+    public void onSatisfied(@NotNull WaitFunction<?, ?> source, long consumedNanos) {
+    }
+
+    @Override
+    public void onFailure(@NotNull WaitFunction<?, ?> source, @NotNull Throwable failure) {
+    }
+
+    @Override
+    public void onTimeout(@NotNull WaitTimeoutEvent<?, ?> event) {
+    }
+
+    @Override
+    public String toString() {
+      return "ProbeListeners.noOp()";
+    }
+  }
+
+  /**
+   * @since SINCE
+   */
+  private static final class CompositeListener implements ProbeListener {
+    @NotNull
+    private final ProbeListener[] listeners;
+
+    private CompositeListener(@NotNull ProbeListener[] listeners) {
+      this.listeners = listeners;
+    }
+
+    @Override
+    public void onStart(@NotNull WaitFunction<?, ?> source) {
+      for (ProbeListener listener : listeners) {
+        listener.onStart(source);
+      }
+    }
+
+    @Override
+    public void onEvaluation(@NotNull WaitFunction<?, ?> source,
+                             long durationNanos,
+                             boolean matched) {
+      for (ProbeListener listener : listeners) {
+        listener.onEvaluation(source, durationNanos, matched);
+      }
+    }
+
+    @Override
+    public void onSleep(@NotNull WaitFunction<?, ?> source, long nanos) {
+      for (ProbeListener listener : listeners) {
+        listener.onSleep(source, nanos);
+      }
+    }
+
+    @Override
+    public void onSatisfied(@NotNull WaitFunction<?, ?> source, long consumedNanos) {
+      for (ProbeListener listener : listeners) {
+        listener.onSatisfied(source, consumedNanos);
+      }
+    }
+
+    @Override
+    public void onFailure(@NotNull WaitFunction<?, ?> source, @NotNull Throwable failure) {
+      for (ProbeListener listener : listeners) {
+        listener.onFailure(source, failure);
+      }
+    }
+
+    @Override
+    public void onTimeout(@NotNull WaitTimeoutEvent<?, ?> event) {
+      for (ProbeListener listener : listeners) {
+        listener.onTimeout(event);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("hash", Integer.toHexString(System.identityHashCode(this)))
+          .add("listeners", Arrays.toString(listeners))
+          .toString();
+    }
+  }
+}
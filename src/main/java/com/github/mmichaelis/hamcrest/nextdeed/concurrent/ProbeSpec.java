@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+/**
+ * <p>
+ * Immutable specification of a probe as created by {@link ProbeBuilder#compile()}. Any
+ * configuration like timeout, grace period, polling and timeout consumers is frozen. Thus
+ * a specification is thread-safe and may be shared, for example as constant of a test
+ * class, by tests running in parallel.
+ * </p>
+ *
+ * @param <T> the type of system you are probing
+ * @param <R> the type of state variable you are polling
+ * @since SINCE
+ */
+public interface ProbeSpec<T, R> extends ProbeAssert<T, R>, ProbeAssume<T, R>, ProbeRequire<T, R> {
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static com.github.mmichaelis.hamcrest.nextdeed.glue.HamcrestGlue.asPredicate;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import com.github.mmichaelis.hamcrest.nextdeed.glue.Consumer;
+
+import org.hamcrest.Matcher;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * Implementation of {@link ProbeSpec}. The wait configuration is kept as prototype wait
+ * function, which waits for the actual function and matcher of each check without being
+ * bound to them. Only a wait function pre-processor requires binding.
+ * </p>
+ *
+ * @param <T> the type of system you are probing
+ * @param <R> the type of state variable you are polling
+ * @since SINCE
+ */
+final class ProbeSpecImpl<T, R> implements ProbeSpec<T, R> {
+
+  /**
+   * Target, typically the system under test, which will be probed.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final T target;
+  /**
+   * Wait function providing the configuration for all checks.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final WaitFunction<T, R> prototype;
+  /**
+   * Consumers which will be called upon timeout.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final ImmutableList<Consumer<WaitTimeoutEvent<T, R>>> onTimeoutConsumers;
+  /**
+   * Pre-processor for bound wait functions; only meant for testing.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final Function<Function<T, R>, Function<T, R>> waitFunctionPreProcessor;
+  /**
+   * Signals to run each check on a virtual thread.
+   *
+   * @since SINCE
+   */
+  private final boolean onVirtualThread;
+
+  ProbeSpecImpl(@NotNull T target,
+                @NotNull WaitFunction<T, R> prototype,
+                @NotNull Collection<Consumer<WaitTimeoutEvent<T, R>>> onTimeoutConsumers,
+                @NotNull Function<Function<T, R>, Function<T, R>> waitFunctionPreProcessor,
+                boolean onVirtualThread) {
+    this.target = requireNonNull(target, "target must not be null.");
+    this.prototype = requireNonNull(prototype, "prototype must not be null.");
+    this.onTimeoutConsumers = ImmutableList.copyOf(
+        requireNonNull(onTimeoutConsumers, "onTimeoutConsumers must not be null."));
+    this.waitFunctionPreProcessor = requireNonNull(waitFunctionPreProcessor,
+                                                   "waitFunctionPreProcessor must not be null.");
+    this.onVirtualThread = onVirtualThread;
+  }
+
+  @Override
+  public void assertThat(@NotNull Function<T, R> actualFunction,
+                         @NotNull Matcher<? super R> matcher) {
+    assertThat(null, actualFunction, matcher);
+  }
+
+  @Override
+  public void assertThat(@Nullable String reason,
+                         @NotNull Function<T, R> actualFunction,
+                         @NotNull Matcher<? super R> matcher) {
+    checkThat(reason, actualFunction, matcher, Outcome.ASSERTION);
+  }
+
+  @Override
+  public void assertAll(@NotNull Function<T, R> actualFunction,
+                        @NotNull Iterable<? extends Matcher<? super R>> matchers) {
+    assertAll(null, actualFunction, matchers);
+  }
+
+  @Override
+  public void assertAll(@Nullable String reason,
+                        @NotNull Function<T, R> actualFunction,
+                        @NotNull Iterable<? extends Matcher<? super R>> matchers) {
+    assertThat(reason, actualFunction, new AllOfMatcher<R>(matchers));
+  }
+
+  @SafeVarargs
+  @Override
+  public final void assertAll(@NotNull Function<T, R> actualFunction,
+                              @NotNull Matcher<? super R>... matchers) {
+    assertAll(null, actualFunction, matchers);
+  }
+
+  @SafeVarargs
+  @Override
+  public final void assertAll(@Nullable String reason,
+                              @NotNull Function<T, R> actualFunction,
+                              @NotNull Matcher<? super R>... matchers) {
+    assertAll(reason, actualFunction, Arrays.asList(matchers));
+  }
+
+  @Override
+  public void assumeThat(@NotNull Function<T, R> actualFunction,
+                         @NotNull Matcher<? super R> matcher) {
+    assumeThat(null, actualFunction, matcher);
+  }
+
+  @Override
+  public void assumeThat(@Nullable String reason,
+                         @NotNull Function<T, R> actualFunction,
+                         @NotNull Matcher<? super R> matcher) {
+    checkThat(reason, actualFunction, matcher, Outcome.ASSUMPTION);
+  }
+
+  @Override
+  public void requireThat(@NotNull Function<T, R> actualFunction,
+                          @NotNull Matcher<? super R> matcher) {
+    requireThat(null, actualFunction, matcher);
+  }
+
+  @Override
+  public void requireThat(@Nullable String reason,
+                          @NotNull Function<T, R> actualFunction,
+                          @NotNull Matcher<? super R> matcher) {
+    checkThat(reason, actualFunction, matcher, Outcome.REQUIREMENT);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("onTimeoutConsumers", onTimeoutConsumers)
+        .add("onVirtualThread", onVirtualThread)
+        .add("prototype", prototype)
+        .add("target", target)
+        .toString();
+  }
+
+  private void checkThat(@Nullable String reason,
+                         @NotNull Function<T, R> actualFunction,
+                         @NotNull Matcher<? super R> matcher,
+                         @NotNull Outcome outcome) {
+    requireNonNull(actualFunction, "actualFunction must not be null.");
+    requireNonNull(matcher, "matcher must not be null.");
+    if (onVirtualThread) {
+      checkOnVirtualThread(reason, actualFunction, matcher, outcome);
+    } else {
+      check(reason, actualFunction, matcher, outcome);
+    }
+  }
+
+  /**
+   * Run the check on a virtual thread bound to the budget of the calling thread, and
+   * raise its failure in the calling thread.
+   *
+   * @since SINCE
+   */
+  private void checkOnVirtualThread(@Nullable final String reason,
+                                    @NotNull final Function<T, R> actualFunction,
+                                    @NotNull final Matcher<? super R> matcher,
+                                    @NotNull final Outcome outcome) {
+    final WaitBudget budget = WaitBudget.current();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread thread = VirtualThreads.sharedThreadFactory().newThread(new Runnable() {
+      @Override
+      public void run() {
+        WaitBudget.bind(budget);
+        try {
+          check(reason, actualFunction, matcher, outcome);
+        } catch (Throwable e) {
+          failure.set(e);
+        }
+      }
+    });
+    thread.start();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      // The check reports its cancellation just as if running in the calling thread.
+      thread.interrupt();
+      Uninterruptibles.joinUninterruptibly(thread);
+      Thread.currentThread().interrupt();
+    }
+    Throwable e = failure.get();
+    if (e != null) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private void check(@Nullable String reason,
+                     @NotNull Function<T, R> actualFunction,
+                     @NotNull Matcher<? super R> matcher,
+                     @NotNull Outcome outcome) {
+    Predicate<? super R> predicate = asPredicate(matcher);
+    Function<WaitTimeoutEvent<T, R>, R> timeoutFunction =
+        new NotifyingTimeoutFunction<>(onTimeoutConsumers, reason, matcher, outcome);
+    if (waitFunctionPreProcessor == Functions.<Function<T, R>>identity()) {
+      prototype.apply(target, actualFunction, predicate, timeoutFunction);
+      return;
+    }
+    Function<T, R> waitFunction =
+        new WaitFunction<>(prototype, actualFunction, predicate, timeoutFunction);
+    Function<T, R> preProcessedWaitFunction = waitFunctionPreProcessor.apply(waitFunction);
+    assert preProcessedWaitFunction
+           != null : "Wait function should not have been preprocessed to null.";
+    preProcessedWaitFunction.apply(target);
+  }
+
+  /**
+   * How a check signals a timeout.
+   *
+   * @since SINCE
+   */
+  private enum Outcome {
+    ASSERTION {
+      @NotNull
+      @Override
+      <T, R> Function<WaitTimeoutEvent<T, R>, R> timeoutFunction(
+          @Nullable String reason, @NotNull Matcher<? super R> matcher) {
+        return new ThrowAssertionError<T, R>(reason, matcher);
+      }
+    },
+    ASSUMPTION {
+      @NotNull
+      @Override
+      <T, R> Function<WaitTimeoutEvent<T, R>, R> timeoutFunction(
+          @Nullable String reason, @NotNull Matcher<? super R> matcher) {
+        return new ThrowAssumptionViolatedException<T, R>(reason, matcher);
+      }
+    },
+    REQUIREMENT {
+      @NotNull
+      @Override
+      <T, R> Function<WaitTimeoutEvent<T, R>, R> timeoutFunction(
+          @Nullable String reason, @NotNull Matcher<? super R> matcher) {
+        return new ThrowWaitTimeoutException<T, R>(reason, matcher);
+      }
+    };
+
+    @NotNull
+    abstract <T, R> Function<WaitTimeoutEvent<T, R>, R> timeoutFunction(
+        @Nullable String reason, @NotNull Matcher<? super R> matcher);
+  }
+
+  /**
+   * Informs the timeout consumers before handing over to the timeout function of the
+   * outcome, which is only created on timeout.
+   *
+   * @since SINCE
+   */
+  private static final class NotifyingTimeoutFunction<T, R>
+      implements Function<WaitTimeoutEvent<T, R>, R> {
+    @NotNull
+    private final ImmutableList<Consumer<WaitTimeoutEvent<T, R>>> onTimeoutConsumers;
+    @Nullable
+    private final String reason;
+    @NotNull
+    private final Matcher<? super R> matcher;
+    @NotNull
+    private final Outcome outcome;
+
+    private NotifyingTimeoutFunction(
+        @NotNull ImmutableList<Consumer<WaitTimeoutEvent<T, R>>> onTimeoutConsumers,
+        @Nullable String reason,
+        @NotNull Matcher<? super R> matcher,
+        @NotNull Outcome outcome) {
+      this.onTimeoutConsumers = onTimeoutConsumers;
+      this.reason = reason;
+      this.matcher = matcher;
+      this.outcome = outcome;
+    }
+
+    @Override
+    public R apply(@Nullable WaitTimeoutEvent<T, R> input) {
+      for (Consumer<WaitTimeoutEvent<T, R>> onTimeoutConsumer : onTimeoutConsumers) {
+        onTimeoutConsumer.accept(input);
+      }
+      if (input != null && input.isCancelled()) {
+        // Not a failure of the system under test: Do not report as such.
+        throw new WaitCancelledException(input.describe());
+      }
+      return outcome.<T, R>timeoutFunction(reason, matcher).apply(input);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("hash", Integer.toHexString(System.identityHashCode(this)))
+          .add("matcher", matcher)
+          .add("onTimeoutConsumers", onTimeoutConsumers)
+          .add("outcome", outcome)
+          .add("reason", reason)
+          .toString();
+    }
+  }
+}
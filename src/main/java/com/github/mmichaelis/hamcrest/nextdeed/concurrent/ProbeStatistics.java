@@ -0,0 +1,218 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.MoreObjects;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable snapshot of the metrics of waits for one probe name, as provided by
+ * {@link WaitMetrics}. Times are given in nanoseconds.
+ *
+ * @since SINCE
+ */
+public final class ProbeStatistics {
+
+  @NotNull
+  private final String name;
+  private final long waits;
+  private final long polls;
+  private final long satisfied;
+  private final long timeouts;
+  private final long cancellations;
+  private final long failures;
+  private final long timeToSatisfyMedianNanos;
+  private final long timeToSatisfy90thPercentileNanos;
+  private final long timeToSatisfy99thPercentileNanos;
+  private final long timeToSatisfyMaxNanos;
+  private final long evaluationMedianNanos;
+  private final long evaluation99thPercentileNanos;
+  private final long evaluationMaxNanos;
+
+  @ConstructorProperties({"name", "waits", "polls", "satisfied", "timeouts", "cancellations",
+                          "failures", "timeToSatisfyMedianNanos", "timeToSatisfy90thPercentileNanos",
+                          "timeToSatisfy99thPercentileNanos", "timeToSatisfyMaxNanos",
+                          "evaluationMedianNanos", "evaluation99thPercentileNanos",
+                          "evaluationMaxNanos"})
+  public ProbeStatistics(@NotNull String name,
+                         long waits,
+                         long polls,
+                         long satisfied,
+                         long timeouts,
+                         long cancellations,
+                         long failures,
+                         long timeToSatisfyMedianNanos,
+                         long timeToSatisfy90thPercentileNanos,
+                         long timeToSatisfy99thPercentileNanos,
+                         long timeToSatisfyMaxNanos,
+                         long evaluationMedianNanos,
+                         long evaluation99thPercentileNanos,
+                         long evaluationMaxNanos) {
+    this.name = requireNonNull(name, "name must not be null.");
+    this.waits = waits;
+    this.polls = polls;
+    this.satisfied = satisfied;
+    this.timeouts = timeouts;
+    this.cancellations = cancellations;
+    this.failures = failures;
+    this.timeToSatisfyMedianNanos = timeToSatisfyMedianNanos;
+    this.timeToSatisfy90thPercentileNanos = timeToSatisfy90thPercentileNanos;
+    this.timeToSatisfy99thPercentileNanos = timeToSatisfy99thPercentileNanos;
+    this.timeToSatisfyMaxNanos = timeToSatisfyMaxNanos;
+    this.evaluationMedianNanos = evaluationMedianNanos;
+    this.evaluation99thPercentileNanos = evaluation99thPercentileNanos;
+    this.evaluationMaxNanos = evaluationMaxNanos;
+  }
+
+  /**
+   * Name of the probe, derived from the delegate function.
+   *
+   * @return name
+   * @since SINCE
+   */
+  @NotNull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Number of waits started.
+   *
+   * @return waits
+   * @since SINCE
+   */
+  public long getWaits() {
+    return waits;
+  }
+
+  /**
+   * Number of evaluations of the delegate function.
+   *
+   * @return polls
+   * @since SINCE
+   */
+  public long getPolls() {
+    return polls;
+  }
+
+  /**
+   * Number of waits which succeeded.
+   *
+   * @return satisfied waits
+   * @since SINCE
+   */
+  public long getSatisfied() {
+    return satisfied;
+  }
+
+  /**
+   * Number of waits which timed out.
+   *
+   * @return timed out waits
+   * @since SINCE
+   */
+  public long getTimeouts() {
+    return timeouts;
+  }
+
+  /**
+   * Number of waits which got cancelled.
+   *
+   * @return cancelled waits
+   * @since SINCE
+   */
+  public long getCancellations() {
+    return cancellations;
+  }
+
+  /**
+   * Number of waits which failed, as evaluating threw an exception which is not ignored
+   * or as the circuit breaker was open.
+   *
+   * @return failed waits
+   * @since SINCE
+   */
+  public long getFailures() {
+    return failures;
+  }
+
+  /**
+   * Fraction of finished waits which timed out. Failed waits count as finished.
+   *
+   * @return rate between 0 and 1; 0 if no wait finished yet
+   * @since SINCE
+   */
+  public double getTimeoutRate() {
+    long finished = satisfied + timeouts + failures;
+    return finished == 0L ? 0.0 : (double) timeouts / finished;
+  }
+
+  public long getTimeToSatisfyMedianNanos() {
+    return timeToSatisfyMedianNanos;
+  }
+
+  public long getTimeToSatisfy90thPercentileNanos() {
+    return timeToSatisfy90thPercentileNanos;
+  }
+
+  public long getTimeToSatisfy99thPercentileNanos() {
+    return timeToSatisfy99thPercentileNanos;
+  }
+
+  public long getTimeToSatisfyMaxNanos() {
+    return timeToSatisfyMaxNanos;
+  }
+
+  public long getEvaluationMedianNanos() {
+    return evaluationMedianNanos;
+  }
+
+  public long getEvaluation99thPercentileNanos() {
+    return evaluation99thPercentileNanos;
+  }
+
+  public long getEvaluationMaxNanos() {
+    return evaluationMaxNanos;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("cancellations", cancellations)
+        .add("evaluation99thPercentileNanos", evaluation99thPercentileNanos)
+        .add("evaluationMaxNanos", evaluationMaxNanos)
+        .add("evaluationMedianNanos", evaluationMedianNanos)
+        .add("failures", failures)
+        .add("name", name)
+        .add("polls", polls)
+        .add("satisfied", satisfied)
+        .add("timeToSatisfy90thPercentileNanos", timeToSatisfy90thPercentileNanos)
+        .add("timeToSatisfy99thPercentileNanos", timeToSatisfy99thPercentileNanos)
+        .add("timeToSatisfyMaxNanos", timeToSatisfyMaxNanos)
+        .add("timeToSatisfyMedianNanos", timeToSatisfyMedianNanos)
+        .add("timeouts", timeouts)
+        .add("waits", waits)
+        .toString();
+  }
+}
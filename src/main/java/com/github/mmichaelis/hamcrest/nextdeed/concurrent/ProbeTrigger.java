@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.MoreObjects;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * Signal the system under test may fire to wake up waits as soon as its state changed.
+ * Waits configured with this trigger re-evaluate immediately instead of sleeping until
+ * their next scheduled poll. Timed polling stays as fallback, so a wait does not depend
+ * on the trigger being fired at all.
+ * </p>
+ * <p>
+ * A trigger may be shared by any number of concurrent waits and may be fired from any
+ * thread. Firing is cheap if no wait is pending. Waiting threads park in slots which are
+ * reused by later waits, so that waiting on a trigger does not allocate, unless more
+ * threads than ever before wait at the same time.
+ * </p>
+ * <dl>
+ * <dt><strong>Example:</strong></dt>
+ * <dd>
+ * <pre>{@code
+ * final ProbeTrigger stateChanged = new ProbeTrigger();
+ * systemUnderTest.addStateListener(new StateListener() {
+ *   public void stateChanged(State state) {
+ *     stateChanged.fire();
+ *   }
+ * });
+ *
+ * Probe.<System, State>probing(systemUnderTest)
+ *      .triggeredBy(stateChanged)
+ *      .assertThat(new Function<System,State>(){...}, equalTo(RUNNING));
+ * }</pre>
+ * </dd>
+ * </dl>
+ *
+ * @since SINCE
+ */
+public final class ProbeTrigger {
+
+  /**
+   * Number of slots available before the first wait parks.
+   *
+   * @since SINCE
+   */
+  private static final int INITIAL_SLOTS = 4;
+
+  /**
+   * Incremented on each fire; allows waits to detect that the trigger fired while they
+   * were evaluating.
+   *
+   * @since SINCE
+   */
+  private final AtomicLong generation = new AtomicLong();
+  /**
+   * Slots holding the threads waiting for this trigger; empty slots hold {@code null}.
+   * Only grows, keeping all existing slots.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private volatile AtomicReference<Thread>[] slots = newSlots(INITIAL_SLOTS);
+  /**
+   * Listeners of asynchronous waits which do not block a thread while waiting.
+   *
+   * @since SINCE
+   */
+  private final Set<Runnable> listeners = new CopyOnWriteArraySet<>();
+
+  /**
+   * Wake up all waits configured with this trigger, so that they re-evaluate immediately.
+   *
+   * @since SINCE
+   */
+  public void fire() {
+    generation.incrementAndGet();
+    for (AtomicReference<Thread> slot : slots) {
+      Thread waiter = slot.get();
+      if (waiter != null) {
+        LockSupport.unpark(waiter);
+      }
+    }
+    for (Runnable listener : listeners) {
+      listener.run();
+    }
+  }
+
+  /**
+   * Number of times the trigger has been fired.
+   *
+   * @return current generation
+   * @since SINCE
+   */
+  long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Wait until the trigger fires or the given time elapsed. Returns immediately if the
+   * trigger fired since the given generation.
+   *
+   * @param sinceGeneration generation observed before the last evaluation
+   * @param nanos           maximum time to wait
+   * @return {@code true} if the trigger fired; {@code false} if the time elapsed
+   * @throws InterruptedException if the current thread has been interrupted
+   * @since SINCE
+   */
+  boolean awaitNanos(long sinceGeneration, long nanos) throws InterruptedException {
+    if (generation.get() != sinceGeneration) {
+      return true;
+    }
+    if (nanos <= 0L) {
+      return false;
+    }
+    long deadline = System.nanoTime() + nanos;
+    AtomicReference<Thread> slot = claimSlot(Thread.currentThread());
+    try {
+      // Registered before checking the generation again, so that no fire is missed.
+      while (generation.get() == sinceGeneration) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0L) {
+          return false;
+        }
+        LockSupport.parkNanos(this, remaining);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+      return true;
+    } finally {
+      slot.set(null);
+    }
+  }
+
+  /**
+   * Claim an empty slot for the given thread, growing the slots if all are taken.
+   *
+   * @param thread thread to wait
+   * @return claimed slot
+   * @since SINCE
+   */
+  @NotNull
+  private AtomicReference<Thread> claimSlot(@NotNull Thread thread) {
+    while (true) {
+      AtomicReference<Thread>[] current = slots;
+      for (AtomicReference<Thread> slot : current) {
+        if (slot.get() == null && slot.compareAndSet(null, thread)) {
+          return slot;
+        }
+      }
+      grow(current);
+    }
+  }
+
+  private synchronized void grow(@NotNull AtomicReference<Thread>[] expected) {
+    if (slots != expected) {
+      // Grown concurrently.
+      return;
+    }
+    AtomicReference<Thread>[] grown = Arrays.copyOf(expected, expected.length * 2);
+    for (int i = expected.length; i < grown.length; i++) {
+      grown[i] = new AtomicReference<>();
+    }
+    slots = grown;
+  }
+
+  @NotNull
+  @SuppressWarnings("unchecked")
+  private static AtomicReference<Thread>[] newSlots(int size) {
+    AtomicReference<Thread>[] slots = (AtomicReference<Thread>[]) new AtomicReference<?>[size];
+    for (int i = 0; i < size; i++) {
+      slots[i] = new AtomicReference<>();
+    }
+    return slots;
+  }
+
+  /**
+   * Register a listener to be called on each fire. Listeners are called in the firing
+   * thread and thus must not block.
+   *
+   * @param listener listener to add
+   * @since SINCE
+   */
+  void addListener(@NotNull Runnable listener) {
+    listeners.add(requireNonNull(listener, "listener must not be null."));
+  }
+
+  /**
+   * Remove a listener.
+   *
+   * @param listener listener to remove
+   * @since SINCE
+   */
+  void removeListener(@NotNull Runnable listener) {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("generation", generation)
+        .add("listeners", listeners.size())
+        .add("slots", slots.length)
+        .toString();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import com.google.common.base.Throwables;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * <p>
+ * Access to {@code Thread.onSpinWait()} as available since Java 9. As this library is
+ * compiled for Java 7, the method is detected at runtime. On older JDKs spinning falls
+ * back to {@link Thread#yield()}.
+ * </p>
+ *
+ * @since SINCE
+ */
+final class SpinWait {
+
+  /**
+   * Handle of {@code Thread.onSpinWait()}; {@code null} if not available. As a constant
+   * handle invoked exactly, the JIT compiler inlines the call just as a direct call.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private static final MethodHandle ON_SPIN_WAIT = findOnSpinWait();
+
+  private SpinWait() {
+    // Utility class
+  }
+
+  /**
+   * Signals if {@code Thread.onSpinWait()} is supported by the current JVM.
+   *
+   * @return {@code true} if supported; {@code false} if spinning falls back to yield
+   * @since SINCE
+   */
+  static boolean isOnSpinWaitSupported() {
+    return ON_SPIN_WAIT != null;
+  }
+
+  /**
+   * Indicate that the caller is busy-waiting. Either hints the processor via
+   * {@code Thread.onSpinWait()} or yields the current thread.
+   *
+   * @since SINCE
+   */
+  static void onSpinWait() {
+    if (ON_SPIN_WAIT == null) {
+      Thread.yield();
+      return;
+    }
+    try {
+      ON_SPIN_WAIT.invokeExact();
+    } catch (Throwable e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @Nullable
+  private static MethodHandle findOnSpinWait() {
+    try {
+      return MethodHandles.publicLookup()
+          .findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+    } catch (NoSuchMethodException | IllegalAccessException | RuntimeException ignored) {
+      // Not supported (Java before 9).
+      return null;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Counter for heavily concurrent updates and rare reads, just like {@code LongAdder}
+ * available since Java 8. Updates are spread over several cells, each on its own cache
+ * line, so that threads updating concurrently rarely contend. Reading sums up all cells.
+ * </p>
+ *
+ * @since SINCE
+ */
+final class StripedCounter {
+
+  /**
+   * Number of longs per cache line of 64 bytes, to prevent false sharing.
+   *
+   * @since SINCE
+   */
+  private static final int PADDING = 8;
+  /**
+   * Number of stripes; a power of two.
+   *
+   * @since SINCE
+   */
+  private static final int STRIPES =
+      Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+  /**
+   * Add the given value.
+   *
+   * @param value value to add
+   * @since SINCE
+   */
+  void add(long value) {
+    cells.getAndAdd(cellIndex(), value);
+  }
+
+  /**
+   * Add one.
+   *
+   * @since SINCE
+   */
+  void increment() {
+    add(1L);
+  }
+
+  /**
+   * Current sum. Not an atomic snapshot if updated concurrently.
+   *
+   * @return sum
+   * @since SINCE
+   */
+  long sum() {
+    long sum = 0L;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.get(i * PADDING);
+    }
+    return sum;
+  }
+
+  /**
+   * Reset to 0. Concurrent updates might get lost.
+   *
+   * @since SINCE
+   */
+  void reset() {
+    for (int i = 0; i < STRIPES; i++) {
+      cells.set(i * PADDING, 0L);
+    }
+  }
+
+  private static int cellIndex() {
+    long id = Thread.currentThread().getId();
+    // Fibonacci hashing spreads consecutive thread ids over the stripes.
+    int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return ((hash >>> 16) & (STRIPES - 1)) * PADDING;
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(sum());
+  }
+}
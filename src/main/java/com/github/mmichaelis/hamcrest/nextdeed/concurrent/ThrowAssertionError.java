@@ -16,11 +16,8 @@
 
 package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
 
-import static org.hamcrest.MatcherAssert.assertThat;
-
 import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
-import com.google.common.base.Optional;
 
 import org.hamcrest.Matcher;
 import org.jetbrains.annotations.Nullable;
@@ -50,7 +47,11 @@ final class ThrowAssertionError<T, R> implements Function<WaitTimeoutEvent<T, R>
   public R apply(@Nullable WaitTimeoutEvent<T, R> input) {
     assert input != null : "null values unexpected";
     R lastResult = input.getLastResult();
-    assertThat(Optional.fromNullable(reason).or(""), lastResult, matcher);
+    if (!matcher.matches(lastResult)) {
+      throw new AssertionError(
+          new FailureMessage<>(lastResult, reason, matcher, input.getHistory()).getMessage(),
+          input.getLastException());
+    }
     // Will never get here unless as last validation the actual value eventually matches,
     // which actually means that the matcher responds differently on the same value.
     return lastResult;
@@ -52,7 +52,8 @@ final class ThrowAssumptionViolatedException<T, R>
     // Copy & Paste from Hamcrest Matcher's assert, but with new exception
     if (!matcher.matches(lastResult)) {
       throw new AssumptionViolatedException(
-          new FailureMessage<>(lastResult, reason, matcher).getMessage());
+          new FailureMessage<>(lastResult, reason, matcher, input.getHistory()).getMessage(),
+          input.getLastException());
     }
     // Will never get here unless as last validation the actual value eventually matches,
     // which actually means that the matcher responds differently on the same value.
@@ -50,7 +50,8 @@ final class ThrowWaitTimeoutException<T, R>
     R lastResult = input.getLastResult();
     if (!matcher.matches(lastResult)) {
       throw new WaitTimeoutException(
-          new FailureMessage<>(lastResult, reason, matcher).getMessage());
+          new FailureMessage<>(lastResult, reason, matcher, input.getHistory()).getMessage(),
+          input.getLastException());
     }
     // Will never get here unless as last validation the actual value eventually matches,
     // which actually means that the matcher responds differently on the same value.
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Manually controlled clock which advances time instead of sleeping. Waits using this
+ * clock never block for their polling interval, so that a suite with many long timeouts
+ * runs in milliseconds.
+ * </p>
+ * <p>
+ * As a {@link Ticker} the clock can be shared with the system under test, for example
+ * with caches or rate limiters, which then see the same time as the waits. Time only
+ * advances on {@link #advance(long, TimeUnit)} and whenever a wait sleeps. Concurrent waits
+ * sleeping on the same clock each advance it.
+ * </p>
+ * <p>
+ * Busy-spinning is not supported: A request to spin advances the clock by one microsecond,
+ * so that spinning configured via {@link WaitBuilder#spinThenPark(long, long, TimeUnit)}
+ * cannot loop forever. Evaluation timeouts and hedging still refer to real time.
+ * </p>
+ * <dl>
+ * <dt><strong>Example:</strong></dt>
+ * <dd>
+ * <pre>{@code
+ * VirtualClock clock = new VirtualClock();
+ * Cache<K, V> cache = CacheBuilder.newBuilder().ticker(clock)...build();
+ * Probe.<Cache<K, V>, V>probing(cache)
+ *      .withClock(clock)
+ *      .within(30L, TimeUnit.SECONDS)
+ *      .assertThat(new Function<Cache<K, V>, V>(){...}, nullValue());
+ * }</pre>
+ * </dd>
+ * </dl>
+ *
+ * @since SINCE
+ */
+public final class VirtualClock extends Ticker implements WaitClock {
+
+  /**
+   * Amount to advance the clock by for a request to busy-spin.
+   *
+   * @since SINCE
+   */
+  private static final long SPIN_STEP_NANOS = TimeUnit.MICROSECONDS.toNanos(1L);
+
+  private final AtomicLong nanos;
+
+  /**
+   * Clock starting at time 0.
+   *
+   * @since SINCE
+   */
+  public VirtualClock() {
+    this(0L);
+  }
+
+  /**
+   * Clock starting at the given time.
+   *
+   * @param startNanos initial time in nanoseconds
+   * @since SINCE
+   */
+  public VirtualClock(long startNanos) {
+    nanos = new AtomicLong(startNanos);
+  }
+
+  /**
+   * Advance the clock.
+   *
+   * @param duration amount to advance the clock by; must not be negative
+   * @param timeUnit time unit of duration
+   * @return time after advancing in nanoseconds
+   * @since SINCE
+   */
+  public long advance(long duration, TimeUnit timeUnit) {
+    Preconditions.checkArgument(duration >= 0, "Duration must not be negative.");
+    return nanos.addAndGet(requireNonNull(timeUnit, "timeUnit must not be null.")
+                               .toNanos(duration));
+  }
+
+  @Override
+  public long nanoTime() {
+    return nanos.get();
+  }
+
+  @Override
+  public long read() {
+    return nanoTime();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Returns immediately after advancing the clock.
+   * </p>
+   *
+   * @since SINCE
+   */
+  @Override
+  public void sleepNanos(long nanos) throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    advance(Math.max(nanos, SPIN_STEP_NANOS), TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("nanos", nanos)
+        .toString();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * <p>
+ * Variant of {@link WaitFunction} which runs the complete polling loop of each wait on
+ * a thread of its own &mdash; a virtual thread if supported by the JVM. Thus each pending
+ * wait only costs a virtual thread which is unmounted from its carrier thread while
+ * sleeping.
+ * </p>
+ *
+ * @param <T> input the function will receive
+ * @param <R> output the returned future will provide
+ * @see VirtualThreads
+ * @since SINCE
+ */
+final class VirtualThreadWaitFunction<T, R> implements Function<T, ListenableFuture<R>> {
+
+  /**
+   * Wait function to run on virtual threads.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final WaitFunction<T, R> waitFunction;
+  /**
+   * Executor starting the threads.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final ListeningExecutorService executor;
+
+  VirtualThreadWaitFunction(@NotNull WaitFunction<T, R> waitFunction,
+                            @NotNull ExecutorService executor) {
+    this.waitFunction = requireNonNull(waitFunction, "waitFunction must not be null.");
+    this.executor =
+        MoreExecutors.listeningDecorator(requireNonNull(executor, "executor must not be null."));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The wait is bound to the {@link WaitBudget#current() current budget} of the calling
+   * thread.
+   * </p>
+   */
+  @Override
+  public ListenableFuture<R> apply(final T item) {
+    final WaitBudget budget = WaitBudget.current();
+    return executor.submit(new Callable<R>() {
+      @Override
+      public R call() throws Exception {
+        return waitFunction.apply(item, budget);
+      }
+    });
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("executor", executor)
+        .add("waitFunction", waitFunction)
+        .toString();
+  }
+}
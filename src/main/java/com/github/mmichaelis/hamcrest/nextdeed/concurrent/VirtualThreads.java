@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <p>
+ * Access to virtual threads as available since Java 21. As this library is compiled for
+ * Java 7, virtual threads are detected at runtime. On older JDKs (or if virtual threads are
+ * not enabled) any method falls back to platform daemon threads.
+ * </p>
+ * <dl>
+ * <dt><strong>Note:</strong></dt>
+ * <dd>
+ * The polling loop of {@link WaitFunction} does not hold any monitors while sleeping. Thus
+ * a wait running on a virtual thread does not pin its carrier thread &mdash; unless the
+ * probed function itself blocks while holding a monitor.
+ * </dd>
+ * </dl>
+ * <p>
+ * Probes check synchronously in the calling thread, unless configured to
+ * {@linkplain ProbeBuilder#onVirtualThread() check on a virtual thread}, which the calling
+ * thread joins. To fan out many probes at once, run each of them as task of
+ * {@link #newExecutor()}.
+ * </p>
+ *
+ * @since SINCE
+ */
+public final class VirtualThreads {
+
+  /**
+   * Thread name prefix for threads created by default.
+   *
+   * @since SINCE
+   */
+  private static final String DEFAULT_NAME_PREFIX = "nextdeed-wait-";
+
+  private VirtualThreads() {
+    // Utility class
+  }
+
+  /**
+   * Signals if virtual threads are supported by the current JVM.
+   *
+   * @return {@code true} if supported; {@code false} if not
+   * @since SINCE
+   */
+  public static boolean isSupported() {
+    return VirtualThreadFactoryHolder.FACTORY != null;
+  }
+
+  /**
+   * Create a thread factory for virtual threads named by the given prefix followed by
+   * a counter. Falls back to platform daemon threads if virtual threads are not supported.
+   *
+   * @param namePrefix prefix for thread names
+   * @return thread factory
+   * @since SINCE
+   */
+  @NotNull
+  public static ThreadFactory newThreadFactory(@NotNull String namePrefix) {
+    requireNonNull(namePrefix, "namePrefix must not be null.");
+    ThreadFactory factory = createVirtualThreadFactory(namePrefix);
+    if (factory != null) {
+      return factory;
+    }
+    return new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat(namePrefix.replace("%", "%%") + "%d")
+        .build();
+  }
+
+  /**
+   * Create an executor which starts a new virtual thread for each task. Falls back to
+   * a cached thread pool of platform daemon threads if virtual threads are not supported.
+   * Virtual threads are never pooled, as they are cheap to create.
+   *
+   * @return executor
+   * @since SINCE
+   */
+  @NotNull
+  public static ExecutorService newExecutor() {
+    ThreadFactory factory = createVirtualThreadFactory(DEFAULT_NAME_PREFIX);
+    if (factory != null) {
+      ExecutorService executor = createThreadPerTaskExecutor(factory);
+      if (executor != null) {
+        return executor;
+      }
+    }
+    return Executors.newCachedThreadPool(newThreadFactory(DEFAULT_NAME_PREFIX));
+  }
+
+  /**
+   * Executor shared by all waits running on virtual threads.
+   *
+   * @return shared executor
+   * @since SINCE
+   */
+  @NotNull
+  static ExecutorService sharedExecutor() {
+    return SharedExecutorHolder.EXECUTOR;
+  }
+
+  /**
+   * Thread factory shared by all checks running on virtual threads.
+   *
+   * @return shared thread factory
+   * @since SINCE
+   */
+  @NotNull
+  static ThreadFactory sharedThreadFactory() {
+    return SharedThreadFactoryHolder.FACTORY;
+  }
+
+  /**
+   * Reflectively create a virtual thread factory.
+   *
+   * @param namePrefix prefix for thread names
+   * @return factory or {@code null} if virtual threads are not supported
+   * @since SINCE
+   */
+  @Nullable
+  private static ThreadFactory createVirtualThreadFactory(@NotNull String namePrefix) {
+    try {
+      Method ofVirtual = Thread.class.getMethod("ofVirtual");
+      Object builder = ofVirtual.invoke(null);
+      Class<?> builderClass = ofVirtual.getReturnType();
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, namePrefix, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException
+        | RuntimeException ignored) {
+      // Not supported (Java before 21) or not enabled (preview in Java 19 and 20).
+      return null;
+    }
+  }
+
+  /**
+   * Reflectively create an executor starting a new thread for each task.
+   *
+   * @param factory factory to create the threads
+   * @return executor or {@code null} if not supported (Java before 21)
+   * @since SINCE
+   */
+  @Nullable
+  private static ExecutorService createThreadPerTaskExecutor(@NotNull ThreadFactory factory) {
+    try {
+      return (ExecutorService) Executors.class
+          .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+          .invoke(null, factory);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException
+        | RuntimeException ignored) {
+      return null;
+    }
+  }
+
+  /**
+   * Lazily initialized virtual thread factory used for detection.
+   *
+   * @since SINCE
+   */
+  private static final class VirtualThreadFactoryHolder {
+    @Nullable
+    private static final ThreadFactory FACTORY = createVirtualThreadFactory(DEFAULT_NAME_PREFIX);
+  }
+
+  /**
+   * Lazily initialized shared thread factory.
+   *
+   * @since SINCE
+   */
+  private static final class SharedThreadFactoryHolder {
+    private static final ThreadFactory FACTORY = newThreadFactory(DEFAULT_NAME_PREFIX);
+  }
+
+  /**
+   * Lazily initialized shared executor.
+   *
+   * @since SINCE
+   */
+  private static final class SharedExecutorHolder {
+    private static final ExecutorService EXECUTOR = newExecutor();
+  }
+}
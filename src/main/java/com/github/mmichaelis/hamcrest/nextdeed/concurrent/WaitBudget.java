@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Overall time budget shared by all waits within a block. Each wait started while a budget
+ * is open clamps its deadline to the remaining budget. Thus a test with many sequential
+ * probes fails fast once its budget is used up instead of adding up all the timeouts.
+ * </p>
+ * <p>
+ * A budget is bound to the thread which opened it only. Threads started within the block,
+ * such as lazily created pool threads, do not inherit it. Asynchronous waits capture the
+ * budget of the thread starting them and pass it on to their polls.
+ * Budgets might be nested: An inner budget never exceeds the remaining outer budget.
+ * Closing a budget restores the outer budget.
+ * </p>
+ * <dl>
+ * <dt><strong>Example:</strong></dt>
+ * <dd>
+ * <pre>{@code
+ * try (WaitBudget budget = WaitBudget.open(60L, TimeUnit.SECONDS)) {
+ *   Probe.<System, State>probing(systemUnderTest)
+ *        .within(30L, TimeUnit.SECONDS)
+ *        .assertThat(new Function<System,State>(){...}, equalTo(RUNNING));
+ *   // ... more probes sharing the remaining budget
+ * }
+ * }</pre>
+ * </dd>
+ * </dl>
+ *
+ * @since SINCE
+ */
+public final class WaitBudget implements AutoCloseable {
+
+  /**
+   * Innermost open budget of the current thread.
+   *
+   * @since SINCE
+   */
+  private static final ThreadLocal<WaitBudget> CURRENT = new ThreadLocal<>();
+
+  @NotNull
+  private final WaitClock clock;
+  private final long deadlineNanos;
+  /**
+   * Budget which was current when this one got opened; {@code null} for none.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private final WaitBudget outer;
+  private volatile boolean closed;
+
+  private WaitBudget(@NotNull WaitClock clock, long deadlineNanos, @Nullable WaitBudget outer) {
+    this.clock = clock;
+    this.deadlineNanos = deadlineNanos;
+    this.outer = outer;
+  }
+
+  /**
+   * Open a budget on the current thread, measured by the system clock.
+   *
+   * @param timeout  overall time for all waits within the budget; must not be negative
+   * @param timeUnit time unit of timeout
+   * @return budget to close after the block
+   * @since SINCE
+   */
+  @NotNull
+  public static WaitBudget open(long timeout, @NotNull TimeUnit timeUnit) {
+    return open(WaitClocks.system(), timeout, timeUnit);
+  }
+
+  /**
+   * Open a budget on the current thread, measured by the given clock.
+   *
+   * @param clock    clock to measure the budget with
+   * @param timeout  overall time for all waits within the budget; must not be negative
+   * @param timeUnit time unit of timeout
+   * @return budget to close after the block
+   * @since SINCE
+   */
+  @NotNull
+  public static WaitBudget open(@NotNull WaitClock clock,
+                                long timeout,
+                                @NotNull TimeUnit timeUnit) {
+    requireNonNull(clock, "clock must not be null.");
+    Preconditions.checkArgument(timeout >= 0, "Timeout must not be negative.");
+    long timeoutNanos = requireNonNull(timeUnit, "timeUnit must not be null.").toNanos(timeout);
+    long nowNanos = clock.nanoTime();
+    // Deadline might overflow for huge timeouts, which is why any comparison is done on
+    // differences just as recommended for System.nanoTime().
+    WaitBudget budget = new WaitBudget(clock, nowNanos + timeoutNanos, current());
+    CURRENT.set(budget);
+    return budget;
+  }
+
+  /**
+   * Bind the given budget to the current thread, which takes over work from the thread
+   * owning the budget.
+   *
+   * @param budget budget to bind; {@code null} for none
+   * @since SINCE
+   */
+  static void bind(@Nullable WaitBudget budget) {
+    if (budget == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(budget);
+    }
+  }
+
+  /**
+   * Innermost open budget of the current thread.
+   *
+   * @return budget; {@code null} if no budget is open
+   * @since SINCE
+   */
+  @Nullable
+  public static WaitBudget current() {
+    return openOrOuter(CURRENT.get());
+  }
+
+  /**
+   * Remaining time of this budget, limited by any outer budget.
+   *
+   * @param timeUnit time unit to return the remaining time in
+   * @return remaining time; 0 if exhausted or closed
+   * @since SINCE
+   */
+  public long remaining(@NotNull TimeUnit timeUnit) {
+    return requireNonNull(timeUnit, "timeUnit must not be null.")
+        .convert(remainingNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Signals if no time is left within this budget.
+   *
+   * @return {@code true} if exhausted or closed
+   * @since SINCE
+   */
+  public boolean isExhausted() {
+    return remainingNanos() <= 0L;
+  }
+
+  /**
+   * Remaining time in nanoseconds, limited by any outer budget.
+   *
+   * @return remaining time; 0 if exhausted or closed
+   * @since SINCE
+   */
+  long remainingNanos() {
+    if (closed) {
+      return 0L;
+    }
+    long remainingNanos = Math.max(0L, deadlineNanos - clock.nanoTime());
+    WaitBudget openOuter = openOrOuter(outer);
+    if (openOuter != null) {
+      remainingNanos = Math.min(remainingNanos, openOuter.remainingNanos());
+    }
+    return remainingNanos;
+  }
+
+  /**
+   * Close this budget. If it is the current budget of the calling thread, the outer budget
+   * becomes current again. Asynchronous waits which captured this budget and poll afterwards
+   * ignore it.
+   *
+   * @since SINCE
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (CURRENT.get() == this) {
+      WaitBudget openOuter = openOrOuter(outer);
+      if (openOuter == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(openOuter);
+      }
+    }
+  }
+
+  /**
+   * Skip closed budgets, which might still be referenced as outer budget if budgets are
+   * closed out of order.
+   *
+   * @param budget budget to start with
+   * @return innermost open budget; {@code null} if none
+   * @since SINCE
+   */
+  @Nullable
+  private static WaitBudget openOrOuter(@Nullable WaitBudget budget) {
+    WaitBudget candidate = budget;
+    while (candidate != null && candidate.closed) {
+      candidate = candidate.outer;
+    }
+    return candidate;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("clock", clock)
+        .add("closed", closed)
+        .add("deadlineNanos", deadlineNanos)
+        .add("outer", outer)
+        .toString();
+  }
+}
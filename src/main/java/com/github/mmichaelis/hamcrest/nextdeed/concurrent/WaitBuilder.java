@@ -18,6 +18,7 @@ package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -161,11 +162,335 @@ public interface WaitBuilder {
    *
    * @param decelerationFactor factor to decelerate; must be greater than or equal to 1
    * @return self-reference
+   * @see PollingStrategies#decelerating(double)
    * @since 1.0.0
    */
   @NotNull
   WaitBuilder deceleratePollingBy(double decelerationFactor);
 
+  /**
+   * <p>
+   * Strategy to calculate the delay between two polls. Overrides any deceleration factor
+   * set before. Defaults to {@link PollingStrategies#decelerating(double)} with a factor
+   * of 1.1.
+   * </p>
+   *
+   * @param pollingStrategy strategy to use
+   * @return self-reference
+   * @see PollingStrategies
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder pollingWith(@NotNull PollingStrategy pollingStrategy);
+
+  /**
+   * <p>
+   * Hybrid waiting for conditions which are usually met within microseconds. Right after
+   * start the wait busy-spins between evaluations for the given spin time, giving just
+   * a spin-wait hint to the processor (or yielding on JVMs before Java 9). Afterwards it
+   * parks the thread for the given park time, starting with one microsecond and doubling
+   * the park interval each time. Only after that the wait falls back to the sleep schedule
+   * as configured by initial delay and polling strategy.
+   * </p>
+   * <p>
+   * Spinning evaluates the function as often as possible and keeps a processor busy. Thus
+   * it should only be used for short windows and for cheap functions.
+   * </p>
+   * <dl>
+   * <dt><strong>Example:</strong></dt>
+   * <dd>
+   * <pre>{@code
+   * waitFor(queueSize)
+   *   .toFulfill(equalTo(0))
+   *   .and()
+   *   .spinThenPark(50L, 1000L, TimeUnit.MICROSECONDS)
+   * }</pre>
+   * </dd>
+   * </dl>
+   *
+   * @param spinTime time to spin; 0 to disable spinning; must be greater than or equal to 0
+   * @param parkTime time to park after spinning; 0 to disable parking; must be greater
+   *                 than or equal to 0
+   * @param timeUnit time unit of spin and park time
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder spinThenPark(long spinTime, long parkTime, @NotNull TimeUnit timeUnit);
+
+  /**
+   * <p>
+   * Re-evaluate as soon as the given trigger fires instead of waiting for the next
+   * scheduled poll. Timed polling stays as fallback.
+   * </p>
+   *
+   * @param trigger trigger the system under test fires on state changes
+   * @return self-reference
+   * @see ProbeTrigger
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder triggeredBy(@NotNull ProbeTrigger trigger);
+
+  /**
+   * <p>
+   * Maximum time a single evaluation of the function might take. Each evaluation runs
+   * on a separate thread (a virtual thread if supported) while the polling thread waits
+   * at most for the given time &ndash; and never longer than until the deadline plus
+   * grace period. An evaluation which overruns is interrupted, abandoned and counts as
+   * failed poll. Thus a hung system under test cannot block the wait beyond its deadline.
+   * </p>
+   * <p>
+   * Without evaluation timeout (the default) the function is evaluated in the polling
+   * thread and each evaluation may take as long as it needs.
+   * </p>
+   *
+   * @param evaluationTimeout maximum time for one evaluation; must be greater than 0
+   * @param timeUnit          time unit of evaluation timeout
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder withEvaluationTimeout(long evaluationTimeout, @NotNull TimeUnit timeUnit);
+
+  /**
+   * <p>
+   * Hedge slow evaluations for functions with heavy-tailed latency: If an evaluation did
+   * not return after the given hedge delay, another evaluation is started in parallel
+   * &mdash; up to the given maximum of evaluations in flight. The first evaluation whose
+   * result fulfills the predicate provides the result of the poll, all others are
+   * cancelled. A result not fulfilling the predicate or a failure only ends the poll once
+   * no other evaluation is in flight.
+   * </p>
+   * <p>
+   * A good hedge delay is a high percentile (like the 95th) of the latency of the
+   * function. The maximum of evaluations in flight applies to all waits using the same
+   * wait function and includes cancelled evaluations which did not end yet. Thus it
+   * protects the system under test from being overloaded.
+   * </p>
+   * <p>
+   * With hedging, evaluations run on separate threads (virtual threads if supported) and
+   * the polling thread never waits for them beyond the deadline plus grace period.
+   * </p>
+   *
+   * @param hedgeDelay  delay after which to start another evaluation; must be greater
+   *                    than 0
+   * @param timeUnit    time unit of hedge delay
+   * @param maxInFlight maximum number of evaluations in flight; must be greater than 0
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder hedgeAfter(long hedgeDelay, @NotNull TimeUnit timeUnit, int maxInFlight);
+
+  /**
+   * <p>
+   * Share evaluations with concurrent waits on an equal delegate function and an equal
+   * item: If such an evaluation is in flight, this wait joins it instead of evaluating on
+   * its own. If one completed at most the given maximum age ago, its result is reused. Each
+   * wait still applies its own predicate and deadline to the shared result. Thus many
+   * waits on the same state, like a cluster being ready, put the load of only one wait on
+   * the system under test.
+   * </p>
+   * <p>
+   * Functions and items are compared by {@code equals()}, so share one function instance
+   * between waits. Choose a maximum age below the polling interval, as a wait reuses its own
+   * results, too.
+   * </p>
+   *
+   * @param maxAge   maximum age of results to reuse; 0 to only join evaluations in flight
+   * @param timeUnit time unit of maximum age
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder coalesceEvaluations(long maxAge, @NotNull TimeUnit timeUnit);
+
+  /**
+   * <p>
+   * Require the predicate to hold continuously for the given duration before the wait
+   * succeeds. Any evaluation not fulfilling the predicate resets the streak. Useful for
+   * flapping systems like rebalancing clusters or caches warming up, where the first
+   * matching state is often transient.
+   * </p>
+   * <p>
+   * The duration is measured from the first matching evaluation of the streak to the
+   * current one. Thus it requires at least two polls. Choose a timeout long enough to
+   * cover the stable duration plus the time to reach the desired state.
+   * </p>
+   *
+   * @param duration how long the predicate must hold; must be greater than 0
+   * @param timeUnit time unit of duration
+   * @return self-reference
+   * @see #stableForPolls(int)
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder stableFor(long duration, @NotNull TimeUnit timeUnit);
+
+  /**
+   * Require the predicate to hold for the given number of consecutive polls before the
+   * wait succeeds. Any evaluation not fulfilling the predicate resets the streak. If
+   * combined with {@link #stableFor(long, TimeUnit)} both requirements must be met.
+   *
+   * @param polls number of consecutive matching polls; must be greater than 0, 1 (the
+   *              default) for succeeding on the first match
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder stableForPolls(int polls);
+
+  /**
+   * Set the number of most recent polls to keep for the timeout report. Each wait keeps
+   * the results of these polls along with their timing in a fixed-size buffer, which allows
+   * to tell a value slowly converging to the target from a value being stuck or oscillating.
+   * By default no history is kept, as it keeps the results alive until the wait ends.
+   *
+   * @param polls number of polls to keep; 0 (the default) to keep none
+   * @return self-reference
+   * @see WaitTimeoutEvent#getHistory()
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder withHistorySize(int polls);
+
+  /**
+   * <p>
+   * Use the given clock to measure time and to sleep between polls. By default waits use
+   * the {@link WaitClocks#system() system clock}. A {@link VirtualClock} advances time
+   * instead of sleeping, so that waits complete without delay in tests.
+   * </p>
+   * <p>
+   * With any clock other than the system clock, a {@link #triggeredBy(ProbeTrigger) trigger}
+   * does not shorten the sleep, and asynchronous waits sleep on the clock before they
+   * schedule the next poll without delay. Thus such a clock must not block for long.
+   * </p>
+   *
+   * @param clock clock to use
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder withClock(@NotNull WaitClock clock);
+
+  /**
+   * <p>
+   * Share the given rate limit with all other waits polling the same backend. Polls are
+   * deferred until the limiter permits another evaluation, but never beyond the deadline:
+   * If the limiter does not permit an evaluation before then, the wait times out at its
+   * deadline without evaluating again.
+   * </p>
+   *
+   * @param rateLimiter limiter shared by all waits on the backend
+   * @return self-reference
+   * @see PollRateLimiter#forBackend(String, double)
+   * @see PollRateLimiter#forBackend(String, double, int)
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder rateLimitedBy(@NotNull PollRateLimiter rateLimiter);
+
+  /**
+   * Limit the number of evaluations per wait. The wait times out as soon as the given
+   * number of evaluations did not fulfill the predicate, even if the timeout has not
+   * elapsed yet.
+   *
+   * @param maxEvaluations maximum number of evaluations; must be greater than 0
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder withMaxEvaluations(int maxEvaluations);
+
+  /**
+   * <p>
+   * Retry if evaluating the delegate function or the predicate throws an exception of the
+   * given type (or a subtype). Might be called multiple times to ignore several types. Any
+   * other exception ends the wait immediately, which is also the default for all
+   * exceptions.
+   * </p>
+   * <p>
+   * An ignored exception counts as failed poll, keeping the result of the previous poll.
+   * Consecutive exceptions prolong the delay between polls, see
+   * {@link #backingOffOnExceptionsBy(double)}. On timeout the last exception is reported by
+   * {@link WaitTimeoutEvent#getLastException()} and becomes the cause of the failure.
+   * </p>
+   *
+   * @param exceptionType type of exceptions to ignore
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder ignoringExceptions(@NotNull Class<? extends Throwable> exceptionType);
+
+  /**
+   * Multiply the delay between two polls by the given factor for each consecutive ignored
+   * exception. Defaults to 2. The delay never exceeds the deadline.
+   *
+   * @param backoffFactor factor to back off by; must be greater than or equal to 1, 1 to
+   *                      not back off
+   * @return self-reference
+   * @see #ignoringExceptions(Class)
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder backingOffOnExceptionsBy(double backoffFactor);
+
+  /**
+   * Attach the wait to the given circuit breaker shared with all other waits probing the
+   * same backend. While the circuit breaker is open, the wait fails at its next poll with a
+   * {@link CircuitBreakerOpenException}.
+   *
+   * @param circuitBreaker circuit breaker shared by all waits on the backend
+   * @return self-reference
+   * @see CircuitBreaker#named(String, int, long, TimeUnit)
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder withCircuitBreaker(@NotNull CircuitBreaker circuitBreaker);
+
+  /**
+   * Add a listener to be informed about the progress of the wait on poll level. Might be
+   * called multiple times to add several listeners. Listeners registered globally via
+   * {@link ProbeListeners#register(ProbeListener)} are informed in addition.
+   *
+   * @param listener listener to add
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder withListener(@NotNull ProbeListener listener);
+
+  /**
+   * <p>
+   * Poll on the given scheduler instead of sleeping in the calling thread between two polls.
+   * Use for example {@link PollingScheduler#shared()} to multiplex many concurrent waits onto a
+   * small, fixed number of threads.
+   * </p>
+   * <p>
+   * Blocking waits still block the calling thread until the result is available, as for
+   * example assertion errors must be raised in the calling thread. Nevertheless, the
+   * evaluations themselves are executed by the scheduler. Thus blocking waits fail with an
+   * {@link IllegalStateException} when called from a thread of the {@link PollingScheduler}
+   * they poll on, for example from within an evaluation.
+   * </p>
+   * <p>
+   * As the threads of the scheduler are shared by many waits, evaluations must not wait
+   * for other threads. Thus an {@link #withEvaluationTimeout(long, TimeUnit) evaluation
+   * timeout}, {@link #hedgeAfter(long, TimeUnit, int) hedging} and
+   * {@link #coalesceEvaluations(long, TimeUnit) coalescing} are rejected when building the
+   * wait function. A {@link #rateLimitedBy(PollRateLimiter) rate limiter} only defers the
+   * next scheduled poll and thus does not block.
+   * </p>
+   *
+   * @param scheduler scheduler to run evaluations on
+   * @return self-reference
+   * @since SINCE
+   */
+  @NotNull
+  WaitBuilder pollingOn(@NotNull ScheduledExecutorService scheduler);
+
   /**
    * <p>
    * Syntactic sugar for the builder &mdash; not more, not less.
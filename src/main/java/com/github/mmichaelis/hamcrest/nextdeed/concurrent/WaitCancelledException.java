@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * <p>
+ * Exception thrown when a wait operation got cancelled before it either succeeded or
+ * timed out, for example because the waiting thread got interrupted.
+ * </p>
+ * <p>
+ * In contrast to {@link WaitTimeoutException} this exception does not signal a failure
+ * of the system under test, which is why it is no subclass of it. Being a
+ * {@link CancellationException} it is an {@link IllegalStateException} just as the
+ * exception which signalled unexpected interruption before.
+ * </p>
+ *
+ * @since SINCE
+ */
+public class WaitCancelledException extends CancellationException {
+
+  private static final long serialVersionUID = -2461957413434402093L;
+
+  public WaitCancelledException() {
+  }
+
+  public WaitCancelledException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+/**
+ * <p>
+ * Time source of waits: Provides the current time and sleeps between polls. The default
+ * {@link WaitClocks#system() system clock} is based on {@link System#nanoTime()}. A
+ * {@link VirtualClock} advances time instead of sleeping, so that waits with long
+ * timeouts complete instantly in tests.
+ * </p>
+ * <p>
+ * Implementations must be thread-safe, as a clock might be shared by concurrent waits.
+ * </p>
+ * <dl>
+ * <dt><strong>Example:</strong></dt>
+ * <dd>
+ * <pre>{@code
+ * VirtualClock clock = new VirtualClock();
+ * Probe.<System, State>probing(systemUnderTest)
+ *      .withClock(clock)
+ *      .within(30L, TimeUnit.SECONDS)
+ *      .assertThat(new Function<System,State>(){...}, equalTo(RUNNING));
+ * }</pre>
+ * </dd>
+ * </dl>
+ *
+ * @see WaitBuilder#withClock(WaitClock)
+ * @since SINCE
+ */
+public interface WaitClock {
+
+  /**
+   * Current value of a monotonic time source in nanoseconds. Just as for
+   * {@link System#nanoTime()} the value is only meaningful for computing elapsed time.
+   *
+   * @return time in nanoseconds
+   * @since SINCE
+   */
+  long nanoTime();
+
+  /**
+   * Sleep the given number of nanoseconds, i. e. until {@link #nanoTime()} advanced by at
+   * least that amount. A sleep time of 0 signals busy-waiting.
+   *
+   * @param nanos how long to sleep
+   * @throws InterruptedException if the current thread has been interrupted
+   * @since SINCE
+   */
+  void sleepNanos(long nanos) throws InterruptedException;
+}
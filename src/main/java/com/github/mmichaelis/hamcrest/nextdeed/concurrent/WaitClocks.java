@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import com.google.common.base.MoreObjects;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Built-in {@link WaitClock wait clocks}.
+ *
+ * @since SINCE
+ */
+public final class WaitClocks {
+
+  private WaitClocks() {
+    // Utility class
+  }
+
+  /**
+   * Clock based on {@link System#nanoTime()}, which is the default for all waits. In
+   * contrast to {@link Thread#sleep(long)} sleep times below one millisecond are supported.
+   * A sleep time of 0 only gives a spin-wait hint to the processor (or yields if not
+   * supported by the JVM) and returns immediately.
+   *
+   * @return system clock
+   * @since SINCE
+   */
+  @NotNull
+  public static WaitClock system() {
+    return SystemClock.INSTANCE;
+  }
+
+  /**
+   * Clock based on {@link System#nanoTime()}.
+   *
+   * @since SINCE
+   */
+  private enum SystemClock implements WaitClock {
+    INSTANCE;
+
+    @Override
+    public long nanoTime() {
+      return System.nanoTime();
+    }
+
+    @Override
+    public void sleepNanos(long nanos) throws InterruptedException {
+      if (nanos <= 0L) {
+        SpinWait.onSpinWait();
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        return;
+      }
+      long deadline = System.nanoTime() + nanos;
+      long remaining = nanos;
+      while (remaining > 0L) {
+        LockSupport.parkNanos(this, remaining);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        // Parking might return spuriously.
+        remaining = deadline - System.nanoTime();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("hash", Integer.toHexString(System.identityHashCode(this)))
+          .toString();
+    }
+  }
+}
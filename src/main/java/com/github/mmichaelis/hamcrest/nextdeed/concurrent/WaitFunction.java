@@ -21,10 +21,13 @@ import static java.util.Objects.requireNonNull;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -39,12 +42,6 @@ import java.util.concurrent.TimeUnit;
  */
 public class WaitFunction<T, R> implements Function<T, R> {
 
-  /**
-   * Minimum time to sleep between polls.
-   *
-   * @since 1.0.0
-   */
-  private static final int MINIMUM_SLEEP_TIME_MS = 1;
   /**
    * Function to continuously determine a result until it matches the
    * expectations denoted by {@link #predicate}.
@@ -91,7 +88,129 @@ public class WaitFunction<T, R> implements Function<T, R> {
   private final long initialDelay;
   @NotNull
   private final TimeUnit initialDelayTimeUnit;
-  private final double decelerationFactor;
+  /**
+   * Timeout, grace period and initial delay converted once, so that starting a wait
+   * requires no conversion.
+   *
+   * @since SINCE
+   */
+  private final long timeoutNanos;
+  private final long gracePeriodNanos;
+  private final long initialDelayNanos;
+  /**
+   * Strategy to calculate the delay between two polls.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final PollingStrategy pollingStrategy;
+  /**
+   * Time to busy-spin between evaluations right after start in nanoseconds.
+   *
+   * @since SINCE
+   */
+  private final long spinTimeNanos;
+  /**
+   * Time to park between evaluations after spinning in nanoseconds.
+   *
+   * @since SINCE
+   */
+  private final long parkTimeNanos;
+  /**
+   * Trigger to wake up the wait early; {@code null} for timed polling only.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private final ProbeTrigger trigger;
+  /**
+   * Maximum time a single evaluation might take in nanoseconds; 0 to evaluate in the
+   * polling thread without any limit.
+   *
+   * @since SINCE
+   */
+  private final long evaluationTimeoutNanos;
+  /**
+   * Hedging of slow evaluations; {@code null} to evaluate once per poll.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private final Hedging hedging;
+  /**
+   * Sharing of evaluations with concurrent waits; {@code null} to evaluate on its own.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private final Coalescing coalescing;
+  /**
+   * How long the predicate must hold continuously in nanoseconds; 0 for no minimum
+   * duration.
+   *
+   * @since SINCE
+   */
+  private final long stableNanos;
+  /**
+   * Number of consecutive polls the predicate must hold; 1 to succeed on the first match.
+   *
+   * @since SINCE
+   */
+  private final int stablePolls;
+  /**
+   * Number of most recent polls to keep for timeout reports; 0 to keep none.
+   *
+   * @since SINCE
+   */
+  private final int historySize;
+  /**
+   * Time source to measure time and to sleep between polls.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final WaitClock clock;
+  /**
+   * Rate limit shared with other waits; {@code null} for no limit.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private final PollRateLimiter rateLimiter;
+  /**
+   * Maximum number of evaluations per wait; 0 for no limit.
+   *
+   * @since SINCE
+   */
+  private final int maxEvaluations;
+  /**
+   * Handling of exceptions while evaluating; {@code null} to fail on any exception.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private final ExceptionPolicy exceptionPolicy;
+  /**
+   * Circuit breaker shared with other waits; {@code null} for none.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private final CircuitBreaker circuitBreaker;
+  /**
+   * Listener to inform about the progress of waits.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final ProbeListener listener;
+  /**
+   * Scheduler to run evaluations on; {@code null} to poll in the calling thread.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private final ScheduledExecutorService scheduler;
 
   WaitFunction(@NotNull Function<T, R> delegateFunction,
                @NotNull Predicate<? super R> predicate,
@@ -102,7 +221,23 @@ public class WaitFunction<T, R> implements Function<T, R> {
                @NotNull TimeUnit gracePeriodTimeUnit,
                long initialDelay,
                @NotNull TimeUnit initialDelayTimeUnit,
-               double decelerationFactor) {
+               @NotNull PollingStrategy pollingStrategy,
+               long spinTimeNanos,
+               long parkTimeNanos,
+               @Nullable ProbeTrigger trigger,
+               long evaluationTimeoutNanos,
+               @Nullable Hedging hedging,
+               @Nullable Coalescing coalescing,
+               long stableNanos,
+               int stablePolls,
+               int historySize,
+               @NotNull WaitClock clock,
+               @Nullable PollRateLimiter rateLimiter,
+               int maxEvaluations,
+               @Nullable ExceptionPolicy exceptionPolicy,
+               @Nullable CircuitBreaker circuitBreaker,
+               @NotNull ProbeListener listener,
+               @Nullable ScheduledExecutorService scheduler) {
     this.delegateFunction = requireNonNull(delegateFunction, "delegateFunction must not be null.");
     this.predicate = requireNonNull(predicate, "predicate must not be null.");
     this.onTimeoutFunction = requireNonNull(onTimeoutFunction,
@@ -115,43 +250,183 @@ public class WaitFunction<T, R> implements Function<T, R> {
     this.initialDelay = initialDelay;
     this.initialDelayTimeUnit = requireNonNull(initialDelayTimeUnit,
                                                "initialDelayTimeUnit must not be null.");
-    this.decelerationFactor = decelerationFactor;
+    timeoutNanos = timeoutTimeUnit.toNanos(timeout);
+    gracePeriodNanos = gracePeriodTimeUnit.toNanos(gracePeriod);
+    initialDelayNanos = initialDelayTimeUnit.toNanos(initialDelay);
+    this.pollingStrategy = requireNonNull(pollingStrategy, "pollingStrategy must not be null.");
+    this.spinTimeNanos = spinTimeNanos;
+    this.parkTimeNanos = parkTimeNanos;
+    this.trigger = trigger;
+    this.evaluationTimeoutNanos = evaluationTimeoutNanos;
+    this.hedging = hedging;
+    this.coalescing = coalescing;
+    this.stableNanos = stableNanos;
+    this.stablePolls = stablePolls;
+    this.historySize = historySize;
+    this.clock = requireNonNull(clock, "clock must not be null.");
+    this.rateLimiter = rateLimiter;
+    this.maxEvaluations = maxEvaluations;
+    this.exceptionPolicy = exceptionPolicy;
+    this.circuitBreaker = circuitBreaker;
+    this.listener = requireNonNull(listener, "listener must not be null.");
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Create a wait function sharing the configuration of the given prototype, but waiting
+   * for another delegate function to fulfill another predicate. In contrast to building a
+   * wait function, configuration like hedging and listeners is shared.
+   *
+   * @param prototype         wait function to take the configuration from
+   * @param delegateFunction  function to query
+   * @param predicate         predicate the result needs to fulfill
+   * @param onTimeoutFunction function to call on timeout
+   * @since SINCE
+   */
+  WaitFunction(@NotNull WaitFunction<?, ?> prototype,
+               @NotNull Function<T, R> delegateFunction,
+               @NotNull Predicate<? super R> predicate,
+               @NotNull Function<WaitTimeoutEvent<T, R>, R> onTimeoutFunction) {
+    this(delegateFunction,
+         predicate,
+         onTimeoutFunction,
+         prototype.timeout,
+         prototype.timeoutTimeUnit,
+         prototype.gracePeriod,
+         prototype.gracePeriodTimeUnit,
+         prototype.initialDelay,
+         prototype.initialDelayTimeUnit,
+         prototype.pollingStrategy,
+         prototype.spinTimeNanos,
+         prototype.parkTimeNanos,
+         prototype.trigger,
+         prototype.evaluationTimeoutNanos,
+         prototype.hedging,
+         prototype.coalescing,
+         prototype.stableNanos,
+         prototype.stablePolls,
+         prototype.historySize,
+         prototype.clock,
+         prototype.rateLimiter,
+         prototype.maxEvaluations,
+         prototype.exceptionPolicy,
+         prototype.circuitBreaker,
+         prototype.listener,
+         prototype.scheduler);
   }
 
   public static <T, R> WaitFunctionBuilder<T, R> waitFor(@NotNull Function<T, R> delegateFunction) {
     return new WaitFunctionBuilderImpl<>(delegateFunction);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The timeout is clamped to the remaining {@link WaitBudget#current() current budget},
+   * if any.
+   * </p>
+   */
   @Override
   public R apply(T item) {
-    long timeoutMs = TimeUnit.MILLISECONDS.convert(timeout, timeoutTimeUnit);
-    long startMs = nowMillis();
-    long deadlineTimeMs = startMs + timeoutMs;
-    // At first, wait some initial delay between checks.
-    long delay = TimeUnit.MILLISECONDS.convert(initialDelay, initialDelayTimeUnit);
-
-    R result;
-    while (true) {
-      long beforeEvaluationTimeMs = nowMillis();
-      result = delegateFunction.apply(item);
-      long afterEvaluationTimeMs = nowMillis();
-      if (predicate.apply(result)) {
-        break;
-      }
-      if (afterEvaluationTimeMs > deadlineTimeMs) {
-        return onTimeoutFunction.apply(
-            new WaitTimeoutEventImpl<>(this,
-                                       afterEvaluationTimeMs - startMs,
-                                       item,
-                                       result
-            )
-        );
+    return apply(item, WaitBudget.current());
+  }
+
+  /**
+   * Wait within the given budget.
+   *
+   * @param item   item to apply the delegate function to
+   * @param budget budget to clamp the timeout to; {@code null} for none
+   * @return result
+   * @since SINCE
+   */
+  R apply(T item, @Nullable WaitBudget budget) {
+    if (scheduler != null) {
+      return applyOnScheduler(item, budget, scheduler);
+    }
+    return run(new WaitSession<>(this, item, budget));
+  }
+
+  /**
+   * Wait for the given function to fulfill the given predicate, taking any other
+   * configuration from this wait function. Unlike binding a new wait function to the
+   * given functions, the configuration is used as is.
+   *
+   * @param item              item to apply the delegate function to
+   * @param delegateFunction  function to query
+   * @param predicate         predicate the result needs to fulfill
+   * @param onTimeoutFunction function to call on timeout
+   * @return result
+   * @since SINCE
+   */
+  R apply(T item,
+          @NotNull Function<T, R> delegateFunction,
+          @NotNull Predicate<? super R> predicate,
+          @NotNull Function<WaitTimeoutEvent<T, R>, R> onTimeoutFunction) {
+    if (scheduler != null) {
+      return new WaitFunction<>(this, delegateFunction, predicate, onTimeoutFunction)
+          .apply(item);
+    }
+    return run(new WaitSession<>(this,
+                                 delegateFunction,
+                                 predicate,
+                                 onTimeoutFunction,
+                                 item,
+                                 WaitBudget.current()));
+  }
+
+  private R run(@NotNull WaitSession<T, R> session) {
+    try {
+      while (!session.evaluate()) {
+        if (session.isTimedOut()) {
+          return session.timeout();
+        }
+        await(session, session.nextSleepTimeNanos());
       }
-      delay =
-          sleepAndRecalculateDelay(delay, deadlineTimeMs, beforeEvaluationTimeMs,
-                                   afterEvaluationTimeMs);
+    } catch (InterruptedException e) {
+      // Preserve interrupt status, so that for example an executor shutting down
+      // may reclaim the thread.
+      Thread.currentThread().interrupt();
+      return session.cancel();
     }
-    return result;
+    return session.getLastResult();
+  }
+
+  /**
+   * Sleep until the next evaluation is due, or until the trigger fires if configured.
+   *
+   * @param session        current session
+   * @param sleepTimeNanos time to sleep
+   * @throws InterruptedException if the current thread has been interrupted
+   * @since SINCE
+   */
+  private void await(@NotNull WaitSession<T, R> session, long sleepTimeNanos)
+      throws InterruptedException {
+    if (trigger == null || sleepTimeNanos <= 0L || !isOnSystemClock()) {
+      sleepNanos(sleepTimeNanos);
+    } else {
+      trigger.awaitNanos(session.getTriggerGeneration(), sleepTimeNanos);
+    }
+  }
+
+  /**
+   * Run the evaluations on the given scheduler and wait for the result.
+   *
+   * @param item      item to apply the delegate function to
+   * @param budget    budget to clamp the timeout to; {@code null} for none
+   * @param scheduler scheduler to run the evaluations on
+   * @return result
+   * @throws IllegalStateException if called from a thread of the given polling scheduler,
+   *                               which would block a thread needed for the evaluations
+   * @since SINCE
+   */
+  private R applyOnScheduler(T item,
+                             @Nullable WaitBudget budget,
+                             @NotNull ScheduledExecutorService scheduler) {
+    Preconditions.checkState(!(scheduler instanceof PollingScheduler
+                               && ((PollingScheduler) scheduler).isOwnerOfCurrentThread()),
+                             "Blocking wait must not be called from a thread of its polling"
+                             + " scheduler. Use an asynchronous wait instead.");
+    return new AsyncWaitFunction<>(this, scheduler).applyAndAwait(item, budget);
   }
 
   @NotNull
@@ -173,86 +448,193 @@ public class WaitFunction<T, R> implements Function<T, R> {
     return timeoutTimeUnit;
   }
 
+  long getTimeoutNanos() {
+    return timeoutNanos;
+  }
+
+  @NotNull
+  Function<WaitTimeoutEvent<T, R>, R> getOnTimeoutFunction() {
+    return onTimeoutFunction;
+  }
+
+  long getGracePeriod() {
+    return gracePeriod;
+  }
+
+  @NotNull
+  TimeUnit getGracePeriodTimeUnit() {
+    return gracePeriodTimeUnit;
+  }
+
+  long getGracePeriodNanos() {
+    return gracePeriodNanos;
+  }
+
+  long getInitialDelay() {
+    return initialDelay;
+  }
+
+  @NotNull
+  TimeUnit getInitialDelayTimeUnit() {
+    return initialDelayTimeUnit;
+  }
+
+  long getInitialDelayNanos() {
+    return initialDelayNanos;
+  }
+
+  @NotNull
+  PollingStrategy getPollingStrategy() {
+    return pollingStrategy;
+  }
+
+  long getSpinTimeNanos() {
+    return spinTimeNanos;
+  }
+
+  long getParkTimeNanos() {
+    return parkTimeNanos;
+  }
+
+  @Nullable
+  ProbeTrigger getTrigger() {
+    return trigger;
+  }
+
+  long getEvaluationTimeoutNanos() {
+    return evaluationTimeoutNanos;
+  }
+
+  @Nullable
+  Hedging getHedging() {
+    return hedging;
+  }
+
+  @Nullable
+  Coalescing getCoalescing() {
+    return coalescing;
+  }
+
+  long getStableNanos() {
+    return stableNanos;
+  }
+
+  int getStablePolls() {
+    return stablePolls;
+  }
+
+  int getHistorySize() {
+    return historySize;
+  }
+
+  @NotNull
+  WaitClock getClock() {
+    return clock;
+  }
+
+  @Nullable
+  PollRateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  int getMaxEvaluations() {
+    return maxEvaluations;
+  }
+
+  @Nullable
+  ExceptionPolicy getExceptionPolicy() {
+    return exceptionPolicy;
+  }
+
+  @Nullable
+  CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * Signals if this wait function measures real time. Only then a trigger or a scheduler
+   * may shorten or perform the sleep between polls.
+   *
+   * @return {@code true} if the system clock is used
+   * @since SINCE
+   */
+  boolean isOnSystemClock() {
+    return clock == WaitClocks.system();
+  }
+
+  /**
+   * Signals if the predicate must hold for more than one poll.
+   *
+   * @return {@code true} if a stable duration or more than one stable poll is required
+   * @since SINCE
+   */
+  boolean isStabilityRequired() {
+    return stableNanos > 0L || stablePolls > 1;
+  }
+
+  @NotNull
+  ProbeListener getListener() {
+    return listener;
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
         .add("hash", Integer.toHexString(System.identityHashCode(this)))
-        .add("decelerationFactor", decelerationFactor)
+        .add("circuitBreaker", circuitBreaker)
+        .add("clock", clock)
+        .add("coalescing", coalescing)
         .add("delegateFunction", delegateFunction)
+        .add("evaluationTimeoutNanos", evaluationTimeoutNanos)
+        .add("exceptionPolicy", exceptionPolicy)
         .add("gracePeriod", gracePeriod)
         .add("gracePeriodTimeUnit", gracePeriodTimeUnit)
+        .add("hedging", hedging)
+        .add("historySize", historySize)
         .add("initialDelay", initialDelay)
         .add("initialDelayTimeUnit", initialDelayTimeUnit)
+        .add("listener", listener)
+        .add("maxEvaluations", maxEvaluations)
         .add("onTimeoutFunction", onTimeoutFunction)
+        .add("parkTimeNanos", parkTimeNanos)
+        .add("pollingStrategy", pollingStrategy)
         .add("predicate", predicate)
+        .add("rateLimiter", rateLimiter)
+        .add("scheduler", scheduler)
+        .add("spinTimeNanos", spinTimeNanos)
+        .add("stableNanos", stableNanos)
+        .add("stablePolls", stablePolls)
         .add("timeout", timeout)
         .add("timeoutTimeUnit", timeoutTimeUnit)
+        .add("trigger", trigger)
         .toString();
   }
 
   /**
-   * Sleep the given number of milliseconds.
+   * Sleep the given number of nanoseconds on the clock of this wait function. A sleep time
+   * of 0 signals busy-waiting.
    *
-   * @param millis how long to sleep
+   * @param nanos how long to sleep
    * @throws InterruptedException if the current thread has been interrupted
-   * @since 0.1.0
+   * @see WaitClock#sleepNanos(long)
+   * @since SINCE
    */
   @VisibleForTesting
-  void sleep(long millis) throws InterruptedException {
-    Thread.sleep(millis);
+  void sleepNanos(long nanos) throws InterruptedException {
+    clock.sleepNanos(nanos);
   }
 
   /**
-   * Retrieve the current time in milliseconds. Especially allows to override this behavior for
-   * testing purpose.
+   * Retrieve the current time of the clock of this wait function in nanoseconds. Just as
+   * for {@link System#nanoTime()} the value is only meaningful for computing elapsed time.
+   * Especially allows to override this behavior for testing purpose.
    *
-   * @return time in milliseconds
-   * @since 1.0.0
+   * @return time in nanoseconds
+   * @see WaitClock#nanoTime()
+   * @since SINCE
    */
   @VisibleForTesting
-  long nowMillis() {
-    return System.currentTimeMillis();
-  }
-
-  /**
-   * <p>
-   * Decelerating wait. Decreases the polling interval over time to give the system under test a
-   * chance to
-   * actually reach the desired state.
-   * </p>
-   *
-   * @since 1.0.0
-   */
-  private long sleepAndRecalculateDelay(long previousDelay,
-                                        long deadlineTimeMs,
-                                        long beforeEvaluationTimeMs,
-                                        long afterEvaluationTimeMs) {
-    long newDelay = previousDelay;
-    // Leave at least as much time between two checks as the check itself took.
-    long lastDuration = afterEvaluationTimeMs - beforeEvaluationTimeMs;
-    if (lastDuration > newDelay) {
-      newDelay = lastDuration;
-    }
-
-    // Wait, but not much longer than until the deadlineTimeMillis and at least a millisecond.
-    try {
-      long gracePeriodMs = TimeUnit.MILLISECONDS.convert(gracePeriod, gracePeriodTimeUnit);
-      long timeLeftMs = deadlineTimeMs - afterEvaluationTimeMs;
-      long sleepTimeMs = Math.max(MINIMUM_SLEEP_TIME_MS,
-                                  Math.min(
-                                      newDelay,
-                                      timeLeftMs + gracePeriodMs
-                                  )
-      );
-      sleep(sleepTimeMs);
-    } catch (InterruptedException e) {
-      throw new IllegalStateException("Unexpected interruption.", e);
-    }
-
-    // Make checks less and less frequently.
-    // Increase the wait period using the deceleration factor, but
-    // wait at least one millisecond longer next time.
-    newDelay = Math.max(newDelay + 1, (long) (newDelay * decelerationFactor));
-    return newDelay;
+  long nowNanos() {
+    return clock.nanoTime();
   }
 }
@@ -19,9 +19,11 @@ package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -57,6 +59,55 @@ public interface WaitFunctionBuilder<T, R> extends Supplier<Function<T, R>>, Wai
   @NotNull
   WaitFunctionBuilder<T, R> onTimeout(@NotNull Function<WaitTimeoutEvent<T, R>, R> timeoutFunction);
 
+  /**
+   * <p>
+   * Build an asynchronous wait function. Instead of blocking the calling thread while
+   * waiting, each evaluation is scheduled on the given executor and the result is
+   * provided as future. Timeouts are handled by the configured timeout function: either the
+   * future completes with the result of the timeout function or it fails with the
+   * exception thrown by the timeout function.
+   * </p>
+   * <p>
+   * Cancelling the returned future will stop any further evaluations.
+   * </p>
+   *
+   * @param executor executor to schedule evaluations on
+   * @return asynchronous wait function
+   * @throws IllegalStateException if configured with an evaluation timeout, hedging or
+   *                               coalescing, which would block the threads of the executor
+   * @see WaitBuilder#pollingOn(ScheduledExecutorService)
+   * @since SINCE
+   */
+  @NotNull
+  Function<T, ListenableFuture<R>> getAsync(@NotNull ScheduledExecutorService executor);
+
+  /**
+   * Build an asynchronous wait function which schedules its evaluations on the scheduler
+   * configured via {@link #pollingOn(ScheduledExecutorService)} or, if none is configured, on
+   * the {@linkplain PollingScheduler#shared() shared polling scheduler}.
+   *
+   * @return asynchronous wait function
+   * @see #getAsync(ScheduledExecutorService)
+   * @since SINCE
+   */
+  @NotNull
+  Function<T, ListenableFuture<R>> getAsync();
+
+  /**
+   * <p>
+   * Build a wait function which runs the polling loop of each wait on a thread of its
+   * own and provides the result as future. On Java 21 and above virtual threads are used,
+   * thus it is cheap to run tens of thousands of waits concurrently. On older JDKs the
+   * function falls back to platform daemon threads.
+   * </p>
+   *
+   * @return asynchronous wait function
+   * @see VirtualThreads
+   * @since SINCE
+   */
+  @NotNull
+  Function<T, ListenableFuture<R>> getOnVirtualThreads();
+
 
   @Override
   @NotNull
@@ -86,6 +137,79 @@ public interface WaitFunctionBuilder<T, R> extends Supplier<Function<T, R>>, Wai
   @NotNull
   WaitFunctionBuilder<T, R> deceleratePollingBy(double decelerationFactor);
 
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> pollingWith(@NotNull PollingStrategy pollingStrategy);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> spinThenPark(long spinTime,
+                                         long parkTime,
+                                         @NotNull TimeUnit timeUnit);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> triggeredBy(@NotNull ProbeTrigger trigger);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> withEvaluationTimeout(long evaluationTimeout,
+                                                  @NotNull TimeUnit timeUnit);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> hedgeAfter(long hedgeDelay,
+                                       @NotNull TimeUnit timeUnit,
+                                       int maxInFlight);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> coalesceEvaluations(long maxAge, @NotNull TimeUnit timeUnit);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> stableFor(long duration, @NotNull TimeUnit timeUnit);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> stableForPolls(int polls);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> withHistorySize(int polls);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> withClock(@NotNull WaitClock clock);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> rateLimitedBy(@NotNull PollRateLimiter rateLimiter);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> withMaxEvaluations(int maxEvaluations);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> ignoringExceptions(@NotNull Class<? extends Throwable> exceptionType);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> backingOffOnExceptionsBy(double backoffFactor);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> withCircuitBreaker(@NotNull CircuitBreaker circuitBreaker);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> withListener(@NotNull ProbeListener listener);
+
+  @Override
+  @NotNull
+  WaitFunctionBuilder<T, R> pollingOn(@NotNull ScheduledExecutorService scheduler);
+
   @Override
   @NotNull
   WaitFunctionBuilder<T, R> and();
@@ -25,10 +25,14 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -56,6 +60,26 @@ final class WaitFunctionBuilderImpl<T, R> implements WaitFunctionBuilder<T, R> {
    * @since 1.0.0
    */
   private static final double DEFAULT_DECELERATION_FACTOR = 1.1;
+  /**
+   * Default strategy to calculate the delay between two polls.
+   *
+   * @since SINCE
+   */
+  private static final PollingStrategy DEFAULT_POLLING_STRATEGY =
+      PollingStrategies.decelerating(DEFAULT_DECELERATION_FACTOR);
+  /**
+   * Default number of most recent polls to keep for timeout reports; none, as the history
+   * keeps results alive until the wait ends.
+   *
+   * @since SINCE
+   */
+  private static final int DEFAULT_HISTORY_SIZE = 0;
+  /**
+   * Default factor to back off by on consecutive ignored exceptions.
+   *
+   * @since SINCE
+   */
+  private static final double DEFAULT_EXCEPTION_BACKOFF_FACTOR = 2d;
 
   @NotNull
   private final Function<T, R> delegateFunction;
@@ -70,9 +94,38 @@ final class WaitFunctionBuilderImpl<T, R> implements WaitFunctionBuilder<T, R> {
   private long initialDelay = DEFAULT_INITIAL_DELAY_MS;
   @NotNull
   private TimeUnit initialDelayTimeUnit = TimeUnit.MILLISECONDS;
-  private double decelerationFactor = DEFAULT_DECELERATION_FACTOR;
+  @NotNull
+  private PollingStrategy pollingStrategy = DEFAULT_POLLING_STRATEGY;
+  private long spinTimeNanos;
+  private long parkTimeNanos;
+  @Nullable
+  private ProbeTrigger trigger;
+  private long evaluationTimeoutNanos;
+  private long hedgeDelayNanos;
+  private int maxInFlight;
+  /**
+   * Maximum age of shared results to reuse; negative if evaluations are not shared.
+   *
+   * @since SINCE
+   */
+  private long coalesceMaxAgeNanos = -1L;
+  private long stableNanos;
+  private int stablePolls = 1;
+  private int historySize = DEFAULT_HISTORY_SIZE;
+  @NotNull
+  private WaitClock clock = WaitClocks.system();
+  @Nullable
+  private PollRateLimiter rateLimiter;
+  private int maxEvaluations;
+  private final List<Class<? extends Throwable>> ignoredExceptionTypes = new ArrayList<>();
+  private double exceptionBackoffFactor = DEFAULT_EXCEPTION_BACKOFF_FACTOR;
+  @Nullable
+  private CircuitBreaker circuitBreaker;
+  private final List<ProbeListener> listeners = new ArrayList<>();
   @Nullable
   private Function<WaitTimeoutEvent<T, R>, R> timeoutFunction;
+  @Nullable
+  private ScheduledExecutorService scheduler;
 
   public WaitFunctionBuilderImpl(@NotNull Function<T, R> delegateFunction) {
     this.delegateFunction = requireNonNull(delegateFunction, "delegateFunction must not be null.");
@@ -146,9 +199,148 @@ final class WaitFunctionBuilderImpl<T, R> implements WaitFunctionBuilder<T, R> {
   @NotNull
   @Override
   public WaitFunctionBuilder<T, R> deceleratePollingBy(double decelerationFactor) {
+    return pollingWith(PollingStrategies.decelerating(decelerationFactor));
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> pollingWith(@NotNull PollingStrategy pollingStrategy) {
+    this.pollingStrategy = requireNonNull(pollingStrategy, "pollingStrategy must not be null.");
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> spinThenPark(long spinTime,
+                                                long parkTime,
+                                                @NotNull TimeUnit timeUnit) {
+    Preconditions.checkArgument(spinTime >= 0, "Spin time must be positive.");
+    Preconditions.checkArgument(parkTime >= 0, "Park time must be positive.");
+    requireNonNull(timeUnit, "timeUnit must not be null.");
+    spinTimeNanos = timeUnit.toNanos(spinTime);
+    parkTimeNanos = timeUnit.toNanos(parkTime);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> triggeredBy(@NotNull ProbeTrigger trigger) {
+    this.trigger = requireNonNull(trigger, "trigger must not be null.");
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> withEvaluationTimeout(long evaluationTimeout,
+                                                         @NotNull TimeUnit timeUnit) {
     Preconditions
-        .checkArgument(decelerationFactor >= 1, "Factor must be greater than or equal to 1.");
-    this.decelerationFactor = decelerationFactor;
+        .checkArgument(evaluationTimeout > 0, "Evaluation timeout must be greater than 0.");
+    evaluationTimeoutNanos =
+        requireNonNull(timeUnit, "timeUnit must not be null.").toNanos(evaluationTimeout);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> hedgeAfter(long hedgeDelay,
+                                              @NotNull TimeUnit timeUnit,
+                                              int maxInFlight) {
+    Preconditions.checkArgument(hedgeDelay > 0, "Hedge delay must be greater than 0.");
+    Preconditions.checkArgument(maxInFlight > 0, "Maximum in flight must be greater than 0.");
+    hedgeDelayNanos = requireNonNull(timeUnit, "timeUnit must not be null.").toNanos(hedgeDelay);
+    this.maxInFlight = maxInFlight;
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> coalesceEvaluations(long maxAge, @NotNull TimeUnit timeUnit) {
+    Preconditions.checkArgument(maxAge >= 0, "Maximum age must not be negative.");
+    coalesceMaxAgeNanos = requireNonNull(timeUnit, "timeUnit must not be null.").toNanos(maxAge);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> stableFor(long duration, @NotNull TimeUnit timeUnit) {
+    Preconditions.checkArgument(duration > 0, "Stable duration must be greater than 0.");
+    stableNanos = requireNonNull(timeUnit, "timeUnit must not be null.").toNanos(duration);
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> stableForPolls(int polls) {
+    Preconditions.checkArgument(polls > 0, "Stable polls must be greater than 0.");
+    stablePolls = polls;
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> withHistorySize(int polls) {
+    Preconditions.checkArgument(polls >= 0, "History size must not be negative.");
+    historySize = polls;
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> withClock(@NotNull WaitClock clock) {
+    this.clock = requireNonNull(clock, "clock must not be null.");
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> rateLimitedBy(@NotNull PollRateLimiter rateLimiter) {
+    this.rateLimiter = requireNonNull(rateLimiter, "rateLimiter must not be null.");
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> withMaxEvaluations(int maxEvaluations) {
+    Preconditions.checkArgument(maxEvaluations > 0, "Maximum evaluations must be greater than 0.");
+    this.maxEvaluations = maxEvaluations;
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> ignoringExceptions(
+      @NotNull Class<? extends Throwable> exceptionType) {
+    ignoredExceptionTypes.add(requireNonNull(exceptionType, "exceptionType must not be null."));
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> backingOffOnExceptionsBy(double backoffFactor) {
+    Preconditions.checkArgument(backoffFactor >= 1d,
+                                "Factor must be greater than or equal to 1.");
+    exceptionBackoffFactor = backoffFactor;
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> withCircuitBreaker(@NotNull CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = requireNonNull(circuitBreaker, "circuitBreaker must not be null.");
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> withListener(@NotNull ProbeListener listener) {
+    listeners.add(requireNonNull(listener, "listener must not be null."));
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public WaitFunctionBuilder<T, R> pollingOn(@NotNull ScheduledExecutorService scheduler) {
+    this.scheduler = requireNonNull(scheduler, "scheduler must not be null.");
     return this;
   }
 
@@ -162,21 +354,83 @@ final class WaitFunctionBuilderImpl<T, R> implements WaitFunctionBuilder<T, R> {
   public String toString() {
     return MoreObjects.toStringHelper(this)
         .add("hash", Integer.toHexString(System.identityHashCode(this)))
-        .add("decelerationFactor", decelerationFactor)
+        .add("circuitBreaker", circuitBreaker)
+        .add("clock", clock)
+        .add("coalesceMaxAgeNanos", coalesceMaxAgeNanos)
         .add("delegateFunction", delegateFunction)
+        .add("evaluationTimeoutNanos", evaluationTimeoutNanos)
+        .add("exceptionBackoffFactor", exceptionBackoffFactor)
         .add("gracePeriod", gracePeriod)
         .add("gracePeriodTimeUnit", gracePeriodTimeUnit)
+        .add("hedgeDelayNanos", hedgeDelayNanos)
+        .add("ignoredExceptionTypes", ignoredExceptionTypes)
+        .add("historySize", historySize)
         .add("initialDelay", initialDelay)
         .add("initialDelayTimeUnit", initialDelayTimeUnit)
+        .add("listeners", listeners)
+        .add("maxEvaluations", maxEvaluations)
+        .add("maxInFlight", maxInFlight)
+        .add("parkTimeNanos", parkTimeNanos)
+        .add("pollingStrategy", pollingStrategy)
         .add("predicate", predicate)
+        .add("rateLimiter", rateLimiter)
+        .add("scheduler", scheduler)
+        .add("spinTimeNanos", spinTimeNanos)
+        .add("stableNanos", stableNanos)
+        .add("stablePolls", stablePolls)
         .add("timeout", timeout)
         .add("timeoutFunction", timeoutFunction)
         .add("timeoutTimeUnit", timeoutTimeUnit)
+        .add("trigger", trigger)
         .toString();
   }
 
   @Override
   public Function<T, R> get() {
+    if (scheduler != null) {
+      checkNonBlockingEvaluations();
+    }
+    return build();
+  }
+
+  @NotNull
+  @Override
+  public Function<T, ListenableFuture<R>> getAsync(@NotNull ScheduledExecutorService executor) {
+    checkNonBlockingEvaluations();
+    return new AsyncWaitFunction<>(build(), executor);
+  }
+
+  /**
+   * Validate that evaluations do not wait for other threads, as they run on a scheduler
+   * whose few threads are shared by many waits. A blocked thread would delay all of them.
+   *
+   * @throws IllegalStateException if an evaluation timeout, hedging or coalescing is
+   *                               configured
+   * @since SINCE
+   */
+  private void checkNonBlockingEvaluations() {
+    Preconditions.checkState(evaluationTimeoutNanos <= 0L,
+                             "Evaluation timeout not supported when polling on a scheduler.");
+    Preconditions.checkState(hedgeDelayNanos <= 0L,
+                             "Hedging not supported when polling on a scheduler.");
+    Preconditions.checkState(coalesceMaxAgeNanos < 0L,
+                             "Coalescing not supported when polling on a scheduler.");
+  }
+
+  @NotNull
+  @Override
+  public Function<T, ListenableFuture<R>> getAsync() {
+    return getAsync(fromNullable(scheduler).or(PollingScheduler.shared()));
+  }
+
+  @NotNull
+  @Override
+  public Function<T, ListenableFuture<R>> getOnVirtualThreads() {
+    return new VirtualThreadWaitFunction<>(build(), VirtualThreads.sharedExecutor());
+  }
+
+  @NotNull
+  private WaitFunction<T, R> build() {
     return new WaitFunction<>(
         delegateFunction,
         predicate,
@@ -192,9 +446,27 @@ final class WaitFunctionBuilderImpl<T, R> implements WaitFunctionBuilder<T, R> {
         gracePeriodTimeUnit,
         initialDelay,
         initialDelayTimeUnit,
-        decelerationFactor
+        pollingStrategy,
+        spinTimeNanos,
+        parkTimeNanos,
+        trigger,
+        evaluationTimeoutNanos,
+        // Each wait function gets its own limit of evaluations in flight.
+        hedgeDelayNanos > 0L ? new Hedging(hedgeDelayNanos, maxInFlight) : null,
+        coalesceMaxAgeNanos >= 0L ? new Coalescing(coalesceMaxAgeNanos) : null,
+        stableNanos,
+        stablePolls,
+        historySize,
+        clock,
+        rateLimiter,
+        maxEvaluations,
+        ignoredExceptionTypes.isEmpty()
+        ? null
+        : new ExceptionPolicy(ignoredExceptionTypes, exceptionBackoffFactor),
+        circuitBreaker,
+        // Combining copies the listeners, so that the builder may be reused.
+        ProbeListeners.combine(listeners),
+        scheduler
     );
   }
-
-
 }
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.MapMaker;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * Lightweight registry of wait metrics per probe: counts of waits, polls, successes,
+ * timeouts, cancellations and failures, as well as histograms of time to satisfy and
+ * evaluation latency. The registry is fed as {@link ProbeListener} and updating it
+ * neither locks nor allocates once a wait started.
+ * </p>
+ * <p>
+ * Probes are named by their delegate function: Its {@code toString()} (as for example
+ * set via {@code DescribedFunction}) or its class name, if it does not override
+ * {@code toString()}. The name is resolved once per wait function when a wait starts.
+ * To prevent unbounded growth at most 1000 probes are tracked separately, any further probe
+ * is accounted to {@value #OTHER_PROBES}.
+ * </p>
+ * <p>
+ * Collecting metrics is opt-in, as it adds some overhead to each poll: Nothing is recorded
+ * unless the {@link #shared() shared registry} gets {@link #install() installed}, or a
+ * registry is added as listener to single waits.
+ * </p>
+ * <dl>
+ * <dt><strong>Example:</strong></dt>
+ * <dd>
+ * <pre>{@code
+ * // For example in a test suite setup: collect metrics of all waits and publish as MBean
+ * WaitMetrics.install();
+ * }</pre>
+ * </dd>
+ * </dl>
+ *
+ * @since SINCE
+ */
+public final class WaitMetrics implements ProbeListener, WaitMetricsMXBean {
+
+  /**
+   * Name the shared registry is published with.
+   *
+   * @since SINCE
+   */
+  public static final String OBJECT_NAME =
+      "com.github.mmichaelis.hamcrest.nextdeed:type=WaitMetrics";
+  /**
+   * Maximum number of probes tracked separately.
+   *
+   * @since SINCE
+   */
+  private static final int MAX_PROBES = 1000;
+  /**
+   * Name of the probe collecting the metrics of all probes exceeding the maximum.
+   *
+   * @since SINCE
+   */
+  static final String OTHER_PROBES = "(other)";
+  private static final WaitMetrics SHARED = new WaitMetrics();
+
+  private final ConcurrentMap<String, ProbeMetrics> probes = new ConcurrentHashMap<>();
+  private final int maxProbes;
+  /**
+   * Number of probes tracked separately, reserved before adding them.
+   *
+   * @since SINCE
+   */
+  private final AtomicInteger probeCount = new AtomicInteger();
+  /**
+   * Metrics by wait function, so that the probe name is not resolved on each poll. Wait
+   * functions are compared by identity and weakly referenced.
+   *
+   * @since SINCE
+   */
+  private final ConcurrentMap<WaitFunction<?, ?>, ProbeMetrics> sources =
+      new MapMaker().weakKeys().makeMap();
+
+  /**
+   * Create a registry to add as listener to single waits.
+   *
+   * @since SINCE
+   */
+  public WaitMetrics() {
+    this(MAX_PROBES);
+  }
+
+  /**
+   * Create a registry tracking the given number of probes separately.
+   *
+   * @param maxProbes maximum number of probes tracked separately
+   * @since SINCE
+   */
+  @VisibleForTesting
+  WaitMetrics(int maxProbes) {
+    this.maxProbes = maxProbes;
+  }
+
+  /**
+   * The registry used by {@link #install()}.
+   *
+   * @return shared registry
+   * @since SINCE
+   */
+  @NotNull
+  public static WaitMetrics shared() {
+    return SHARED;
+  }
+
+  /**
+   * Collect metrics of all waits in the shared registry and publish it as MBean named
+   * {@value #OBJECT_NAME} to the platform MBean server. Calling it again has no effect.
+   *
+   * @since SINCE
+   */
+  public static void install() {
+    ProbeListeners.unregister(SHARED);
+    ProbeListeners.register(SHARED);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.registerMBean(SHARED, new ObjectName(OBJECT_NAME));
+    } catch (InstanceAlreadyExistsException ignored) {
+      // Already installed.
+    } catch (JMException e) {
+      throw new IllegalStateException("Failed to register MBean " + OBJECT_NAME + '.', e);
+    }
+  }
+
+  /**
+   * Stop collecting metrics in the shared registry and remove its MBean. Metrics collected
+   * so far are kept.
+   *
+   * @since SINCE
+   */
+  public static void uninstall() {
+    ProbeListeners.unregister(SHARED);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.unregisterMBean(new ObjectName(OBJECT_NAME));
+    } catch (InstanceNotFoundException ignored) {
+      // Not installed.
+    } catch (JMException e) {
+      throw new IllegalStateException("Failed to unregister MBean " + OBJECT_NAME + '.', e);
+    }
+  }
+
+  /**
+   * Statistics of the given probe.
+   *
+   * @param probeName name of the probe
+   * @return statistics; {@code null} if no wait for the given probe has been recorded
+   * @since SINCE
+   */
+  @Nullable
+  public ProbeStatistics getStatistics(@NotNull String probeName) {
+    ProbeMetrics metrics = probes.get(requireNonNull(probeName, "probeName must not be null."));
+    return metrics == null ? null : metrics.snapshot(probeName);
+  }
+
+  @Override
+  public long getWaits() {
+    long sum = 0L;
+    for (ProbeMetrics metrics : probes.values()) {
+      sum += metrics.waits.sum();
+    }
+    return sum;
+  }
+
+  @Override
+  public long getPolls() {
+    long sum = 0L;
+    for (ProbeMetrics metrics : probes.values()) {
+      sum += metrics.polls.sum();
+    }
+    return sum;
+  }
+
+  @Override
+  public long getSatisfied() {
+    long sum = 0L;
+    for (ProbeMetrics metrics : probes.values()) {
+      sum += metrics.timeToSatisfy.getCount();
+    }
+    return sum;
+  }
+
+  @Override
+  public long getTimeouts() {
+    long sum = 0L;
+    for (ProbeMetrics metrics : probes.values()) {
+      sum += metrics.timeouts.sum();
+    }
+    return sum;
+  }
+
+  @Override
+  public long getCancellations() {
+    long sum = 0L;
+    for (ProbeMetrics metrics : probes.values()) {
+      sum += metrics.cancellations.sum();
+    }
+    return sum;
+  }
+
+  @Override
+  public long getFailures() {
+    long sum = 0L;
+    for (ProbeMetrics metrics : probes.values()) {
+      sum += metrics.failures.sum();
+    }
+    return sum;
+  }
+
+  @Override
+  public Map<String, ProbeStatistics> getProbes() {
+    Map<String, ProbeStatistics> result = new TreeMap<>();
+    for (Map.Entry<String, ProbeMetrics> entry : probes.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+    }
+    return result;
+  }
+
+  @Override
+  public void reset() {
+    sources.clear();
+    probes.clear();
+    probeCount.set(0);
+  }
+
+  @Override
+  public void onStart(@NotNull WaitFunction<?, ?> source) {
+    metrics(source).waits.increment();
+  }
+
+  @Override
+  public void onEvaluation(@NotNull WaitFunction<?, ?> source,
+                           long durationNanos,
+                           boolean matched) {
+    ProbeMetrics metrics = metrics(source);
+    metrics.polls.increment();
+    metrics.evaluation.record(durationNanos);
+  }
+
+  @Override
+  public void onSleep(@NotNull WaitFunction<?, ?> source, long nanos) {
+    // Ignored: The time slept is the time to satisfy minus the evaluation latencies.
+  }
+
+  @Override
+  public void onSatisfied(@NotNull WaitFunction<?, ?> source, long consumedNanos) {
+    metrics(source).timeToSatisfy.record(consumedNanos);
+  }
+
+  @Override
+  public void onFailure(@NotNull WaitFunction<?, ?> source, @NotNull Throwable failure) {
+    metrics(source).failures.increment();
+  }
+
+  @Override
+  public void onTimeout(@NotNull WaitTimeoutEvent<?, ?> event) {
+    ProbeMetrics metrics = metrics(event.getSource());
+    if (event.isCancelled()) {
+      metrics.cancellations.increment();
+    } else {
+      metrics.timeouts.increment();
+    }
+  }
+
+  /**
+   * Name of the probe the given wait function belongs to.
+   *
+   * @param source wait function
+   * @return name of the probe
+   * @since SINCE
+   */
+  @VisibleForTesting
+  @NotNull
+  static String probeName(@NotNull WaitFunction<?, ?> source) {
+    Object function = source.getDelegateFunction();
+    String name = String.valueOf(function);
+    String identityName =
+        function.getClass().getName() + '@' + Integer.toHexString(function.hashCode());
+    // Identity hash codes would make each instance a probe of its own.
+    return name.equals(identityName) ? function.getClass().getName() : name;
+  }
+
+  /**
+   * Metrics of the probe the given wait function belongs to, as resolved when its first
+   * wait started.
+   *
+   * @param source wait function
+   * @return metrics
+   * @since SINCE
+   */
+  @NotNull
+  private ProbeMetrics metrics(@NotNull WaitFunction<?, ?> source) {
+    ProbeMetrics metrics = sources.get(source);
+    // Not known if reset or installed while waiting.
+    return metrics == null ? resolveMetrics(source) : metrics;
+  }
+
+  /**
+   * Resolve the metrics of the probe the given wait function belongs to and remember
+   * them for the wait function.
+   *
+   * @param source wait function
+   * @return metrics
+   * @since SINCE
+   */
+  @NotNull
+  private ProbeMetrics resolveMetrics(@NotNull WaitFunction<?, ?> source) {
+    String name = probeName(source);
+    ProbeMetrics metrics = probes.get(name);
+    if (metrics == null) {
+      if (reserveProbe()) {
+        ProbeMetrics newMetrics = new ProbeMetrics();
+        metrics = probes.putIfAbsent(name, newMetrics);
+        if (metrics == null) {
+          metrics = newMetrics;
+        } else {
+          // Added by another thread meanwhile, which holds a reservation of its own.
+          probeCount.decrementAndGet();
+        }
+      } else {
+        metrics = otherMetrics();
+      }
+    }
+    sources.put(source, metrics);
+    return metrics;
+  }
+
+  /**
+   * Reserve a probe to track separately. Reserving before adding the probe ensures that
+   * concurrent waits do not exceed the maximum.
+   *
+   * @return {@code true} if reserved; {@code false} if the maximum is reached
+   * @since SINCE
+   */
+  private boolean reserveProbe() {
+    int count;
+    do {
+      count = probeCount.get();
+      if (count >= maxProbes) {
+        return false;
+      }
+    } while (!probeCount.compareAndSet(count, count + 1));
+    return true;
+  }
+
+  /**
+   * Metrics of all probes exceeding the maximum.
+   *
+   * @return metrics
+   * @since SINCE
+   */
+  @NotNull
+  private ProbeMetrics otherMetrics() {
+    ProbeMetrics metrics = probes.get(OTHER_PROBES);
+    if (metrics == null) {
+      ProbeMetrics newMetrics = new ProbeMetrics();
+      metrics = probes.putIfAbsent(OTHER_PROBES, newMetrics);
+      if (metrics == null) {
+        metrics = newMetrics;
+      }
+    }
+    return metrics;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("maxProbes", maxProbes)
+        .add("probes", probes.keySet())
+        .toString();
+  }
+
+  /**
+   * Metrics of one probe.
+   *
+   * @since SINCE
+   */
+  private static final class ProbeMetrics {
+    private final StripedCounter waits = new StripedCounter();
+    private final StripedCounter polls = new StripedCounter();
+    private final StripedCounter timeouts = new StripedCounter();
+    private final StripedCounter cancellations = new StripedCounter();
+    private final StripedCounter failures = new StripedCounter();
+    private final LogLinearHistogram timeToSatisfy = new LogLinearHistogram();
+    private final LogLinearHistogram evaluation = new LogLinearHistogram();
+    @NotNull
+    private ProbeStatistics snapshot(@NotNull String name) {
+      return new ProbeStatistics(name,
+                                 waits.sum(),
+                                 polls.sum(),
+                                 timeToSatisfy.getCount(),
+                                 timeouts.sum(),
+                                 cancellations.sum(),
+                                 failures.sum(),
+                                 timeToSatisfy.getPercentile(0.5),
+                                 timeToSatisfy.getPercentile(0.9),
+                                 timeToSatisfy.getPercentile(0.99),
+                                 timeToSatisfy.getMax(),
+                                 evaluation.getPercentile(0.5),
+                                 evaluation.getPercentile(0.99),
+                                 evaluation.getMax());
+    }
+  }
+}
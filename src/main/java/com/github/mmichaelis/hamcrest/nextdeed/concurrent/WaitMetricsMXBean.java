@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link WaitMetrics}.
+ *
+ * @since SINCE
+ */
+public interface WaitMetricsMXBean {
+
+  /**
+   * Number of waits started over all probes.
+   *
+   * @return waits
+   * @since SINCE
+   */
+  long getWaits();
+
+  /**
+   * Number of evaluations over all probes.
+   *
+   * @return polls
+   * @since SINCE
+   */
+  long getPolls();
+
+  /**
+   * Number of waits which succeeded over all probes.
+   *
+   * @return satisfied waits
+   * @since SINCE
+   */
+  long getSatisfied();
+
+  /**
+   * Number of waits which timed out over all probes.
+   *
+   * @return timed out waits
+   * @since SINCE
+   */
+  long getTimeouts();
+
+  /**
+   * Number of waits which got cancelled over all probes.
+   *
+   * @return cancelled waits
+   * @since SINCE
+   */
+  long getCancellations();
+
+  /**
+   * Number of waits which failed over all probes.
+   *
+   * @return failed waits
+   * @since SINCE
+   */
+  long getFailures();
+
+  /**
+   * Statistics per probe name.
+   *
+   * @return statistics by probe name
+   * @since SINCE
+   */
+  Map<String, ProbeStatistics> getProbes();
+
+  /**
+   * Reset all metrics.
+   *
+   * @since SINCE
+   */
+  void reset();
+}
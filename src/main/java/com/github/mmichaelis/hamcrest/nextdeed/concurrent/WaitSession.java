@@ -0,0 +1,826 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>
+ * State of one single wait, i. e. of one application of a {@link WaitFunction} to an item.
+ * A session is meant to be driven by a polling loop which alternately evaluates the
+ * delegate function and sleeps until the next evaluation is due. It does not sleep on its
+ * own so that the polling loop might either block the current thread or schedule the next
+ * evaluation on an executor.
+ * </p>
+ * <p>
+ * Sessions are not thread-safe. Nevertheless they may be handed over from one thread to
+ * another as long as any hand-over guarantees visibility (as for example executors do).
+ * </p>
+ *
+ * @param <T> input the wait function received
+ * @param <R> output the wait function provides
+ * @since SINCE
+ */
+final class WaitSession<T, R> {
+
+  /**
+   * Minimum time to sleep between polls.
+   *
+   * @since SINCE
+   */
+  private static final long MINIMUM_SLEEP_TIME_NANOS = TimeUnit.MICROSECONDS.toNanos(1L);
+
+  /**
+   * The wait function providing the configuration of this session.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final WaitFunction<T, R> waitFunction;
+  @NotNull
+  private final Function<T, R> delegateFunction;
+  @NotNull
+  private final Predicate<? super R> predicate;
+  @NotNull
+  private final Function<WaitTimeoutEvent<T, R>, R> onTimeoutFunction;
+  /**
+   * Wait function bound to the delegate function, predicate and timeout function of this
+   * session, as reported to listeners; {@code null} until required.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private WaitFunction<T, R> source;
+  /**
+   * Item to apply the delegate function to.
+   *
+   * @since SINCE
+   */
+  private final T item;
+  private final long startNanos;
+  private final long deadlineNanos;
+  private final long gracePeriodNanos;
+  @NotNull
+  private final PollingStrategy pollingStrategy;
+  /**
+   * Until when to busy-spin between evaluations.
+   *
+   * @since SINCE
+   */
+  private final long spinEndNanos;
+  /**
+   * Until when to park between evaluations.
+   *
+   * @since SINCE
+   */
+  private final long parkEndNanos;
+  /**
+   * Current park interval; doubled on each park.
+   *
+   * @since SINCE
+   */
+  private long parkIntervalNanos = MINIMUM_SLEEP_TIME_NANOS;
+  @Nullable
+  private final ProbeTrigger trigger;
+  /**
+   * Generation of the trigger observed right before the last evaluation.
+   *
+   * @since SINCE
+   */
+  private long triggerGeneration;
+  /**
+   * Maximum time a single evaluation might take; 0 for no limit.
+   *
+   * @since SINCE
+   */
+  private final long evaluationTimeoutNanos;
+  @Nullable
+  private final Hedging hedging;
+  @Nullable
+  private final Coalescing coalescing;
+  /**
+   * Function to apply on separate threads, i. e. the delegate function, coalesced if
+   * configured.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final Function<T, R> asyncFunction;
+  /**
+   * Listener of this wait combined with global listeners at session start.
+   *
+   * @since SINCE
+   */
+  @NotNull
+  private final ProbeListener listener;
+  /**
+   * Number of evaluations abandoned because they exceeded the evaluation timeout.
+   *
+   * @since SINCE
+   */
+  private int abandonedEvaluations;
+  /**
+   * Current delay between two polls in nanoseconds.
+   *
+   * @since SINCE
+   */
+  private long delay;
+  private long beforeEvaluationNanos;
+  private long afterEvaluationNanos;
+  private int polls;
+  private R lastResult;
+  /**
+   * Number of consecutive polls fulfilling the predicate up to the last evaluation.
+   *
+   * @since SINCE
+   */
+  private int streakPolls;
+  /**
+   * End of the first evaluation of the current streak.
+   *
+   * @since SINCE
+   */
+  private long streakStartNanos;
+  /**
+   * Most recent polls; {@code null} if no history is kept.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private final PollHistory<R> history;
+  @Nullable
+  private final PollRateLimiter rateLimiter;
+  /**
+   * Maximum number of evaluations; 0 for no limit.
+   *
+   * @since SINCE
+   */
+  private final int maxEvaluations;
+  /**
+   * Signals that the rate limiter did not permit another evaluation before the deadline,
+   * so that the next poll only needs to time out.
+   *
+   * @since SINCE
+   */
+  private boolean rateLimited;
+  /**
+   * Signals that a token of the rate limiter is reserved for the next evaluation.
+   *
+   * @since SINCE
+   */
+  private boolean tokenReserved;
+  /**
+   * Time at which the reserved token is free.
+   *
+   * @since SINCE
+   */
+  private long tokenNanos;
+  /**
+   * Time to sleep until the deferred evaluation; negative if no evaluation is deferred.
+   *
+   * @since SINCE
+   */
+  private long deferredNanos = -1L;
+  @Nullable
+  private final ExceptionPolicy exceptionPolicy;
+  /**
+   * Last exception ignored according to the exception policy; {@code null} if none.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private Throwable lastException;
+  /**
+   * Number of evaluations in a row which failed with an ignored exception.
+   *
+   * @since SINCE
+   */
+  private int consecutiveExceptions;
+  @Nullable
+  private final CircuitBreaker circuitBreaker;
+  private int longestStreakPolls;
+  private long longestStreakNanos;
+  /**
+   * Flight recorder event of this wait; {@code null} if not recorded or already committed.
+   *
+   * @since SINCE
+   */
+  @Nullable
+  private Object waitEvent;
+  /**
+   * If to emit flight recorder events per evaluation.
+   *
+   * @since SINCE
+   */
+  private final boolean recordEvaluations;
+
+  /**
+   * Start a new wait session. The session start time will be set to now.
+   *
+   * @param waitFunction wait function to provide configuration and timing
+   * @param item         item to apply the delegate function to
+   * @param budget       budget to clamp the timeout to; {@code null} for none
+   * @since SINCE
+   */
+  WaitSession(@NotNull WaitFunction<T, R> waitFunction, T item, @Nullable WaitBudget budget) {
+    this(waitFunction,
+         waitFunction.getDelegateFunction(),
+         waitFunction.getPredicate(),
+         waitFunction.getOnTimeoutFunction(),
+         item,
+         budget);
+  }
+
+  /**
+   * Start a new wait session for the given delegate function, predicate and timeout
+   * function, taking any other configuration from the given prototype. This spares
+   * binding a new wait function for each check; it is only bound once required by
+   * listeners, flight recorder events or on timeout.
+   *
+   * @param prototype         wait function to provide configuration and timing
+   * @param delegateFunction  function to query
+   * @param predicate         predicate the result needs to fulfill
+   * @param onTimeoutFunction function to call on timeout
+   * @param item              item to apply the delegate function to
+   * @param budget            budget to clamp the timeout to; {@code null} for none
+   * @since SINCE
+   */
+  WaitSession(@NotNull WaitFunction<T, R> prototype,
+              @NotNull Function<T, R> delegateFunction,
+              @NotNull Predicate<? super R> predicate,
+              @NotNull Function<WaitTimeoutEvent<T, R>, R> onTimeoutFunction,
+              T item,
+              @Nullable WaitBudget budget) {
+    this.waitFunction = requireNonNull(prototype, "prototype must not be null.");
+    this.delegateFunction = requireNonNull(delegateFunction, "delegateFunction must not be null.");
+    this.predicate = requireNonNull(predicate, "predicate must not be null.");
+    this.onTimeoutFunction =
+        requireNonNull(onTimeoutFunction, "onTimeoutFunction must not be null.");
+    this.item = item;
+    if (delegateFunction == prototype.getDelegateFunction()
+        && predicate == prototype.getPredicate()
+        && onTimeoutFunction == prototype.getOnTimeoutFunction()) {
+      source = prototype;
+    }
+    startNanos = waitFunction.nowNanos();
+    long timeoutNanos = waitFunction.getTimeoutNanos();
+    if (budget != null) {
+      timeoutNanos = Math.min(timeoutNanos, budget.remainingNanos());
+    }
+    // Deadline might overflow for huge timeouts, which is why any comparison is done on
+    // differences just as recommended for System.nanoTime().
+    deadlineNanos = startNanos + timeoutNanos;
+    gracePeriodNanos = waitFunction.getGracePeriodNanos();
+    pollingStrategy = waitFunction.getPollingStrategy();
+    spinEndNanos = startNanos + waitFunction.getSpinTimeNanos();
+    parkEndNanos = spinEndNanos + waitFunction.getParkTimeNanos();
+    trigger = waitFunction.getTrigger();
+    evaluationTimeoutNanos = waitFunction.getEvaluationTimeoutNanos();
+    hedging = waitFunction.getHedging();
+    coalescing = waitFunction.getCoalescing();
+    asyncFunction = (coalescing == null)
+                    ? delegateFunction
+                    : coalescing.asFunction(delegateFunction,
+                                            waitFunction.getClock());
+    listener = ProbeListeners.withGlobal(waitFunction.getListener());
+    // At first, wait some initial delay between checks.
+    delay = waitFunction.getInitialDelayNanos();
+    if (listener != ProbeListeners.noOp()) {
+      listener.onStart(source());
+    }
+    waitEvent = FlightRecorderEvents.beginWait();
+    recordEvaluations = FlightRecorderEvents.isEvaluationEnabled();
+    int historySize = waitFunction.getHistorySize();
+    history = (historySize > 0) ? new PollHistory<R>(historySize) : null;
+    rateLimiter = waitFunction.getRateLimiter();
+    maxEvaluations = waitFunction.getMaxEvaluations();
+    exceptionPolicy = waitFunction.getExceptionPolicy();
+    circuitBreaker = waitFunction.getCircuitBreaker();
+  }
+
+  /**
+   * Evaluate the delegate function once and validate the result.
+   *
+   * @return {@code true} if the result fulfills the predicate; {@code false} if not, if
+   * the evaluation exceeded the evaluation timeout, failed with an ignored exception or
+   * got deferred by the rate limiter
+   * @throws InterruptedException        if interrupted while waiting for the evaluation
+   * @throws CircuitBreakerOpenException if the circuit breaker does not permit the
+   *                                     evaluation
+   * @since SINCE
+   */
+  boolean evaluate() throws InterruptedException {
+    if (rateLimited) {
+      // No evaluation permitted before the deadline; time out without evaluating.
+      afterEvaluationNanos = waitFunction.nowNanos();
+      return false;
+    }
+    if (rateLimiter != null && !takeToken()) {
+      return false;
+    }
+    if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+      CircuitBreakerOpenException exception = circuitBreaker.openException();
+      commitWaitEvent(FlightRecorderEvents.FAILED);
+      listener.onFailure(source(), exception);
+      throw exception;
+    }
+    polls++;
+    if (trigger != null) {
+      triggerGeneration = trigger.generation();
+    }
+    Object evaluationEvent = recordEvaluations ? FlightRecorderEvents.beginEvaluation() : null;
+    beforeEvaluationNanos = waitFunction.nowNanos();
+    boolean matched;
+    try {
+      boolean completed = applyDelegateFunctionGuarded();
+      afterEvaluationNanos = waitFunction.nowNanos();
+      matched = completed && predicate.apply(lastResult);
+      if (completed && history != null) {
+        history.record(polls, beforeEvaluationNanos - startNanos,
+                       afterEvaluationNanos - beforeEvaluationNanos, matched, lastResult);
+      }
+      consecutiveExceptions = 0;
+    } catch (RuntimeException | Error e) {
+      if (exceptionPolicy == null || !exceptionPolicy.isIgnored(e)) {
+        commitWaitEvent(FlightRecorderEvents.FAILED);
+        listener.onFailure(source(), e);
+        throw e;
+      }
+      afterEvaluationNanos = waitFunction.nowNanos();
+      matched = false;
+      lastException = e;
+      consecutiveExceptions++;
+    }
+    if (evaluationEvent != null) {
+      FlightRecorderEvents.commitEvaluation(evaluationEvent, source(), polls, matched);
+    }
+    if (listener != ProbeListeners.noOp()) {
+      listener.onEvaluation(source(), afterEvaluationNanos - beforeEvaluationNanos, matched);
+    }
+    boolean satisfied = updateStreak(matched);
+    if (satisfied) {
+      if (listener != ProbeListeners.noOp()) {
+        listener.onSatisfied(source(), afterEvaluationNanos - startNanos);
+      }
+      commitWaitEvent(FlightRecorderEvents.SATISFIED);
+    }
+    return satisfied;
+  }
+
+  /**
+   * Track the streak of consecutive matching evaluations.
+   *
+   * @param matched if the last evaluation fulfilled the predicate
+   * @return {@code true} if the predicate held for as many polls and as long as required
+   * @since SINCE
+   */
+  private boolean updateStreak(boolean matched) {
+    if (!matched) {
+      streakPolls = 0;
+      return false;
+    }
+    if (streakPolls == 0) {
+      streakStartNanos = afterEvaluationNanos;
+    }
+    streakPolls++;
+    long streakNanos = afterEvaluationNanos - streakStartNanos;
+    if (streakPolls > longestStreakPolls) {
+      longestStreakPolls = streakPolls;
+    }
+    if (streakNanos > longestStreakNanos) {
+      longestStreakNanos = streakNanos;
+    }
+    return streakPolls >= waitFunction.getStablePolls()
+           && streakNanos >= waitFunction.getStableNanos();
+  }
+
+  /**
+   * Apply the delegate function and report the outcome to the circuit breaker, if any.
+   *
+   * @return {@code true} if the evaluation completed; {@code false} if it was abandoned
+   * @throws InterruptedException if interrupted while waiting for the evaluation
+   * @since SINCE
+   */
+  private boolean applyDelegateFunctionGuarded() throws InterruptedException {
+    if (circuitBreaker == null) {
+      return applyDelegateFunction();
+    }
+    boolean completed;
+    try {
+      completed = applyDelegateFunction();
+    } catch (RuntimeException | Error e) {
+      circuitBreaker.onFailure(e);
+      throw e;
+    }
+    if (completed) {
+      circuitBreaker.onSuccess();
+    } else {
+      circuitBreaker.onFailure(null);
+    }
+    return completed;
+  }
+
+  /**
+   * Apply the delegate function and remember its result. If an evaluation timeout or
+   * hedging is configured the function is applied on separate threads, which are
+   * interrupted and abandoned if they do not complete in time. The result of the previous
+   * evaluation is kept in that case. The same applies to a coalesced evaluation of another
+   * wait, which is joined until the deadline plus grace period at most.
+   *
+   * @return {@code true} if the evaluation completed; {@code false} if it was abandoned
+   * @throws InterruptedException if interrupted while waiting for the evaluation
+   * @since SINCE
+   */
+  private boolean applyDelegateFunction() throws InterruptedException {
+    if (evaluationTimeoutNanos <= 0L && hedging == null && coalescing == null) {
+      lastResult = delegateFunction.apply(item);
+      return true;
+    }
+    // Do not wait for the evaluation beyond the deadline plus grace period.
+    long timeoutNanos =
+        Math.max(0L, saturatedAdd(deadlineNanos - beforeEvaluationNanos, gracePeriodNanos));
+    if (evaluationTimeoutNanos <= 0L && hedging == null) {
+      assert coalescing != null : "Coalescing expected.";
+      try {
+        lastResult = coalescing.apply(delegateFunction, item,
+                                      waitFunction.getClock(), timeoutNanos);
+        return true;
+      } catch (TimeoutException e) {
+        // The joined evaluation did not complete in time: Treat it as abandoned.
+        abandonedEvaluations++;
+        return false;
+      }
+    }
+    if (evaluationTimeoutNanos > 0L) {
+      timeoutNanos = Math.min(timeoutNanos, evaluationTimeoutNanos);
+    }
+    if (hedging != null) {
+      try {
+        lastResult =
+            hedging.apply(asyncFunction, predicate, item, waitFunction.getClock(), timeoutNanos);
+        return true;
+      } catch (TimeoutException e) {
+        abandonedEvaluations++;
+        return false;
+      }
+    }
+    Future<R> future = VirtualThreads.sharedExecutor().submit(new Callable<R>() {
+      @Override
+      public R call() throws Exception {
+        return asyncFunction.apply(item);
+      }
+    });
+    try {
+      lastResult = future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      abandonedEvaluations++;
+      return false;
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      throw e;
+    }
+  }
+
+  /**
+   * Signals if the last evaluation ended after the deadline, if the maximum number of
+   * evaluations is reached or if the rate limiter did not permit another evaluation before
+   * the deadline.
+   *
+   * @return {@code true} if timed out
+   * @since SINCE
+   */
+  boolean isTimedOut() {
+    if (deferredNanos >= 0L) {
+      return false;
+    }
+    return rateLimited
+           || (maxEvaluations > 0 && polls >= maxEvaluations)
+           || afterEvaluationNanos - deadlineNanos > 0L;
+  }
+
+  /**
+   * Hand over the timeout to the timeout function of the wait function.
+   *
+   * @return result as provided by timeout function
+   * @since SINCE
+   */
+  R timeout() {
+    return fireTimeout(event(afterEvaluationNanos - startNanos, false));
+  }
+
+  /**
+   * Hand over the cancellation to the timeout function of the wait function.
+   *
+   * @return result as provided by timeout function
+   * @since SINCE
+   */
+  R cancel() {
+    return fireTimeout(event(waitFunction.nowNanos() - startNanos, true));
+  }
+
+  @NotNull
+  private WaitTimeoutEvent<T, R> event(long consumedNanos, boolean cancelled) {
+    return WaitTimeoutEventImpl.builder(source())
+        .consumed(consumedNanos, TimeUnit.NANOSECONDS)
+        .item(item)
+        .lastResult(lastResult)
+        .cancelled(cancelled)
+        .longestStreak(longestStreakPolls, longestStreakNanos)
+        .history(getHistory())
+        .lastException(lastException)
+        .build();
+  }
+
+  @NotNull
+  private List<PollRecord<R>> getHistory() {
+    return (history == null) ? Collections.<PollRecord<R>>emptyList() : history.toList();
+  }
+
+  private R fireTimeout(@NotNull WaitTimeoutEvent<T, R> event) {
+    commitWaitEvent(event.isCancelled()
+                    ? FlightRecorderEvents.CANCELLED
+                    : FlightRecorderEvents.TIMED_OUT);
+    listener.onTimeout(event);
+    return onTimeoutFunction.apply(event);
+  }
+
+  /**
+   * Wait function bound to the delegate function, predicate and timeout function of this
+   * session. Bound on first use.
+   *
+   * @return bound wait function
+   * @since SINCE
+   */
+  @NotNull
+  private WaitFunction<T, R> source() {
+    if (source == null) {
+      source = new WaitFunction<>(waitFunction, delegateFunction, predicate, onTimeoutFunction);
+    }
+    return source;
+  }
+
+  private void commitWaitEvent(@NotNull String outcome) {
+    if (waitEvent != null) {
+      FlightRecorderEvents.commitWait(waitEvent,
+                                      source(),
+                                      item,
+                                      deadlineNanos - startNanos,
+                                      outcome,
+                                      polls);
+      waitEvent = null;
+    }
+  }
+
+  /**
+   * <p>
+   * Calculates the time to sleep until the next poll and the delay for the poll after
+   * according to the polling strategy. By default the polling interval decreases over time
+   * to give the system under test a chance to actually reach the desired state.
+   * </p>
+   * <p>
+   * If configured, the session starts with busy-spinning (signalled by a sleep time of 0)
+   * and parking for short increasing intervals, before the polling strategy takes over.
+   * </p>
+   *
+   * @return time to sleep in nanoseconds; 0 to busy-spin
+   * @since SINCE
+   */
+  long nextSleepTimeNanos() {
+    if (deferredNanos >= 0L) {
+      long sleepTimeNanos = deferredNanos;
+      deferredNanos = -1L;
+      if (listener != ProbeListeners.noOp()) {
+        listener.onSleep(source(), sleepTimeNanos);
+      }
+      return sleepTimeNanos;
+    }
+    long sleepTimeNanos = calculateSleepTimeNanos();
+    if (consecutiveExceptions > 0) {
+      sleepTimeNanos = backOff(sleepTimeNanos);
+    }
+    if (rateLimiter != null) {
+      sleepTimeNanos = limitRate(sleepTimeNanos);
+    }
+    if (listener != ProbeListeners.noOp()) {
+      listener.onSleep(source(), sleepTimeNanos);
+    }
+    return sleepTimeNanos;
+  }
+
+  /**
+   * Prolong the sleep time after consecutive ignored exceptions, but not much longer than
+   * until the deadline.
+   *
+   * @param sleepTimeNanos time to sleep according to the polling strategy
+   * @return prolonged time to sleep
+   * @since SINCE
+   */
+  private long backOff(long sleepTimeNanos) {
+    assert exceptionPolicy != null : "Exception policy expected.";
+    long backoffNanos =
+        exceptionPolicy.backoffNanos(Math.max(MINIMUM_SLEEP_TIME_NANOS, sleepTimeNanos),
+                                     consecutiveExceptions);
+    long maximumSleepTimeNanos =
+        saturatedAdd(deadlineNanos - afterEvaluationNanos, gracePeriodNanos);
+    return Math.max(sleepTimeNanos, Math.min(backoffNanos, maximumSleepTimeNanos));
+  }
+
+  /**
+   * Defer the next poll until the rate limiter permits it, but not beyond the deadline.
+   *
+   * @param sleepTimeNanos time to sleep according to the polling strategy
+   * @return time to sleep until the reserved evaluation; time until the deadline if none
+   * could be reserved
+   * @since SINCE
+   */
+  private long limitRate(long sleepTimeNanos) {
+    assert rateLimiter != null : "Rate limiter expected.";
+    long timeLeftNanos = Math.max(0L, deadlineNanos - afterEvaluationNanos);
+    long reservedNanos =
+        rateLimiter.reserveNanos(afterEvaluationNanos, sleepTimeNanos, timeLeftNanos);
+    if (reservedNanos < 0L) {
+      rateLimited = true;
+      return timeLeftNanos;
+    }
+    tokenReserved = true;
+    tokenNanos = afterEvaluationNanos + reservedNanos;
+    return reservedNanos;
+  }
+
+  /**
+   * Take the token reserved for this evaluation. If none is reserved yet, as for the first
+   * evaluation, reserve one. If the token is not free yet, for example because the trigger
+   * fired early, defer the evaluation until it is free.
+   *
+   * @return {@code true} if the evaluation may start now; {@code false} if it got deferred
+   * @since SINCE
+   */
+  private boolean takeToken() {
+    assert rateLimiter != null : "Rate limiter expected.";
+    long nowNanos = waitFunction.nowNanos();
+    if (!tokenReserved) {
+      long timeLeftNanos = Math.max(0L, deadlineNanos - nowNanos);
+      long reservedNanos = rateLimiter.reserveNanos(nowNanos, 0L, timeLeftNanos);
+      if (reservedNanos < 0L) {
+        rateLimited = true;
+        defer(nowNanos, timeLeftNanos);
+        return false;
+      }
+      tokenReserved = true;
+      tokenNanos = nowNanos + reservedNanos;
+    }
+    long earlyNanos = tokenNanos - nowNanos;
+    if (earlyNanos > 0L) {
+      defer(nowNanos, earlyNanos);
+      return false;
+    }
+    tokenReserved = false;
+    return true;
+  }
+
+  /**
+   * Defer the next evaluation. The trigger generation is updated, so that a trigger which
+   * fired before does not cut the sleep short again.
+   *
+   * @param nowNanos   current time
+   * @param sleepNanos time to sleep until the next evaluation
+   * @since SINCE
+   */
+  private void defer(long nowNanos, long sleepNanos) {
+    afterEvaluationNanos = nowNanos;
+    deferredNanos = sleepNanos;
+    if (trigger != null) {
+      triggerGeneration = trigger.generation();
+    }
+  }
+
+  private long calculateSleepTimeNanos() {
+    if (afterEvaluationNanos - spinEndNanos < 0L) {
+      return 0L;
+    }
+
+    // Never sleep much longer than until the deadline.
+    long timeLeftNanos = deadlineNanos - afterEvaluationNanos;
+    long maximumSleepTimeNanos = saturatedAdd(timeLeftNanos, gracePeriodNanos);
+
+    if (afterEvaluationNanos - parkEndNanos < 0L) {
+      long parkTimeNanos = Math.min(parkIntervalNanos, parkEndNanos - afterEvaluationNanos);
+      parkIntervalNanos = saturatedAdd(parkIntervalNanos, parkIntervalNanos);
+      return Math.max(MINIMUM_SLEEP_TIME_NANOS, Math.min(parkTimeNanos, maximumSleepTimeNanos));
+    }
+
+    // Leave at least as much time between two checks as the check itself took.
+    long lastDuration = afterEvaluationNanos - beforeEvaluationNanos;
+    if (lastDuration > delay) {
+      delay = lastDuration;
+    }
+
+    // Wait, but not much longer than until the deadline and at least a microsecond.
+    long sleepTimeNanos = Math.max(MINIMUM_SLEEP_TIME_NANOS,
+                                   Math.min(delay, maximumSleepTimeNanos));
+
+    delay = Math.max(0L, pollingStrategy.nextDelayNanos(polls, delay, lastDuration, timeLeftNanos));
+    return sleepTimeNanos;
+  }
+
+  /**
+   * Generation of the trigger observed right before the last evaluation. Used to detect
+   * if the trigger fired while evaluating.
+   *
+   * @return generation; 0 if no trigger is configured
+   * @since SINCE
+   */
+  long getTriggerGeneration() {
+    return triggerGeneration;
+  }
+
+  /**
+   * Result of the last evaluation.
+   *
+   * @return result; {@code null} if not evaluated yet or if the delegate function returned
+   * {@code null}
+   * @since SINCE
+   */
+  R getLastResult() {
+    return lastResult;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hash", Integer.toHexString(System.identityHashCode(this)))
+        .add("abandonedEvaluations", abandonedEvaluations)
+        .add("afterEvaluationNanos", afterEvaluationNanos)
+        .add("beforeEvaluationNanos", beforeEvaluationNanos)
+        .add("consecutiveExceptions", consecutiveExceptions)
+        .add("deadlineNanos", deadlineNanos)
+        .add("deferredNanos", deferredNanos)
+        .add("delay", delay)
+        .add("history", history)
+        .add("item", item)
+        .add("lastException", lastException)
+        .add("lastResult", lastResult)
+        .add("listener", listener)
+        .add("longestStreakNanos", longestStreakNanos)
+        .add("longestStreakPolls", longestStreakPolls)
+        .add("polls", polls)
+        .add("rateLimited", rateLimited)
+        .add("startNanos", startNanos)
+        .add("streakPolls", streakPolls)
+        .add("streakStartNanos", streakStartNanos)
+        .add("tokenNanos", tokenNanos)
+        .add("tokenReserved", tokenReserved)
+        .add("triggerGeneration", triggerGeneration)
+        .add("waitFunction", waitFunction)
+        .toString();
+  }
+
+  /**
+   * Adds two values, returning {@link Long#MAX_VALUE} or {@link Long#MIN_VALUE} instead
+   * of overflowing.
+   *
+   * @since SINCE
+   */
+  private static long saturatedAdd(long a, long b) {
+    long result = a + b;
+    // Overflow iff both arguments have the opposite sign of the result.
+    if (((a ^ result) & (b ^ result)) < 0L) {
+      return result < 0L ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+    return result;
+  }
+}
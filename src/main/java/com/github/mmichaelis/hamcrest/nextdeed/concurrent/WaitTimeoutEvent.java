@@ -17,6 +17,9 @@
 package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
 
 /**
  * Event when a WaitFunction times out.
@@ -42,6 +45,14 @@ public interface WaitTimeoutEvent<T, R> {
    */
   long getConsumedMs();
 
+  /**
+   * Get the consumed nanoseconds before the timeout occurred.
+   *
+   * @return consumed time in nanoseconds
+   * @since SINCE
+   */
+  long getConsumedNanos();
+
   /**
    * Get item the delegate function got applied to.
    *
@@ -59,6 +70,58 @@ public interface WaitTimeoutEvent<T, R> {
    */
   R getLastResult();
 
+  /**
+   * Signals that the wait did not time out but got cancelled before, for example because
+   * the waiting thread got interrupted or the executor running the wait shut down. The
+   * interrupt status of the waiting thread is preserved in that case.
+   *
+   * @return {@code true} if cancelled; {@code false} if timed out
+   * @since SINCE
+   */
+  boolean isCancelled();
+
+  /**
+   * Get the number of polls of the longest streak in which the predicate held
+   * continuously. Only meaningful if the wait requires the predicate to be stable, as
+   * otherwise the first match ends the wait.
+   *
+   * @return number of polls; 0 if the predicate never held
+   * @since SINCE
+   */
+  int getLongestStreakPolls();
+
+  /**
+   * Get the duration of the longest streak in which the predicate held continuously,
+   * measured from its first to its last matching evaluation.
+   *
+   * @return duration in nanoseconds; 0 if the predicate never held or held only once in a
+   * row
+   * @since SINCE
+   */
+  long getLongestStreakNanos();
+
+  /**
+   * Get the most recent polls of the wait including their results and timing. Allows to
+   * tell if the result was moving towards the target, oscillating or stuck.
+   *
+   * @return polls, oldest first; empty if no history was kept
+   * @see WaitBuilder#withHistorySize(int)
+   * @since SINCE
+   */
+  @NotNull
+  List<PollRecord<R>> getHistory();
+
+  /**
+   * Get the last exception thrown while evaluating, which got ignored according to the
+   * exception policy of the wait.
+   *
+   * @return exception; {@code null} if none
+   * @see WaitBuilder#ignoringExceptions(Class)
+   * @since SINCE
+   */
+  @Nullable
+  Throwable getLastException();
+
   /**
    * Describe the timeout. Convenient for use in exception messages.
    *
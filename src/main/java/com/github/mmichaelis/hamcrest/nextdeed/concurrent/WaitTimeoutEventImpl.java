@@ -19,9 +19,12 @@ package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
 import static java.util.Objects.requireNonNull;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
@@ -34,18 +37,50 @@ import java.util.concurrent.TimeUnit;
 public class WaitTimeoutEventImpl<T, R> implements WaitTimeoutEvent<T, R> {
 
   private final WaitFunction<T, R> source;
-  private final long consumedMs;
+  private final long consumedNanos;
   private final T item;
   private final R lastResult;
+  private final boolean cancelled;
+  private final int longestStreakPolls;
+  private final long longestStreakNanos;
+  private final ImmutableList<PollRecord<R>> history;
+  @Nullable
+  private final Throwable lastException;
 
   public WaitTimeoutEventImpl(@NotNull WaitFunction<T, R> source,
                               long consumedMs,
                               T item,
                               R lastResult) {
-    this.source = requireNonNull(source, "source must not be null.");
-    this.consumedMs = consumedMs;
-    this.item = item;
-    this.lastResult = lastResult;
+    this(builder(source)
+             .consumed(consumedMs, TimeUnit.MILLISECONDS)
+             .item(item)
+             .lastResult(lastResult));
+  }
+
+  private WaitTimeoutEventImpl(@NotNull Builder<T, R> builder) {
+    source = builder.source;
+    consumedNanos = builder.consumedNanos;
+    item = builder.item;
+    lastResult = builder.lastResult;
+    cancelled = builder.cancelled;
+    longestStreakPolls = builder.longestStreakPolls;
+    longestStreakNanos = builder.longestStreakNanos;
+    history = builder.history;
+    lastException = builder.lastException;
+  }
+
+  /**
+   * Builder for an event of the given wait function.
+   *
+   * @param source wait function which timed out
+   * @param <T>    type of the item the delegate function got applied to
+   * @param <R>    type of the results
+   * @return builder
+   * @since SINCE
+   */
+  @NotNull
+  static <T, R> Builder<T, R> builder(@NotNull WaitFunction<T, R> source) {
+    return new Builder<>(source);
   }
 
   @SuppressWarnings("MethodReturnOfConcreteClass")
@@ -57,7 +92,12 @@ public class WaitTimeoutEventImpl<T, R> implements WaitTimeoutEvent<T, R> {
 
   @Override
   public long getConsumedMs() {
-    return consumedMs;
+    return TimeUnit.NANOSECONDS.toMillis(consumedNanos);
+  }
+
+  @Override
+  public long getConsumedNanos() {
+    return consumedNanos;
   }
 
   @Override
@@ -70,11 +110,68 @@ public class WaitTimeoutEventImpl<T, R> implements WaitTimeoutEvent<T, R> {
     return lastResult;
   }
 
-  @SuppressWarnings("LocalVariableOfConcreteClass")
+  @Override
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override
+  public int getLongestStreakPolls() {
+    return longestStreakPolls;
+  }
+
+  @Override
+  public long getLongestStreakNanos() {
+    return longestStreakNanos;
+  }
+
+  @NotNull
+  @Override
+  public List<PollRecord<R>> getHistory() {
+    return history;
+  }
+
+  @Nullable
+  @Override
+  public Throwable getLastException() {
+    return lastException;
+  }
+
   @Override
   @NotNull
   public String describe() {
+    String description = describeWithoutStreak();
+    if (source.isStabilityRequired()) {
+      description = String.format("%s (longest stable streak: %d polls within %d %s)",
+                                  description,
+                                  longestStreakPolls,
+                                  TimeUnit.NANOSECONDS.toMillis(longestStreakNanos),
+                                  TimeUnit.MILLISECONDS.toString().toLowerCase(Locale.ROOT));
+    }
+    if (lastException != null) {
+      description = String.format("%s (last exception: %s)", description, lastException);
+    }
+    return description + PollHistory.describe(history);
+  }
+
+  @SuppressWarnings("LocalVariableOfConcreteClass")
+  @NotNull
+  private String describeWithoutStreak() {
     WaitFunction<T, R> source = getSource();
+    if (cancelled) {
+      return String.format(
+          "%s applied to %s got cancelled before fulfilling %s within %d %s (consumed %d %s)"
+          + " and was: %s",
+          source.getDelegateFunction(),
+          getItem(),
+          source.getPredicate(),
+          source.getTimeout(),
+          source.getTimeoutTimeUnit().toString().toLowerCase(Locale.ROOT),
+          getConsumedMs(),
+          TimeUnit.MILLISECONDS.toString().toLowerCase(Locale.ROOT),
+          getLastResult()
+      );
+    }
     return String.format(
         "%s applied to %s did not fulfill %s within %d %s (consumed %d %s) but was: %s",
         source.getDelegateFunction(),
@@ -92,10 +189,120 @@ public class WaitTimeoutEventImpl<T, R> implements WaitTimeoutEvent<T, R> {
   public String toString() {
     return MoreObjects.toStringHelper(this)
         .add("hash", Integer.toHexString(System.identityHashCode(this)))
-        .add("consumedMs", consumedMs)
+        .add("cancelled", cancelled)
+        .add("consumedMs", getConsumedMs())
+        .add("consumedNanos", consumedNanos)
+        .add("history", history)
         .add("item", item)
+        .add("lastException", lastException)
         .add("lastResult", lastResult)
+        .add("longestStreakNanos", longestStreakNanos)
+        .add("longestStreakPolls", longestStreakPolls)
         .add("source", source)
         .toString();
   }
+
+  /**
+   * Builder for timeout events. Any detail not set defaults to none.
+   *
+   * @since SINCE
+   */
+  static final class Builder<T, R> {
+
+    @NotNull
+    private final WaitFunction<T, R> source;
+    private long consumedNanos;
+    private T item;
+    private R lastResult;
+    private boolean cancelled;
+    private int longestStreakPolls;
+    private long longestStreakNanos;
+    @NotNull
+    private ImmutableList<PollRecord<R>> history = ImmutableList.of();
+    @Nullable
+    private Throwable lastException;
+
+    private Builder(@NotNull WaitFunction<T, R> source) {
+      this.source = requireNonNull(source, "source must not be null.");
+    }
+
+    /**
+     * @param consumedTime     consumed time
+     * @param consumedTimeUnit unit of consumed time
+     * @return self-reference
+     */
+    @NotNull
+    Builder<T, R> consumed(long consumedTime, @NotNull TimeUnit consumedTimeUnit) {
+      consumedNanos = requireNonNull(consumedTimeUnit, "consumedTimeUnit must not be null.")
+          .toNanos(consumedTime);
+      return this;
+    }
+
+    /**
+     * @param item item the delegate function got applied to
+     * @return self-reference
+     */
+    @NotNull
+    Builder<T, R> item(T item) {
+      this.item = item;
+      return this;
+    }
+
+    /**
+     * @param lastResult last result which did not match
+     * @return self-reference
+     */
+    @NotNull
+    Builder<T, R> lastResult(R lastResult) {
+      this.lastResult = lastResult;
+      return this;
+    }
+
+    /**
+     * @param cancelled {@code true} if the wait got cancelled; {@code false} if it timed out
+     * @return self-reference
+     */
+    @NotNull
+    Builder<T, R> cancelled(boolean cancelled) {
+      this.cancelled = cancelled;
+      return this;
+    }
+
+    /**
+     * @param polls number of polls of the longest matching streak
+     * @param nanos duration of the longest matching streak in nanoseconds
+     * @return self-reference
+     */
+    @NotNull
+    Builder<T, R> longestStreak(int polls, long nanos) {
+      longestStreakPolls = polls;
+      longestStreakNanos = nanos;
+      return this;
+    }
+
+    /**
+     * @param history most recent polls, oldest first
+     * @return self-reference
+     */
+    @NotNull
+    Builder<T, R> history(@NotNull List<PollRecord<R>> history) {
+      this.history = ImmutableList.copyOf(requireNonNull(history, "history must not be null."));
+      return this;
+    }
+
+    /**
+     * @param lastException last exception ignored while evaluating; {@code null} if none
+     * @return self-reference
+     */
+    @NotNull
+    Builder<T, R> lastException(@Nullable Throwable lastException) {
+      this.lastException = lastException;
+      return this;
+    }
+
+    @NotNull
+    WaitTimeoutEventImpl<T, R> build() {
+      return new WaitTimeoutEventImpl<>(this);
+    }
+  }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests {@link AllOfMatcher}.
+ *
+ * @since SINCE
+ */
+public class AllOfMatcherTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void match_if_all_matchers_match() throws Exception {
+    Matcher<Integer> matcher = allOf(greaterThan(1), lessThan(3));
+
+    errorCollector.checkThat("Matches 2.", matcher.matches(2), equalTo(true));
+    errorCollector.checkThat("Does not match 3.", matcher.matches(3), equalTo(false));
+  }
+
+  @Test
+  public void describe_all_matchers() throws Exception {
+    Matcher<Integer> matcher = allOf(greaterThan(1), lessThan(3));
+
+    errorCollector.checkThat(StringDescription.toString(matcher),
+                             equalTo("all of:\n"
+                                     + "  - a value greater than <1>\n"
+                                     + "  - a value less than <3>"));
+  }
+
+  @Test
+  public void describe_all_failed_matchers_on_mismatch() throws Exception {
+    Matcher<Integer> matcher = allOf(greaterThan(8), lessThan(10), lessThan(0));
+    StringDescription description = new StringDescription();
+
+    matcher.describeMismatch(7, description);
+
+    errorCollector.checkThat(description.toString(), containsString("2 of 3 failed:"));
+    errorCollector.checkThat(description.toString(),
+                             containsString("a value greater than <8>: <7> was less than <8>"));
+    errorCollector.checkThat(description.toString(),
+                             containsString("a value less than <0>: <7> was greater than <0>"));
+    errorCollector.checkThat(description.toString(), not(containsString("<10>")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void reject_empty_matchers() throws Exception {
+    new AllOfMatcher<>(Collections.<Matcher<Object>>emptyList());
+  }
+
+  @SafeVarargs
+  private static Matcher<Integer> allOf(Matcher<? super Integer>... matchers) {
+    return new AllOfMatcher<>(Arrays.asList(matchers));
+  }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static com.github.mmichaelis.hamcrest.nextdeed.glue.DescribedFunction.describe;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Predicates;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TestName;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests {@link AsyncWaitFunction}.
+ *
+ * @since SINCE
+ */
+public class AsyncWaitFunctionTest {
+
+  @Rule
+  public TestName testName = new TestName();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ScheduledExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    executor = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void complete_future_on_eventual_match() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    Function<Void, ListenableFuture<Integer>> asyncFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            return calls.incrementAndGet();
+          }
+        })
+            .toFulfill(Predicates.equalTo(3))
+            .within(10L, TimeUnit.SECONDS)
+            .getAsync(executor);
+
+    ListenableFuture<Integer> future = asyncFunction.apply(null);
+
+    assertThat("Future provides matching result.",
+               future.get(10L, TimeUnit.SECONDS),
+               Matchers.equalTo(3));
+  }
+
+  @Test
+  public void fail_future_on_timeout() throws Exception {
+    String functionName = "Ipsum";
+    Function<String, ListenableFuture<String>> asyncFunction =
+        WaitFunction.waitFor(describe(new Function<String, String>() {
+          @Override
+          public String apply(String input) {
+            return testName.getMethodName();
+          }
+        }).as(functionName))
+            .toFulfill(Predicates.<String>alwaysFalse())
+            .withinMs(0L)
+            .getAsync(executor);
+
+    ListenableFuture<String> future = asyncFunction.apply("Lorem");
+
+    expectedException.expect(ExecutionException.class);
+    expectedException.expectCause(Matchers.<Throwable>instanceOf(WaitTimeoutException.class));
+    expectedException.expectMessage(functionName);
+
+    future.get(10L, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void complete_future_with_result_of_timeout_function() throws Exception {
+    Function<Void, ListenableFuture<String>> asyncFunction =
+        WaitFunction.waitFor(new Function<Void, String>() {
+          @Override
+          public String apply(Void input) {
+            return "Lorem";
+          }
+        })
+            .toFulfill(Predicates.<String>alwaysFalse())
+            .withinMs(0L)
+            .onTimeout(new Function<WaitTimeoutEvent<Void, String>, String>() {
+              @Override
+              public String apply(WaitTimeoutEvent<Void, String> input) {
+                return testName.getMethodName();
+              }
+            })
+            .getAsync(executor);
+
+    assertThat("Future provides result of timeout function.",
+               asyncFunction.apply(null).get(10L, TimeUnit.SECONDS),
+               Matchers.equalTo(testName.getMethodName()));
+  }
+
+  @Test
+  public void time_out_on_virtual_clock_without_waiting() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    Function<Void, ListenableFuture<String>> asyncFunction =
+        WaitFunction.waitFor(new Function<Void, String>() {
+          @Override
+          public String apply(Void input) {
+            return "Lorem";
+          }
+        })
+            .toFulfill(Predicates.<String>alwaysFalse())
+            .within(1L, TimeUnit.HOURS)
+            .withClock(clock)
+            .onTimeout(new Function<WaitTimeoutEvent<Void, String>, String>() {
+              @Override
+              public String apply(WaitTimeoutEvent<Void, String> input) {
+                return testName.getMethodName();
+              }
+            })
+            .getAsync(executor);
+
+    assertThat("Timed out within real seconds.",
+               asyncFunction.apply(null).get(10L, TimeUnit.SECONDS),
+               Matchers.equalTo(testName.getMethodName()));
+    assertThat("Virtual clock advanced beyond timeout.",
+               clock.read(), Matchers.greaterThanOrEqualTo(TimeUnit.HOURS.toNanos(1L)));
+  }
+
+  @Test
+  public void stop_polling_on_cancel() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    Function<Void, ListenableFuture<Integer>> asyncFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            return calls.incrementAndGet();
+          }
+        })
+            .toFulfill(Predicates.<Integer>alwaysFalse())
+            .withInitialDelayMs(10L)
+            .deceleratePollingBy(1d)
+            .within(10L, TimeUnit.SECONDS)
+            .getAsync(executor);
+
+    ListenableFuture<Integer> future = asyncFunction.apply(null);
+    future.cancel(false);
+    executor.shutdown();
+    executor.awaitTermination(10L, TimeUnit.SECONDS);
+
+    assertThat("At most one evaluation after cancellation.", calls.get(),
+               Matchers.lessThanOrEqualTo(1));
+  }
+
+  @Test
+  public void cancel_removes_pending_poll() throws Exception {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    scheduler.setRemoveOnCancelPolicy(true);
+    final CountDownLatch evaluated = new CountDownLatch(1);
+    try {
+      ListenableFuture<Void> future =
+          WaitFunction.waitFor(new Function<Void, Void>() {
+            @Override
+            public Void apply(Void input) {
+              evaluated.countDown();
+              return null;
+            }
+          })
+              .toFulfill(Predicates.alwaysFalse())
+              .withInitialDelay(1L, TimeUnit.HOURS)
+              .within(2L, TimeUnit.HOURS)
+              .getAsync(scheduler)
+              .apply(null);
+      assertThat("First evaluation done.", evaluated.await(10L, TimeUnit.SECONDS),
+                 Matchers.is(true));
+      // Wait until the next poll got scheduled.
+      while (scheduler.getQueue().isEmpty() && !future.isDone()) {
+        Thread.yield();
+      }
+
+      future.cancel(true);
+
+      assertThat("Pending poll removed from scheduler.", scheduler.getQueue(),
+                 Matchers.empty());
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test
+  public void pool_threads_do_not_keep_budget_of_async_wait() throws Exception {
+    ListenableFuture<String> future;
+    try (WaitBudget ignored = WaitBudget.open(50L, TimeUnit.MILLISECONDS)) {
+      // First task lazily creates the pool thread within the budget.
+      future = WaitFunction.waitFor(Functions.constant("Lorem"))
+          .toFulfill(Predicates.<String>alwaysFalse())
+          .within(1L, TimeUnit.HOURS)
+          .onTimeout(new Function<WaitTimeoutEvent<Object, String>, String>() {
+            @Override
+            public String apply(WaitTimeoutEvent<Object, String> input) {
+              return testName.getMethodName();
+            }
+          })
+          .getAsync(executor)
+          .apply(null);
+    }
+
+    assertThat("Async wait clamped to captured budget.",
+               future.get(10L, TimeUnit.SECONDS),
+               Matchers.equalTo(testName.getMethodName()));
+    assertThat("Pool thread has no budget.",
+               executor.submit(new Callable<WaitBudget>() {
+                 @Override
+                 public WaitBudget call() throws Exception {
+                   return WaitBudget.current();
+                 }
+               }).get(10L, TimeUnit.SECONDS),
+               Matchers.nullValue());
+  }
+
+  @Test
+  public void cancel_session_on_interrupt_when_polling_on_scheduler() throws Exception {
+    final Thread caller = Thread.currentThread();
+    final AtomicReference<WaitTimeoutEvent<Void, String>> event = new AtomicReference<>();
+    Function<Void, String> waitFunction =
+        WaitFunction.waitFor(new Function<Void, String>() {
+          @Override
+          public String apply(Void input) {
+            caller.interrupt();
+            return testName.getMethodName();
+          }
+        })
+            .toFulfill(Predicates.<String>alwaysFalse())
+            .within(1L, TimeUnit.HOURS)
+            .onTimeout(new Function<WaitTimeoutEvent<Void, String>, String>() {
+              @Override
+              public String apply(WaitTimeoutEvent<Void, String> input) {
+                event.set(input);
+                return "cancelled";
+              }
+            })
+            .pollingOn(executor)
+            .get();
+
+    String result;
+    try {
+      result = waitFunction.apply(null);
+    } finally {
+      assertThat("Interrupt status preserved.", Thread.interrupted(), Matchers.is(true));
+    }
+
+    assertThat("Result of timeout function returned.", result, Matchers.equalTo("cancelled"));
+    assertThat("Event signals cancellation.", event.get().isCancelled(), Matchers.is(true));
+    assertThat("Event contains last result.", event.get().getLastResult(),
+               Matchers.equalTo(testName.getMethodName()));
+  }
+
+  @Test
+  public void reject_evaluation_timeout_on_scheduler() throws Exception {
+    expectedException.expect(IllegalStateException.class);
+
+    WaitFunction.waitFor(Functions.constant(1))
+        .toFulfill(Predicates.alwaysTrue())
+        .within(1L, TimeUnit.MINUTES)
+        .and()
+        .withEvaluationTimeout(1L, TimeUnit.SECONDS)
+        .getAsync(executor);
+  }
+
+  @Test
+  public void reject_hedging_on_scheduler() throws Exception {
+    expectedException.expect(IllegalStateException.class);
+
+    WaitFunction.waitFor(Functions.constant(1))
+        .toFulfill(Predicates.alwaysTrue())
+        .within(1L, TimeUnit.MINUTES)
+        .and()
+        .hedgeAfter(1L, TimeUnit.SECONDS, 2)
+        .getAsync(executor);
+  }
+
+  @Test
+  public void reject_blocking_evaluations_when_polling_on_scheduler() throws Exception {
+    expectedException.expect(IllegalStateException.class);
+
+    WaitFunction.waitFor(Functions.constant(1))
+        .toFulfill(Predicates.alwaysTrue())
+        .within(1L, TimeUnit.MINUTES)
+        .and()
+        .coalesceEvaluations(1L, TimeUnit.SECONDS)
+        .pollingOn(executor)
+        .get();
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TestName;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link CircuitBreaker}.
+ *
+ * @since SINCE
+ */
+public class CircuitBreakerTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TestName testName = new TestName();
+
+  @Test
+  public void open_at_failure_threshold() throws Exception {
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker("db", new VirtualClock(), 2, 1L, TimeUnit.MINUTES);
+
+    circuitBreaker.onFailure(null);
+    errorCollector.checkThat("Closed below threshold.", circuitBreaker.tryAcquire(),
+                             equalTo(true));
+    circuitBreaker.onFailure(null);
+    errorCollector.checkThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.OPEN));
+    errorCollector.checkThat("Fail fast while open.", circuitBreaker.tryAcquire(),
+                             equalTo(false));
+  }
+
+  @Test
+  public void success_resets_failure_count() throws Exception {
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker("db", new VirtualClock(), 2, 1L, TimeUnit.MINUTES);
+
+    circuitBreaker.onFailure(null);
+    circuitBreaker.onSuccess();
+    circuitBreaker.onFailure(null);
+
+    errorCollector.checkThat("Failures not consecutive.", circuitBreaker.getState(),
+                             equalTo(CircuitBreaker.State.CLOSED));
+  }
+
+  @Test
+  public void let_one_trial_through_after_cool_off() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CircuitBreaker circuitBreaker = new CircuitBreaker("db", clock, 1, 1L, TimeUnit.MINUTES);
+    circuitBreaker.onFailure(null);
+
+    clock.advance(1L, TimeUnit.MINUTES);
+
+    errorCollector.checkThat("Trial granted.", circuitBreaker.tryAcquire(), equalTo(true));
+    errorCollector.checkThat(circuitBreaker.getState(),
+                             equalTo(CircuitBreaker.State.HALF_OPEN));
+    errorCollector.checkThat("Only one trial.", circuitBreaker.tryAcquire(), equalTo(false));
+  }
+
+  @Test
+  public void close_on_successful_trial() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CircuitBreaker circuitBreaker = new CircuitBreaker("db", clock, 1, 1L, TimeUnit.MINUTES);
+    circuitBreaker.onFailure(null);
+    clock.advance(1L, TimeUnit.MINUTES);
+    circuitBreaker.tryAcquire();
+
+    circuitBreaker.onSuccess();
+
+    errorCollector.checkThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+    errorCollector.checkThat(circuitBreaker.tryAcquire(), equalTo(true));
+  }
+
+  @Test
+  public void reopen_on_failed_trial() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CircuitBreaker circuitBreaker = new CircuitBreaker("db", clock, 3, 1L, TimeUnit.MINUTES);
+    circuitBreaker.onFailure(null);
+    circuitBreaker.onFailure(null);
+    circuitBreaker.onFailure(null);
+    clock.advance(1L, TimeUnit.MINUTES);
+    circuitBreaker.tryAcquire();
+
+    circuitBreaker.onFailure(null);
+
+    errorCollector.checkThat("Single failure reopens.", circuitBreaker.getState(),
+                             equalTo(CircuitBreaker.State.OPEN));
+    errorCollector.checkThat("Cool-off restarted.", circuitBreaker.tryAcquire(),
+                             equalTo(false));
+  }
+
+  @Test
+  public void pass_trial_on_if_not_reported_within_cool_off() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CircuitBreaker circuitBreaker = new CircuitBreaker("db", clock, 1, 1L, TimeUnit.MINUTES);
+    circuitBreaker.onFailure(null);
+    clock.advance(1L, TimeUnit.MINUTES);
+    circuitBreaker.tryAcquire();
+
+    clock.advance(1L, TimeUnit.MINUTES);
+
+    errorCollector.checkThat(circuitBreaker.tryAcquire(), equalTo(true));
+  }
+
+  @Test
+  public void open_exception_describes_state_and_cause() throws Exception {
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker("db", new VirtualClock(), 1, 1L, TimeUnit.MINUTES);
+    IllegalStateException failure = new IllegalStateException("Backend down.");
+    circuitBreaker.onFailure(failure);
+
+    CircuitBreakerOpenException exception = circuitBreaker.openException();
+
+    errorCollector.checkThat(exception.getMessage(),
+                             containsString("'db' is open after 1 consecutive failures"));
+    errorCollector.checkThat(exception.getCause(), sameInstance((Throwable) failure));
+  }
+
+  @Test
+  public void reset_closes_circuit_breaker() throws Exception {
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker("db", new VirtualClock(), 1, 1L, TimeUnit.MINUTES);
+    circuitBreaker.onFailure(new IllegalStateException("Backend down."));
+
+    circuitBreaker.reset();
+
+    errorCollector.checkThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+    errorCollector.checkThat(circuitBreaker.openException().getCause(), nullValue());
+  }
+
+  @Test
+  public void share_circuit_breaker_by_name() throws Exception {
+    String name = testName.getMethodName();
+    CircuitBreaker circuitBreaker = CircuitBreaker.named(name, 1, 1L, TimeUnit.MINUTES);
+
+    errorCollector.checkThat(CircuitBreaker.named(name, 1, 60L, TimeUnit.SECONDS),
+                             sameInstance(circuitBreaker));
+    errorCollector.checkThat(circuitBreaker.getName(), equalTo(name));
+  }
+
+  @Test
+  public void reject_conflicting_configuration() throws Exception {
+    String name = testName.getMethodName();
+    CircuitBreaker.named(name, 1, 1L, TimeUnit.MINUTES);
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage(name);
+
+    CircuitBreaker.named(name, 2, 1L, TimeUnit.MINUTES);
+  }
+
+  @Test
+  public void fail_on_non_positive_threshold() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+
+    CircuitBreaker.named(testName.getMethodName(), 0, 1L, TimeUnit.MINUTES);
+  }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+
+import org.hamcrest.Matchers;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link Coalescing}.
+ *
+ * @since SINCE
+ */
+public class CoalescingTest {
+
+  private static final int WAITERS = 4;
+  private static final int SWEEP_ITEMS = 10000;
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void concurrent_evaluations_join_evaluation_in_flight() throws Exception {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger();
+    final Function<String, Integer> function = new Function<String, Integer>() {
+      @Override
+      public Integer apply(String input) {
+        entered.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return calls.incrementAndGet();
+      }
+    };
+    final Coalescing coalescing = new Coalescing(0L);
+    ExecutorService executor = Executors.newFixedThreadPool(WAITERS);
+    try {
+      Callable<Integer> evaluation = new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          return coalescing.apply(function, "cluster", WaitClocks.system(), Long.MAX_VALUE);
+        }
+      };
+      List<Future<Integer>> results = new ArrayList<>();
+      results.add(executor.submit(evaluation));
+      entered.await();
+      for (int i = 1; i < WAITERS; i++) {
+        results.add(executor.submit(evaluation));
+      }
+      // Give the joining evaluations a chance to block on the shared one.
+      Thread.sleep(50L);
+      release.countDown();
+
+      for (Future<Integer> result : results) {
+        errorCollector.checkThat("Shared result.", result.get(), Matchers.equalTo(1));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    errorCollector.checkThat("Evaluated once.", calls.get(), Matchers.equalTo(1));
+  }
+
+  @Test
+  public void reuse_results_up_to_maximum_age() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CountingFunction function = new CountingFunction();
+    Coalescing coalescing = new Coalescing(TimeUnit.MINUTES.toNanos(1L));
+
+    coalescing.apply(function, "cluster", clock, 0L);
+    Integer result = coalescing.apply(function, "cluster", clock, 0L);
+
+    errorCollector.checkThat("Reused result.", result, Matchers.equalTo(1));
+    errorCollector.checkThat("Evaluated once.", function.calls.get(), Matchers.equalTo(1));
+  }
+
+  @Test
+  public void do_not_reuse_completed_results_without_maximum_age() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CountingFunction function = new CountingFunction();
+    Coalescing coalescing = new Coalescing(0L);
+
+    coalescing.apply(function, "cluster", clock, 0L);
+    Integer result = coalescing.apply(function, "cluster", clock, 0L);
+
+    assertThat(result, Matchers.equalTo(2));
+  }
+
+  @Test
+  public void do_not_share_between_different_items() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CountingFunction function = new CountingFunction();
+    Coalescing coalescing = new Coalescing(TimeUnit.MINUTES.toNanos(1L));
+
+    coalescing.apply(function, "cluster-1", clock, 0L);
+    Integer result = coalescing.apply(function, "cluster-2", clock, 0L);
+
+    assertThat(result, Matchers.equalTo(2));
+  }
+
+  @Test
+  public void do_not_reuse_failures() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    final AtomicInteger calls = new AtomicInteger();
+    Function<String, Integer> function = new Function<String, Integer>() {
+      @Override
+      public Integer apply(String input) {
+        if (calls.incrementAndGet() == 1) {
+          throw new IllegalStateException("Not reachable.");
+        }
+        return calls.get();
+      }
+    };
+    Coalescing coalescing = new Coalescing(TimeUnit.MINUTES.toNanos(1L));
+
+    try {
+      coalescing.apply(function, "cluster", clock, 0L);
+      fail("Failure should have been propagated.");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    Integer result = coalescing.apply(function, "cluster", clock, 0L);
+
+    assertThat(result, Matchers.equalTo(2));
+  }
+
+  @Test
+  public void evict_results_beyond_maximum_age() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CountingFunction function = new CountingFunction();
+    Coalescing coalescing = new Coalescing(TimeUnit.MINUTES.toNanos(1L));
+
+    coalescing.apply(function, "cluster", clock, 0L);
+    clock.advance(2L, TimeUnit.MINUTES);
+    Integer result = coalescing.apply(function, "cluster", clock, 0L);
+
+    assertThat(result, Matchers.equalTo(2));
+  }
+
+  @Test
+  public void release_results_never_looked_up_again() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CountingFunction function = new CountingFunction();
+    Coalescing coalescing = new Coalescing(TimeUnit.MINUTES.toNanos(1L));
+    coalescing.apply(function, "stale", clock, 0L);
+    clock.advance(2L, TimeUnit.MINUTES);
+
+    // Other evaluations eventually trigger a sweep.
+    for (int i = 0; i < SWEEP_ITEMS && Coalescing.isRetained(function, "stale"); i++) {
+      coalescing.apply(function, "cluster-" + i, clock, 0L);
+    }
+
+    assertThat("Stale result released.", Coalescing.isRetained(function, "stale"),
+               Matchers.is(false));
+  }
+
+  @Test
+  public void keep_results_shared_with_longer_maximum_age() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CountingFunction function = new CountingFunction();
+    Coalescing coalescing = new Coalescing(TimeUnit.MINUTES.toNanos(1L));
+
+    coalescing.apply(function, "cluster", clock, 0L);
+    clock.advance(1L, TimeUnit.SECONDS);
+    Integer own = new Coalescing(0L).apply(function, "cluster", clock, 0L);
+    Integer shared = coalescing.apply(function, "cluster", clock, 0L);
+
+    errorCollector.checkThat("Evaluated on its own.", own, Matchers.equalTo(2));
+    errorCollector.checkThat("Shared result kept.", shared, Matchers.equalTo(1));
+  }
+
+  @Test
+  public void stop_waiting_for_joined_evaluation_on_timeout() throws Exception {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Function<String, Integer> function = new Function<String, Integer>() {
+      @Override
+      public Integer apply(String input) {
+        entered.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return 1;
+      }
+    };
+    final Coalescing coalescing = new Coalescing(0L);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          return coalescing.apply(function, "cluster", WaitClocks.system(), Long.MAX_VALUE);
+        }
+      });
+      entered.await();
+      try {
+        coalescing.apply(function, "cluster", WaitClocks.system(),
+                         TimeUnit.MILLISECONDS.toNanos(10L));
+        fail("Joined evaluation should have timed out.");
+      } catch (TimeoutException expected) {
+        // expected
+      }
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void waits_share_results_of_equal_functions() throws Exception {
+    CountingFunction function = new CountingFunction();
+
+    Integer first = WaitFunction.waitFor(function)
+        .toFulfill(Predicates.equalTo(1))
+        .and()
+        .coalesceEvaluations(1L, TimeUnit.MINUTES)
+        .get()
+        .apply("cluster");
+    Integer second = WaitFunction.waitFor(function)
+        .toFulfill(Predicates.notNull())
+        .and()
+        .coalesceEvaluations(1L, TimeUnit.MINUTES)
+        .get()
+        .apply("cluster");
+
+    errorCollector.checkThat("First wait result.", first, Matchers.equalTo(1));
+    errorCollector.checkThat("Second wait result.", second, Matchers.equalTo(1));
+    errorCollector.checkThat("Evaluated once.", function.calls.get(), Matchers.equalTo(1));
+  }
+
+  private static final class CountingFunction implements Function<String, Integer> {
+    @NotNull
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public Integer apply(String input) {
+      return calls.incrementAndGet();
+    }
+  }
+}
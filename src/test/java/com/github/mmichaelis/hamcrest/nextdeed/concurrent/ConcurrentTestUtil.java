@@ -20,6 +20,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utilities for concurrent tests.
@@ -33,15 +34,15 @@ public final class ConcurrentTestUtil {
   }
 
   /**
-   * Transform list of used time millis to the system millis returned during wait function. Thus
-   * this method internally knows exactly how many times the system millis are queried and needs
+   * Transform list of used time millis to the system nanos returned during wait function. Thus
+   * this method internally knows exactly how many times the system nanos are queried and needs
    * to be adopted if this after changes.
    *
-   * @param usedTimeMillis how long each call to the system takes
-   * @return time millis required for mocking wait function
+   * @param usedTimeMillis how long each call to the system takes in milliseconds
+   * @return time nanos required for mocking wait function
    */
   @NotNull
-  public static List<Long> getTimeMillis(Iterable<Long> usedTimeMillis) {
+  public static List<Long> getTimeNanos(Iterable<Long> usedTimeMillis) {
     List<Long> timeMillis = new ArrayList<>();
     long currentTime = 0L;
     // start time to calculate timeout time
@@ -53,6 +54,36 @@ public final class ConcurrentTestUtil {
       // time after evaluation
       timeMillis.add(currentTime);
     }
-    return timeMillis;
+    return toNanos(timeMillis);
+  }
+
+  /**
+   * Convert the given milliseconds to nanoseconds.
+   *
+   * @param millis milliseconds
+   * @return nanoseconds
+   */
+  @NotNull
+  public static List<Long> toNanos(Iterable<Long> millis) {
+    List<Long> result = new ArrayList<>();
+    for (Long milli : millis) {
+      result.add(TimeUnit.MILLISECONDS.toNanos(milli));
+    }
+    return result;
+  }
+
+  /**
+   * Convert the given nanoseconds to milliseconds.
+   *
+   * @param nanos nanoseconds
+   * @return milliseconds
+   */
+  @NotNull
+  public static List<Long> toMillis(Iterable<Long> nanos) {
+    List<Long> result = new ArrayList<>();
+    for (Long nano : nanos) {
+      result.add(TimeUnit.NANOSECONDS.toMillis(nano));
+    }
+    return result;
   }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * Tests {@link ExceptionPolicy}.
+ *
+ * @since SINCE
+ */
+public class ExceptionPolicyTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void ignore_given_types_and_subtypes() throws Exception {
+    ExceptionPolicy policy = new ExceptionPolicy(
+        Arrays.<Class<? extends Throwable>>asList(IllegalStateException.class,
+                                                  NoSuchElementException.class),
+        2d);
+
+    errorCollector.checkThat(policy.isIgnored(new IllegalStateException()), equalTo(true));
+    errorCollector.checkThat(policy.isIgnored(new NoSuchElementException()), equalTo(true));
+    errorCollector.checkThat("Subtype ignored.",
+                             policy.isIgnored(new WaitCancelledException()), equalTo(true));
+    errorCollector.checkThat("Other type not ignored.",
+                             policy.isIgnored(new ConcurrentModificationException()),
+                             equalTo(false));
+  }
+
+  @Test
+  public void back_off_exponentially() throws Exception {
+    ExceptionPolicy policy =
+        new ExceptionPolicy(Collections.<Class<? extends Throwable>>emptyList(), 2d);
+
+    errorCollector.checkThat(policy.backoffNanos(100L, 1), equalTo(200L));
+    errorCollector.checkThat(policy.backoffNanos(100L, 3), equalTo(800L));
+    errorCollector.checkThat("Saturate instead of overflow.",
+                             policy.backoffNanos(Long.MAX_VALUE / 2L, 10),
+                             equalTo(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void fail_on_factor_below_one() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+
+    new ExceptionPolicy(Collections.<Class<? extends Throwable>>emptyList(), 0.5d);
+  }
+}
@@ -24,6 +24,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Tests {@link FailureMessage}.
  *
@@ -93,6 +96,21 @@ public class FailureMessageTest {
                containsString(expected));
   }
 
+  @Test
+  public void getMessage_mentionRecentPolls() throws Exception {
+    List<PollRecord<String>> history =
+        Arrays.asList(new PollRecord<>(1, 0L, 1500L, false, "first String"),
+                      new PollRecord<>(2, 2000000L, 1000L, false, "second String"));
+    FailureMessage<String> message =
+        new FailureMessage<>("second String", "some Reason", containsString("contained String"),
+                             history);
+    String builtMessage = message.getMessage();
+    assertThat("Recent polls should be mentioned in message.",
+               builtMessage,
+               Matchers.allOf(containsString("#1 at 0.000 ms (took 0.002 ms): first String"),
+                              containsString("#2 at 2.000 ms (took 0.001 ms): second String")));
+  }
+
   @Test
   public void toString_shouldContainRelevantInformation() throws Exception {
     String lastResult = "probed String";
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+
+import com.github.mmichaelis.hamcrest.nextdeed.glue.DescribedFunction;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link FlightRecorderEvents}. Just as the events themselves, recordings are
+ * driven reflectively, so that the tests compile on Java 7.
+ *
+ * @since SINCE
+ */
+public class FlightRecorderEventsTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Before
+  public void setUp() throws Exception {
+    assumeTrue("Flight recorder events supported.", FlightRecorderEvents.isSupported());
+  }
+
+  @Test
+  public void no_events_without_recording() throws Exception {
+    errorCollector.checkThat("Wait event", FlightRecorderEvents.beginWait(), nullValue());
+    errorCollector.checkThat("Evaluation event",
+                             FlightRecorderEvents.beginEvaluation(),
+                             nullValue());
+  }
+
+  @Test
+  public void record_satisfied_wait() throws Exception {
+    List<Object> events = record(new Runnable() {
+      @Override
+      public void run() {
+        WaitFunction.waitFor(countingFunction())
+            .toFulfill(Predicates.equalTo(3))
+            .withInitialDelay(1L, TimeUnit.MICROSECONDS)
+            .within(10L, TimeUnit.SECONDS)
+            .get()
+            .apply("target");
+      }
+    });
+
+    List<Object> waits = filter(events, FlightRecorderEvents.WAIT_EVENT_NAME);
+    List<Object> evaluations = filter(events, FlightRecorderEvents.EVALUATION_EVENT_NAME);
+    assertThat(waits, hasSize(1));
+    Object wait = waits.get(0);
+    errorCollector.checkThat("Target",
+                             field(wait, "getString", "target"),
+                             equalTo((Object) "target"));
+    errorCollector.checkThat("Delegate",
+                             field(wait, "getString", "delegate"),
+                             equalTo((Object) "counter"));
+    errorCollector.checkThat("Timeout",
+                             field(wait, "getLong", "timeout"),
+                             equalTo((Object) TimeUnit.SECONDS.toNanos(10L)));
+    errorCollector.checkThat("Outcome",
+                             field(wait, "getString", "outcome"),
+                             equalTo((Object) FlightRecorderEvents.SATISFIED));
+    errorCollector.checkThat("Polls", field(wait, "getInt", "polls"), equalTo((Object) 3));
+    errorCollector.checkThat("Evaluations", evaluations, hasSize(3));
+  }
+
+  @Test
+  public void record_timed_out_wait() throws Exception {
+    List<Object> events = record(new Runnable() {
+      @Override
+      public void run() {
+        WaitFunction.waitFor(countingFunction())
+            .toFulfill(Predicates.alwaysFalse())
+            .withinMs(0L)
+            .onTimeout(new Function<WaitTimeoutEvent<Object, Integer>, Integer>() {
+              @Override
+              public Integer apply(@Nullable WaitTimeoutEvent<Object, Integer> input) {
+                return null;
+              }
+            })
+            .get()
+            .apply(null);
+      }
+    });
+
+    List<Object> waits = filter(events, FlightRecorderEvents.WAIT_EVENT_NAME);
+    assertThat(waits, hasSize(1));
+    errorCollector.checkThat("Outcome",
+                             field(waits.get(0), "getString", "outcome"),
+                             equalTo((Object) FlightRecorderEvents.TIMED_OUT));
+  }
+
+  @Test
+  public void record_timeout_clamped_to_budget() throws Exception {
+    final VirtualClock clock = new VirtualClock();
+    List<Object> events = record(new Runnable() {
+      @Override
+      public void run() {
+        try (WaitBudget ignored = WaitBudget.open(clock, 1L, TimeUnit.SECONDS)) {
+          WaitFunction.waitFor(countingFunction())
+              .toFulfill(Predicates.equalTo(1))
+              .within(1L, TimeUnit.HOURS)
+              .withClock(clock)
+              .get()
+              .apply(null);
+        }
+      }
+    });
+
+    List<Object> waits = filter(events, FlightRecorderEvents.WAIT_EVENT_NAME);
+    assertThat(waits, hasSize(1));
+    errorCollector.checkThat("Timeout",
+                             field(waits.get(0), "getLong", "timeout"),
+                             equalTo((Object) TimeUnit.SECONDS.toNanos(1L)));
+  }
+
+  @NotNull
+  private List<Object> record(@NotNull Runnable runnable) throws Exception {
+    File file = temporaryFolder.newFile("wait.jfr");
+    Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+    Object recording = recordingClass.getConstructor().newInstance();
+    try {
+      Method enable = recordingClass.getMethod("enable", String.class);
+      enable.invoke(recording, FlightRecorderEvents.WAIT_EVENT_NAME);
+      enable.invoke(recording, FlightRecorderEvents.EVALUATION_EVENT_NAME);
+      recordingClass.getMethod("start").invoke(recording);
+      runnable.run();
+      recordingClass.getMethod("stop").invoke(recording);
+      recordingClass.getMethod("dump", Path.class).invoke(recording, file.toPath());
+    } finally {
+      recordingClass.getMethod("close").invoke(recording);
+    }
+    Method readAllEvents =
+        Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", Path.class);
+    return new ArrayList<>((List<?>) readAllEvents.invoke(null, file.toPath()));
+  }
+
+  @NotNull
+  private static List<Object> filter(@NotNull List<Object> events, @NotNull String name)
+      throws Exception {
+    List<Object> result = new ArrayList<>();
+    for (Object event : events) {
+      Object eventType = invoke(event, "getEventType");
+      if (name.equals(invoke(eventType, "getName"))) {
+        result.add(event);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Read a field of a recorded event.
+   *
+   * @param event  recorded event
+   * @param getter getter to use, like {@code getString}
+   * @param name   name of the field
+   * @return value
+   */
+  @Nullable
+  private static Object field(@NotNull Object event,
+                              @NotNull String getter,
+                              @NotNull String name) throws Exception {
+    return event.getClass().getMethod(getter, String.class).invoke(event, name);
+  }
+
+  @Nullable
+  private static Object invoke(@NotNull Object target, @NotNull String method) throws Exception {
+    return target.getClass().getMethod(method).invoke(target);
+  }
+
+  @NotNull
+  private static Function<Object, Integer> countingFunction() {
+    final AtomicInteger calls = new AtomicInteger();
+    return DescribedFunction.describe(new Function<Object, Integer>() {
+      @Override
+      public Integer apply(Object input) {
+        return calls.incrementAndGet();
+      }
+    }).as("counter");
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link Hedging}.
+ *
+ * @since SINCE
+ */
+public class HedgingTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void first_completed_evaluation_wins() throws Exception {
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger();
+    Hedging hedging = new Hedging(TimeUnit.MILLISECONDS.toNanos(10L), 2);
+
+    String result = hedging.apply(new Function<Void, String>() {
+      @Override
+      public String apply(Void input) {
+        if (calls.incrementAndGet() == 1) {
+          try {
+            new CountDownLatch(1).await();
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+          }
+          return "slow";
+        }
+        return "fast";
+      }
+    }, Predicates.alwaysTrue(), null, WaitClocks.system(),
+        TimeUnit.SECONDS.toNanos(10L));
+
+    errorCollector.checkThat("Hedged evaluation provides result.", result,
+                             Matchers.equalTo("fast"));
+    errorCollector.checkThat("Slow evaluation got cancelled.",
+                             interrupted.await(10L, TimeUnit.SECONDS), Matchers.is(true));
+  }
+
+  @Test
+  public void first_satisfying_evaluation_wins() throws Exception {
+    final CountDownLatch hedged = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger();
+    Hedging hedging = new Hedging(TimeUnit.MILLISECONDS.toNanos(100L), 2);
+
+    String result = hedging.apply(new Function<Void, String>() {
+      @Override
+      public String apply(Void input) {
+        try {
+          if (calls.incrementAndGet() == 1) {
+            hedged.await();
+            return "unexpected";
+          }
+          hedged.countDown();
+          Thread.sleep(20L);
+          return "expected";
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }, Predicates.equalTo("expected"), null, WaitClocks.system(),
+        TimeUnit.SECONDS.toNanos(10L));
+
+    assertThat("Hedged evaluation satisfying the predicate provides result.", result,
+               Matchers.equalTo("expected"));
+  }
+
+  @Test
+  public void failed_evaluation_does_not_hide_hedged_result() throws Exception {
+    final CountDownLatch hedged = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger();
+    Hedging hedging = new Hedging(TimeUnit.MILLISECONDS.toNanos(100L), 2);
+
+    String result = hedging.apply(new Function<Void, String>() {
+      @Override
+      public String apply(Void input) {
+        try {
+          if (calls.incrementAndGet() == 1) {
+            hedged.await();
+            throw new IllegalStateException("First evaluation failed.");
+          }
+          hedged.countDown();
+          Thread.sleep(20L);
+          return "expected";
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }, Predicates.equalTo("expected"), null, WaitClocks.system(),
+        TimeUnit.SECONDS.toNanos(10L));
+
+    assertThat("Hedged evaluation provides result.", result, Matchers.equalTo("expected"));
+  }
+
+  @Test
+  public void provide_non_satisfying_result_if_no_evaluation_satisfies() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    Hedging hedging = new Hedging(TimeUnit.SECONDS.toNanos(10L), 2);
+
+    Integer result = hedging.apply(new Function<Void, Integer>() {
+      @Override
+      public Integer apply(Void input) {
+        return calls.incrementAndGet();
+      }
+    }, Predicates.equalTo(42), null, WaitClocks.system(),
+        TimeUnit.SECONDS.toNanos(10L));
+
+    assertThat(result, Matchers.equalTo(1));
+  }
+
+  @Test
+  public void do_not_wait_for_slow_hedges_after_non_satisfying_result() throws Exception {
+    final CountDownLatch hedged = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger();
+    Hedging hedging = new Hedging(TimeUnit.MILLISECONDS.toNanos(10L), 2);
+    long startNanos = System.nanoTime();
+
+    Integer result = hedging.apply(new Function<Void, Integer>() {
+      @Override
+      public Integer apply(Void input) {
+        try {
+          if (calls.incrementAndGet() == 1) {
+            hedged.await();
+            return 1;
+          }
+          hedged.countDown();
+          Thread.sleep(TimeUnit.MINUTES.toMillis(1L));
+          return 42;
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }, Predicates.equalTo(42), null, WaitClocks.system(), TimeUnit.MINUTES.toNanos(1L));
+
+    errorCollector.checkThat("Non-satisfying result provided.", result, Matchers.equalTo(1));
+    errorCollector.checkThat("Did not wait for slow hedge.",
+                             System.nanoTime() - startNanos,
+                             Matchers.lessThan(TimeUnit.SECONDS.toNanos(10L)));
+  }
+
+  @Test
+  public void fast_evaluation_is_not_hedged() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    Hedging hedging = new Hedging(TimeUnit.SECONDS.toNanos(10L), 2);
+
+    Integer result = hedging.apply(new Function<Void, Integer>() {
+      @Override
+      public Integer apply(Void input) {
+        return calls.incrementAndGet();
+      }
+    }, Predicates.alwaysTrue(), null, WaitClocks.system(),
+        TimeUnit.SECONDS.toNanos(10L));
+
+    assertThat(result, Matchers.equalTo(1));
+  }
+
+  @Test
+  public void respect_maximum_in_flight() throws Exception {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    final AtomicInteger calls = new AtomicInteger();
+    Hedging hedging = new Hedging(TimeUnit.MILLISECONDS.toNanos(1L), 3);
+    Function<Void, Void> hangingFunction = new Function<Void, Void>() {
+      @Override
+      public Void apply(Void input) {
+        calls.incrementAndGet();
+        int current = inFlight.incrementAndGet();
+        while (true) {
+          int max = maxInFlight.get();
+          if (current <= max || maxInFlight.compareAndSet(max, current)) {
+            break;
+          }
+        }
+        try {
+          new CountDownLatch(1).await();
+        } catch (InterruptedException ignored) {
+          // cancelled
+        } finally {
+          inFlight.decrementAndGet();
+        }
+        return null;
+      }
+    };
+
+    try {
+      hedging.apply(hangingFunction,
+                    Predicates.alwaysTrue(),
+                    null,
+                    WaitClocks.system(),
+                    TimeUnit.MILLISECONDS.toNanos(100L));
+      fail("Timeout expected.");
+    } catch (TimeoutException ignored) {
+      // expected
+    }
+
+    errorCollector.checkThat("Hedged up to maximum.", calls.get(), Matchers.equalTo(3));
+    errorCollector.checkThat("Never more than maximum in flight.", maxInFlight.get(),
+                             Matchers.lessThanOrEqualTo(3));
+  }
+
+  @Test
+  public void wait_function_hedges_slow_evaluations() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+              try {
+                new CountDownLatch(1).await();
+              } catch (InterruptedException ignored) {
+                // cancelled
+              }
+            }
+            return call;
+          }
+        })
+            .toFulfill(Predicates.equalTo(2))
+            .within(10L, TimeUnit.SECONDS)
+            .and()
+            .hedgeAfter(10L, TimeUnit.MILLISECONDS, 2)
+            .get();
+
+    assertThat(waitFunction.apply(null), Matchers.equalTo(2));
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+/**
+ * Tests {@link LogLinearHistogram}.
+ *
+ * @since SINCE
+ */
+public class LogLinearHistogramTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void buckets_are_contiguous() throws Exception {
+    for (int i = 1; i < LogLinearHistogram.BUCKETS; i++) {
+      errorCollector.checkThat("Bucket " + i + " starts after previous one.",
+                               LogLinearHistogram.lowerBound(i),
+                               equalTo(LogLinearHistogram.upperBound(i - 1) + 1L));
+    }
+    errorCollector.checkThat("Last bucket ends at maximum.",
+                             LogLinearHistogram.upperBound(LogLinearHistogram.BUCKETS - 1),
+                             equalTo(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void values_are_sorted_into_matching_bucket() throws Exception {
+    long[] values = {0L, 1L, 7L, 8L, 9L, 15L, 16L, 17L, 1000L, 123456789L, Long.MAX_VALUE};
+    for (long value : values) {
+      int index = LogLinearHistogram.bucketIndex(value);
+      errorCollector.checkThat("Lower bound for " + value,
+                               LogLinearHistogram.lowerBound(index),
+                               lessThanOrEqualTo(value));
+      errorCollector.checkThat("Upper bound for " + value,
+                               LogLinearHistogram.upperBound(index),
+                               greaterThanOrEqualTo(value));
+    }
+  }
+
+  @Test
+  public void percentiles_have_bounded_relative_error() throws Exception {
+    LogLinearHistogram histogram = new LogLinearHistogram();
+    for (long i = 1L; i <= 1000L; i++) {
+      histogram.record(i * 1000L);
+    }
+
+    errorCollector.checkThat("Count", histogram.getCount(), equalTo(1000L));
+    errorCollector.checkThat("Max", histogram.getMax(), equalTo(1000000L));
+    errorCollector.checkThat("Mean", histogram.getMean(), Matchers.closeTo(500500.0, 0.1));
+    errorCollector.checkThat("Median",
+                             (double) histogram.getPercentile(0.5),
+                             Matchers.closeTo(500000.0, 500000.0 / LogLinearHistogram.SUB_BUCKETS));
+    errorCollector.checkThat("99th percentile",
+                             (double) histogram.getPercentile(0.99),
+                             Matchers.closeTo(990000.0, 990000.0 / LogLinearHistogram.SUB_BUCKETS));
+    errorCollector.checkThat("100th percentile is max",
+                             histogram.getPercentile(1.0),
+                             equalTo(1000000L));
+  }
+
+  @Test
+  public void empty_and_reset_histogram_reports_zero() throws Exception {
+    LogLinearHistogram histogram = new LogLinearHistogram();
+    errorCollector.checkThat("Empty percentile", histogram.getPercentile(0.5), equalTo(0L));
+
+    histogram.record(42L);
+    histogram.reset();
+
+    errorCollector.checkThat("Count after reset", histogram.getCount(), equalTo(0L));
+    errorCollector.checkThat("Max after reset", histogram.getMax(), equalTo(0L));
+    errorCollector.checkThat("Percentile after reset",
+                             histogram.getPercentile(0.99),
+                             equalTo(0L));
+  }
+
+  @Test
+  public void negative_values_are_recorded_as_zero() throws Exception {
+    LogLinearHistogram histogram = new LogLinearHistogram();
+    histogram.record(-5L);
+
+    errorCollector.checkThat("Count", histogram.getCount(), equalTo(1L));
+    errorCollector.checkThat("Percentile", histogram.getPercentile(0.5), equalTo(0L));
+  }
+}
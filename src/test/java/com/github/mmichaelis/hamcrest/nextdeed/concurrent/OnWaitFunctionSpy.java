@@ -51,7 +51,7 @@ public class OnWaitFunctionSpy {
   private void initSpyOnWaitFunction(
       ProbeBuilderImpl<SystemUnderTest_SUT, SystemState> configuredProbe,
       Iterable<Long> usedTimeMillis) {
-    final List<Long> timeMillis = ConcurrentTestUtil.getTimeMillis(usedTimeMillis);
+    final List<Long> timeNanos = ConcurrentTestUtil.getTimeNanos(usedTimeMillis);
 
     configuredProbe.preProcessWaitFunction(
         new Function<Function<SystemUnderTest_SUT, SystemState>, Function<SystemUnderTest_SUT, SystemState>>() {
@@ -61,9 +61,9 @@ public class OnWaitFunctionSpy {
             WaitFunction<SystemUnderTest_SUT, SystemState> spy =
                 (WaitFunction<SystemUnderTest_SUT, SystemState>) Mockito.spy(input);
             try {
-              Mockito.doNothing().when(spy).sleep(anyLong());
+              Mockito.doNothing().when(spy).sleepNanos(anyLong());
               Mockito.doAnswer(
-                  AdditionalAnswers.returnsElementsOf(timeMillis)).when(spy).nowMillis();
+                  AdditionalAnswers.returnsElementsOf(timeNanos)).when(spy).nowNanos();
             } catch (InterruptedException ignored) {
             }
             waitFunction = spy;
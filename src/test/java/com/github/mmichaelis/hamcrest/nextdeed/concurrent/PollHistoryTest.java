@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link PollHistory}.
+ *
+ * @since SINCE
+ */
+public class PollHistoryTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void empty_without_polls() throws Exception {
+    PollHistory<String> history = new PollHistory<>(3);
+
+    errorCollector.checkThat(history.toList(), empty());
+    errorCollector.checkThat(PollHistory.describe(history.toList()), equalTo(""));
+  }
+
+  @Test
+  public void keep_polls_in_order_until_full() throws Exception {
+    PollHistory<String> history = new PollHistory<>(3);
+
+    history.record(1, 0L, 10L, false, "a");
+    history.record(2, 20L, 10L, true, "b");
+
+    errorCollector.checkThat(results(history.toList()), contains("a", "b"));
+  }
+
+  @Test
+  public void overwrite_oldest_polls_when_full() throws Exception {
+    PollHistory<String> history = new PollHistory<>(3);
+
+    for (int poll = 1; poll <= 5; poll++) {
+      history.record(poll, poll * 100L, 10L, false, "r" + poll);
+    }
+
+    List<PollRecord<String>> records = history.toList();
+    errorCollector.checkThat(results(records), contains("r3", "r4", "r5"));
+    errorCollector.checkThat(records.get(0).getPoll(), equalTo(3));
+    errorCollector.checkThat(records.get(0).getOffset(TimeUnit.NANOSECONDS), equalTo(300L));
+    errorCollector.checkThat(records.get(0).getDuration(TimeUnit.NANOSECONDS), equalTo(10L));
+  }
+
+  @Test
+  public void describe_one_poll_per_line() throws Exception {
+    PollHistory<String> history = new PollHistory<>(2);
+
+    history.record(1, 0L, 250000L, false, "a");
+    history.record(2, 1500000L, 1000000L, true, "b");
+
+    errorCollector.checkThat(PollHistory.describe(history.toList()),
+                             equalTo("\nRecent polls (oldest first):"
+                                     + "\n  #1 at 0.000 ms (took 0.250 ms): a"
+                                     + "\n  #2 at 1.500 ms (took 1.000 ms, matched): b"));
+  }
+
+  private static <R> List<R> results(List<PollRecord<R>> records) {
+    List<R> results = new ArrayList<>();
+    for (PollRecord<R> record : records) {
+      results.add(record.getResult());
+    }
+    return results;
+  }
+}
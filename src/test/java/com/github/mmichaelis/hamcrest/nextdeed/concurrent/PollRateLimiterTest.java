@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TestName;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link PollRateLimiter}.
+ *
+ * @since SINCE
+ */
+public class PollRateLimiterTest {
+
+  private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TestName testName = new TestName();
+
+  @Test
+  public void space_reservations_evenly() throws Exception {
+    PollRateLimiter limiter = new PollRateLimiter("db", 10d);
+
+    errorCollector.checkThat(limiter.reserveNanos(0L, 0L, Long.MAX_VALUE), equalTo(0L));
+    errorCollector.checkThat(limiter.reserveNanos(0L, 0L, Long.MAX_VALUE),
+                             equalTo(INTERVAL_NANOS));
+    errorCollector.checkThat(limiter.reserveNanos(0L, 0L, Long.MAX_VALUE),
+                             equalTo(2L * INTERVAL_NANOS));
+  }
+
+  @Test
+  public void respect_minimum_delay() throws Exception {
+    PollRateLimiter limiter = new PollRateLimiter("db", 10d);
+
+    errorCollector.checkThat(limiter.reserveNanos(0L, 5L * INTERVAL_NANOS, Long.MAX_VALUE),
+                             equalTo(5L * INTERVAL_NANOS));
+    errorCollector.checkThat("Next token free one interval later.",
+                             limiter.reserveNanos(0L, 0L, Long.MAX_VALUE),
+                             equalTo(6L * INTERVAL_NANOS));
+  }
+
+  @Test
+  public void do_not_reserve_beyond_maximum_delay() throws Exception {
+    PollRateLimiter limiter = new PollRateLimiter("db", 10d);
+    limiter.reserveNanos(0L, 0L, 0L);
+
+    errorCollector.checkThat(limiter.reserveNanos(0L, 0L, INTERVAL_NANOS - 1L), equalTo(-1L));
+    errorCollector.checkThat("Failed reservation takes no token.",
+                             limiter.reserveNanos(0L, 0L, INTERVAL_NANOS),
+                             equalTo(INTERVAL_NANOS));
+  }
+
+  @Test
+  public void tokens_become_free_as_time_passes() throws Exception {
+    PollRateLimiter limiter = new PollRateLimiter("db", 10d);
+    limiter.reserveNanos(0L, 0L, 0L);
+    limiter.reserveNanos(0L, 0L, Long.MAX_VALUE);
+
+    errorCollector.checkThat(limiter.reserveNanos(TimeUnit.SECONDS.toNanos(1L), 0L, 0L),
+                             equalTo(0L));
+  }
+
+  @Test
+  public void first_reservation_is_relative_to_given_time() throws Exception {
+    PollRateLimiter limiter = new PollRateLimiter("db", 10d);
+
+    errorCollector.checkThat(limiter.reserveNanos(-INTERVAL_NANOS, 0L, 0L), equalTo(0L));
+    errorCollector.checkThat("Next token free one interval later.",
+                             limiter.reserveNanos(-INTERVAL_NANOS, 0L, Long.MAX_VALUE),
+                             equalTo(INTERVAL_NANOS));
+  }
+
+  @Test
+  public void permit_burst_from_full_bucket() throws Exception {
+    PollRateLimiter limiter = new PollRateLimiter("db", 10d, 3);
+
+    errorCollector.checkThat(limiter.reserveNanos(0L, 0L, 0L), equalTo(0L));
+    errorCollector.checkThat(limiter.reserveNanos(0L, 0L, 0L), equalTo(0L));
+    errorCollector.checkThat(limiter.reserveNanos(0L, 0L, 0L), equalTo(0L));
+    errorCollector.checkThat("Empty bucket refilled at rate.",
+                             limiter.reserveNanos(0L, 0L, Long.MAX_VALUE),
+                             equalTo(INTERVAL_NANOS));
+    errorCollector.checkThat(limiter.reserveNanos(0L, 0L, Long.MAX_VALUE),
+                             equalTo(2L * INTERVAL_NANOS));
+  }
+
+  @Test
+  public void refill_bucket_up_to_burst_only() throws Exception {
+    PollRateLimiter limiter = new PollRateLimiter("db", 10d, 2);
+    limiter.reserveNanos(0L, 0L, 0L);
+    long later = TimeUnit.SECONDS.toNanos(10L);
+
+    errorCollector.checkThat(limiter.reserveNanos(later, 0L, 0L), equalTo(0L));
+    errorCollector.checkThat(limiter.reserveNanos(later, 0L, 0L), equalTo(0L));
+    errorCollector.checkThat("No more than burst after quiet period.",
+                             limiter.reserveNanos(later, 0L, Long.MAX_VALUE),
+                             equalTo(INTERVAL_NANOS));
+  }
+
+  @Test
+  public void share_limiter_by_backend() throws Exception {
+    String backend = testName.getMethodName();
+    PollRateLimiter limiter = PollRateLimiter.forBackend(backend, 10d);
+
+    errorCollector.checkThat(PollRateLimiter.forBackend(backend, 10d), sameInstance(limiter));
+    errorCollector.checkThat(limiter.getRate(), closeTo(10d, 0.001d));
+    errorCollector.checkThat(limiter.getBackend(), equalTo(backend));
+    errorCollector.checkThat(limiter.getBurst(), equalTo(1));
+  }
+
+  @Test
+  public void reject_conflicting_rate() throws Exception {
+    String backend = testName.getMethodName();
+    PollRateLimiter.forBackend(backend, 10d);
+
+    expectedException.expect(IllegalArgumentException.class);
+
+    PollRateLimiter.forBackend(backend, 20d);
+  }
+
+  @Test
+  public void reject_conflicting_burst() throws Exception {
+    String backend = testName.getMethodName();
+    PollRateLimiter.forBackend(backend, 10d, 5);
+
+    expectedException.expect(IllegalArgumentException.class);
+
+    PollRateLimiter.forBackend(backend, 10d);
+  }
+
+  @Test
+  public void fail_on_non_positive_burst() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+
+    PollRateLimiter.forBackend(testName.getMethodName(), 10d, 0);
+  }
+
+  @Test
+  public void fail_on_non_positive_rate() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+
+    PollRateLimiter.forBackend(testName.getMethodName(), 0d);
+  }
+}
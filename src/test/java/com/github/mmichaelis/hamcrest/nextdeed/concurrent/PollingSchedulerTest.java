@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link PollingScheduler}.
+ *
+ * @since SINCE
+ */
+public class PollingSchedulerTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private PollingScheduler scheduler;
+
+  @Before
+  public void setUp() throws Exception {
+    scheduler = new PollingScheduler(2);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void multiplex_many_waits_on_few_threads() throws Exception {
+    int waits = 200;
+    List<ListenableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < waits; i++) {
+      final AtomicInteger calls = new AtomicInteger();
+      Function<Void, ListenableFuture<Integer>> asyncFunction =
+          WaitFunction.waitFor(new Function<Void, Integer>() {
+            @Override
+            public Integer apply(Void input) {
+              return calls.incrementAndGet();
+            }
+          })
+              .toFulfill(Predicates.equalTo(3))
+              .within(10L, TimeUnit.SECONDS)
+              .pollingOn(scheduler)
+              .getAsync();
+      futures.add(asyncFunction.apply(null));
+    }
+
+    List<Integer> results = Futures.allAsList(futures).get(10L, TimeUnit.SECONDS);
+
+    assertThat("All waits completed.", results, Matchers.everyItem(Matchers.equalTo(3)));
+    assertThat("Pool size stays constant.", scheduler.getLargestPoolSize(),
+               Matchers.lessThanOrEqualTo(2));
+  }
+
+  @Test
+  public void report_queue_depth_and_lag() throws Exception {
+    final CountDownLatch blocker = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(2);
+    for (int i = 0; i < 2; i++) {
+      scheduler.execute(new Runnable() {
+        @Override
+        public void run() {
+          started.countDown();
+          try {
+            blocker.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+    }
+    started.await(10L, TimeUnit.SECONDS);
+    final CountDownLatch done = new CountDownLatch(1);
+    scheduler.execute(new Runnable() {
+      @Override
+      public void run() {
+        done.countDown();
+      }
+    });
+
+    assertThat("Pending evaluation is reported.", scheduler.getQueueDepth(), Matchers.equalTo(1));
+
+    Thread.sleep(20L);
+    blocker.countDown();
+    done.await(10L, TimeUnit.SECONDS);
+
+    assertThat("Lag of delayed evaluation is reported.",
+               scheduler.getMaxLag(TimeUnit.MILLISECONDS),
+               Matchers.greaterThanOrEqualTo(20L));
+    assertThat("Last lag never exceeds maximum lag.",
+               scheduler.getLastLag(TimeUnit.NANOSECONDS),
+               Matchers.lessThanOrEqualTo(scheduler.getMaxLag(TimeUnit.NANOSECONDS)));
+  }
+
+  @Test
+  public void probe_may_opt_in_to_scheduler() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final Set<Thread> evaluatingThreads = new CopyOnWriteArraySet<>();
+    Probe.<AtomicInteger, Integer>probing(calls)
+        .pollingOn(scheduler)
+        .within(10L, TimeUnit.SECONDS)
+        .assertThat(new Function<AtomicInteger, Integer>() {
+          @Override
+          public Integer apply(AtomicInteger input) {
+            evaluatingThreads.add(Thread.currentThread());
+            return input.incrementAndGet();
+          }
+        }, Matchers.equalTo(3));
+
+    assertThat("Evaluations ran on scheduler.", evaluatingThreads,
+               Matchers.not(Matchers.hasItem(Thread.currentThread())));
+  }
+
+  @Test
+  public void probe_on_scheduler_fails_in_calling_thread() throws Exception {
+    expectedException.expect(AssertionError.class);
+
+    Probe.<AtomicInteger, Integer>probing(new AtomicInteger())
+        .pollingOn(scheduler)
+        .withinMs(0L)
+        .assertThat(new Function<AtomicInteger, Integer>() {
+          @Override
+          public Integer apply(AtomicInteger input) {
+            return input.get();
+          }
+        }, Matchers.equalTo(1));
+  }
+
+  @Test
+  public void reject_blocking_wait_on_own_thread() throws Exception {
+    final Function<Void, Integer> innerWait =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            return 1;
+          }
+        })
+            .toFulfill(Predicates.equalTo(1))
+            .within(10L, TimeUnit.SECONDS)
+            .pollingOn(scheduler)
+            .get();
+    Future<?> future = scheduler.submit(new Runnable() {
+      @Override
+      public void run() {
+        innerWait.apply(null);
+      }
+    });
+
+    expectedException.expect(ExecutionException.class);
+    expectedException.expectCause(Matchers.<Throwable>instanceOf(IllegalStateException.class));
+
+    future.get(10L, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void shared_scheduler_cannot_be_shut_down() throws Exception {
+    expectedException.expect(UnsupportedOperationException.class);
+
+    PollingScheduler.shared().shutdown();
+  }
+}
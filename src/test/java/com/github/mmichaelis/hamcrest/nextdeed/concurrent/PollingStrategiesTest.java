@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.junit.Assert.assertThat;
+
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.ExpectedException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link PollingStrategies}.
+ *
+ * @since SINCE
+ */
+public class PollingStrategiesTest {
+
+  private static final long ONE_MS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void decelerating_increases_by_factor_but_at_least_one_millisecond() throws Exception {
+    PollingStrategy strategy = PollingStrategies.decelerating(2.0);
+
+    errorCollector.checkThat("Small delays increase by at least a millisecond.",
+                             strategy.nextDelayNanos(1, 10L, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(10L + ONE_MS));
+    errorCollector.checkThat("Large delays are multiplied.",
+                             strategy.nextDelayNanos(1, 10L * ONE_MS, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(20L * ONE_MS));
+    errorCollector.checkThat("Delays do not overflow.",
+                             strategy.nextDelayNanos(1, Long.MAX_VALUE, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(Long.MAX_VALUE));
+    errorCollector.checkThat(strategy, Matchers.hasToString(Matchers.containsString("2.0")));
+  }
+
+  @Test
+  public void decelerating_requires_factor_of_at_least_one() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+    PollingStrategies.decelerating(0.9);
+  }
+
+  @Test
+  public void fixed_keeps_interval() throws Exception {
+    PollingStrategy strategy = PollingStrategies.fixed(5L, TimeUnit.MILLISECONDS);
+
+    errorCollector.checkThat(strategy.nextDelayNanos(1, 0L, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(5L * ONE_MS));
+    errorCollector.checkThat(strategy.nextDelayNanos(42, 100L * ONE_MS, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(5L * ONE_MS));
+  }
+
+  @Test
+  public void linear_adds_increment() throws Exception {
+    PollingStrategy strategy = PollingStrategies.linear(5L, TimeUnit.MILLISECONDS);
+
+    errorCollector.checkThat(strategy.nextDelayNanos(1, ONE_MS, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(6L * ONE_MS));
+    errorCollector.checkThat(strategy.nextDelayNanos(2, 6L * ONE_MS, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(11L * ONE_MS));
+  }
+
+  @Test
+  public void linear_requires_positive_increment() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Increment");
+    PollingStrategies.linear(-1L, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void exponential_multiplies_within_base_and_cap() throws Exception {
+    PollingStrategy strategy = PollingStrategies.exponential(2.0, 10L, 100L, TimeUnit.MILLISECONDS);
+
+    errorCollector.checkThat("Start with at least base.",
+                             strategy.nextDelayNanos(1, 0L, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(10L * ONE_MS));
+    errorCollector.checkThat(strategy.nextDelayNanos(2, 10L * ONE_MS, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(20L * ONE_MS));
+    errorCollector.checkThat("Stop at cap.",
+                             strategy.nextDelayNanos(3, 80L * ONE_MS, 0L, Long.MAX_VALUE),
+                             Matchers.equalTo(100L * ONE_MS));
+  }
+
+  @Test
+  public void exponential_requires_cap_not_below_base() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+    PollingStrategies.exponential(2.0, 10L, 9L, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void decorrelated_jitter_stays_within_bounds() throws Exception {
+    PollingStrategy strategy =
+        PollingStrategies.decorrelatedJitter(10L, 100L, TimeUnit.MILLISECONDS);
+
+    long delay = 0L;
+    for (int polls = 1; polls < 100; polls++) {
+      long previousDelay = delay;
+      delay = strategy.nextDelayNanos(polls, delay, 0L, Long.MAX_VALUE);
+      assertThat("At least base.", delay, Matchers.greaterThanOrEqualTo(10L * ONE_MS));
+      assertThat("At most cap.", delay, Matchers.lessThanOrEqualTo(100L * ONE_MS));
+      assertThat("At most three times previous delay.", delay,
+                 Matchers.lessThanOrEqualTo(Math.max(10L * ONE_MS, previousDelay) * 3L));
+    }
+  }
+
+  @Test
+  public void fibonacci_follows_sequence_up_to_cap() throws Exception {
+    PollingStrategy strategy = PollingStrategies.fibonacci(1L, 7L, TimeUnit.MILLISECONDS);
+
+    long[] expected = {1L, 1L, 2L, 3L, 5L, 7L, 7L};
+    for (int i = 0; i < expected.length; i++) {
+      errorCollector.checkThat("Delay after poll " + (i + 1) + '.',
+                               strategy.nextDelayNanos(i + 1, 0L, 0L, Long.MAX_VALUE),
+                               Matchers.equalTo(expected[i] * ONE_MS));
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+
+import org.hamcrest.Matchers;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link ProbeListener} and {@link ProbeListeners}.
+ *
+ * @since SINCE
+ */
+public class ProbeListenersTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void listener_receives_poll_level_events_on_success() throws Exception {
+    RecordingListener listener = new RecordingListener();
+
+    WaitFunction.waitFor(countingFunction())
+        .toFulfill(Predicates.equalTo(3))
+        .withInitialDelay(1L, TimeUnit.MICROSECONDS)
+        .within(10L, TimeUnit.SECONDS)
+        .and()
+        .withListener(listener)
+        .get()
+        .apply(null);
+
+    assertThat(listener.events, Matchers.contains(
+        "start",
+        "evaluation:false", "sleep",
+        "evaluation:false", "sleep",
+        "evaluation:true", "satisfied"));
+  }
+
+  @Test
+  public void listener_receives_timeout_before_timeout_function() throws Exception {
+    final RecordingListener listener = new RecordingListener();
+
+    WaitFunction.waitFor(countingFunction())
+        .toFulfill(Predicates.alwaysFalse())
+        .withinMs(0L)
+        .onTimeout(new Function<WaitTimeoutEvent<Void, Integer>, Integer>() {
+          @Override
+          public Integer apply(@Nullable WaitTimeoutEvent<Void, Integer> input) {
+            listener.events.add("timeoutFunction");
+            return null;
+          }
+        })
+        .withListener(listener)
+        .get()
+        .apply(null);
+
+    assertThat(listener.events, Matchers.contains(
+        "start", "evaluation:false", "timeout", "timeoutFunction"));
+  }
+
+  @Test
+  public void listener_receives_failure_on_open_circuit_breaker() throws Exception {
+    RecordingListener listener = new RecordingListener();
+    VirtualClock clock = new VirtualClock();
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker("backend", clock, 1, 1L, TimeUnit.MINUTES);
+    circuitBreaker.onFailure(null);
+
+    try {
+      WaitFunction.waitFor(countingFunction())
+          .withListener(listener)
+          .withCircuitBreaker(circuitBreaker)
+          .withClock(clock)
+          .get()
+          .apply(null);
+      fail("Open circuit breaker expected.");
+    } catch (CircuitBreakerOpenException ignored) {
+      // expected
+    }
+
+    assertThat(listener.events, Matchers.contains("start", "failure"));
+  }
+
+  @Test
+  public void global_listener_receives_events_until_unregistered() throws Exception {
+    RecordingListener globalListener = new RecordingListener();
+    RecordingListener localListener = new RecordingListener();
+    Function<Void, Integer> waitFunction = WaitFunction.waitFor(countingFunction())
+        .withListener(localListener)
+        .get();
+
+    ProbeListeners.register(globalListener);
+    try {
+      waitFunction.apply(null);
+    } finally {
+      ProbeListeners.unregister(globalListener);
+    }
+    waitFunction.apply(null);
+
+    errorCollector.checkThat("Global listener informed while registered.",
+                             globalListener.events,
+                             Matchers.contains("start", "evaluation:true", "satisfied"));
+    errorCollector.checkThat("Local listener always informed.",
+                             localListener.events,
+                             Matchers.contains("start", "evaluation:true", "satisfied",
+                                               "start", "evaluation:true", "satisfied"));
+  }
+
+  @Test
+  public void combine_no_listeners_to_no_op() throws Exception {
+    assertThat(ProbeListeners.combine(Collections.<ProbeListener>emptyList()),
+               Matchers.sameInstance(ProbeListeners.noOp()));
+  }
+
+  @Test
+  public void combine_single_listener_to_itself() throws Exception {
+    ProbeListener listener = new RecordingListener();
+
+    assertThat(ProbeListeners.combine(Collections.singletonList(listener)),
+               Matchers.sameInstance(listener));
+  }
+
+  @Test
+  public void combined_listeners_are_called_in_order() throws Exception {
+    final List<String> calls = new CopyOnWriteArrayList<>();
+    ProbeListener combined = ProbeListeners.combine(Arrays.<ProbeListener>asList(
+        new ProbeListenerAdapter() {
+          @Override
+          public void onStart(@NotNull WaitFunction<?, ?> source) {
+            calls.add("first");
+          }
+        },
+        new ProbeListenerAdapter() {
+          @Override
+          public void onStart(@NotNull WaitFunction<?, ?> source) {
+            calls.add("second");
+          }
+        }));
+
+    combined.onStart((WaitFunction<?, ?>) WaitFunction.waitFor(countingFunction()).get());
+
+    assertThat(calls, Matchers.contains("first", "second"));
+  }
+
+  @NotNull
+  private static Function<Void, Integer> countingFunction() {
+    final AtomicInteger calls = new AtomicInteger();
+    return new Function<Void, Integer>() {
+      @Override
+      public Integer apply(Void input) {
+        return calls.incrementAndGet();
+      }
+    };
+  }
+
+  private static final class RecordingListener implements ProbeListener {
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void onStart(@NotNull WaitFunction<?, ?> source) {
+      events.add("start");
+    }
+
+    @Override
+    public void onEvaluation(@NotNull WaitFunction<?, ?> source,
+                             long durationNanos,
+                             boolean matched) {
+      events.add("evaluation:" + matched);
+    }
+
+    @Override
+    public void onSleep(@NotNull WaitFunction<?, ?> source, long nanos) {
+      events.add("sleep");
+    }
+
+    @Override
+    public void onSatisfied(@NotNull WaitFunction<?, ?> source, long consumedNanos) {
+      events.add("satisfied");
+    }
+
+    @Override
+    public void onFailure(@NotNull WaitFunction<?, ?> source, @NotNull Throwable failure) {
+      events.add("failure");
+    }
+
+    @Override
+    public void onTimeout(@NotNull WaitTimeoutEvent<?, ?> event) {
+      events.add("timeout");
+    }
+  }
+}
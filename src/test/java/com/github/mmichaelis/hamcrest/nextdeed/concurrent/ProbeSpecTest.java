@@ -0,0 +1,251 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+
+import com.github.mmichaelis.hamcrest.nextdeed.glue.Consumer;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.Matchers;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Tests {@link ProbeSpec} as created by {@link ProbeBuilder#compile()}.
+ *
+ * @since SINCE
+ */
+public class ProbeSpecTest {
+
+  private static final int THREADS = 8;
+  private static final int CHECKS_PER_THREAD = 50;
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void share_spec_between_threads() throws Exception {
+    final AtomicIntegerArray counters = new AtomicIntegerArray(THREADS);
+    final ProbeSpec<AtomicIntegerArray, Integer> spec =
+        Probe.<AtomicIntegerArray, Integer>probing(counters)
+            .withInitialDelay(1L, TimeUnit.MICROSECONDS)
+            .within(10L, TimeUnit.SECONDS)
+            .compile();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        final int index = t;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int i = 1; i <= CHECKS_PER_THREAD; i++) {
+              // Each check requires three polls.
+              spec.assertThat(incrementCounter(index), equalTo(3 * i));
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int t = 0; t < THREADS; t++) {
+      errorCollector.checkThat("Polls of thread " + t,
+                               counters.get(t),
+                               equalTo(3 * CHECKS_PER_THREAD));
+    }
+  }
+
+  @Test
+  public void reuse_compiled_spec_until_configuration_changes() throws Exception {
+    ProbeBuilder<AtomicIntegerArray, Integer> builder =
+        Probe.<AtomicIntegerArray, Integer>probing(new AtomicIntegerArray(1))
+            .withinMs(0L);
+    ProbeSpec<AtomicIntegerArray, Integer> spec = builder.compile();
+
+    errorCollector.checkThat("Reused.", builder.compile(), sameInstance(spec));
+    builder.within(1L, TimeUnit.MINUTES);
+    errorCollector.checkThat("Recompiled.", builder.compile(), not(sameInstance(spec)));
+  }
+
+  @Test
+  public void report_actual_function_to_listeners() throws Exception {
+    final List<Object> sources = new CopyOnWriteArrayList<>();
+    Function<AtomicIntegerArray, Integer> actualFunction = incrementCounter(0);
+    Probe.<AtomicIntegerArray, Integer>probing(new AtomicIntegerArray(1))
+        .within(1L, TimeUnit.MINUTES)
+        .withListener(new ProbeListenerAdapter() {
+          @Override
+          public void onStart(@NotNull WaitFunction<?, ?> source) {
+            sources.add(source.getDelegateFunction());
+          }
+        })
+        .assertThat(actualFunction, equalTo(1));
+
+    assertThat(sources, contains((Object) actualFunction));
+  }
+
+  @Test
+  public void spec_is_not_affected_by_later_builder_changes() throws Exception {
+    List<String> calls = new CopyOnWriteArrayList<>();
+    RecordingConsumer compiledConsumer = new RecordingConsumer("compiled", calls);
+    RecordingConsumer laterConsumer = new RecordingConsumer("later", calls);
+    ProbeBuilder<AtomicIntegerArray, Integer> builder =
+        Probe.<AtomicIntegerArray, Integer>probing(new AtomicIntegerArray(1))
+            .withinMs(0L)
+            .onTimeout(compiledConsumer);
+    ProbeSpec<AtomicIntegerArray, Integer> spec = builder.compile();
+    builder.within(1L, TimeUnit.MINUTES).onTimeout(laterConsumer);
+
+    try {
+      spec.assertThat(incrementCounter(0), equalTo(-1));
+    } catch (AssertionError ignored) {
+      assertThat(calls, contains("compiled"));
+      return;
+    }
+    throw new AssertionError("Assertion should have failed.");
+  }
+
+  @Test
+  public void require_throws_wait_timeout_exception() throws Exception {
+    ProbeSpec<AtomicIntegerArray, Integer> spec =
+        Probe.<AtomicIntegerArray, Integer>probing(new AtomicIntegerArray(1))
+            .withinMs(0L)
+            .compile();
+
+    expectedException.expect(WaitTimeoutException.class);
+    spec.requireThat(incrementCounter(0), equalTo(-1));
+  }
+
+  @Test
+  public void assert_all_matchers_on_one_result_per_poll() throws Exception {
+    AtomicIntegerArray counters = new AtomicIntegerArray(1);
+    ProbeSpec<AtomicIntegerArray, Integer> spec =
+        Probe.<AtomicIntegerArray, Integer>probing(counters)
+            .withInitialDelay(1L, TimeUnit.MICROSECONDS)
+            .within(10L, TimeUnit.SECONDS)
+            .compile();
+
+    spec.assertAll(incrementCounter(0),
+                   ImmutableList.<Matcher<? super Integer>>of(greaterThan(3),
+                                                              lessThan(10),
+                                                              not(equalTo(4))));
+
+    assertThat("Stops on first poll matching all.", counters.get(0), equalTo(5));
+  }
+
+  @Test
+  public void assert_all_reports_failed_matchers() throws Exception {
+    ProbeSpec<AtomicIntegerArray, Integer> spec =
+        Probe.<AtomicIntegerArray, Integer>probing(new AtomicIntegerArray(1))
+            .withinMs(0L)
+            .compile();
+
+    try {
+      spec.assertAll("Counter", incrementCounter(0), greaterThan(0), lessThan(0), equalTo(2));
+    } catch (AssertionError e) {
+      errorCollector.checkThat(e.getMessage(), containsString("2 of 3 failed:"));
+      errorCollector.checkThat(e.getMessage(), containsString("a value less than <0>"));
+      errorCollector.checkThat(e.getMessage(), containsString("<2>"));
+      return;
+    }
+    throw new AssertionError("Assertion should have failed.");
+  }
+
+  @Test
+  public void assertion_error_caused_by_last_ignored_exception() throws Exception {
+    final IllegalStateException exception = new IllegalStateException("Not ready.");
+    ProbeSpec<AtomicIntegerArray, Integer> spec =
+        Probe.<AtomicIntegerArray, Integer>probing(new AtomicIntegerArray(1))
+            .withinMs(0L)
+            .ignoringExceptions(IllegalStateException.class)
+            .compile();
+
+    try {
+      spec.assertThat(new Function<AtomicIntegerArray, Integer>() {
+        @Override
+        public Integer apply(AtomicIntegerArray input) {
+          throw exception;
+        }
+      }, equalTo(1));
+    } catch (AssertionError e) {
+      errorCollector.checkThat(e.getCause(), Matchers.<Throwable>sameInstance(exception));
+      return;
+    }
+    throw new AssertionError("Assertion should have failed.");
+  }
+
+  @NotNull
+  private static Function<AtomicIntegerArray, Integer> incrementCounter(final int index) {
+    return new Function<AtomicIntegerArray, Integer>() {
+      @Override
+      public Integer apply(AtomicIntegerArray input) {
+        return input.incrementAndGet(index);
+      }
+    };
+  }
+
+  private static final class RecordingConsumer
+      implements Consumer<WaitTimeoutEvent<AtomicIntegerArray, Integer>> {
+    @NotNull
+    private final String name;
+    @NotNull
+    private final List<String> calls;
+
+    private RecordingConsumer(@NotNull String name, @NotNull List<String> calls) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @Override
+    public void accept(WaitTimeoutEvent<AtomicIntegerArray, Integer> input) {
+      calls.add(name);
+    }
+  }
+}
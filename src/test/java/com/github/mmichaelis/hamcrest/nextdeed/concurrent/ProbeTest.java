@@ -16,6 +16,7 @@
 
 package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
 
+import static com.github.mmichaelis.hamcrest.nextdeed.concurrent.ConcurrentTestUtil.toMillis;
 import static com.github.mmichaelis.hamcrest.nextdeed.concurrent.OnWaitFunctionSpy.spyOnWaitFunction;
 import static com.github.mmichaelis.hamcrest.nextdeed.reflect.ClassModifierMatcher.classModifierContains;
 import static com.github.mmichaelis.hamcrest.nextdeed.reflect.InstantiableViaDefaultConstructor.isInstantiableViaDefaultConstructor;
@@ -27,6 +28,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
@@ -157,6 +159,32 @@ public class ProbeTest {
                      containsString(valueOf(SystemState.STOPPED))));
   }
 
+  @Test
+  public void inform_timeout_handlers_on_cancellation() throws Exception {
+    SystemUnderTest_SUT systemUnderTest = new SystemUnderTest_SUT();
+    WaitTimeoutEventConsumer eventConsumer = new WaitTimeoutEventConsumer();
+
+    ProbeBuilder<SystemUnderTest_SUT, SystemState> configuredProbe =
+        Probe.<SystemUnderTest_SUT, SystemState>probing(systemUnderTest)
+            .onTimeout(eventConsumer)
+            .withinMs(10000L);
+
+    Thread.currentThread().interrupt();
+    Throwable result;
+    try {
+      result = new ProbeFacade<>(configuredProbe)
+          .run(mode, new GetSystemState(), equalTo(SystemState.RUNNING));
+    } finally {
+      errorCollector.checkThat("Interrupt status preserved.", Thread.interrupted(), is(true));
+    }
+
+    assertThat("Consumer should have been informed.", eventConsumer.getEvent(), notNullValue());
+    assertThat("Event should signal cancellation.", eventConsumer.getEvent().isCancelled(),
+               is(true));
+    assertThat("Cancellation should not be reported as failure.", result,
+               instanceOf(WaitCancelledException.class));
+  }
+
   @Test
   public void throw_exception_on_failure_with_message() throws Exception {
     List<Long> usedTimeMillis = Collections.singletonList(1000L);
@@ -204,7 +232,7 @@ public class ProbeTest {
     assertThat("No exception should have been thrown.", result, nullValue());
 
     WaitFunction<SystemUnderTest_SUT, SystemState> spy = functionSpy.getWaitFunction();
-    Mockito.verify(spy, times(1)).sleep(anyLong());
+    Mockito.verify(spy, times(1)).sleepNanos(anyLong());
   }
 
   @Test
@@ -227,7 +255,7 @@ public class ProbeTest {
     assertThat("No exception should have been thrown.", result, nullValue());
 
     WaitFunction<SystemUnderTest_SUT, SystemState> spy = functionSpy.getWaitFunction();
-    Mockito.verify(spy, times(1)).sleep(anyLong());
+    Mockito.verify(spy, times(1)).sleepNanos(anyLong());
   }
 
   @Test
@@ -279,9 +307,9 @@ public class ProbeTest {
     WaitFunction<SystemUnderTest_SUT, SystemState> spy = functionSpy.getWaitFunction();
     ArgumentCaptor<Long> argument = ArgumentCaptor.forClass(Long.class);
     InOrder inOrder = Mockito.inOrder(spy);
-    inOrder.verify(spy).sleep(argument.capture());
-    inOrder.verify(spy).sleep(argument.capture());
-    assertThat("Delays accelerate (thus polling decelerates).", argument.getAllValues(),
+    inOrder.verify(spy).sleepNanos(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
+    assertThat("Delays accelerate (thus polling decelerates).", toMillis(argument.getAllValues()),
                equalTo(asList(3L, 6L)));
   }
 
@@ -313,11 +341,11 @@ public class ProbeTest {
     WaitFunction<SystemUnderTest_SUT, SystemState> spy = functionSpy.getWaitFunction();
     ArgumentCaptor<Long> argument = ArgumentCaptor.forClass(Long.class);
     InOrder inOrder = Mockito.inOrder(spy);
-    inOrder.verify(spy).sleep(argument.capture());
-    inOrder.verify(spy).sleep(argument.capture());
-    inOrder.verify(spy).sleep(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
     assertThat("Initial delay is respected and eventually overridden when system becomes slow.",
-               argument.getAllValues(),
+               toMillis(argument.getAllValues()),
                equalTo(asList(100L, 150L, 225L)));
   }
 
@@ -352,11 +380,11 @@ public class ProbeTest {
     WaitFunction<SystemUnderTest_SUT, SystemState> spy = functionSpy.getWaitFunction();
     ArgumentCaptor<Long> argument = ArgumentCaptor.forClass(Long.class);
     InOrder inOrder = Mockito.inOrder(spy);
-    inOrder.verify(spy).sleep(argument.capture());
-    inOrder.verify(spy).sleep(argument.capture());
-    inOrder.verify(spy).sleep(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
     assertThat("Initial delay is respected and eventually overridden when system becomes slow.",
-               argument.getAllValues(),
+               toMillis(argument.getAllValues()),
                equalTo(asList(
                    initialDelayMs,
                    Math.round(initialDelayMs * decelerationFactor),
@@ -396,10 +424,10 @@ public class ProbeTest {
     WaitFunction<SystemUnderTest_SUT, SystemState> spy = functionSpy.getWaitFunction();
     ArgumentCaptor<Long> argument = ArgumentCaptor.forClass(Long.class);
     InOrder inOrder = Mockito.inOrder(spy);
-    inOrder.verify(spy).sleep(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
     assertThat(
         "Without grace period only 40 ms would remain after first poll. With grace we should get 90 ms.",
-        argument.getAllValues(),
+        toMillis(argument.getAllValues()),
         equalTo(Collections.singletonList(90L)));
   }
 
@@ -435,10 +463,10 @@ public class ProbeTest {
     WaitFunction<SystemUnderTest_SUT, SystemState> spy = functionSpy.getWaitFunction();
     ArgumentCaptor<Long> argument = ArgumentCaptor.forClass(Long.class);
     InOrder inOrder = Mockito.inOrder(spy);
-    inOrder.verify(spy).sleep(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
     assertThat(
         "Without grace period only 40 ms would remain after first poll. With grace we should get 90 ms.",
-        argument.getAllValues(),
+        toMillis(argument.getAllValues()),
         equalTo(Collections.singletonList(90L)));
   }
 
@@ -512,6 +540,32 @@ public class ProbeTest {
       delegateProbeBuilder.assertThat(reason, actualFunction, matcher);
     }
 
+    @Override
+    public void assertAll(@NotNull Function<T, R> actualFunction,
+                          @NotNull Iterable<? extends Matcher<? super R>> matchers) {
+      delegateProbeBuilder.assertAll(actualFunction, matchers);
+    }
+
+    @Override
+    public void assertAll(@Nullable String reason, @NotNull Function<T, R> actualFunction,
+                          @NotNull Iterable<? extends Matcher<? super R>> matchers) {
+      delegateProbeBuilder.assertAll(reason, actualFunction, matchers);
+    }
+
+    @SafeVarargs
+    @Override
+    public final void assertAll(@NotNull Function<T, R> actualFunction,
+                                @NotNull Matcher<? super R>... matchers) {
+      delegateProbeBuilder.assertAll(actualFunction, matchers);
+    }
+
+    @SafeVarargs
+    @Override
+    public final void assertAll(@Nullable String reason, @NotNull Function<T, R> actualFunction,
+                                @NotNull Matcher<? super R>... matchers) {
+      delegateProbeBuilder.assertAll(reason, actualFunction, matchers);
+    }
+
     @Override
     public void assumeThat(@NotNull Function<T, R> actualFunction,
                            @NotNull Matcher<? super R> matcher) {
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests {@link ProbeTrigger}.
+ *
+ * @since SINCE
+ */
+public class ProbeTriggerTest {
+
+  /**
+   * Polling delay much longer than the test is expected to take, so that only the trigger
+   * can wake up the wait in time.
+   */
+  private static final long LONG_DELAY_SECONDS = 60L;
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  private ScheduledExecutorService executor;
+  private ProbeTrigger trigger;
+  private AtomicBoolean state;
+  private CountDownLatch evaluated;
+
+  @Before
+  public void setUp() throws Exception {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    trigger = new ProbeTrigger();
+    state = new AtomicBoolean();
+    evaluated = new CountDownLatch(1);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void fire_wakes_up_sleeping_wait() throws Exception {
+    Function<Void, Boolean> waitFunction = waitForState().get();
+
+    changeStateAfterFirstEvaluation();
+    long before = System.nanoTime();
+    Boolean result = waitFunction.apply(null);
+    long elapsed = System.nanoTime() - before;
+
+    errorCollector.checkThat(result, Matchers.is(true));
+    errorCollector.checkThat("Woke up before next scheduled poll.", elapsed,
+                             Matchers.lessThan(TimeUnit.SECONDS.toNanos(LONG_DELAY_SECONDS)));
+  }
+
+  @Test
+  public void fire_wakes_up_asynchronous_wait() throws Exception {
+    ListenableFuture<Boolean> future = waitForState().getAsync(executor).apply(null);
+
+    changeStateAfterFirstEvaluation();
+
+    assertThat("Woke up before next scheduled poll.",
+               future.get(LONG_DELAY_SECONDS / 2L, TimeUnit.SECONDS),
+               Matchers.is(true));
+  }
+
+  @Test
+  public void await_returns_immediately_if_fired_since_generation() throws Exception {
+    long generation = trigger.generation();
+
+    trigger.fire();
+
+    assertThat(trigger.awaitNanos(generation, TimeUnit.SECONDS.toNanos(LONG_DELAY_SECONDS)),
+               Matchers.is(true));
+  }
+
+  @Test
+  public void await_returns_after_time_elapsed_if_not_fired() throws Exception {
+    assertThat(trigger.awaitNanos(trigger.generation(), TimeUnit.MILLISECONDS.toNanos(1L)),
+               Matchers.is(false));
+  }
+
+  @Test
+  public void fire_without_waits_is_harmless() throws Exception {
+    trigger.fire();
+    trigger.fire();
+
+    assertThat(trigger.generation(), Matchers.equalTo(2L));
+  }
+
+  private WaitFunctionBuilder<Void, Boolean> waitForState() {
+    return WaitFunction.waitFor(new Function<Void, Boolean>() {
+      @Override
+      public Boolean apply(Void input) {
+        try {
+          return state.get();
+        } finally {
+          evaluated.countDown();
+        }
+      }
+    })
+        .toFulfill(Predicates.equalTo(true))
+        .withInitialDelay(LONG_DELAY_SECONDS, TimeUnit.SECONDS)
+        .within(2L * LONG_DELAY_SECONDS, TimeUnit.SECONDS)
+        .and()
+        .triggeredBy(trigger);
+  }
+
+  private void changeStateAfterFirstEvaluation() {
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          evaluated.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        state.set(true);
+        trigger.fire();
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+  }
+}
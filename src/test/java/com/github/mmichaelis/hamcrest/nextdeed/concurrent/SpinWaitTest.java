@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.junit.Assert.assertThat;
+
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Tests {@link SpinWait}.
+ *
+ * @since SINCE
+ */
+public class SpinWaitTest {
+
+  @Test
+  public void on_spin_wait_detected_since_java_9() throws Exception {
+    boolean java9OrLater;
+    try {
+      Thread.class.getMethod("onSpinWait");
+      java9OrLater = true;
+    } catch (NoSuchMethodException ignored) {
+      java9OrLater = false;
+    }
+
+    assertThat(SpinWait.isOnSpinWaitSupported(), Matchers.is(java9OrLater));
+  }
+
+  @Test
+  public void on_spin_wait_returns_immediately() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      SpinWait.onSpinWait();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests {@link StripedCounter}.
+ *
+ * @since SINCE
+ */
+public class StripedCounterTest {
+
+  private static final int THREADS = 8;
+  private static final int INCREMENTS = 10000;
+
+  @Test
+  public void sum_concurrent_increments() throws Exception {
+    final StripedCounter counter = new StripedCounter();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int i = 0; i < INCREMENTS; i++) {
+              counter.increment();
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(counter.sum(), equalTo((long) THREADS * INCREMENTS));
+  }
+
+  @Test
+  public void reset_clears_sum() throws Exception {
+    StripedCounter counter = new StripedCounter();
+    counter.add(42L);
+    counter.reset();
+
+    assertThat(counter.sum(), equalTo(0L));
+  }
+}
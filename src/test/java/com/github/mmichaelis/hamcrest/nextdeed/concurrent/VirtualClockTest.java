@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.ExpectedException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link VirtualClock}.
+ *
+ * @since SINCE
+ */
+public class VirtualClockTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void start_at_given_time() throws Exception {
+    errorCollector.checkThat(new VirtualClock().nanoTime(), equalTo(0L));
+    errorCollector.checkThat(new VirtualClock(42L).nanoTime(), equalTo(42L));
+  }
+
+  @Test
+  public void advance_manually() throws Exception {
+    VirtualClock clock = new VirtualClock();
+
+    errorCollector.checkThat(clock.advance(2L, TimeUnit.SECONDS),
+                             equalTo(TimeUnit.SECONDS.toNanos(2L)));
+    errorCollector.checkThat("Ticker reads same time.", clock.read(),
+                             equalTo(TimeUnit.SECONDS.toNanos(2L)));
+  }
+
+  @Test
+  public void sleeping_advances_clock() throws Exception {
+    VirtualClock clock = new VirtualClock();
+
+    clock.sleepNanos(TimeUnit.DAYS.toNanos(1L));
+
+    errorCollector.checkThat(clock.nanoTime(), equalTo(TimeUnit.DAYS.toNanos(1L)));
+  }
+
+  @Test
+  public void spinning_advances_clock_by_one_microsecond() throws Exception {
+    VirtualClock clock = new VirtualClock();
+
+    clock.sleepNanos(0L);
+
+    errorCollector.checkThat(clock.nanoTime(), equalTo(TimeUnit.MICROSECONDS.toNanos(1L)));
+  }
+
+  @Test
+  public void sleeping_respects_interrupt() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    Thread.currentThread().interrupt();
+
+    expectedException.expect(InterruptedException.class);
+
+    clock.sleepNanos(1L);
+  }
+
+  @Test
+  public void fail_on_negative_duration() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+
+    new VirtualClock().advance(-1L, TimeUnit.SECONDS);
+  }
+}
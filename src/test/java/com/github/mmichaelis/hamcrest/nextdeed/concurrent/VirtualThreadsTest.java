@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static com.github.mmichaelis.hamcrest.nextdeed.reflect.ClassModifierMatcher.classModifierContains;
+import static com.github.mmichaelis.hamcrest.nextdeed.reflect.MemberModifierMatcher.memberModifierContains;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests {@link VirtualThreads} and {@link VirtualThreadWaitFunction}.
+ *
+ * @since SINCE
+ */
+public class VirtualThreadsTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void thread_factory_names_threads() throws Exception {
+    Thread thread = VirtualThreads.newThreadFactory("lorem-").newThread(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+
+    errorCollector.checkThat("Thread name uses prefix.", thread.getName(),
+                             Matchers.startsWith("lorem-"));
+    errorCollector.checkThat("Thread must not prevent JVM shutdown.", thread.isDaemon(),
+                             Matchers.is(true));
+  }
+
+  @Test
+  public void executor_runs_tasks() throws Exception {
+    ExecutorService executor = VirtualThreads.newExecutor();
+    final AtomicReference<String> threadName = new AtomicReference<>();
+    try {
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          threadName.set(Thread.currentThread().getName());
+        }
+      }).get(10L, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat("Task executed.", threadName.get(), Matchers.notNullValue());
+  }
+
+  @Test
+  public void executor_does_not_pool_virtual_threads() throws Exception {
+    assumeTrue("Virtual threads supported.", VirtualThreads.isSupported());
+    ExecutorService executor = VirtualThreads.newExecutor();
+    final List<Thread> threads = new ArrayList<>();
+    try {
+      for (int i = 0; i < 2; i++) {
+        executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            synchronized (threads) {
+              threads.add(Thread.currentThread());
+            }
+          }
+        }).get(10L, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    synchronized (threads) {
+      assertThat("Each task runs on a new thread.",
+                 threads.get(0),
+                 Matchers.not(Matchers.sameInstance(threads.get(1))));
+    }
+  }
+
+  @Test
+  public void fan_out_waits_on_virtual_threads() throws Exception {
+    int waits = 500;
+    List<ListenableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < waits; i++) {
+      final AtomicInteger calls = new AtomicInteger();
+      Function<Void, ListenableFuture<Integer>> function =
+          WaitFunction.waitFor(new Function<Void, Integer>() {
+            @Override
+            public Integer apply(Void input) {
+              return calls.incrementAndGet();
+            }
+          })
+              .toFulfill(Predicates.equalTo(2))
+              .within(10L, TimeUnit.SECONDS)
+              .getOnVirtualThreads();
+      futures.add(function.apply(null));
+    }
+
+    List<Integer> results = Futures.allAsList(futures).get(30L, TimeUnit.SECONDS);
+
+    assertThat("All waits completed.", results, Matchers.everyItem(Matchers.equalTo(2)));
+  }
+
+  @Test
+  public void probe_checks_on_virtual_thread() throws Exception {
+    final AtomicReference<Thread> evaluatingThread = new AtomicReference<>();
+    Probe.<AtomicInteger, Integer>probing(new AtomicInteger())
+        .within(10L, TimeUnit.SECONDS)
+        .onVirtualThread()
+        .assertThat(new Function<AtomicInteger, Integer>() {
+          @Override
+          public Integer apply(AtomicInteger input) {
+            evaluatingThread.set(Thread.currentThread());
+            return input.incrementAndGet();
+          }
+        }, Matchers.equalTo(2));
+
+    errorCollector.checkThat("Evaluated on other thread.", evaluatingThread.get(),
+                             Matchers.not(Matchers.sameInstance(Thread.currentThread())));
+  }
+
+  @Test
+  public void probe_on_virtual_thread_fails_in_calling_thread_within_budget()
+      throws Exception {
+    VirtualClock clock = new VirtualClock();
+    AssertionError failure = null;
+    try (WaitBudget ignored = WaitBudget.open(clock, 1L, TimeUnit.SECONDS)) {
+      Probe.<AtomicInteger, Integer>probing(new AtomicInteger())
+          .within(1L, TimeUnit.HOURS)
+          .withClock(clock)
+          .onVirtualThread()
+          .assertThat(new Function<AtomicInteger, Integer>() {
+            @Override
+            public Integer apply(AtomicInteger input) {
+              return input.get();
+            }
+          }, Matchers.equalTo(1));
+    } catch (AssertionError e) {
+      failure = e;
+    }
+
+    errorCollector.checkThat("Failure raised in calling thread.", failure,
+                             Matchers.notNullValue());
+    errorCollector.checkThat("Clamped to budget.", clock.nanoTime(),
+                             Matchers.lessThan(TimeUnit.MINUTES.toNanos(1L)));
+  }
+
+  @Test
+  public void is_utility_class() throws Exception {
+    errorCollector.checkThat("Class must be final.",
+                             VirtualThreads.class,
+                             classModifierContains(Modifier.FINAL));
+    errorCollector.checkThat("Any constructors must be private.",
+                             asList(VirtualThreads.class.getDeclaredConstructors()),
+                             Matchers.everyItem(memberModifierContains(Modifier.PRIVATE)));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests {@link WaitBudget}.
+ *
+ * @since SINCE
+ */
+public class WaitBudgetTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @After
+  public void tearDown() throws Exception {
+    WaitBudget budget = WaitBudget.current();
+    while (budget != null) {
+      budget.close();
+      budget = WaitBudget.current();
+    }
+  }
+
+  @Test
+  public void no_budget_by_default() throws Exception {
+    errorCollector.checkThat(WaitBudget.current(), nullValue());
+  }
+
+  @Test
+  public void remaining_time_decreases_with_clock() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    try (WaitBudget budget = WaitBudget.open(clock, 10L, TimeUnit.SECONDS)) {
+      clock.advance(4L, TimeUnit.SECONDS);
+      errorCollector.checkThat(budget.remaining(TimeUnit.SECONDS), equalTo(6L));
+      errorCollector.checkThat(budget.isExhausted(), equalTo(false));
+
+      clock.advance(7L, TimeUnit.SECONDS);
+      errorCollector.checkThat(budget.remaining(TimeUnit.SECONDS), equalTo(0L));
+      errorCollector.checkThat(budget.isExhausted(), equalTo(true));
+    }
+  }
+
+  @Test
+  public void inner_budget_limited_by_outer_budget() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    try (WaitBudget outer = WaitBudget.open(clock, 10L, TimeUnit.SECONDS)) {
+      clock.advance(8L, TimeUnit.SECONDS);
+      try (WaitBudget inner = WaitBudget.open(clock, 5L, TimeUnit.SECONDS)) {
+        errorCollector.checkThat("Inner budget is current.", WaitBudget.current(),
+                                 sameInstance(inner));
+        errorCollector.checkThat("Inner budget limited by outer.",
+                                 inner.remaining(TimeUnit.SECONDS), equalTo(2L));
+      }
+      errorCollector.checkThat("Outer budget restored on close.", WaitBudget.current(),
+                               sameInstance(outer));
+    }
+    errorCollector.checkThat("No budget after closing all.", WaitBudget.current(), nullValue());
+  }
+
+  @Test
+  public void closed_budget_is_exhausted() throws Exception {
+    WaitBudget budget = WaitBudget.open(1L, TimeUnit.HOURS);
+    budget.close();
+
+    errorCollector.checkThat(budget.isExhausted(), equalTo(true));
+  }
+
+  @Test
+  public void budget_not_inherited_by_child_threads() throws Exception {
+    final AtomicReference<WaitBudget> inherited = new AtomicReference<>();
+    Runnable recordBudget = new Runnable() {
+      @Override
+      public void run() {
+        inherited.set(WaitBudget.current());
+      }
+    };
+    try (WaitBudget budget = WaitBudget.open(1L, TimeUnit.HOURS)) {
+      Thread thread = new Thread(recordBudget);
+      thread.start();
+      thread.join();
+
+      errorCollector.checkThat(inherited.get(), nullValue());
+      errorCollector.checkThat(WaitBudget.current(), sameInstance(budget));
+    }
+  }
+
+  @Test
+  public void closed_by_other_thread() throws Exception {
+    final WaitBudget budget = WaitBudget.open(1L, TimeUnit.HOURS);
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        budget.close();
+      }
+    });
+    thread.start();
+    thread.join();
+
+    errorCollector.checkThat("Closed by other thread.", WaitBudget.current(), nullValue());
+  }
+}
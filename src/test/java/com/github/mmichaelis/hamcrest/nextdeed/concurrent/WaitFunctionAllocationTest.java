@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Tests that polling does not allocate once a wait is set up: The difference in allocated
+ * bytes between a wait with few polls and a wait with many polls must not grow with the
+ * number of polls.
+ * </p>
+ *
+ * @since SINCE
+ */
+public class WaitFunctionAllocationTest {
+
+  private static final int FEW_POLLS = 10;
+  private static final int MANY_POLLS = 2000;
+  /**
+   * Polls of decelerating waits, which soon sleep for days even on a virtual clock.
+   *
+   * @since SINCE
+   */
+  private static final int MANY_DECELERATING_POLLS = 200;
+  private static final int WARMUP_ROUNDS = 20;
+  /**
+   * Tolerance for allocations independent of the number of polls, like a lazily
+   * initialized thread-local buffer.
+   *
+   * @since SINCE
+   */
+  private static final long TOLERANCE_BYTES = 256L;
+
+  private com.sun.management.ThreadMXBean threadMXBean;
+
+  @Before
+  public void setUp() throws Exception {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue("Allocation measurement supported.",
+               bean instanceof com.sun.management.ThreadMXBean);
+    threadMXBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue("Allocation measurement supported.",
+               threadMXBean.isThreadAllocatedMemorySupported());
+    threadMXBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Test
+  public void spinning_does_not_allocate() throws Exception {
+    CountDown countDown = new CountDown();
+    Function<Object, Boolean> waitFunction = WaitFunction.waitFor(countDown)
+        .toFulfill(Predicates.equalTo(Boolean.TRUE))
+        .within(1L, TimeUnit.MINUTES)
+        .and()
+        .spinThenPark(1L, 0L, TimeUnit.MINUTES)
+        .get();
+
+    assertPollingDoesNotAllocate(waitFunction, countDown);
+  }
+
+  @Test
+  public void parking_does_not_allocate() throws Exception {
+    CountDown countDown = new CountDown();
+    Function<Object, Boolean> waitFunction = WaitFunction.waitFor(countDown)
+        .toFulfill(Predicates.equalTo(Boolean.TRUE))
+        .withInitialDelay(1L, TimeUnit.MICROSECONDS)
+        .within(1L, TimeUnit.MINUTES)
+        .and()
+        .pollingWith(PollingStrategies.fixed(1L, TimeUnit.MICROSECONDS))
+        .get();
+
+    assertPollingDoesNotAllocate(waitFunction, countDown);
+  }
+
+  @Test
+  public void decelerating_does_not_allocate() throws Exception {
+    CountDown countDown = new CountDown();
+    Function<Object, Boolean> waitFunction = WaitFunction.waitFor(countDown)
+        .toFulfill(Predicates.equalTo(Boolean.TRUE))
+        .withInitialDelay(1L, TimeUnit.MICROSECONDS)
+        .within(1000L, TimeUnit.DAYS)
+        .and()
+        .withClock(new VirtualClock())
+        .get();
+
+    assertPollingDoesNotAllocate(waitFunction, countDown, MANY_DECELERATING_POLLS);
+  }
+
+  @Test
+  public void waiting_for_trigger_does_not_allocate() throws Exception {
+    CountDown countDown = new CountDown();
+    Function<Object, Boolean> waitFunction = WaitFunction.waitFor(countDown)
+        .toFulfill(Predicates.equalTo(Boolean.TRUE))
+        .withInitialDelay(1L, TimeUnit.MICROSECONDS)
+        .within(1L, TimeUnit.MINUTES)
+        .and()
+        .pollingWith(PollingStrategies.fixed(1L, TimeUnit.MICROSECONDS))
+        .triggeredBy(new ProbeTrigger())
+        .get();
+
+    assertPollingDoesNotAllocate(waitFunction, countDown);
+  }
+
+  @Test
+  public void recording_metrics_does_not_allocate() throws Exception {
+    CountDown countDown = new CountDown();
+    Function<Object, Boolean> waitFunction = WaitFunction.waitFor(countDown)
+        .toFulfill(Predicates.equalTo(Boolean.TRUE))
+        .within(1L, TimeUnit.MINUTES)
+        .and()
+        .spinThenPark(1L, 0L, TimeUnit.MINUTES)
+        .withListener(new WaitMetrics())
+        .get();
+
+    assertPollingDoesNotAllocate(waitFunction, countDown);
+  }
+
+  private void assertPollingDoesNotAllocate(@NotNull Function<Object, Boolean> waitFunction,
+                                            @NotNull CountDown countDown) {
+    assertPollingDoesNotAllocate(waitFunction, countDown, MANY_POLLS);
+  }
+
+  private void assertPollingDoesNotAllocate(@NotNull Function<Object, Boolean> waitFunction,
+                                            @NotNull CountDown countDown,
+                                            int manyPolls) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      allocatedBytes(waitFunction, countDown, manyPolls);
+    }
+    long fewPollsBytes = allocatedBytes(waitFunction, countDown, FEW_POLLS);
+    long manyPollsBytes = allocatedBytes(waitFunction, countDown, manyPolls);
+
+    assertThat(String.format("Bytes allocated by %d additional polls.", manyPolls - FEW_POLLS),
+               manyPollsBytes - fewPollsBytes,
+               lessThanOrEqualTo(TOLERANCE_BYTES));
+  }
+
+  private long allocatedBytes(@NotNull Function<Object, Boolean> waitFunction,
+                              @NotNull CountDown countDown,
+                              int polls) {
+    long threadId = Thread.currentThread().getId();
+    countDown.reset(polls);
+    long before = threadMXBean.getThreadAllocatedBytes(threadId);
+    waitFunction.apply(null);
+    return threadMXBean.getThreadAllocatedBytes(threadId) - before;
+  }
+
+  /**
+   * Function which signals {@code true} after a given number of calls without allocating.
+   *
+   * @since SINCE
+   */
+  private static final class CountDown implements Function<Object, Boolean> {
+    private int remaining;
+
+    private void reset(int calls) {
+      remaining = calls;
+    }
+
+    @Override
+    public Boolean apply(Object input) {
+      remaining--;
+      return remaining <= 0;
+    }
+  }
+}
@@ -16,10 +16,14 @@
 
 package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
 
+import static com.github.mmichaelis.hamcrest.nextdeed.concurrent.ConcurrentTestUtil.toMillis;
+import static com.github.mmichaelis.hamcrest.nextdeed.concurrent.ConcurrentTestUtil.toNanos;
 import static com.github.mmichaelis.hamcrest.nextdeed.glue.DescribedFunction.describe;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 
@@ -37,10 +41,13 @@ import org.mockito.Mockito;
 import org.mockito.internal.verification.VerificationModeFactory;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests {@link WaitFunction}.
@@ -74,7 +81,7 @@ public class WaitFunctionTest {
 
     assertThat(result, Matchers.equalTo(testName.getMethodName()));
     // Sleep not expected because of immediate success.
-    Mockito.verify(spy, VerificationModeFactory.atMost(0)).sleep(Mockito.anyLong());
+    Mockito.verify(spy, VerificationModeFactory.atMost(0)).sleepNanos(Mockito.anyLong());
   }
 
   @SuppressWarnings("ConstantConditions")
@@ -97,7 +104,7 @@ public class WaitFunctionTest {
             .get();
     WaitFunction<String, String> spy = Mockito.spy(waitFunction);
 
-    Mockito.doNothing().when(spy).sleep(Mockito.anyLong());
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
     expectedException.expect(WaitTimeoutException.class);
     expectedException.expectMessage(testName.getMethodName());
     expectedException.expectMessage(inputValue);
@@ -132,13 +139,13 @@ public class WaitFunctionTest {
             .get();
     WaitFunction<String, String> spy = Mockito.spy(waitFunction);
 
-    Mockito.doNothing().when(spy).sleep(Mockito.anyLong());
-    Mockito.doReturn(0L).when(spy).nowMillis();
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doReturn(0L).when(spy).nowNanos();
 
     String result = spy.apply(inputValue);
 
     assertThat(result, Matchers.equalTo(testName.getMethodName()));
-    Mockito.verify(spy, VerificationModeFactory.times(1)).sleep(Mockito.anyLong());
+    Mockito.verify(spy, VerificationModeFactory.times(1)).sleepNanos(Mockito.anyLong());
   }
 
   @Test
@@ -176,12 +183,12 @@ public class WaitFunctionTest {
             .get();
     WaitFunction<String, String> spy = Mockito.spy(waitFunction);
 
-    Mockito.doNothing().when(spy).sleep(Mockito.anyLong());
-    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(timeMillis)).when(spy).nowMillis();
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(toNanos(timeMillis))).when(spy).nowNanos();
 
     spy.apply(inputValue);
 
-    Mockito.verify(spy, VerificationModeFactory.times(1)).sleep(10L);
+    Mockito.verify(spy, VerificationModeFactory.times(1)).sleepNanos(TimeUnit.MILLISECONDS.toNanos(10L));
   }
 
   @Test
@@ -225,16 +232,16 @@ public class WaitFunctionTest {
             .get();
     WaitFunction<String, String> spy = Mockito.spy(waitFunction);
 
-    Mockito.doNothing().when(spy).sleep(Mockito.anyLong());
-    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(timeMillis)).when(spy).nowMillis();
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(toNanos(timeMillis))).when(spy).nowNanos();
 
     spy.apply(inputValue);
 
     ArgumentCaptor<Long> argument = ArgumentCaptor.forClass(Long.class);
     InOrder inOrder = Mockito.inOrder(spy);
-    inOrder.verify(spy).sleep(argument.capture());
-    inOrder.verify(spy).sleep(argument.capture());
-    assertThat("Delays accelerate (thus polling decelerates).", argument.getAllValues(),
+    inOrder.verify(spy).sleepNanos(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
+    assertThat("Delays accelerate (thus polling decelerates).", toMillis(argument.getAllValues()),
                Matchers.equalTo(Arrays.asList(10L, 15L)));
   }
 
@@ -279,22 +286,298 @@ public class WaitFunctionTest {
             .get();
     WaitFunction<String, String> spy = Mockito.spy(waitFunction);
 
-    Mockito.doNothing().when(spy).sleep(Mockito.anyLong());
-    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(timeMillis)).when(spy).nowMillis();
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(toNanos(timeMillis))).when(spy).nowNanos();
 
     spy.apply(inputValue);
 
     ArgumentCaptor<Long> argument = ArgumentCaptor.forClass(Long.class);
     InOrder inOrder = Mockito.inOrder(spy);
-    inOrder.verify(spy).sleep(argument.capture());
-    inOrder.verify(spy).sleep(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
+    inOrder.verify(spy).sleepNanos(argument.capture());
     assertThat("Delays accelerate (thus polling decelerates) by at least one millisecond.",
-               argument.getAllValues(),
+               toMillis(argument.getAllValues()),
                Matchers.equalTo(Arrays.asList(1L, 2L)));
   }
 
   @Test
-  public void fail_on_interrupt_during_sleep() throws Exception {
+  public void poll_below_one_millisecond() throws Exception {
+    final Deque<Boolean> predicateAnswers = new ArrayDeque<>(Arrays.asList(false, true));
+
+    WaitFunction<String, String>
+        waitFunction =
+        (WaitFunction<String, String>) WaitFunction
+            .waitFor(new Function<String, String>() {
+              @Override
+              public String apply(String input) {
+                return input;
+              }
+            })
+            .toFulfill(new Predicate<String>() {
+              @Override
+              public boolean apply(String input) {
+                return predicateAnswers.pop();
+              }
+            })
+            .withInitialDelay(100L, TimeUnit.MICROSECONDS)
+            .within(1000L, TimeUnit.MILLISECONDS)
+            .get();
+    WaitFunction<String, String> spy = Mockito.spy(waitFunction);
+
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doReturn(0L).when(spy).nowNanos();
+
+    spy.apply(testName.getMethodName());
+
+    Mockito.verify(spy, VerificationModeFactory.times(1))
+        .sleepNanos(TimeUnit.MICROSECONDS.toNanos(100L));
+  }
+
+  @Test
+  public void sleep_at_least_given_nanos() throws Exception {
+    WaitFunction<Void, Void>
+        waitFunction =
+        (WaitFunction<Void, Void>) WaitFunction
+            .waitFor(new Function<Void, Void>() {
+              @Override
+              public Void apply(Void input) {
+                return null;
+              }
+            })
+            .get();
+    long sleepNanos = TimeUnit.MICROSECONDS.toNanos(500L);
+
+    long before = System.nanoTime();
+    waitFunction.sleepNanos(sleepNanos);
+    long after = System.nanoTime();
+
+    assertThat("Slept at least requested time.", after - before,
+               Matchers.greaterThanOrEqualTo(sleepNanos));
+  }
+
+  @Test
+  public void use_custom_polling_strategy() throws Exception {
+    final Deque<Boolean> predicateAnswers = new ArrayDeque<>(Arrays.asList(false, false, true));
+    final List<List<Long>> strategyArguments = new ArrayList<>();
+    List<Long> timeMillis =
+        Arrays.asList(
+            // used to determine start time
+            0L,
+            // time before and after first evaluation
+            0L, 3L,
+            // time before and after second evaluation
+            10L, 12L,
+            // time before and after third evaluation
+            20L, 21L);
+
+    WaitFunction<String, String>
+        waitFunction =
+        (WaitFunction<String, String>) WaitFunction
+            .waitFor(new Function<String, String>() {
+              @Override
+              public String apply(String input) {
+                return input;
+              }
+            })
+            .toFulfill(new Predicate<String>() {
+              @Override
+              public boolean apply(String input) {
+                return predicateAnswers.pop();
+              }
+            })
+            .withInitialDelay(1L, TimeUnit.MILLISECONDS)
+            .within(1000L, TimeUnit.MILLISECONDS)
+            .and()
+            .pollingWith(new PollingStrategy() {
+              @Override
+              public long nextDelayNanos(int polls,
+                                         long previousDelayNanos,
+                                         long lastEvaluationNanos,
+                                         long remainingNanos) {
+                strategyArguments.add(Arrays.asList((long) polls,
+                                                    previousDelayNanos,
+                                                    lastEvaluationNanos,
+                                                    remainingNanos));
+                return TimeUnit.MILLISECONDS.toNanos(7L);
+              }
+            })
+            .get();
+    WaitFunction<String, String> spy = Mockito.spy(waitFunction);
+
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(toNanos(timeMillis))).when(spy).nowNanos();
+
+    spy.apply(testName.getMethodName());
+
+    ArgumentCaptor<Long> argument = ArgumentCaptor.forClass(Long.class);
+    Mockito.verify(spy, VerificationModeFactory.times(2)).sleepNanos(argument.capture());
+    errorCollector.checkThat("First sleep at least as long as evaluation, then as calculated.",
+                             toMillis(argument.getAllValues()),
+                             Matchers.equalTo(Arrays.asList(3L, 7L)));
+    errorCollector.checkThat("Strategy receives polls, previous delay, evaluation time and "
+                             + "remaining time.",
+                             strategyArguments,
+                             Matchers.equalTo(Arrays.asList(
+                                 Arrays.asList(1L,
+                                               TimeUnit.MILLISECONDS.toNanos(3L),
+                                               TimeUnit.MILLISECONDS.toNanos(3L),
+                                               TimeUnit.MILLISECONDS.toNanos(997L)),
+                                 Arrays.asList(2L,
+                                               TimeUnit.MILLISECONDS.toNanos(7L),
+                                               TimeUnit.MILLISECONDS.toNanos(2L),
+                                               TimeUnit.MILLISECONDS.toNanos(988L)))));
+  }
+
+  @Test
+  public void spin_then_park_before_sleeping() throws Exception {
+    final Deque<Boolean> predicateAnswers =
+        new ArrayDeque<>(Arrays.asList(false, false, false, false, false, false, true));
+    List<Long> timeNanos =
+        Arrays.asList(
+            // used to determine start time
+            0L,
+            // spinning
+            0L, 0L,
+            1000L, 1000L,
+            // parking with doubling intervals, but not longer than park time
+            2000L, 2000L,
+            3000L, 3000L,
+            11000L, 11000L,
+            // sleeping
+            12000L, 12000L,
+            // final evaluation
+            5012000L, 5012000L);
+
+    WaitFunction<String, String>
+        waitFunction =
+        (WaitFunction<String, String>) WaitFunction
+            .waitFor(new Function<String, String>() {
+              @Override
+              public String apply(String input) {
+                return input;
+              }
+            })
+            .toFulfill(new Predicate<String>() {
+              @Override
+              public boolean apply(String input) {
+                return predicateAnswers.pop();
+              }
+            })
+            .withInitialDelay(5L, TimeUnit.MILLISECONDS)
+            .within(1000L, TimeUnit.MILLISECONDS)
+            .and()
+            .spinThenPark(2000L, 10000L, TimeUnit.NANOSECONDS)
+            .get();
+    WaitFunction<String, String> spy = Mockito.spy(waitFunction);
+
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(timeNanos)).when(spy).nowNanos();
+
+    spy.apply(testName.getMethodName());
+
+    ArgumentCaptor<Long> argument = ArgumentCaptor.forClass(Long.class);
+    Mockito.verify(spy, VerificationModeFactory.times(6)).sleepNanos(argument.capture());
+    assertThat("Spin (0), park, then sleep.", argument.getAllValues(),
+               Matchers.equalTo(Arrays.asList(0L, 0L, 1000L, 2000L, 1000L, 5000000L)));
+  }
+
+  @Test
+  public void spinning_respects_interrupt() throws Exception {
+    WaitFunction<Void, Void>
+        waitFunction =
+        (WaitFunction<Void, Void>) WaitFunction
+            .waitFor(new Function<Void, Void>() {
+              @Override
+              public Void apply(Void input) {
+                return null;
+              }
+            })
+            .get();
+
+    Thread.currentThread().interrupt();
+    try {
+      waitFunction.sleepNanos(0L);
+      fail("Interruption should have been signalled.");
+    } catch (InterruptedException ignored) {
+      errorCollector.checkThat("Interrupt flag cleared.", Thread.interrupted(),
+                               Matchers.is(false));
+    }
+  }
+
+  @Test
+  public void abandon_hung_evaluation_and_poll_again() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch interrupted = new CountDownLatch(1);
+
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+              try {
+                // Hang until interrupted.
+                new CountDownLatch(1).await();
+              } catch (InterruptedException e) {
+                interrupted.countDown();
+              }
+            }
+            return call;
+          }
+        })
+            .toFulfill(Predicates.equalTo(2))
+            .withInitialDelay(1L, TimeUnit.MILLISECONDS)
+            .within(10L, TimeUnit.SECONDS)
+            .and()
+            .withEvaluationTimeout(50L, TimeUnit.MILLISECONDS)
+            .get();
+
+    errorCollector.checkThat("Second evaluation provides result.", waitFunction.apply(null),
+                             Matchers.equalTo(2));
+    errorCollector.checkThat("Hung evaluation got interrupted.",
+                             interrupted.await(10L, TimeUnit.SECONDS),
+                             Matchers.is(true));
+  }
+
+  @Test
+  public void keep_deadline_on_hung_evaluation() throws Exception {
+    final CountDownLatch hang = new CountDownLatch(1);
+    Function<Void, Void> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Void>() {
+          @Override
+          public Void apply(Void input) {
+            // Ignore interrupts, just like a stuck socket read does.
+            while (hang.getCount() > 0L) {
+              try {
+                hang.await();
+              } catch (InterruptedException ignored) {
+                // continue hanging
+              }
+            }
+            return null;
+          }
+        })
+            .toFulfill(Predicates.alwaysFalse())
+            .within(100L, TimeUnit.MILLISECONDS)
+            .and()
+            .withEvaluationTimeout(10L, TimeUnit.SECONDS)
+            .get();
+
+    long before = System.nanoTime();
+    try {
+      waitFunction.apply(null);
+      fail("Timeout expected.");
+    } catch (WaitTimeoutException ignored) {
+      errorCollector.checkThat("Deadline kept despite hung evaluation.",
+                               System.nanoTime() - before,
+                               Matchers.lessThan(TimeUnit.SECONDS.toNanos(5L)));
+    } finally {
+      hang.countDown();
+    }
+  }
+
+  @Test
+  public void cancel_on_interrupt_during_sleep() throws Exception {
     final Deque<Boolean> predicateAnswers = new ArrayDeque<>(Arrays.asList(false, true));
     String inputValue = "Lorem";
     final String outputValue = testName.getMethodName();
@@ -319,13 +602,61 @@ public class WaitFunctionTest {
             .get();
     WaitFunction<String, String> spy = Mockito.spy(waitFunction);
 
-    Mockito.doThrow(InterruptedException.class).when(spy).sleep(Mockito.anyLong());
-    Mockito.doReturn(0L).when(spy).nowMillis();
+    Mockito.doThrow(InterruptedException.class).when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doReturn(0L).when(spy).nowNanos();
 
-    expectedException.expect(IllegalStateException.class);
-    expectedException.expectCause(Matchers.<Throwable>instanceOf(InterruptedException.class));
+    try {
+      spy.apply(inputValue);
+      fail("Cancellation expected.");
+    } catch (WaitCancelledException e) {
+      errorCollector.checkThat("Cancellation is described.", e.getMessage(),
+                               Matchers.allOf(Matchers.containsString(functionName),
+                                              Matchers.containsString("cancelled")));
+    } finally {
+      errorCollector.checkThat("Interrupt status preserved.", Thread.interrupted(),
+                               Matchers.is(true));
+    }
+  }
 
-    spy.apply(inputValue);
+  @Test
+  public void cancellation_reaches_timeout_function() throws Exception {
+    final List<WaitTimeoutEvent<Void, String>> events = new ArrayList<>();
+    WaitFunction<Void, String>
+        waitFunction =
+        (WaitFunction<Void, String>) WaitFunction
+            .waitFor(new Function<Void, String>() {
+              @Override
+              public String apply(Void input) {
+                return testName.getMethodName();
+              }
+            })
+            .toFulfill(Predicates.<String>alwaysFalse())
+            .within(1000L, TimeUnit.MILLISECONDS)
+            .onTimeout(new Function<WaitTimeoutEvent<Void, String>, String>() {
+              @Override
+              public String apply(@Nullable WaitTimeoutEvent<Void, String> input) {
+                events.add(input);
+                return "cancelled";
+              }
+            })
+            .get();
+
+    Thread.currentThread().interrupt();
+    String result;
+    try {
+      result = waitFunction.apply(null);
+    } finally {
+      errorCollector.checkThat("Interrupt status preserved.", Thread.interrupted(),
+                               Matchers.is(true));
+    }
+
+    errorCollector.checkThat("Result of timeout function returned.", result,
+                             Matchers.equalTo("cancelled"));
+    errorCollector.checkThat("One event.", events, Matchers.hasSize(1));
+    errorCollector.checkThat("Event signals cancellation.", events.get(0).isCancelled(),
+                             Matchers.is(true));
+    errorCollector.checkThat("Event contains last result.", events.get(0).getLastResult(),
+                             Matchers.equalTo(testName.getMethodName()));
   }
 
   @Test
@@ -364,8 +695,8 @@ public class WaitFunctionTest {
             .get();
     WaitFunction<String, String> spy = Mockito.spy(waitFunction);
 
-    Mockito.doNothing().when(spy).sleep(Mockito.anyLong());
-    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(timeMillis)).when(spy).nowMillis();
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(toNanos(timeMillis))).when(spy).nowNanos();
 
     spy.apply(inputValue);
 
@@ -407,8 +738,8 @@ public class WaitFunctionTest {
             .get();
     WaitFunction<String, String> spy = Mockito.spy(waitFunction);
 
-    Mockito.doNothing().when(spy).sleep(Mockito.anyLong());
-    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(timeMillis)).when(spy).nowMillis();
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(toNanos(timeMillis))).when(spy).nowNanos();
 
     spy.apply(inputValue);
 
@@ -429,6 +760,10 @@ public class WaitFunctionTest {
     errorCollector.checkThat("Event contains information on consumed milliseconds.",
                              event.getConsumedMs(),
                              Matchers.equalTo(expectedConsumedMs));
+    errorCollector.checkThat("Event contains information on consumed nanoseconds.",
+                             event.getConsumedNanos(),
+                             Matchers.equalTo(
+                                 TimeUnit.MILLISECONDS.toNanos(expectedConsumedMs)));
 
     // Validate description
     errorCollector.checkThat("Event description contains item function got applied to.",
@@ -456,6 +791,499 @@ public class WaitFunctionTest {
                              Matchers.containsString(Long.toString(event.getConsumedMs())));
   }
 
+  @Test
+  public void stable_for_polls_resets_streak_on_mismatch() throws Exception {
+    final Deque<Boolean> results = new ArrayDeque<>(Arrays.asList(true, false, true, true, true));
+    WaitFunction<Void, Boolean>
+        waitFunction =
+        (WaitFunction<Void, Boolean>) WaitFunction
+            .waitFor(new Function<Void, Boolean>() {
+              @Override
+              public Boolean apply(Void input) {
+                return results.pop();
+              }
+            })
+            .toFulfill(Predicates.equalTo(true))
+            .within(1000L, TimeUnit.MILLISECONDS)
+            .stableForPolls(3)
+            .get();
+    WaitFunction<Void, Boolean> spy = Mockito.spy(waitFunction);
+
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doReturn(0L).when(spy).nowNanos();
+
+    errorCollector.checkThat("Wait succeeded.", spy.apply(null), Matchers.is(true));
+    errorCollector.checkThat("All results consumed.", results, Matchers.<Boolean>empty());
+  }
+
+  @Test
+  public void stable_for_duration_requires_predicate_to_hold_long_enough() throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    List<Long> timeMillis =
+        Arrays.asList(
+            // init: determine deadline
+            0L,
+            // cycle 1: matches, streak starts
+            0L, 1L,
+            // cycle 2: matches, streak of 4 ms
+            4L, 5L,
+            // cycle 3: matches, streak of 10 ms
+            10L, 11L);
+    WaitFunction<Void, Integer>
+        waitFunction =
+        (WaitFunction<Void, Integer>) WaitFunction
+            .waitFor(new Function<Void, Integer>() {
+              @Override
+              public Integer apply(Void input) {
+                return evaluations.incrementAndGet();
+              }
+            })
+            .within(1000L, TimeUnit.MILLISECONDS)
+            .stableFor(10L, TimeUnit.MILLISECONDS)
+            .get();
+    WaitFunction<Void, Integer> spy = Mockito.spy(waitFunction);
+
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(toNanos(timeMillis))).when(spy).nowNanos();
+
+    assertThat("Succeeds once stable for 10 ms.", spy.apply(null), Matchers.equalTo(3));
+  }
+
+  @Test
+  public void timeout_event_reports_longest_streak() throws Exception {
+    final Deque<Boolean> results = new ArrayDeque<>(Arrays.asList(true, true, false, true));
+    List<Long> timeMillis =
+        Arrays.asList(
+            // init: determine deadline
+            0L,
+            // cycles 1 to 3: streak of 2 polls within 2 ms
+            0L, 1L, 2L, 3L, 4L, 5L,
+            // cycle 4: timeout
+            6L, 20L);
+    StoreTimeoutEvent<Void, Boolean> timeoutFunction = new StoreTimeoutEvent<>();
+    WaitFunction<Void, Boolean>
+        waitFunction =
+        (WaitFunction<Void, Boolean>) WaitFunction
+            .waitFor(new Function<Void, Boolean>() {
+              @Override
+              public Boolean apply(Void input) {
+                return results.pop();
+              }
+            })
+            .toFulfill(Predicates.equalTo(true))
+            .withinMs(10L)
+            .stableForPolls(5)
+            .onTimeout(timeoutFunction)
+            .get();
+    WaitFunction<Void, Boolean> spy = Mockito.spy(waitFunction);
+
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(toNanos(timeMillis))).when(spy).nowNanos();
+
+    spy.apply(null);
+
+    WaitTimeoutEvent<Void, Boolean> event = timeoutFunction.getLastEvent();
+    errorCollector.checkThat("Longest streak polls.", event.getLongestStreakPolls(),
+                             Matchers.equalTo(2));
+    errorCollector.checkThat("Longest streak duration.", event.getLongestStreakNanos(),
+                             Matchers.equalTo(TimeUnit.MILLISECONDS.toNanos(2L)));
+    errorCollector.checkThat("Longest streak described.", event.describe(),
+                             Matchers.containsString("longest stable streak: 2 polls within 2"));
+  }
+
+  @Test
+  public void timeout_event_contains_recent_polls() throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    List<Long> timeMillis =
+        Arrays.asList(
+            // init: determine deadline
+            0L,
+            // cycles 1 to 3
+            0L, 1L, 2L, 3L, 4L, 5L,
+            // cycle 4: timeout
+            6L, 20L);
+    StoreTimeoutEvent<Void, Integer> timeoutFunction = new StoreTimeoutEvent<>();
+    WaitFunction<Void, Integer>
+        waitFunction =
+        (WaitFunction<Void, Integer>) WaitFunction
+            .waitFor(new Function<Void, Integer>() {
+              @Override
+              public Integer apply(Void input) {
+                return evaluations.incrementAndGet();
+              }
+            })
+            .toFulfill(Predicates.<Integer>alwaysFalse())
+            .withinMs(10L)
+            .withHistorySize(3)
+            .onTimeout(timeoutFunction)
+            .get();
+    WaitFunction<Void, Integer> spy = Mockito.spy(waitFunction);
+
+    Mockito.doNothing().when(spy).sleepNanos(Mockito.anyLong());
+    Mockito.doAnswer(AdditionalAnswers.returnsElementsOf(toNanos(timeMillis))).when(spy).nowNanos();
+
+    spy.apply(null);
+
+    List<PollRecord<Integer>> history = timeoutFunction.getLastEvent().getHistory();
+    errorCollector.checkThat("Only most recent polls kept.", history, Matchers.hasSize(3));
+    errorCollector.checkThat("Oldest poll first.", history.get(0).getResult(),
+                             Matchers.equalTo(2));
+    errorCollector.checkThat("Newest poll last.", history.get(2).getResult(),
+                             Matchers.equalTo(4));
+    errorCollector.checkThat("Offset of poll recorded.",
+                             history.get(2).getOffset(TimeUnit.MILLISECONDS),
+                             Matchers.equalTo(6L));
+    errorCollector.checkThat("Duration of poll recorded.",
+                             history.get(2).getDuration(TimeUnit.MILLISECONDS),
+                             Matchers.equalTo(14L));
+    errorCollector.checkThat("Recent polls described.", timeoutFunction.getLastEvent().describe(),
+                             Matchers.containsString("#3 at 4.000 ms (took 1.000 ms): 3"));
+  }
+
+  @Test
+  public void virtual_clock_advances_instead_of_sleeping() throws Exception {
+    final VirtualClock clock = new VirtualClock();
+    Function<Void, Long> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Long>() {
+          @Override
+          public Long apply(Void input) {
+            return clock.read();
+          }
+        })
+            .toFulfill(new Predicate<Long>() {
+              @Override
+              public boolean apply(@Nullable Long input) {
+                return input != null && input >= TimeUnit.SECONDS.toNanos(20L);
+              }
+            })
+            .within(30L, TimeUnit.SECONDS)
+            .withClock(clock)
+            .get();
+
+    long startNanos = System.nanoTime();
+    Long result = waitFunction.apply(null);
+
+    errorCollector.checkThat("Virtual time reached.", result,
+                             Matchers.greaterThanOrEqualTo(TimeUnit.SECONDS.toNanos(20L)));
+    errorCollector.checkThat("Real time did not pass.", System.nanoTime() - startNanos,
+                             Matchers.lessThan(TimeUnit.SECONDS.toNanos(10L)));
+  }
+
+  @Test
+  public void virtual_clock_times_out_without_waiting() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    StoreTimeoutEvent<Void, String> timeoutFunction = new StoreTimeoutEvent<>();
+    Function<Void, String> waitFunction =
+        WaitFunction.waitFor(new Function<Void, String>() {
+          @Override
+          public String apply(Void input) {
+            return "Lorem";
+          }
+        })
+            .toFulfill(Predicates.<String>alwaysFalse())
+            .within(30L, TimeUnit.SECONDS)
+            .spinThenPark(1L, 1L, TimeUnit.MILLISECONDS)
+            .withClock(clock)
+            .onTimeout(timeoutFunction)
+            .get();
+
+    waitFunction.apply(null);
+
+    errorCollector.checkThat("Consumed virtual time.",
+                             timeoutFunction.getLastEvent().getConsumedMs(),
+                             Matchers.greaterThanOrEqualTo(TimeUnit.SECONDS.toMillis(30L)));
+  }
+
+  @Test
+  public void clamp_timeout_to_wait_budget() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    StoreTimeoutEvent<Void, String> timeoutFunction = new StoreTimeoutEvent<>();
+    Function<Void, String> waitFunction =
+        WaitFunction.waitFor(new Function<Void, String>() {
+          @Override
+          public String apply(Void input) {
+            return "Lorem";
+          }
+        })
+            .toFulfill(Predicates.<String>alwaysFalse())
+            .within(30L, TimeUnit.SECONDS)
+            .withClock(clock)
+            .onTimeout(timeoutFunction)
+            .get();
+
+    try (WaitBudget ignored = WaitBudget.open(clock, 40L, TimeUnit.SECONDS)) {
+      waitFunction.apply(null);
+      errorCollector.checkThat("First wait gets its full timeout.",
+                               timeoutFunction.getLastEvent().getConsumedMs(),
+                               Matchers.greaterThanOrEqualTo(TimeUnit.SECONDS.toMillis(30L)));
+      waitFunction.apply(null);
+      errorCollector.checkThat("Second wait clamped to remaining budget.",
+                               timeoutFunction.getLastEvent().getConsumedMs(),
+                               Matchers.lessThan(TimeUnit.SECONDS.toMillis(15L)));
+    }
+  }
+
+  @Test
+  public void time_out_after_max_evaluations() throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    StoreTimeoutEvent<Void, Integer> timeoutFunction = new StoreTimeoutEvent<>();
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            return evaluations.incrementAndGet();
+          }
+        })
+            .toFulfill(Predicates.<Integer>alwaysFalse())
+            .within(1L, TimeUnit.HOURS)
+            .withMaxEvaluations(3)
+            .withClock(new VirtualClock())
+            .onTimeout(timeoutFunction)
+            .get();
+
+    errorCollector.checkThat("Last result provided.", waitFunction.apply(null),
+                             Matchers.equalTo(3));
+    errorCollector.checkThat("No further evaluations.", evaluations.get(), Matchers.equalTo(3));
+  }
+
+  @Test
+  public void defer_polls_by_rate_limiter_until_deadline() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    PollRateLimiter rateLimiter = new PollRateLimiter(testName.getMethodName(), 1d);
+    final AtomicInteger evaluations = new AtomicInteger();
+    StoreTimeoutEvent<Void, Integer> timeoutFunction = new StoreTimeoutEvent<>();
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            return evaluations.incrementAndGet();
+          }
+        })
+            .toFulfill(Predicates.<Integer>alwaysFalse())
+            .within(10L, TimeUnit.SECONDS)
+            .withClock(clock)
+            .rateLimitedBy(rateLimiter)
+            .onTimeout(timeoutFunction)
+            .get();
+
+    // Another wait took tokens for the next 20 seconds.
+    for (int i = 0; i < 20; i++) {
+      rateLimiter.reserveNanos(clock.nanoTime(), 0L, Long.MAX_VALUE);
+    }
+    waitFunction.apply(null);
+
+    errorCollector.checkThat("Not even first evaluation done.", evaluations.get(),
+                             Matchers.equalTo(0));
+    errorCollector.checkThat("Timed out at deadline.",
+                             timeoutFunction.getLastEvent().getConsumedMs(),
+                             Matchers.equalTo(TimeUnit.SECONDS.toMillis(10L)));
+  }
+
+  @Test
+  public void defer_first_poll_by_rate_limiter() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    PollRateLimiter rateLimiter = new PollRateLimiter(testName.getMethodName(), 1d);
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(Functions.constant(1))
+            .toFulfill(Predicates.<Integer>alwaysTrue())
+            .within(10L, TimeUnit.SECONDS)
+            .withClock(clock)
+            .rateLimitedBy(rateLimiter)
+            .get();
+
+    // Another wait took tokens for the next 2 seconds.
+    rateLimiter.reserveNanos(clock.nanoTime(), 0L, Long.MAX_VALUE);
+    rateLimiter.reserveNanos(clock.nanoTime(), 0L, Long.MAX_VALUE);
+    long startNanos = clock.nanoTime();
+    waitFunction.apply(null);
+
+    errorCollector.checkThat("First evaluation waited for free token.",
+                             clock.nanoTime() - startNanos,
+                             Matchers.greaterThanOrEqualTo(TimeUnit.SECONDS.toNanos(2L)));
+  }
+
+  @Test
+  public void limit_rate_of_evaluations() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    PollRateLimiter rateLimiter = new PollRateLimiter(testName.getMethodName(), 2d);
+    final AtomicInteger evaluations = new AtomicInteger();
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            return evaluations.incrementAndGet();
+          }
+        })
+            .toFulfill(Predicates.<Integer>alwaysFalse())
+            .within(10L, TimeUnit.SECONDS)
+            .withInitialDelay(1L, TimeUnit.MICROSECONDS)
+            .pollingWith(PollingStrategies.fixed(1L, TimeUnit.MICROSECONDS))
+            .withClock(clock)
+            .rateLimitedBy(rateLimiter)
+            .onTimeout(new StoreTimeoutEvent<Void, Integer>())
+            .get();
+
+    waitFunction.apply(null);
+
+    errorCollector.checkThat("At most two evaluations per second.", evaluations.get(),
+                             Matchers.lessThanOrEqualTo(21));
+  }
+
+  @Test
+  public void retry_on_ignored_exception() throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            if (evaluations.incrementAndGet() < 3) {
+              throw new IllegalStateException("Not ready.");
+            }
+            return evaluations.get();
+          }
+        })
+            .within(1L, TimeUnit.HOURS)
+            .ignoringExceptions(IllegalStateException.class)
+            .withClock(new VirtualClock())
+            .get();
+
+    assertThat("Result after exceptions.", waitFunction.apply(null), Matchers.equalTo(3));
+  }
+
+  @Test
+  public void fail_immediately_on_other_exception() throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            evaluations.incrementAndGet();
+            throw new UnsupportedOperationException(testName.getMethodName());
+          }
+        })
+            .within(1L, TimeUnit.HOURS)
+            .ignoringExceptions(IllegalStateException.class)
+            .withClock(new VirtualClock())
+            .get();
+
+    try {
+      waitFunction.apply(null);
+      fail("Exception expected.");
+    } catch (UnsupportedOperationException e) {
+      errorCollector.checkThat("Evaluated once.", evaluations.get(), Matchers.equalTo(1));
+    }
+  }
+
+  @Test
+  public void back_off_on_consecutive_exceptions() throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            evaluations.incrementAndGet();
+            throw new IllegalStateException("Not ready.");
+          }
+        })
+            .within(10L, TimeUnit.SECONDS)
+            .withInitialDelay(1L, TimeUnit.MILLISECONDS)
+            .pollingWith(PollingStrategies.fixed(1L, TimeUnit.MILLISECONDS))
+            .ignoringExceptions(IllegalStateException.class)
+            .backingOffOnExceptionsBy(2d)
+            .withClock(new VirtualClock())
+            .onTimeout(new StoreTimeoutEvent<Void, Integer>())
+            .get();
+
+    waitFunction.apply(null);
+
+    // 1 ms doubled on each exception reaches 10 seconds after about 14 polls.
+    errorCollector.checkThat("Backed off.", evaluations.get(), Matchers.lessThan(20));
+  }
+
+  @Test
+  public void last_exception_is_cause_of_timeout() throws Exception {
+    final IllegalStateException exception = new IllegalStateException("Not ready.");
+    Function<Void, Integer> waitFunction =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            throw exception;
+          }
+        })
+            .within(1L, TimeUnit.SECONDS)
+            .ignoringExceptions(IllegalStateException.class)
+            .withClock(new VirtualClock())
+            .get();
+
+    try {
+      waitFunction.apply(null);
+      fail("Timeout expected.");
+    } catch (WaitTimeoutException e) {
+      errorCollector.checkThat("Last exception is cause.", e.getCause(),
+                               Matchers.<Throwable>sameInstance(exception));
+      errorCollector.checkThat("Last exception described.", e.getMessage(),
+                               Matchers.containsString("last exception: " + exception));
+    }
+  }
+
+  @Test
+  public void fail_fast_on_open_circuit_breaker() throws Exception {
+    final IllegalStateException exception = new IllegalStateException("Backend down.");
+    final AtomicInteger evaluations = new AtomicInteger();
+    VirtualClock clock = new VirtualClock();
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker(testName.getMethodName(), clock, 3, 1L, TimeUnit.MINUTES);
+    WaitFunctionBuilder<Void, Integer> builder =
+        WaitFunction.waitFor(new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            evaluations.incrementAndGet();
+            throw exception;
+          }
+        })
+            .within(1L, TimeUnit.HOURS)
+            .ignoringExceptions(IllegalStateException.class)
+            .withCircuitBreaker(circuitBreaker)
+            .withClock(clock);
+
+    try {
+      builder.get().apply(null);
+      fail("First wait: Open circuit breaker expected.");
+    } catch (CircuitBreakerOpenException e) {
+      errorCollector.checkThat("First wait evaluated up to threshold.", evaluations.get(),
+                               Matchers.equalTo(3));
+      errorCollector.checkThat("First wait: Last failure is cause.", e.getCause(),
+                               Matchers.<Throwable>sameInstance(exception));
+    }
+    try {
+      builder.get().apply(null);
+      fail("Second wait: Open circuit breaker expected.");
+    } catch (CircuitBreakerOpenException e) {
+      errorCollector.checkThat("Second wait did not evaluate.", evaluations.get(),
+                               Matchers.equalTo(3));
+      errorCollector.checkThat("Second wait: Name in message.", e.getMessage(),
+                               Matchers.containsString(testName.getMethodName()));
+    }
+  }
+
+  @Test
+  public void close_circuit_breaker_on_successful_trial() throws Exception {
+    VirtualClock clock = new VirtualClock();
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker(testName.getMethodName(), clock, 1, 1L, TimeUnit.MINUTES);
+    circuitBreaker.onFailure(null);
+    clock.advance(1L, TimeUnit.MINUTES);
+    Function<Object, Integer> waitFunction =
+        WaitFunction.waitFor(Functions.<Integer>constant(42))
+            .withCircuitBreaker(circuitBreaker)
+            .withClock(clock)
+            .get();
+
+    errorCollector.checkThat(waitFunction.apply(null), Matchers.equalTo(42));
+    errorCollector.checkThat("Closed after trial.", circuitBreaker.getState(),
+                             Matchers.equalTo(CircuitBreaker.State.CLOSED));
+  }
+
   private static class StoreTimeoutEvent<T, R> implements Function<WaitTimeoutEvent<T, R>, R> {
     private WaitTimeoutEvent<T, R> lastEvent;
 
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015 Mark Michaelis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.mmichaelis.hamcrest.nextdeed.concurrent;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import com.github.mmichaelis.hamcrest.nextdeed.glue.DescribedFunction;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Tests {@link WaitMetrics}.
+ *
+ * @since SINCE
+ */
+public class WaitMetricsTest {
+
+  @Rule
+  public ErrorCollector errorCollector = new ErrorCollector();
+
+  @Test
+  public void record_satisfied_wait() throws Exception {
+    WaitMetrics metrics = new WaitMetrics();
+
+    WaitFunction.waitFor(describedCountingFunction("counter"))
+        .toFulfill(Predicates.equalTo(3))
+        .withInitialDelay(1L, TimeUnit.MICROSECONDS)
+        .within(10L, TimeUnit.SECONDS)
+        .and()
+        .withListener(metrics)
+        .get()
+        .apply(null);
+
+    ProbeStatistics statistics = metrics.getStatistics("counter");
+    assertThat(statistics, notNullValue());
+    errorCollector.checkThat("Waits", statistics.getWaits(), equalTo(1L));
+    errorCollector.checkThat("Polls", statistics.getPolls(), equalTo(3L));
+    errorCollector.checkThat("Satisfied", statistics.getSatisfied(), equalTo(1L));
+    errorCollector.checkThat("Timeouts", statistics.getTimeouts(), equalTo(0L));
+    errorCollector.checkThat("Time to satisfy",
+                             statistics.getTimeToSatisfyMaxNanos(),
+                             greaterThan(0L));
+    errorCollector.checkThat("Total polls", metrics.getPolls(), equalTo(3L));
+  }
+
+  @Test
+  public void record_timed_out_wait() throws Exception {
+    WaitMetrics metrics = new WaitMetrics();
+
+    WaitFunction.waitFor(describedCountingFunction("counter"))
+        .toFulfill(Predicates.alwaysFalse())
+        .withinMs(0L)
+        .onTimeout(new Function<WaitTimeoutEvent<Void, Integer>, Integer>() {
+          @Override
+          public Integer apply(@Nullable WaitTimeoutEvent<Void, Integer> input) {
+            return null;
+          }
+        })
+        .withListener(metrics)
+        .get()
+        .apply(null);
+
+    errorCollector.checkThat("Timeouts", metrics.getTimeouts(), equalTo(1L));
+    errorCollector.checkThat("Satisfied", metrics.getSatisfied(), equalTo(0L));
+    errorCollector.checkThat("Timeout rate",
+                             metrics.getStatistics("counter").getTimeoutRate(),
+                             equalTo(1.0));
+
+    metrics.reset();
+
+    errorCollector.checkThat("Waits after reset", metrics.getWaits(), equalTo(0L));
+  }
+
+  @Test
+  public void record_failed_wait() throws Exception {
+    WaitMetrics metrics = new WaitMetrics();
+    Function<Void, Integer> failingFunction = DescribedFunction.describe(
+        new Function<Void, Integer>() {
+          @Override
+          public Integer apply(Void input) {
+            throw new IllegalStateException("Backend down.");
+          }
+        }).as("failing");
+
+    try {
+      WaitFunction.waitFor(failingFunction)
+          .toFulfill(Predicates.alwaysTrue())
+          .within(10L, TimeUnit.SECONDS)
+          .and()
+          .withListener(metrics)
+          .get()
+          .apply(null);
+    } catch (IllegalStateException ignored) {
+      // expected
+    }
+
+    ProbeStatistics statistics = metrics.getStatistics("failing");
+    assertThat(statistics, notNullValue());
+    errorCollector.checkThat("Failures", statistics.getFailures(), equalTo(1L));
+    errorCollector.checkThat("Total failures", metrics.getFailures(), equalTo(1L));
+    errorCollector.checkThat("Timeout rate", statistics.getTimeoutRate(), equalTo(0.0));
+  }
+
+  @Test
+  public void account_probes_beyond_maximum_to_other() throws Exception {
+    int maxProbes = 3;
+    WaitMetrics metrics = new WaitMetrics(maxProbes);
+
+    for (int i = 0; i <= maxProbes; i++) {
+      WaitFunction.waitFor(describedCountingFunction("probe-" + i))
+          .withListener(metrics)
+          .get()
+          .apply(null);
+    }
+
+    errorCollector.checkThat("Probes tracked separately plus others.",
+                             metrics.getProbes().size(),
+                             equalTo(maxProbes + 1));
+    errorCollector.checkThat("Waits of other probes.",
+                             metrics.getStatistics(WaitMetrics.OTHER_PROBES).getWaits(),
+                             equalTo(1L));
+  }
+
+  @Test
+  public void do_not_exceed_maximum_probes_when_starting_concurrently() throws Exception {
+    int maxProbes = 3;
+    int threadCount = 16;
+    final WaitMetrics metrics = new WaitMetrics(maxProbes);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      final WaitFunction<?, ?> waitFunction =
+          (WaitFunction<?, ?>) WaitFunction.waitFor(describedCountingFunction("probe-" + i)).get();
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Uninterruptibles.awaitUninterruptibly(start);
+          metrics.onStart(waitFunction);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    errorCollector.checkThat("Probes tracked separately plus others.",
+                             metrics.getProbes().size(),
+                             equalTo(maxProbes + 1));
+    errorCollector.checkThat("All waits recorded.", metrics.getWaits(),
+                             equalTo((long) threadCount));
+  }
+
+  @Test
+  public void name_anonymous_functions_by_class() throws Exception {
+    Function<Void, Integer> function = countingFunction();
+    WaitFunction<?, ?> waitFunction =
+        (WaitFunction<?, ?>) WaitFunction.waitFor(function).get();
+
+    assertThat(WaitMetrics.probeName(waitFunction), equalTo(function.getClass().getName()));
+  }
+
+  @Test
+  public void install_publishes_mbean() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(WaitMetrics.OBJECT_NAME);
+    WaitMetrics.shared().reset();
+
+    WaitMetrics.install();
+    try {
+      WaitMetrics.install();
+      WaitFunction.waitFor(describedCountingFunction("shared")).get().apply(null);
+
+      errorCollector.checkThat("Registered", server.isRegistered(name), equalTo(true));
+      errorCollector.checkThat("Waits via JMX",
+                               (Long) server.getAttribute(name, "Waits"),
+                               equalTo(1L));
+      WaitMetricsMXBean proxy = JMX.newMXBeanProxy(server, name, WaitMetricsMXBean.class);
+      errorCollector.checkThat("Probes via JMX", proxy.getProbes(), hasKey("shared"));
+    } finally {
+      WaitMetrics.uninstall();
+    }
+    WaitFunction.waitFor(describedCountingFunction("shared")).get().apply(null);
+
+    errorCollector.checkThat("Unregistered", server.isRegistered(name), equalTo(false));
+    errorCollector.checkThat("No more metrics collected",
+                             WaitMetrics.shared().getWaits(),
+                             equalTo(1L));
+    WaitMetrics.shared().reset();
+  }
+
+  @NotNull
+  private static Function<Void, Integer> describedCountingFunction(@NotNull String name) {
+    return DescribedFunction.describe(countingFunction()).as(name);
+  }
+
+  @NotNull
+  private static Function<Void, Integer> countingFunction() {
+    final AtomicInteger calls = new AtomicInteger();
+    return new Function<Void, Integer>() {
+      @Override
+      public Integer apply(Void input) {
+        return calls.incrementAndGet();
+      }
+    };
+  }
+}